@@ -0,0 +1,314 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.TimestampBound;
+import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+import liquibase.ChecksumVersion;
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Liquibase;
+import liquibase.Scope;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.changelog.RanChangeSet;
+import liquibase.changelog.filter.ChangeSetFilter;
+import liquibase.changelog.filter.ContextChangeSetFilter;
+import liquibase.changelog.filter.DbmsChangeSetFilter;
+import liquibase.changelog.filter.IgnoreChangeSetFilter;
+import liquibase.changelog.filter.LabelChangeSetFilter;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LiquibaseException;
+import liquibase.util.MD5Util;
+
+/**
+ * Skips the update of a changelog that has already been applied, without taking the changelog lock.
+ *
+ * <p>A hash of the changelog is recorded in the DATABASECHANGELOGHASH table after all of its
+ * changesets have been applied. The hash covers the id, author, path, checksum, contexts, labels
+ * and dbms of all changesets, and the contexts and labels of the update. The row also records the
+ * number of rows in DATABASECHANGELOG, so a rollback or any other change to the history
+ * invalidates it. Before the next update of the same changelog, the hash is compared with one
+ * stale read (see {@link SpannerConfiguration#CHANGE_LOG_HASH_STALENESS}). The update, including
+ * the changelog lock, is skipped if the hash matches.
+ *
+ * <p>Changelogs with runAlways changesets are always updated.
+ *
+ * <p>Usage:
+ *
+ * <pre>{@code
+ * try (Liquibase liquibase = new Liquibase(changeLogFile, resourceAccessor, database)) {
+ *   ChangeLogFastPath.update(liquibase, new Contexts(), new LabelExpression());
+ * }
+ * }</pre>
+ */
+public final class ChangeLogFastPath {
+  static final String TABLE_NAME = "DATABASECHANGELOGHASH";
+
+  private ChangeLogFastPath() {}
+
+  /**
+   * Updates the database with the changelog of the given Liquibase instance, unless the changelog
+   * has already been applied with the same contexts and labels. Returns true if the update was
+   * executed.
+   */
+  public static boolean update(Liquibase liquibase, Contexts contexts, LabelExpression labels)
+      throws LiquibaseException {
+    Database database = liquibase.getDatabase();
+    DatabaseChangeLog changeLog = liquibase.getDatabaseChangeLog();
+    String hash = computeHash(changeLog, contexts, labels);
+    if (hash != null && isApplied(database, changeLog.getFilePath(), hash)) {
+      Scope.getCurrentScope()
+          .getLog(ChangeLogFastPath.class)
+          .info("Changelog " + changeLog.getFilePath() + " has already been applied");
+      return false;
+    }
+    liquibase.update(contexts, labels);
+    if (hash != null) {
+      List<RanChangeSet> ranChangeSets = database.getRanChangeSetList();
+      if (isFullyApplied(database, changeLog, ranChangeSets, contexts, labels)) {
+        record(database, changeLog.getFilePath(), hash, ranChangeSets.size());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the hash of the given changelog, or null if the changelog contains changesets that
+   * must run on every update.
+   */
+  @Nullable
+  static String computeHash(
+      DatabaseChangeLog changeLog, Contexts contexts, LabelExpression labels) {
+    StringBuilder value =
+        new StringBuilder(String.valueOf(contexts))
+            .append('\n')
+            .append(String.valueOf(labels))
+            .append('\n');
+    for (ChangeSet changeSet : changeLog.getChangeSets()) {
+      if (changeSet.isAlwaysRun()) {
+        return null;
+      }
+      // The checksum of the changeset also covers its modifySql. The contexts, labels and dbms
+      // decide whether the changeset runs at all, so a change to them must invalidate the hash.
+      Set<String> dbms = changeSet.getDbmsSet();
+      value
+          .append(changeSet.getFilePath())
+          .append("::")
+          .append(changeSet.getId())
+          .append("::")
+          .append(changeSet.getAuthor())
+          .append(':')
+          .append(changeSet.generateCheckSum(ChecksumVersion.latest()))
+          .append(':')
+          .append(changeSet.getContextFilter())
+          .append(':')
+          .append(changeSet.getLabels())
+          .append(':')
+          .append(dbms == null ? null : new TreeSet<>(dbms))
+          .append('\n');
+    }
+    return MD5Util.computeMD5(value.toString());
+  }
+
+  /** Returns true if the given hash has been recorded for the changelog with the given path. */
+  private static boolean isApplied(Database database, String changeLogPath, String hash) {
+    Connection connection = getJdbcConnection(database);
+    String sql =
+        String.format(
+            "SELECT %s, %s, (SELECT COUNT(*) FROM %s) FROM %s WHERE %s=?",
+            name(database, "MD5SUM"),
+            name(database, "CHANGELOG_ROWS"),
+            database.escapeTableName(
+                database.getLiquibaseCatalogName(),
+                database.getLiquibaseSchemaName(),
+                database.getDatabaseChangeLogTableName()),
+            getEscapedTableName(database),
+            name(database, "ID"));
+    try {
+      boolean autoCommit = connection.getAutoCommit();
+      if (!autoCommit) {
+        connection.setAutoCommit(true);
+      }
+      try {
+        try (MetadataStaleness ignored = MetadataStaleness.begin(connection, getStaleness());
+            PreparedStatement ps = connection.prepareStatement(sql)) {
+          ps.setString(1, changeLogPath);
+          try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() && hash.equals(rs.getString(1)) && rs.getLong(2) == rs.getLong(3);
+          }
+        }
+      } finally {
+        if (!autoCommit) {
+          connection.setAutoCommit(false);
+        }
+      }
+    } catch (SQLException e) {
+      // The table does not exist before the first changelog has been recorded.
+      Scope.getCurrentScope()
+          .getLog(ChangeLogFastPath.class)
+          .fine("Could not read the hash of " + changeLogPath + ": " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Returns true if all changesets of the changelog that match the given contexts and labels have
+   * been applied.
+   */
+  private static boolean isFullyApplied(
+      Database database,
+      DatabaseChangeLog changeLog,
+      List<RanChangeSet> ranChangeSets,
+      Contexts contexts,
+      LabelExpression labels) {
+    ChangeSetFilter[] filters = {
+      new ContextChangeSetFilter(contexts),
+      new LabelChangeSetFilter(labels),
+      new DbmsChangeSetFilter(database),
+      new IgnoreChangeSetFilter()
+    };
+    for (ChangeSet changeSet : changeLog.getChangeSets()) {
+      boolean accepted = true;
+      for (ChangeSetFilter filter : filters) {
+        accepted &= filter.accepts(changeSet).isAccepted();
+      }
+      if (accepted && ranChangeSets.stream().noneMatch(ran -> ran.isSameAs(changeSet))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Records the hash of the changelog with the given path. A failure is only logged. */
+  private static void record(
+      Database database, String changeLogPath, String hash, int changeLogRows) {
+    Connection connection = getJdbcConnection(database);
+    try {
+      boolean autoCommit = connection.getAutoCommit();
+      if (!autoCommit) {
+        connection.setAutoCommit(true);
+      }
+      try {
+        createTableIfNotExists(database, connection);
+        connection
+            .unwrap(CloudSpannerJdbcConnection.class)
+            .write(
+                Mutation.newInsertOrUpdateBuilder(getMutationTableName(database))
+                    .set(name(database, "ID"))
+                    .to(changeLogPath)
+                    .set(name(database, "MD5SUM"))
+                    .to(hash)
+                    .set(name(database, "CHANGELOG_ROWS"))
+                    .to(changeLogRows)
+                    .build());
+      } finally {
+        if (!autoCommit) {
+          connection.setAutoCommit(false);
+        }
+      }
+    } catch (SQLException | DatabaseException e) {
+      Scope.getCurrentScope()
+          .getLog(ChangeLogFastPath.class)
+          .warning("Could not record the hash of " + changeLogPath + ": " + e.getMessage());
+    }
+  }
+
+  private static void createTableIfNotExists(Database database, Connection connection)
+      throws SQLException, DatabaseException {
+    // Only execute the DDL statement if the table does not exist, as a schema change is slow.
+    try (PreparedStatement ps =
+        connection.prepareStatement(
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+                + "WHERE TABLE_SCHEMA=? AND TABLE_NAME=?")) {
+      String schemaName = database.getLiquibaseSchemaName();
+      ps.setString(1, schemaName == null ? database.getDefaultSchemaName() : schemaName);
+      ps.setString(2, name(database, TABLE_NAME));
+      try (ResultSet rs = ps.executeQuery()) {
+        if (rs.next() && rs.getLong(1) > 0L) {
+          return;
+        }
+      }
+    }
+    String sql;
+    if (isPostgreSQL(database)) {
+      sql =
+          String.format(
+              "CREATE TABLE IF NOT EXISTS %s (id varchar NOT NULL PRIMARY KEY, md5sum varchar, "
+                  + "changelog_rows bigint)",
+              getEscapedTableName(database));
+    } else {
+      sql =
+          String.format(
+              "CREATE TABLE IF NOT EXISTS %s (ID STRING(MAX) NOT NULL, MD5SUM STRING(MAX), "
+                  + "CHANGELOG_ROWS INT64) PRIMARY KEY (ID)",
+              getEscapedTableName(database));
+    }
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  @Nullable
+  private static TimestampBound getStaleness() {
+    return MetadataStaleness.parse(
+        SpannerConfiguration.CHANGE_LOG_HASH_STALENESS.getKey(),
+        SpannerConfiguration.CHANGE_LOG_HASH_STALENESS.getCurrentValue());
+  }
+
+  private static boolean isPostgreSQL(Database database) {
+    return ((ICloudSpanner) database).getDialect() == Dialect.POSTGRESQL;
+  }
+
+  /** PostgreSQL folds unquoted identifiers to lower case. */
+  private static String name(Database database, String name) {
+    return isPostgreSQL(database) ? name.toLowerCase(Locale.ROOT) : name;
+  }
+
+  private static String getEscapedTableName(Database database) {
+    return database.escapeTableName(
+        database.getLiquibaseCatalogName(),
+        database.getLiquibaseSchemaName(),
+        name(database, TABLE_NAME));
+  }
+
+  private static String getMutationTableName(Database database) {
+    String schemaName = database.getLiquibaseSchemaName();
+    String tableName = name(database, TABLE_NAME);
+    if (schemaName == null
+        || schemaName.isEmpty()
+        || schemaName.equalsIgnoreCase(database.getDefaultSchemaName())) {
+      return tableName;
+    }
+    return schemaName + "." + tableName;
+  }
+
+  private static Connection getJdbcConnection(Database database) {
+    return ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+  }
+}
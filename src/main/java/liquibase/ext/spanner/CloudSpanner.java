@@ -27,6 +27,7 @@ import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.Date;
+import java.util.Locale;
 import java.util.Objects;
 import javax.annotation.Nullable;
 import liquibase.Scope;
@@ -147,15 +148,18 @@ public class CloudSpanner extends AbstractJdbcDatabase implements ICloudSpanner
     // Liquibase based on the connection URL that is configured. In that case, the
     // CloudSpannerConnection class will ensure that the correct user-agent string is set. That is
     // not the case when a user creates the connection programmatically and passes it in to
-    // Liquibase. This method therefore checks whether it is actually a Spanner JDBC connection,
-    // and if it is, replaces it with a new connection that uses the same connection URL + the
-    // user-agent string. The original connection is kept open in case the caller also uses the
+    // Liquibase. The connection of the user is used as is by default, as a replacement connection
+    // would need its own Spanner client. If replaceUserConnection is enabled, this method checks
+    // whether it is actually a Spanner JDBC connection, and if it is, replaces it with a new
+    // connection that uses the same connection URL + the user-agent string (see
+    // getReplacementUrl). The original connection is kept open in case the caller also uses the
     // connection for other purposes, but will automatically be closed when the 'replacement'
     // connection is closed.
     // The latter should be safe, even if the caller uses the connection for other purposes, as
     // even if the connection was not replaced it would have been closed by Liquibase at the same
     // moment.
-    if (!(conn instanceof CloudSpannerConnection)
+    if (Boolean.TRUE.equals(SpannerConfiguration.REPLACE_USER_CONNECTION.getCurrentValue())
+        && !(conn instanceof CloudSpannerConnection)
         && conn instanceof JdbcConnection
         && ((JdbcConnection) conn).getUnderlyingConnection()
             instanceof CloudSpannerJdbcConnection) {
@@ -167,7 +171,7 @@ public class CloudSpanner extends AbstractJdbcDatabase implements ICloudSpanner
         try {
           connectionToUse =
               new CloudSpannerConnection(
-                  DriverManager.getConnection(conn.getURL() + ";userAgent=sp-liq"), conn);
+                  DriverManager.getConnection(getReplacementUrl(conn.getURL())), conn);
         } catch (SQLException e) {
           // Ignore and use the original connection. This could for example happen if the user is
           // using an older version of the Spanner JDBC driver that does not support this user-agent
@@ -178,6 +182,27 @@ public class CloudSpanner extends AbstractJdbcDatabase implements ICloudSpanner
     super.setConnection(connectionToUse);
   }
 
+  /**
+   * Returns the URL of the connection that replaces a Spanner JDBC connection that was passed in
+   * by the user. The JDBC driver shares a Spanner instance between all connections with the same
+   * options, but the user-agent is one of these options, so the replacement gets its own instance.
+   * That instance is only used by Liquibase, and therefore creates sessions on demand and uses a
+   * single gRPC channel, unless the original URL specifies otherwise. Properties that were passed
+   * to the driver together with the original URL are not known here, so the original URL must
+   * contain all options that the replacement needs, such as credentials.
+   */
+  static String getReplacementUrl(String url) {
+    StringBuilder result = new StringBuilder(url).append(";userAgent=sp-liq");
+    String lowerCaseUrl = url.toLowerCase(Locale.ROOT);
+    if (!lowerCaseUrl.contains(";minsessions=")) {
+      result.append(";minSessions=0");
+    }
+    if (!lowerCaseUrl.contains(";numchannels=")) {
+      result.append(";numChannels=1");
+    }
+    return result.toString();
+  }
+
   @Override
   public boolean supportsInitiallyDeferrableColumns() {
     return false;
@@ -13,17 +13,34 @@
  */
 package liquibase.ext.spanner;
 
+import com.google.cloud.spanner.Spanner;
+import com.google.cloud.spanner.SpannerOptions;
+import com.google.cloud.spanner.connection.ConnectionOptions;
 import com.google.cloud.spanner.jdbc.JdbcDriver;
+import io.grpc.ManagedChannelBuilder;
 import java.sql.Connection;
 import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Locale;
 import java.util.Properties;
 import liquibase.database.DatabaseConnection;
 import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.DatabaseException;
 
 public class CloudSpannerConnection extends JdbcConnection {
+  private static final String JDBC_PREFIX = "jdbc:";
+  private static final String CLIENT_LIB_TOKEN = "sp-liq";
+  private static final String DEFAULT_EMULATOR_HOST = "localhost:9010";
+
   private final DatabaseConnection originalConnection;
 
+  /** The driver properties that Liquibase used to open this connection, such as credentials. */
+  private final Properties driverProperties = new Properties();
+
+  /** The client for admin RPCs on the database of this connection, created on first use. */
+  private Spanner adminClient;
+
   public CloudSpannerConnection() {
     this.originalConnection = null;
   }
@@ -46,6 +63,12 @@ public class CloudSpannerConnection extends JdbcConnection {
 
   @Override
   public void close() throws DatabaseException {
+    synchronized (this) {
+      if (adminClient != null) {
+        adminClient.close();
+        adminClient = null;
+      }
+    }
     // Also close the original connection that this connection replaced.
     if (originalConnection != null && !originalConnection.isClosed()) {
       originalConnection.close();
@@ -71,6 +94,101 @@ public class CloudSpannerConnection extends JdbcConnection {
         }
       }
     }
+    if (driverProperties != null) {
+      this.driverProperties.putAll(driverProperties);
+    }
     super.open(url, driverObject, driverProperties);
   }
+
+  /**
+   * Opens a new JDBC connection to the same database as the given connection, for work that runs
+   * next to it, such as parallel writes. The new connection uses the URL of the given connection,
+   * and the driver properties that Liquibase used to open it. Connections with the same URL and
+   * properties share the underlying Spanner client and session pool. Only the URL is known of a
+   * connection that was passed in by the application, so that URL must contain all options that
+   * the new connection needs. The caller must close the connection.
+   */
+  public static Connection openAdditionalConnection(DatabaseConnection connection)
+      throws SQLException {
+    Properties properties = new Properties();
+    if (connection instanceof CloudSpannerConnection) {
+      properties.putAll(((CloudSpannerConnection) connection).driverProperties);
+    }
+    return DriverManager.getConnection(connection.getURL(), properties);
+  }
+
+  /**
+   * Returns the client for admin RPCs, such as GetDatabaseDdl, on the database of this connection.
+   * The JDBC driver does not expose its own Spanner client, so this connection creates one client
+   * with the same options the first time that it is needed, and closes it together with the
+   * connection.
+   */
+  public synchronized Spanner getAdminClient() throws DatabaseException {
+    if (adminClient == null) {
+      adminClient = createAdminClient(getConnectionOptions(this));
+    }
+    return adminClient;
+  }
+
+  /**
+   * Returns the options of the given Spanner JDBC connection. The driver properties that Liquibase
+   * used to open the connection are added to the URL in the same way as the JDBC driver does. Only
+   * the URL is known of a connection that was passed in by the application.
+   */
+  public static ConnectionOptions getConnectionOptions(DatabaseConnection connection)
+      throws DatabaseException {
+    String url = connection.getURL();
+    if (url == null || !url.startsWith(JDBC_PREFIX)) {
+      throw new DatabaseException("Not a Spanner JDBC connection: " + url);
+    }
+    StringBuilder uri = new StringBuilder(url.substring(JDBC_PREFIX.length()));
+    if (connection instanceof CloudSpannerConnection) {
+      Properties properties = ((CloudSpannerConnection) connection).driverProperties;
+      String lowerCaseUri = uri.toString().toLowerCase(Locale.ROOT);
+      for (String name : properties.stringPropertyNames()) {
+        String value = properties.getProperty(name);
+        // The user name and password of Liquibase are not Spanner connection properties.
+        if (!value.isEmpty()
+            && !"user".equalsIgnoreCase(name)
+            && !"password".equalsIgnoreCase(name)
+            && !lowerCaseUri.contains(";" + name.toLowerCase(Locale.ROOT) + "=")) {
+          uri.append(';').append(name).append('=').append(value);
+        }
+      }
+    }
+    return ConnectionOptions.newBuilder().setUri(uri.toString()).build();
+  }
+
+  /**
+   * Creates a client for admin RPCs with the host, credentials and emulator settings of the given
+   * options. The caller must close the client.
+   */
+  public static Spanner createAdminClient(ConnectionOptions options) {
+    SpannerOptions.Builder builder =
+        SpannerOptions.newBuilder().setProjectId(options.getProjectId());
+    builder.setClientLibToken(CLIENT_LIB_TOKEN);
+    if (options.isAutoConfigEmulator()) {
+      // The emulator is used without credentials and TLS, just like the JDBC driver does.
+      builder.setEmulatorHost(getEmulatorHost(options));
+    } else {
+      builder.setHost(options.getHost()).setCredentials(options.getCredentials());
+      if (options.isUsePlainText()) {
+        builder.setChannelConfigurator(ManagedChannelBuilder::usePlaintext);
+      }
+    }
+    return builder.build().getService();
+  }
+
+  /**
+   * Returns the host of the emulator, which is the host in the URL, SPANNER_EMULATOR_HOST or the
+   * default emulator host.
+   */
+  private static String getEmulatorHost(ConnectionOptions options) {
+    String host = options.getHost();
+    if (host != null && !host.contains("spanner.googleapis.com")) {
+      return host.replaceFirst("^https?://", "");
+    }
+    String environment = System.getenv("SPANNER_EMULATOR_HOST");
+    return environment == null || environment.isEmpty() ? DEFAULT_EMULATOR_HOST : environment;
+  }
 }
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner;
+
+import com.google.cloud.spanner.TimestampBound;
+import com.google.cloud.spanner.TimestampBound.Mode;
+import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.UnexpectedLiquibaseException;
+
+/**
+ * Runs INFORMATION_SCHEMA queries as stale reads, if {@link
+ * SpannerConfiguration#METADATA_STALENESS} is set. Stale reads can be served by the nearest
+ * replica, without a round trip to the leader region of the database.
+ *
+ * <p>Usage:
+ *
+ * <pre>{@code
+ * try (MetadataStaleness ignored = MetadataStaleness.begin(connection)) {
+ *   // execute metadata queries
+ * }
+ * }</pre>
+ *
+ * The staleness is only applied if the connection is in autocommit mode, as the queries would
+ * otherwise be part of a read/write transaction. Each query is then executed as a single-use
+ * read-only transaction.
+ */
+public class MetadataStaleness implements AutoCloseable {
+  private static final Pattern STALENESS =
+      Pattern.compile(
+          "^\\s*(EXACT_STALENESS|MAX_STALENESS)\\s+(\\d+)\\s*(s|ms|us|ns)\\s*$",
+          Pattern.CASE_INSENSITIVE);
+
+  private static final MetadataStaleness NOOP = new MetadataStaleness(null, null, false);
+
+  @Nullable private final CloudSpannerJdbcConnection connection;
+  @Nullable private final TimestampBound previousStaleness;
+  private final boolean resetReadOnly;
+
+  private MetadataStaleness(
+      @Nullable CloudSpannerJdbcConnection connection,
+      @Nullable TimestampBound previousStaleness,
+      boolean resetReadOnly) {
+    this.connection = connection;
+    this.previousStaleness = previousStaleness;
+    this.resetReadOnly = resetReadOnly;
+  }
+
+  /**
+   * Applies the configured staleness to the given connection until the returned object is closed.
+   * Does nothing if no staleness has been configured.
+   */
+  public static MetadataStaleness begin(Connection connection) throws SQLException {
+    return begin(connection, getConfiguredStaleness());
+  }
+
+  /** Applies the given staleness to the given connection. Does nothing if it is null. */
+  public static MetadataStaleness begin(Connection connection, @Nullable TimestampBound staleness)
+      throws SQLException {
+    if (staleness == null
+        || !connection.getAutoCommit()
+        || !connection.isWrapperFor(CloudSpannerJdbcConnection.class)) {
+      return NOOP;
+    }
+    CloudSpannerJdbcConnection spannerConnection =
+        connection.unwrap(CloudSpannerJdbcConnection.class);
+    boolean resetReadOnly = !connection.isReadOnly();
+    if (resetReadOnly) {
+      connection.setReadOnly(true);
+    }
+    TimestampBound previousStaleness = spannerConnection.getReadOnlyStaleness();
+    spannerConnection.setReadOnlyStaleness(staleness);
+    return new MetadataStaleness(spannerConnection, previousStaleness, resetReadOnly);
+  }
+
+  /** Applies the configured staleness to the JDBC connection of the given database. */
+  public static MetadataStaleness begin(Database database) throws SQLException {
+    if (!(database.getConnection() instanceof JdbcConnection)) {
+      return NOOP;
+    }
+    return begin(((JdbcConnection) database.getConnection()).getUnderlyingConnection());
+  }
+
+  @Override
+  public void close() throws SQLException {
+    if (connection == null) {
+      return;
+    }
+    connection.setReadOnlyStaleness(previousStaleness);
+    if (resetReadOnly) {
+      connection.setReadOnly(false);
+    }
+  }
+
+  /** Returns the configured staleness for metadata queries, or null if strong reads are used. */
+  @Nullable
+  public static TimestampBound getConfiguredStaleness() {
+    return parse(SpannerConfiguration.METADATA_STALENESS.getCurrentValue());
+  }
+
+  /**
+   * Returns true if the given staleness can be used for a read-only transaction with multiple
+   * queries. Bounded staleness can only be used for single-use read-only transactions.
+   */
+  public static boolean isSupportedInTransactions(TimestampBound staleness) {
+    return staleness.getMode() != Mode.MAX_STALENESS
+        && staleness.getMode() != Mode.MIN_READ_TIMESTAMP;
+  }
+
+  /**
+   * Returns a staleness that can be used for a read-only transaction with multiple queries. A
+   * bounded staleness is replaced by an exact staleness of the same duration, or by a read at the
+   * minimum read timestamp, which reads data that is also within the bound. Other values are
+   * returned as is.
+   */
+  public static TimestampBound forTransactions(TimestampBound staleness) {
+    switch (staleness.getMode()) {
+      case MAX_STALENESS:
+        return TimestampBound.ofExactStaleness(
+            staleness.getStaleness(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+      case MIN_READ_TIMESTAMP:
+        return TimestampBound.ofReadTimestamp(staleness.getMinReadTimestamp());
+      default:
+        return staleness;
+    }
+  }
+
+  /**
+   * Parses a staleness in the same format as the READ_ONLY_STALENESS connection variable of the
+   * Spanner JDBC driver, e.g. {@code MAX_STALENESS 10s} or {@code EXACT_STALENESS 500ms}. Returns
+   * null for null, empty and {@code STRONG}.
+   */
+  @Nullable
+  static TimestampBound parse(@Nullable String value) {
+    return parse(SpannerConfiguration.METADATA_STALENESS.getKey(), value);
+  }
+
+  /** Parses the staleness of the given configuration option. */
+  @Nullable
+  static TimestampBound parse(String key, @Nullable String value) {
+    if (value == null || value.trim().isEmpty() || "STRONG".equalsIgnoreCase(value.trim())) {
+      return null;
+    }
+    Matcher matcher = STALENESS.matcher(value);
+    if (!matcher.matches()) {
+      throw new UnexpectedLiquibaseException(
+          "Invalid value for "
+              + key
+              + ": "
+              + value
+              + ". Expected STRONG, EXACT_STALENESS <duration> or MAX_STALENESS <duration>,"
+              + " where duration is a number followed by s, ms, us or ns.");
+    }
+    long amount = Long.parseLong(matcher.group(2));
+    TimeUnit unit;
+    switch (matcher.group(3).toLowerCase(Locale.ROOT)) {
+      case "s":
+        unit = TimeUnit.SECONDS;
+        break;
+      case "ms":
+        unit = TimeUnit.MILLISECONDS;
+        break;
+      case "us":
+        unit = TimeUnit.MICROSECONDS;
+        break;
+      default:
+        unit = TimeUnit.NANOSECONDS;
+    }
+    return "EXACT_STALENESS".equalsIgnoreCase(matcher.group(1))
+        ? TimestampBound.ofExactStaleness(amount, unit)
+        : TimestampBound.ofMaxStaleness(amount, unit);
+  }
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner;
+
+import liquibase.configuration.AutoloadedConfigurations;
+import liquibase.configuration.ConfigurationDefinition;
+
+/**
+ * Configuration options of the Spanner extension. The options can be set in the same way as any
+ * other Liquibase option, for example as a system property ({@code
+ * -Dliquibase.spanner.snapshotCacheDirectory=...}), an environment variable ({@code
+ * LIQUIBASE_SPANNER_SNAPSHOT_CACHE_DIRECTORY}) or in liquibase.properties.
+ */
+public class SpannerConfiguration implements AutoloadedConfigurations {
+
+  public static final ConfigurationDefinition<String> SNAPSHOT_CACHE_DIRECTORY;
+  public static final ConfigurationDefinition<Boolean> SNAPSHOT_FROM_DDL;
+  public static final ConfigurationDefinition<String> METADATA_STALENESS;
+  public static final ConfigurationDefinition<Boolean> AUTO_BATCH_DDL;
+  public static final ConfigurationDefinition<Boolean> LOAD_DATA_WITH_MUTATIONS;
+  public static final ConfigurationDefinition<Integer> LOAD_DATA_MAX_MUTATIONS_PER_COMMIT;
+  public static final ConfigurationDefinition<Integer> LOAD_DATA_PARALLELISM;
+  public static final ConfigurationDefinition<Integer> LOAD_DATA_STREAM_BATCH_SIZE;
+  public static final ConfigurationDefinition<Boolean> USE_INSERT_OR_UPDATE;
+  public static final ConfigurationDefinition<Integer> LOAD_DATA_ROWS_PER_STATEMENT;
+  public static final ConfigurationDefinition<Boolean> PARAMETERIZED_INSERTS;
+  public static final ConfigurationDefinition<Boolean> PARTITIONED_DML_WITHOUT_WHERE;
+  public static final ConfigurationDefinition<Integer> ADD_LOOKUP_TABLE_BATCH_SIZE;
+  public static final ConfigurationDefinition<Integer> ADD_COLUMN_PARTITIONED_DML_THRESHOLD;
+  public static final ConfigurationDefinition<Integer> LOCK_LEASE_SECONDS;
+  public static final ConfigurationDefinition<String> CHANGE_LOG_HASH_STALENESS;
+  public static final ConfigurationDefinition<String> CHANGE_LOG_CACHE_DIRECTORY;
+  public static final ConfigurationDefinition<Boolean> REPLACE_USER_CONNECTION;
+
+  static {
+    ConfigurationDefinition.Builder builder =
+        new ConfigurationDefinition.Builder("liquibase.spanner");
+
+    SNAPSHOT_CACHE_DIRECTORY =
+        builder
+            .define("snapshotCacheDirectory", String.class)
+            .setDescription(
+                "Directory where the Spanner-specific metadata of database snapshots is cached. "
+                    + "The cache is keyed by a hash of the database DDL, and is reused as long as "
+                    + "the schema does not change. Caching is disabled if not set.")
+            .build();
+
+    SNAPSHOT_FROM_DDL =
+        builder
+            .define("snapshotFromDdl", Boolean.class)
+            .setDescription(
+                "Reads the Spanner-specific metadata of database snapshots of GoogleSQL-dialect "
+                    + "databases from the DDL that is returned by one GetDatabaseDdl RPC, instead "
+                    + "of with INFORMATION_SCHEMA queries. Only used for the default schema.")
+            .setDefaultValue(false)
+            .build();
+
+    METADATA_STALENESS =
+        builder
+            .define("metadataStaleness", String.class)
+            .setDescription(
+                "Staleness of INFORMATION_SCHEMA queries, e.g. 'MAX_STALENESS 10s' or "
+                    + "'EXACT_STALENESS 15s'. Stale reads can be served by the nearest replica. "
+                    + "Only use this if the schema is not changed by other processes, and if "
+                    + "changesets do not inspect objects that were changed within the staleness "
+                    + "bound. Metadata queries use strong reads if not set.")
+            .setDefaultValue("STRONG")
+            .build();
+
+    AUTO_BATCH_DDL =
+        builder
+            .define("autoBatchDdl", Boolean.class)
+            .setDescription(
+                "Collects the DDL statements of consecutive changesets into one DDL batch, which "
+                    + "is executed as a single schema change. The batch is executed when a "
+                    + "statement other than DDL is executed. The changesets are recorded in "
+                    + "DATABASECHANGELOG after the batch has been applied.")
+            .setDefaultValue(false)
+            .build();
+
+    LOAD_DATA_WITH_MUTATIONS =
+        builder
+            .define("loadDataWithMutations", Boolean.class)
+            .setDescription(
+                "Writes the rows of loadData and loadUpdateData as mutations instead of DML "
+                    + "statements. The values are converted to the types of the columns in the "
+                    + "table.")
+            .setDefaultValue(false)
+            .build();
+
+    LOAD_DATA_MAX_MUTATIONS_PER_COMMIT =
+        builder
+            .define("loadDataMaxMutationsPerCommit", Integer.class)
+            .setDescription(
+                "Splits the mutations of loadData and loadUpdateData into multiple commits that "
+                    + "each stay below this number of mutations. Spanner allows at most 80,000 "
+                    + "mutations per commit. The progress is recorded in the "
+                    + "DATABASECHANGELOGPROGRESS table, so a failed changeset resumes after the "
+                    + "last commit. Requires loadDataWithMutations. All rows are written in one "
+                    + "commit if not set.")
+            .build();
+
+    LOAD_DATA_PARALLELISM =
+        builder
+            .define("loadDataParallelism", Integer.class)
+            .setDescription(
+                "The number of connections that loadData and loadUpdateData use to write "
+                    + "mutations in parallel. The rows are split into partitions by a hash of "
+                    + "their primary key. Requires loadDataWithMutations.")
+            .setDefaultValue(1)
+            .build();
+
+    LOAD_DATA_STREAM_BATCH_SIZE =
+        builder
+            .define("loadDataStreamBatchSize", Integer.class)
+            .setDescription(
+                "Streams the rows of the CSV file of loadData and loadUpdateData, and writes them "
+                    + "in batches of at most this number of rows. The memory usage then does not "
+                    + "depend on the size of the file. Gzip-compressed files are also supported in "
+                    + "this mode. All rows are read into memory before they are written if not "
+                    + "set.")
+            .build();
+
+    USE_INSERT_OR_UPDATE =
+        builder
+            .define("useInsertOrUpdate", Boolean.class)
+            .setDescription(
+                "Generates one INSERT OR UPDATE statement per row for loadUpdateData on GoogleSQL "
+                    + "databases. Set to false for databases that do not support INSERT OR "
+                    + "UPDATE, which then use an INSERT ... WHERE NOT EXISTS statement followed "
+                    + "by an UPDATE statement.")
+            .setDefaultValue(true)
+            .build();
+
+    LOAD_DATA_ROWS_PER_STATEMENT =
+        builder
+            .define("loadDataRowsPerStatement", Integer.class)
+            .setDescription(
+                "Merges up to this number of rows of loadData and loadUpdateData into one "
+                    + "multi-row INSERT [OR UPDATE] ... VALUES statement. Statements are also "
+                    + "limited by the maximum statement size and number of mutations. Only used "
+                    + "if the rows are not written as prepared statements or mutations. Each row "
+                    + "is written with a separate statement if not set.")
+            .build();
+
+    PARAMETERIZED_INSERTS =
+        builder
+            .define("parameterizedInserts", Boolean.class)
+            .setDescription(
+                "Sends the values of generated INSERT statements as query parameters instead of "
+                    + "literals, so that rows with the same columns share one statement text and "
+                    + "query plan. NULL values, functions and numbers with a fraction are still "
+                    + "inlined. The SQL that is logged and generated by updateSql is unchanged.")
+            .setDefaultValue(false)
+            .build();
+
+    PARTITIONED_DML_WITHOUT_WHERE =
+        builder
+            .define("partitionedDmlWithoutWhere", Boolean.class)
+            .setDescription(
+                "Executes update and delete changes without a WHERE clause as Partitioned DML. "
+                    + "Partitioned DML is not bound by the mutation limit of a transaction, but is "
+                    + "not atomic. The 'partitioned' attribute of a change takes precedence.")
+            .setDefaultValue(false)
+            .build();
+
+    ADD_LOOKUP_TABLE_BATCH_SIZE =
+        builder
+            .define("addLookupTableBatchSize", Integer.class)
+            .setDescription(
+                "Fills the table of addLookupTable by streaming the distinct values with a "
+                    + "read-only query, and writing them as mutations in commits of at most this "
+                    + "number of rows. The foreign key is added after all values have been "
+                    + "written. The values are copied with one INSERT ... SELECT DISTINCT "
+                    + "statement if not set.")
+            .build();
+
+    ADD_COLUMN_PARTITIONED_DML_THRESHOLD =
+        builder
+            .define("addColumnPartitionedDmlThreshold", Integer.class)
+            .setDescription(
+                "Fills the new column of an addColumn change with a value as Partitioned DML if "
+                    + "the table has more than this number of rows. At most this number of rows "
+                    + "plus one are counted. Smaller tables are updated with one transactional "
+                    + "UPDATE statement. Set to a negative value to always use a transactional "
+                    + "UPDATE statement.")
+            .setDefaultValue(10_000)
+            .build();
+
+    LOCK_LEASE_SECONDS =
+        builder
+            .define("lockLeaseSeconds", Integer.class)
+            .setDescription(
+                "Holds the changelog lock as a lease of this number of seconds, which is renewed "
+                    + "by a heartbeat while the lock is held. The lock is acquired with one "
+                    + "read/write transaction, and a lease that has not been renewed in time can "
+                    + "be taken over by another process at once. All processes that update the "
+                    + "database must use the same setting. The standard changelog lock is used if "
+                    + "not set.")
+            .build();
+
+    CHANGE_LOG_HASH_STALENESS =
+        builder
+            .define("changeLogHashStaleness", String.class)
+            .setDescription(
+                "Staleness of the read that ChangeLogFastPath uses to check whether a changelog "
+                    + "has already been applied, e.g. 'MAX_STALENESS 10s'. A changelog that was "
+                    + "rolled back within the staleness bound can be seen as applied. Use STRONG "
+                    + "for a strong read.")
+            .setDefaultValue("MAX_STALENESS 10s")
+            .build();
+
+    CHANGE_LOG_CACHE_DIRECTORY =
+        builder
+            .define("changeLogCacheDirectory", String.class)
+            .setDescription(
+                "Directory where the rows of DATABASECHANGELOG are cached. Later runs only read "
+                    + "the rows that have been added since, after checking the cached rows with "
+                    + "one aggregate query. Caching is disabled if not set.")
+            .build();
+
+    REPLACE_USER_CONNECTION =
+        builder
+            .define("replaceUserConnection", Boolean.class)
+            .setDescription(
+                "Replaces a Spanner JDBC connection that is passed in by the application with a "
+                    + "new connection to the same URL that identifies Liquibase in its user "
+                    + "agent. The new connection uses its own Spanner client. By default, the "
+                    + "connection of the application and its Spanner client are used as is.")
+            .setDefaultValue(false)
+            .build();
+  }
+}
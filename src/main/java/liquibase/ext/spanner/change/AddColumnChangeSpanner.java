@@ -18,9 +18,17 @@ import liquibase.change.DatabaseChange;
 import liquibase.change.core.AddColumnChange;
 import liquibase.database.Database;
 import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.ext.spanner.sqlgenerator.PartitionedDmlStatement;
 import liquibase.statement.SqlStatement;
 import liquibase.statement.core.UpdateStatement;
 
+/**
+ * Cloud Spanner-specific implementation of {@link AddColumnChange}. The UPDATE statement that fills
+ * a new column with a value is executed as Partitioned DML if the table has more rows than {@link
+ * SpannerConfiguration#ADD_COLUMN_PARTITIONED_DML_THRESHOLD}, so that large tables are not bound by
+ * the mutation limit of a transaction.
+ */
 @DatabaseChange(
     name = "addColumn",
     description = "Adds a new column to an existing table",
@@ -36,11 +44,26 @@ public class AddColumnChangeSpanner extends AddColumnChange {
   @Override
   public SqlStatement[] generateStatements(Database database) {
     SqlStatement[] statements = super.generateStatements(database);
-    for (SqlStatement statement : statements) {
-      if (statement instanceof UpdateStatement) {
-        UpdateStatement updateStatement = (UpdateStatement) statement;
+    Integer threshold = SpannerConfiguration.ADD_COLUMN_PARTITIONED_DML_THRESHOLD.getCurrentValue();
+    for (int i = 0; i < statements.length; i++) {
+      if (statements[i] instanceof UpdateStatement) {
+        UpdateStatement updateStatement = (UpdateStatement) statements[i];
         if (updateStatement.getWhereClause() == null) {
           updateStatement.setWhereClause("TRUE");
+          // The rows are only counted when the change is executed on Spanner, so updateSql still
+          // generates a normal UPDATE statement.
+          if (threshold != null
+              && threshold >= 0
+              && LoadDataMutations.isExecutedOnSpanner(database)) {
+            statements[i] =
+                new PartitionedDmlStatement(updateStatement)
+                    .withRowThreshold(
+                        threshold,
+                        database.escapeTableName(
+                            updateStatement.getCatalogName(),
+                            updateStatement.getSchemaName(),
+                            updateStatement.getTableName()));
+          }
         }
       }
     }
@@ -25,10 +25,17 @@ import liquibase.database.Database;
 import liquibase.datatype.DataTypeFactory;
 import liquibase.datatype.LiquibaseDataType;
 import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.SpannerConfiguration;
 import liquibase.statement.SqlStatement;
 import liquibase.statement.core.RawSqlStatement;
 import liquibase.structure.core.Column;
 
+/**
+ * Cloud Spanner-specific implementation of {@link AddLookupTableChange}. The lookup table is filled
+ * with one INSERT ... SELECT DISTINCT statement, unless {@link
+ * SpannerConfiguration#ADD_LOOKUP_TABLE_BATCH_SIZE} is set. The values are then streamed and
+ * written in multiple commits. The foreign key is added after the lookup table has been filled.
+ */
 @DatabaseChange(
     name = "addLookupTable",
     description =
@@ -56,37 +63,44 @@ public class AddLookupTableChangeSpanner extends AddLookupTableChange {
     LiquibaseDataType liquibaseType =
         DataTypeFactory.getInstance().fromDescription(rawType, database);
     String actualType = liquibaseType.toDatabaseDataType(database).toString();
-    SqlStatement[] createTablesSQL =
-        new SqlStatement[] {
-          new RawSqlStatement(
-              "CREATE TABLE "
-                  + database.escapeTableName(
-                      newTableCatalogName, newTableSchemaName, getNewTableName())
-                  + " ("
-                  + database.escapeObjectName(getNewColumnName(), Column.class)
-                  + " "
-                  + actualType
-                  + (dialect == Dialect.POSTGRESQL
-                      ? " NOT NULL, PRIMARY KEY ("
-                      : " NOT NULL) PRIMARY KEY (")
-                  + database.escapeObjectName(getNewColumnName(), Column.class)
-                  + (dialect == Dialect.POSTGRESQL ? "))" : ")")),
+    statements.add(
+        new RawSqlStatement(
+            "CREATE TABLE "
+                + database.escapeTableName(
+                    newTableCatalogName, newTableSchemaName, getNewTableName())
+                + " ("
+                + database.escapeObjectName(getNewColumnName(), Column.class)
+                + " "
+                + actualType
+                + (dialect == Dialect.POSTGRESQL
+                    ? " NOT NULL, PRIMARY KEY ("
+                    : " NOT NULL) PRIMARY KEY (")
+                + database.escapeObjectName(getNewColumnName(), Column.class)
+                + (dialect == Dialect.POSTGRESQL ? "))" : ")")));
+
+    String selectDistinct =
+        "SELECT DISTINCT "
+            + database.escapeObjectName(getExistingColumnName(), Column.class)
+            + " FROM "
+            + database.escapeTableName(
+                existingTableCatalogName, existingTableSchemaName, getExistingTableName())
+            + " WHERE "
+            + database.escapeObjectName(getExistingColumnName(), Column.class)
+            + " IS NOT NULL";
+    Integer batchSize = SpannerConfiguration.ADD_LOOKUP_TABLE_BATCH_SIZE.getCurrentValue();
+    if (batchSize != null && batchSize > 0 && LoadDataMutations.isExecutedOnSpanner(database)) {
+      statements.add(new CopyDistinctValuesStatement(database, this, selectDistinct, batchSize));
+    } else {
+      statements.add(
           new RawSqlStatement(
               "INSERT INTO "
                   + database.escapeTableName(
                       newTableCatalogName, newTableSchemaName, getNewTableName())
                   + " ("
                   + database.escapeObjectName(getNewColumnName(), Column.class)
-                  + ") SELECT DISTINCT "
-                  + database.escapeObjectName(getExistingColumnName(), Column.class)
-                  + " FROM "
-                  + database.escapeTableName(
-                      existingTableCatalogName, existingTableSchemaName, getExistingTableName())
-                  + " WHERE "
-                  + database.escapeObjectName(getExistingColumnName(), Column.class)
-                  + " IS NOT NULL"),
-        };
-    statements.addAll(Arrays.asList(createTablesSQL));
+                  + ") "
+                  + selectDistinct));
+    }
 
     AddForeignKeyConstraintChange addFKChange = new AddForeignKeyConstraintChange();
     addFKChange.setBaseTableSchemaName(existingTableSchemaName);
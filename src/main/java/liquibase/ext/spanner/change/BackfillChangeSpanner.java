@@ -0,0 +1,200 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import java.util.ArrayList;
+import java.util.List;
+import liquibase.change.AbstractChange;
+import liquibase.change.ChangeMetaData;
+import liquibase.change.ChangeWithColumns;
+import liquibase.change.ColumnConfig;
+import liquibase.change.DatabaseChange;
+import liquibase.change.DatabaseChangeProperty;
+import liquibase.database.Database;
+import liquibase.datatype.DataTypeFactory;
+import liquibase.exception.ValidationErrors;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.statement.SqlStatement;
+import liquibase.structure.core.Column;
+
+/**
+ * Updates the rows of a table in ranges of the primary key, for example to fill a new column based
+ * on the values of other columns. Each range is updated in its own transaction, which means that
+ * the change is not bound by the mutation limit of a single transaction. The last key of the
+ * committed ranges is recorded as a checkpoint, so a failed run resumes after the checkpoint
+ * instead of starting over. Ranges that are committed in parallel after the checkpoint are not
+ * recorded, and are updated again when the change is resumed. The SET clause must therefore be
+ * idempotent: the new values must only depend on the other columns of the row.
+ */
+@DatabaseChange(
+    name = "backfill",
+    description =
+        "Updates the rows of a table in ranges of the primary key. Each range is committed in its "
+            + "own transaction, and a failed run resumes after the last checkpoint. Ranges after "
+            + "the checkpoint are updated again, so the column values must be idempotent.",
+    priority = ChangeMetaData.PRIORITY_DATABASE,
+    appliesTo = "table")
+public class BackfillChangeSpanner extends AbstractChange
+    implements ChangeWithColumns<ColumnConfig> {
+  static final int DEFAULT_RANGE_SIZE = 1000;
+
+  private String catalogName;
+  private String schemaName;
+  private String tableName;
+  private List<ColumnConfig> columns = new ArrayList<>();
+  private String where;
+  private Integer rangeSize;
+  private Integer parallelism;
+
+  @Override
+  public boolean supports(Database database) {
+    return (database instanceof ICloudSpanner);
+  }
+
+  @DatabaseChangeProperty(mustEqualExisting = "table.catalog", description = "Name of the catalog")
+  public String getCatalogName() {
+    return catalogName;
+  }
+
+  public void setCatalogName(String catalogName) {
+    this.catalogName = catalogName;
+  }
+
+  @DatabaseChangeProperty(mustEqualExisting = "table.schema", description = "Name of the schema")
+  public String getSchemaName() {
+    return schemaName;
+  }
+
+  public void setSchemaName(String schemaName) {
+    this.schemaName = schemaName;
+  }
+
+  @DatabaseChangeProperty(
+      mustEqualExisting = "table",
+      description = "Name of the table to update",
+      requiredForDatabase = "all")
+  public String getTableName() {
+    return tableName;
+  }
+
+  public void setTableName(String tableName) {
+    this.tableName = tableName;
+  }
+
+  @Override
+  @DatabaseChangeProperty(
+      description = "The columns to update. Use valueComputed for values based on other columns",
+      requiredForDatabase = "all")
+  public List<ColumnConfig> getColumns() {
+    return columns;
+  }
+
+  @Override
+  public void setColumns(List<ColumnConfig> columns) {
+    this.columns = columns;
+  }
+
+  @Override
+  public void addColumn(ColumnConfig column) {
+    columns.add(column);
+  }
+
+  @DatabaseChangeProperty(description = "Optional condition that limits the rows to update")
+  public String getWhere() {
+    return where;
+  }
+
+  public void setWhere(String where) {
+    this.where = where;
+  }
+
+  @DatabaseChangeProperty(
+      description = "The maximum number of rows per transaction. Defaults to " + DEFAULT_RANGE_SIZE)
+  public Integer getRangeSize() {
+    return rangeSize;
+  }
+
+  public void setRangeSize(Integer rangeSize) {
+    this.rangeSize = rangeSize;
+  }
+
+  @DatabaseChangeProperty(
+      description = "The number of ranges that are updated in parallel. Defaults to 1")
+  public Integer getParallelism() {
+    return parallelism;
+  }
+
+  public void setParallelism(Integer parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  public ValidationErrors validate(Database database) {
+    ValidationErrors errors = super.validate(database);
+    if (columns == null || columns.isEmpty()) {
+      errors.addError("At least one column is required for " + getChangeMetaData().getName());
+    }
+    if (rangeSize != null && rangeSize <= 0) {
+      errors.addError("rangeSize must be positive");
+    }
+    if (parallelism != null && parallelism <= 0) {
+      errors.addError("parallelism must be positive");
+    }
+    return errors;
+  }
+
+  @Override
+  public boolean generateStatementsVolatile(Database database) {
+    // The ranges are determined when the change is executed.
+    return true;
+  }
+
+  @Override
+  public SqlStatement[] generateStatements(Database database) {
+    return new SqlStatement[] {
+      new BackfillStatement(
+              database, this, catalogName, schemaName, tableName, getSetClause(database))
+          .withWhere(where)
+          .withRanges(
+              rangeSize == null ? DEFAULT_RANGE_SIZE : rangeSize,
+              parallelism == null ? 1 : parallelism)
+    };
+  }
+
+  /** Returns the 'FOO = ..., BAR = ...' part of the UPDATE statement. */
+  private String getSetClause(Database database) {
+    StringBuilder sql = new StringBuilder();
+    for (ColumnConfig column : columns) {
+      if (sql.length() > 0) {
+        sql.append(", ");
+      }
+      sql.append(database.escapeObjectName(column.getName(), Column.class)).append(" = ");
+      Object value = column.getValueObject();
+      if (column.getValueComputed() != null) {
+        sql.append(column.getValueComputed().getValue());
+      } else if (value == null) {
+        sql.append("NULL");
+      } else {
+        sql.append(
+            DataTypeFactory.getInstance().fromObject(value, database).objectToSql(value, database));
+      }
+    }
+    return sql.toString();
+  }
+
+  @Override
+  public String getConfirmationMessage() {
+    return "Table " + tableName + " backfilled";
+  }
+}
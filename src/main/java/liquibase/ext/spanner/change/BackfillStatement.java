@@ -0,0 +1,672 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import liquibase.Scope;
+import liquibase.change.Change;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.spanner.CloudSpannerConnection;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.statement.AbstractSqlStatement;
+import liquibase.statement.ExecutablePreparedStatement;
+import liquibase.statement.PreparedStatementFactory;
+import liquibase.structure.core.Column;
+import liquibase.util.MD5Util;
+
+/**
+ * Executes a {@link BackfillChangeSpanner} or a batched {@link MergeColumnsChangeSpanner}. The keys
+ * of the table are read in primary key order in ranges of at most rangeSize rows. Each range is
+ * updated in its own read/write transaction on one of parallelism connections. A transaction that
+ * completes all ranges up to and including its own range also records the last key of these ranges
+ * as the checkpoint in the progress table.
+ *
+ * <p>The number of updated rows, the rows per second and the estimated remaining time are logged
+ * periodically while the ranges are updated.
+ */
+class BackfillStatement extends AbstractSqlStatement implements ExecutablePreparedStatement {
+  /** The minimum time between two progress reports. */
+  private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10L);
+
+  private final Database database;
+  private final Change change;
+  @Nullable private final String catalogName;
+  @Nullable private final String schemaName;
+  private final String tableName;
+  private final String setClause;
+  @Nullable private String where;
+  private int rangeSize = BackfillChangeSpanner.DEFAULT_RANGE_SIZE;
+  private int parallelism = 1;
+
+  /** The ranges that have been committed after the next range to checkpoint, by index. */
+  private final Map<Integer, Range> committedRanges = new HashMap<>();
+
+  /** The index of the first range that has not been committed. */
+  private int nextRange;
+
+  /** The number of rows that were updated in all ranges before {@link #nextRange}. */
+  private long committedRows;
+
+  /** True while a transaction with a checkpoint is being committed. */
+  private boolean checkpointing;
+
+  /** The number of rows that had been updated by a previous run when this run started. */
+  private long resumedRows;
+
+  /** The estimated number of rows that are updated in total, or null if it is not known. */
+  @Nullable private Long estimatedRows;
+
+  private long startNanos;
+  private long lastReportNanos;
+
+  /** A checkpoint that is written by the transaction of the first range that it includes. */
+  private static final class Checkpoint {
+    private final int first;
+    private final int next;
+    private final long rows;
+    private final List<Object> lastKey;
+
+    private Checkpoint(int first, int next, long rows, List<Object> lastKey) {
+      this.first = first;
+      this.next = next;
+      this.rows = rows;
+      this.lastKey = lastKey;
+    }
+  }
+
+  /** A range of keys. The lower bound is exclusive, and the upper bound is inclusive. */
+  private static final class Range {
+    private final int index;
+    @Nullable private final List<Object> lower;
+    private final List<Object> upper;
+    private long rows;
+
+    private Range(int index, @Nullable List<Object> lower, List<Object> upper) {
+      this.index = index;
+      this.lower = lower;
+      this.upper = upper;
+    }
+  }
+
+  /**
+   * Creates a statement that sets the columns of the given table to the values of the given 'FOO =
+   * ..., BAR = ...' clause. The progress is recorded for the given change.
+   */
+  BackfillStatement(
+      Database database,
+      Change change,
+      @Nullable String catalogName,
+      @Nullable String schemaName,
+      String tableName,
+      String setClause) {
+    this.database = database;
+    this.change = change;
+    this.catalogName = catalogName;
+    this.schemaName = schemaName;
+    this.tableName = tableName;
+    this.setClause = setClause;
+  }
+
+  /** Only updates the rows that match the given condition. */
+  BackfillStatement withWhere(@Nullable String where) {
+    this.where = where;
+    return this;
+  }
+
+  /** Updates ranges of at most rangeSize rows, of which parallelism are updated at a time. */
+  BackfillStatement withRanges(int rangeSize, int parallelism) {
+    this.rangeSize = rangeSize;
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  @Override
+  public void execute(PreparedStatementFactory factory) throws DatabaseException {
+    List<String> keyColumns =
+        LoadDataMutations.getPrimaryKeyColumns(
+            database, catalogName, schemaName, tableName);
+    if (keyColumns.isEmpty()) {
+      throw new DatabaseException("Table " + tableName + " has no primary key");
+    }
+    // The checkpoint can be reused if the range size or the parallelism is changed.
+    LoadDataProgress progress =
+        new LoadDataProgress(
+            database,
+            change,
+            MD5Util.computeMD5(
+                String.join(",", keyColumns) + ":" + setClause + ":" + where));
+    try {
+      Connection connection = getJdbcConnection();
+      boolean autoCommit = connection.getAutoCommit();
+      if (!autoCommit) {
+        // Commit the earlier statements of the changeset, so the ranges do not conflict with them.
+        connection.setAutoCommit(true);
+      }
+      try {
+        progress.createTableIfNotExists();
+        List<Object> start = null;
+        LoadDataProgress.Checkpoint checkpoint = progress.getCheckpoint(connection);
+        if (checkpoint != null) {
+          start = parseKey(keyColumns, checkpoint.key);
+          committedRows = checkpoint.committedRows;
+          Scope.getCurrentScope()
+              .getLog(getClass())
+              .info(
+                  String.format(
+                      "Resuming after key %s and %d rows that were updated by a previous run",
+                      checkpoint.key, committedRows));
+        }
+        resumedRows = committedRows;
+        estimatedRows = estimateRows(connection, keyColumns, start);
+        startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+        run(connection, keyColumns, progress, start);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        Scope.getCurrentScope()
+            .getLog(getClass())
+            .info(
+                String.format(
+                    "Backfilled %d rows of %s in %d ranges in %d s (%.1f rows/s)",
+                    committedRows,
+                    tableName,
+                    nextRange,
+                    TimeUnit.NANOSECONDS.toSeconds(elapsedNanos),
+                    getRowsPerSecond(elapsedNanos)));
+      } finally {
+        if (!autoCommit) {
+          connection.setAutoCommit(false);
+        }
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Could not backfill " + tableName, e);
+    }
+  }
+
+  /**
+   * Returns the number of rows that have been updated by a previous run plus the number of rows
+   * after the given key that match the condition, or null if the rows could not be counted. The
+   * estimate is only used for the progress reports, so a failure does not fail the change.
+   */
+  @Nullable
+  private Long estimateRows(
+      Connection connection, List<String> keyColumns, @Nullable List<Object> start) {
+    List<Object> parameters = new ArrayList<>();
+    StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(getEscapedTableName());
+    appendConditions(sql, keyColumns, start, parameters);
+    try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+      bind(ps, parameters);
+      try (ResultSet rs = ps.executeQuery()) {
+        if (rs.next()) {
+          return resumedRows + rs.getLong(1);
+        }
+      }
+    } catch (SQLException e) {
+      Scope.getCurrentScope()
+          .getLog(getClass())
+          .fine("Could not count the rows of " + tableName + ": " + e.getMessage());
+    }
+    return null;
+  }
+
+  private void run(
+      Connection connection,
+      List<String> keyColumns,
+      LoadDataProgress progress,
+      @Nullable List<Object> start)
+      throws SQLException, DatabaseException {
+    BlockingQueue<Connection> connections = new ArrayBlockingQueue<>(parallelism);
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism,
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("liquibase-spanner-backfill-%d")
+                .build());
+    // Limit the number of ranges that have been read, but not yet updated.
+    Semaphore pendingRanges = new Semaphore(parallelism * 2);
+    AtomicBoolean failed = new AtomicBoolean();
+    List<Future<Void>> futures = new ArrayList<>();
+    DatabaseException exception = null;
+    try {
+      for (int i = 0; i < parallelism; i++) {
+        Connection rangeConnection =
+            CloudSpannerConnection.openAdditionalConnection(database.getConnection());
+        rangeConnection.setAutoCommit(false);
+        connections.add(rangeConnection);
+      }
+      List<Object> lower = start;
+      for (int index = 0; !failed.get(); index++) {
+        List<Object> upper = readUpperBound(connection, keyColumns, lower);
+        if (upper == null) {
+          break;
+        }
+        Range range = new Range(index, lower, upper);
+        pendingRanges.acquire();
+        futures.add(
+            executor.submit(
+                () -> {
+                  try {
+                    updateRange(connections, keyColumns, progress, range);
+                  } catch (Exception e) {
+                    failed.set(true);
+                    throw e;
+                  } finally {
+                    pendingRanges.release();
+                  }
+                  return null;
+                }));
+        lower = upper;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      exception = new DatabaseException("Interrupted while backfilling", e);
+    } catch (SQLException e) {
+      exception = new DatabaseException("Could not backfill " + tableName, e);
+    }
+    try {
+      // Wait for all ranges, so the changeset only fails after all updates have finished.
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (exception == null) {
+            exception =
+                new DatabaseException(
+                    "Could not backfill all ranges of " + tableName, e.getCause());
+          } else {
+            exception.addSuppressed(e.getCause());
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      exception = new DatabaseException("Interrupted while backfilling", e);
+    } finally {
+      executor.shutdownNow();
+      for (Connection rangeConnection : connections) {
+        rangeConnection.close();
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  /**
+   * Returns the last key of the next range after the given key, or null if there are no more rows.
+   */
+  @Nullable
+  private List<Object> readUpperBound(
+      Connection connection, List<String> keyColumns, @Nullable List<Object> lower)
+      throws SQLException {
+    List<Object> parameters = new ArrayList<>();
+    StringBuilder sql = new StringBuilder("SELECT ");
+    for (int i = 0; i < keyColumns.size(); i++) {
+      sql.append(i == 0 ? "" : ", ").append(escape(keyColumns.get(i)));
+    }
+    sql.append(" FROM ").append(getEscapedTableName());
+    appendConditions(sql, keyColumns, lower, parameters);
+    sql.append(" ORDER BY ");
+    for (int i = 0; i < keyColumns.size(); i++) {
+      sql.append(i == 0 ? "" : ", ").append(escape(keyColumns.get(i)));
+      // GoogleSQL sorts NULL values first, and PostgreSQL sorts them last by default.
+      if (isPostgreSQL()) {
+        sql.append(" NULLS FIRST");
+      }
+    }
+    sql.append(" LIMIT ").append(rangeSize);
+    try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+      bind(ps, parameters);
+      List<Object> last = null;
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          last = new ArrayList<>(keyColumns.size());
+          for (int i = 0; i < keyColumns.size(); i++) {
+            last.add(rs.getObject(i + 1));
+          }
+        }
+      }
+      return last;
+    }
+  }
+
+  /** Appends a WHERE clause that selects the rows after the given key that match the condition. */
+  private void appendConditions(
+      StringBuilder sql,
+      List<String> keyColumns,
+      @Nullable List<Object> lower,
+      List<Object> parameters) {
+    List<String> conditions = new ArrayList<>();
+    if (lower != null) {
+      conditions.add(compare(keyColumns, lower, false, parameters));
+    }
+    if (where != null) {
+      conditions.add("(" + where + ")");
+    }
+    if (!conditions.isEmpty()) {
+      sql.append(" WHERE ").append(String.join(" AND ", conditions));
+    }
+  }
+
+  private void updateRange(
+      BlockingQueue<Connection> connections,
+      List<String> keyColumns,
+      LoadDataProgress progress,
+      Range range)
+      throws SQLException, InterruptedException {
+    Connection connection = connections.take();
+    try {
+      List<Object> parameters = new ArrayList<>();
+      StringBuilder sql =
+          new StringBuilder("UPDATE ")
+              .append(getEscapedTableName())
+              .append(" SET ")
+              .append(setClause)
+              .append(" WHERE ");
+      if (range.lower != null) {
+        sql.append(compare(keyColumns, range.lower, false, parameters)).append(" AND ");
+      }
+      sql.append(compare(keyColumns, range.upper, true, parameters));
+      if (where != null) {
+        sql.append(" AND (").append(where).append(")");
+      }
+      try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+        bind(ps, parameters);
+        range.rows = ps.executeLargeUpdate();
+      }
+      Checkpoint checkpoint = claimCheckpoint(range);
+      if (checkpoint == null) {
+        connection.commit();
+        markCommitted(range);
+      } else {
+        commitWithCheckpoint(
+            connection.unwrap(CloudSpannerJdbcConnection.class), progress, checkpoint);
+      }
+    } catch (SQLException e) {
+      connection.rollback();
+      throw e;
+    } finally {
+      connections.add(connection);
+    }
+  }
+
+  /**
+   * Returns the checkpoint that the transaction of the given range should write, if all earlier
+   * ranges have been committed and no other checkpoint is being written. The checkpoint also
+   * includes the ranges after the given range that have already been committed. Returns null if the
+   * range should be committed without a checkpoint.
+   */
+  @Nullable
+  private synchronized Checkpoint claimCheckpoint(Range range) {
+    if (range.index != nextRange || checkpointing) {
+      return null;
+    }
+    long rows = committedRows + range.rows;
+    Range last = range;
+    int next = range.index + 1;
+    while (committedRanges.containsKey(next)) {
+      last = committedRanges.get(next);
+      rows += last.rows;
+      next++;
+    }
+    checkpointing = true;
+    return new Checkpoint(range.index, next, rows, last.upper);
+  }
+
+  /**
+   * Commits a range together with the given checkpoint. The commit is not executed while holding
+   * the lock of this statement, so the other ranges can be committed at the same time.
+   */
+  private void commitWithCheckpoint(
+      CloudSpannerJdbcConnection connection, LoadDataProgress progress, Checkpoint checkpoint)
+      throws SQLException {
+    try {
+      connection.bufferedWrite(
+          progress.toMutation(checkpoint.rows, toCheckpoint(checkpoint.lastKey)));
+      connection.commit();
+    } catch (SQLException | RuntimeException e) {
+      synchronized (this) {
+        checkpointing = false;
+      }
+      throw e;
+    }
+    finishCheckpoint(checkpoint);
+  }
+
+  private synchronized void finishCheckpoint(Checkpoint checkpoint) {
+    for (int index = checkpoint.first + 1; index < checkpoint.next; index++) {
+      committedRanges.remove(index);
+    }
+    nextRange = checkpoint.next;
+    committedRows = checkpoint.rows;
+    checkpointing = false;
+    // Include the ranges that were committed without a checkpoint while this one was committed.
+    // The next checkpoint will include them.
+    while (committedRanges.containsKey(nextRange)) {
+      committedRows += committedRanges.remove(nextRange).rows;
+      nextRange++;
+    }
+    reportProgress();
+  }
+
+  /**
+   * Marks a range that was committed without a checkpoint. The next checkpoint will include it.
+   */
+  private synchronized void markCommitted(Range range) {
+    committedRanges.put(range.index, range);
+    // The range might be the next range if the previous range was committed in the meantime.
+    while (committedRanges.containsKey(nextRange)) {
+      committedRows += committedRanges.remove(nextRange).rows;
+      nextRange++;
+    }
+    reportProgress();
+  }
+
+  /**
+   * Logs the number of updated rows, the rows per second and the estimated remaining time, unless
+   * the previous report was less than {@link #PROGRESS_INTERVAL_NANOS} ago.
+   */
+  private synchronized void reportProgress() {
+    long now = System.nanoTime();
+    if (now - lastReportNanos < PROGRESS_INTERVAL_NANOS) {
+      return;
+    }
+    lastReportNanos = now;
+    double rowsPerSecond = getRowsPerSecond(now - startNanos);
+    String message;
+    if (estimatedRows != null && rowsPerSecond > 0d) {
+      long remainingRows = Math.max(0L, estimatedRows - committedRows);
+      message =
+          String.format(
+              "Backfilled %d of about %d rows of %s in %d ranges "
+                  + "(%.1f rows/s, about %d s remaining)",
+              committedRows,
+              estimatedRows,
+              tableName,
+              nextRange,
+              rowsPerSecond,
+              (long) (remainingRows / rowsPerSecond));
+    } else {
+      message =
+          String.format(
+              "Backfilled %d rows of %s in %d ranges (%.1f rows/s)",
+              committedRows, tableName, nextRange, rowsPerSecond);
+    }
+    Scope.getCurrentScope().getLog(getClass()).info(message);
+  }
+
+  /** Returns the number of rows per second that have been updated by this run. */
+  private synchronized double getRowsPerSecond(long elapsedNanos) {
+    if (elapsedNanos <= 0L) {
+      return 0d;
+    }
+    return (committedRows - resumedRows) * 1e9d / elapsedNanos;
+  }
+
+  /**
+   * Returns a condition that selects the keys after the given key, or up to and including the given
+   * key. Spanner does not support comparing tuples, so the comparison is expanded to a condition
+   * per key column. NULL values are sorted before all other values.
+   */
+  private String compare(
+      List<String> keyColumns, List<Object> key, boolean upTo, List<Object> parameters) {
+    List<String> terms = new ArrayList<>();
+    for (int i = 0; i < keyColumns.size(); i++) {
+      String column = escape(keyColumns.get(i));
+      Object value = key.get(i);
+      boolean last = i == keyColumns.size() - 1;
+      if (upTo && !last && value == null) {
+        // Nothing sorts before NULL.
+        continue;
+      }
+      List<String> term = new ArrayList<>();
+      for (int j = 0; j < i; j++) {
+        term.add(equalTo(keyColumns.get(j), key.get(j), parameters));
+      }
+      if (upTo && last) {
+        if (value == null) {
+          term.add(column + " IS NULL");
+        } else {
+          term.add(column + " <= ?");
+          parameters.add(value);
+        }
+      } else if (upTo) {
+        term.add("(" + column + " IS NULL OR " + column + " < ?)");
+        parameters.add(value);
+      } else if (value == null) {
+        term.add(column + " IS NOT NULL");
+      } else {
+        term.add(column + " > ?");
+        parameters.add(value);
+      }
+      terms.add(String.join(" AND ", term));
+    }
+    return "(" + String.join(" OR ", terms) + ")";
+  }
+
+  private String equalTo(String keyColumn, @Nullable Object value, List<Object> parameters) {
+    if (value == null) {
+      return escape(keyColumn) + " IS NULL";
+    }
+    parameters.add(value);
+    return escape(keyColumn) + " = ?";
+  }
+
+  private static void bind(PreparedStatement ps, List<Object> parameters) throws SQLException {
+    for (int i = 0; i < parameters.size(); i++) {
+      ps.setObject(i + 1, parameters.get(i));
+    }
+  }
+
+  /** Converts a key to the strings that are stored in the checkpoint. */
+  private static List<String> toCheckpoint(List<Object> key) {
+    List<String> checkpoint = new ArrayList<>(key.size());
+    for (Object value : key) {
+      if (value == null) {
+        checkpoint.add(null);
+      } else if (value instanceof byte[]) {
+        checkpoint.add(Base64.getEncoder().encodeToString((byte[]) value));
+      } else if (value instanceof java.sql.Timestamp) {
+        checkpoint.add(Timestamp.of((java.sql.Timestamp) value).toString());
+      } else {
+        checkpoint.add(value.toString());
+      }
+    }
+    return checkpoint;
+  }
+
+  /** Converts the strings of a checkpoint back to a key, based on the types of the key columns. */
+  private List<Object> parseKey(List<String> keyColumns, List<String> checkpoint)
+      throws DatabaseException {
+    Map<String, LoadDataMutations.Column> columns =
+        LoadDataMutations.getColumns(
+            database, catalogName, schemaName, tableName);
+    List<Object> key = new ArrayList<>(keyColumns.size());
+    for (int i = 0; i < keyColumns.size(); i++) {
+      LoadDataMutations.Column column = columns.get(keyColumns.get(i));
+      String value = i < checkpoint.size() ? checkpoint.get(i) : null;
+      if (column == null || column.type == null) {
+        throw new DatabaseException("Unsupported type of key column " + keyColumns.get(i));
+      }
+      key.add(value == null ? null : parseKeyValue(column.type, value));
+    }
+    return key;
+  }
+
+  private static Object parseKeyValue(Type type, String value) {
+    switch (type.getCode()) {
+      case INT64:
+        return Long.valueOf(value);
+      case FLOAT64:
+        return Double.valueOf(value);
+      case FLOAT32:
+        return Float.valueOf(value);
+      case NUMERIC:
+      case PG_NUMERIC:
+        return new BigDecimal(value);
+      case BOOL:
+        return Boolean.valueOf(value);
+      case BYTES:
+        return Base64.getDecoder().decode(value);
+      case DATE:
+        return java.sql.Date.valueOf(value);
+      case TIMESTAMP:
+        return Timestamp.parseTimestamp(value).toSqlTimestamp();
+      default:
+        return value;
+    }
+  }
+
+  private boolean isPostgreSQL() {
+    return ((ICloudSpanner) database).getDialect() == Dialect.POSTGRESQL;
+  }
+
+  private String escape(String column) {
+    return database.escapeObjectName(column, Column.class);
+  }
+
+  private String getEscapedTableName() {
+    return database.escapeTableName(catalogName, schemaName, tableName);
+  }
+
+  private Connection getJdbcConnection() {
+    return ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+  }
+}
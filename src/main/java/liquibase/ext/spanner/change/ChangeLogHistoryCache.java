@@ -0,0 +1,320 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import liquibase.Scope;
+import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
+import liquibase.executor.ExecutorService;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.logging.Logger;
+import liquibase.statement.core.RawParameterizedSqlStatement;
+
+/**
+ * On-disk cache of the rows in DATABASECHANGELOG. Later runs only read the rows with a higher
+ * ORDEREXECUTED than the cached rows. The cached rows are checked with one aggregate query over the
+ * same range of ORDEREXECUTED, which compares the number of rows, checksums and tags, and a digest
+ * of the identifying columns, checksum, tag and execution type of each row. This detects rows that
+ * have been removed, rerun, tagged or had their checksum changed or cleared since. All rows are
+ * read again if the check fails.
+ *
+ * <p>The cache is disabled unless {@link SpannerConfiguration#CHANGE_LOG_CACHE_DIRECTORY} is set.
+ */
+class ChangeLogHistoryCache {
+  /** Increase this version when the serialized form of the cached rows changes. */
+  private static final String FORMAT_VERSION = "1";
+
+  private static final String FILE_PREFIX = "spanner-changelog-";
+  private static final String FILE_SUFFIX = ".ser";
+
+  /** The columns that are included in the digest of a row, see {@link #rowDigest(Map)}. */
+  private static final String[] DIGEST_COLUMNS = {
+    "ID", "AUTHOR", "FILENAME", "MD5SUM", "TAG", "EXECTYPE"
+  };
+
+  private static final String DIGEST_SEPARATOR = "|";
+
+  /**
+   * Only the low 32 bits of each fingerprint are summed, so the sum cannot overflow for any
+   * realistic number of rows.
+   */
+  private static final long DIGEST_MASK = 0xFFFFFFFFL;
+
+  private static final String DIGEST_EXPRESSION = buildDigestExpression();
+
+  private ChangeLogHistoryCache() {}
+
+  /**
+   * Returns the cache file for the DATABASECHANGELOG table of the given database, or null if
+   * caching is disabled.
+   */
+  @Nullable
+  static Path getCacheFile(Database database) {
+    String directory = SpannerConfiguration.CHANGE_LOG_CACHE_DIRECTORY.getCurrentValue();
+    if (directory == null || directory.trim().isEmpty()) {
+      return null;
+    }
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      update(digest, FORMAT_VERSION);
+      update(digest, database.getConnection().getURL());
+      update(digest, database.getLiquibaseCatalogName());
+      update(digest, database.getLiquibaseSchemaName());
+      update(digest, database.getDatabaseChangeLogTableName());
+      StringBuilder hash = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hash.append(String.format("%02x", b));
+      }
+      return Paths.get(directory, FILE_PREFIX + hash + FILE_SUFFIX);
+    } catch (NoSuchAlgorithmException e) {
+      // SHA-256 is required to be supported by every Java platform.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Returns the SQL expression that concatenates the digest columns in the same way. */
+  private static String buildDigestExpression() {
+    StringBuilder expression = new StringBuilder();
+    for (int i = 0; i < DIGEST_COLUMNS.length; i++) {
+      if (i > 0) {
+        expression.append(" || '").append(DIGEST_SEPARATOR).append("' || ");
+      }
+      expression.append("COALESCE(").append(DIGEST_COLUMNS[i]).append(", '')");
+    }
+    return expression.toString();
+  }
+
+  private static void update(MessageDigest digest, @Nullable String value) {
+    digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    // Separate the values, so different combinations of values cannot give the same hash.
+    digest.update((byte) 0);
+  }
+
+  /**
+   * Returns the cached rows followed by the rows that have been added since, or null if the cached
+   * rows are no longer the same as the rows in the database.
+   */
+  @Nullable
+  static List<Map<String, ?>> readNewerRows(Database database, List<Map<String, ?>> cachedRows)
+      throws DatabaseException {
+    long maxOrderExecuted = 0L;
+    long checkSums = 0L;
+    long tags = 0L;
+    long digest = 0L;
+    for (Map<String, ?> row : cachedRows) {
+      Object orderExecuted = get(row, "ORDEREXECUTED");
+      if (orderExecuted instanceof Number) {
+        maxOrderExecuted = Math.max(maxOrderExecuted, ((Number) orderExecuted).longValue());
+      }
+      checkSums += get(row, "MD5SUM") == null ? 0L : 1L;
+      tags += get(row, "TAG") == null ? 0L : 1L;
+      digest += rowDigest(row);
+    }
+    String tableName =
+        database.escapeTableName(
+            database.getLiquibaseCatalogName(),
+            database.getLiquibaseSchemaName(),
+            database.getDatabaseChangeLogTableName());
+    List<Map<String, ?>> counts;
+    try {
+      counts =
+          Scope.getCurrentScope()
+              .getSingleton(ExecutorService.class)
+              .getExecutor("jdbc", database)
+              .queryForList(
+                  new RawParameterizedSqlStatement(
+                      String.format(
+                          "SELECT COUNT(*) AS ROW_COUNT, COUNT(MD5SUM) AS CHECKSUM_COUNT, "
+                              + "COUNT(TAG) AS TAG_COUNT, SUM(%s(%s) & %d) AS ROW_DIGEST "
+                              + "FROM %s WHERE ORDEREXECUTED <= ?",
+                          getFingerprintFunction(database),
+                          DIGEST_EXPRESSION,
+                          DIGEST_MASK,
+                          tableName),
+                      maxOrderExecuted));
+    } catch (DatabaseException e) {
+      getLogger().info("Could not check the cached rows of " + tableName, e);
+      return null;
+    }
+    if (counts.size() != 1
+        || getLong(counts.get(0), "ROW_COUNT") != cachedRows.size()
+        || getLong(counts.get(0), "CHECKSUM_COUNT") != checkSums
+        || getLong(counts.get(0), "TAG_COUNT") != tags
+        || getDigest(counts.get(0)) != digest) {
+      getLogger().info("The cached rows of " + tableName + " are outdated");
+      return null;
+    }
+    List<Map<String, ?>> rows = new ArrayList<>(cachedRows);
+    rows.addAll(
+        Scope.getCurrentScope()
+            .getSingleton(ExecutorService.class)
+            .getExecutor("jdbc", database)
+            .queryForList(
+                new RawParameterizedSqlStatement(
+                    String.format(
+                        "SELECT * FROM %s WHERE ORDEREXECUTED > ? "
+                            + "ORDER BY DATEEXECUTED ASC, ORDEREXECUTED ASC",
+                        tableName),
+                    maxOrderExecuted)));
+    getLogger()
+        .info(
+            String.format(
+                "Read %d new rows from %s, and %d rows from the cache",
+                rows.size() - cachedRows.size(), tableName, cachedRows.size()));
+    return rows;
+  }
+
+  /**
+   * Returns the digest of one row, which is the low 32 bits of the FarmHash fingerprint of the
+   * columns that change when a changeset is rerun, gets a new checksum or is tagged. The sum of
+   * the digests of all rows is computed by the database with the same function, and can be
+   * compared with the sum of the cached rows.
+   */
+  static long rowDigest(Map<String, ?> row) {
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < DIGEST_COLUMNS.length; i++) {
+      if (i > 0) {
+        value.append(DIGEST_SEPARATOR);
+      }
+      Object columnValue = get(row, DIGEST_COLUMNS[i]);
+      value.append(columnValue == null ? "" : columnValue.toString());
+    }
+    return Hashing.farmHashFingerprint64().hashString(value, StandardCharsets.UTF_8).asLong()
+        & DIGEST_MASK;
+  }
+
+  private static String getFingerprintFunction(Database database) {
+    return database instanceof ICloudSpanner
+            && ((ICloudSpanner) database).getDialect() == Dialect.POSTGRESQL
+        ? "spanner.farm_fingerprint"
+        : "FARM_FINGERPRINT";
+  }
+
+  /** The sum of no rows is NULL. */
+  private static long getDigest(Map<String, ?> row) {
+    Object value = get(row, "ROW_DIGEST");
+    return value == null ? 0L : getLong(row, "ROW_DIGEST");
+  }
+
+  /** Returns the value of the given column. Column names are case-insensitive. */
+  @Nullable
+  private static Object get(Map<String, ?> row, String column) {
+    for (Map.Entry<String, ?> entry : row.entrySet()) {
+      if (column.equalsIgnoreCase(entry.getKey())) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static long getLong(Map<String, ?> row, String column) {
+    Object value = get(row, column);
+    return value instanceof Number ? ((Number) value).longValue() : -1L;
+  }
+
+  /** Returns the cached rows in the given file, or null if it is missing or unreadable. */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  static List<Map<String, ?>> read(Path file) {
+    try (InputStream in = Files.newInputStream(file);
+        ObjectInputStream objectIn = new CacheObjectInputStream(in)) {
+      return (List<Map<String, ?>>) objectIn.readObject();
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      getLogger().info("Ignoring unreadable changelog cache file " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the given rows to the given file. Failing to write the cache does not fail the update.
+   */
+  static void write(Path file, List<Map<String, ?>> rows) {
+    ArrayList<HashMap<String, Object>> serializableRows = new ArrayList<>(rows.size());
+    for (Map<String, ?> row : rows) {
+      serializableRows.add(new HashMap<>(row));
+    }
+    try {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      // Write to a temporary file first, so concurrent processes never see a partial file.
+      Path tempFile =
+          Files.createTempFile(file.toAbsolutePath().getParent(), FILE_PREFIX, ".tmp");
+      try (OutputStream out = Files.newOutputStream(tempFile);
+          ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+        objectOut.writeObject(serializableRows);
+      }
+      try {
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      getLogger().warning("Could not write changelog cache file " + file, e);
+    }
+  }
+
+  /** Removes the given cache file, so the next run reads all rows again. */
+  static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      getLogger().warning("Could not delete changelog cache file " + file, e);
+    }
+  }
+
+  private static Logger getLogger() {
+    return Scope.getCurrentScope().getLog(ChangeLogHistoryCache.class);
+  }
+
+  /** Only allows the classes of the JDK and arrays to be deserialized. */
+  private static class CacheObjectInputStream extends ObjectInputStream {
+    CacheObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc)
+        throws IOException, ClassNotFoundException {
+      String name = desc.getName();
+      if (!name.startsWith("java.") && !name.startsWith("[")) {
+        throw new InvalidClassException(name, "Unexpected class in changelog cache");
+      }
+      return super.resolveClass(desc);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import liquibase.Scope;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.spanner.CloudSpannerConnection;
+import liquibase.statement.AbstractSqlStatement;
+import liquibase.statement.ExecutablePreparedStatement;
+import liquibase.statement.PreparedStatementFactory;
+
+/**
+ * Copies the distinct values of a column into the new table of an addLookupTable change. The
+ * values are streamed with a read-only query, and are written as mutations in commits of at most
+ * batchSize rows. The copy is therefore not bound by the mutation limit of a single transaction.
+ * The rows are written with insert-or-update mutations, so a batch can safely be written again.
+ */
+class CopyDistinctValuesStatement extends AbstractSqlStatement
+    implements ExecutablePreparedStatement {
+  /** Spanner allows at most 80,000 mutations per commit. */
+  private static final int MAX_MUTATIONS_PER_COMMIT = 80_000;
+
+  private final Database database;
+  private final AddLookupTableChangeSpanner change;
+  private final String query;
+  private final int batchSize;
+
+  CopyDistinctValuesStatement(
+      Database database, AddLookupTableChangeSpanner change, String query, int batchSize) {
+    this.database = database;
+    this.change = change;
+    this.query = query;
+    this.batchSize = Math.min(batchSize, MAX_MUTATIONS_PER_COMMIT);
+  }
+
+  @Override
+  public void execute(PreparedStatementFactory factory) throws DatabaseException {
+    LoadDataMutations.Column column =
+        LoadDataMutations.getColumns(
+                database,
+                change.getNewTableCatalogName(),
+                change.getNewTableSchemaName(),
+                change.getNewTableName())
+            .get(change.getNewColumnName());
+    if (column == null || column.type == null) {
+      throw new DatabaseException(
+          String.format(
+              "Unsupported type of column %s.%s",
+              change.getNewTableName(), change.getNewColumnName()));
+    }
+    String table =
+        LoadDataMutations.getMutationTableName(
+            database, change.getNewTableSchemaName(), change.getNewTableName());
+    long rows = 0L;
+    int commits = 0;
+    try (Connection reader =
+        CloudSpannerConnection.openAdditionalConnection(database.getConnection())) {
+      // Stream the values with a read-only query, so the source table is not locked.
+      reader.setReadOnly(true);
+      CloudSpannerJdbcConnection writer =
+          ((JdbcConnection) database.getConnection())
+              .getUnderlyingConnection()
+              .unwrap(CloudSpannerJdbcConnection.class);
+      boolean autoCommit = writer.getAutoCommit();
+      if (!autoCommit) {
+        writer.setAutoCommit(true);
+      }
+      try (Statement statement = reader.createStatement();
+          ResultSet rs = statement.executeQuery(query)) {
+        List<Mutation> batch = new ArrayList<>(batchSize);
+        while (rs.next()) {
+          batch.add(
+              Mutation.newInsertOrUpdateBuilder(table)
+                  .set(column.name)
+                  .to(LoadDataMutations.toValue(column, rs.getObject(1)))
+                  .build());
+          if (batch.size() >= batchSize) {
+            writer.write(batch);
+            rows += batch.size();
+            commits++;
+            batch.clear();
+          }
+        }
+        if (!batch.isEmpty()) {
+          writer.write(batch);
+          rows += batch.size();
+          commits++;
+        }
+      } finally {
+        if (!autoCommit) {
+          writer.setAutoCommit(false);
+        }
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException(
+          String.format(
+              "Could not copy the values of %s.%s after %d rows",
+              change.getExistingTableName(), change.getExistingColumnName(), rows),
+          e);
+    }
+    Scope.getCurrentScope()
+        .getLog(getClass())
+        .info(
+            String.format(
+                "Copied %d distinct values into %s in %d commits",
+                rows, change.getNewTableName(), commits));
+  }
+}
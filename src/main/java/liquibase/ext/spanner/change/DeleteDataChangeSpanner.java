@@ -0,0 +1,70 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import liquibase.change.ChangeMetaData;
+import liquibase.change.DatabaseChange;
+import liquibase.change.DatabaseChangeProperty;
+import liquibase.change.core.DeleteDataChange;
+import liquibase.database.Database;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.sqlgenerator.PartitionedDmlStatement;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.DeleteStatement;
+
+/**
+ * Cloud Spanner-specific implementation of {@link DeleteDataChange} that can execute the DELETE
+ * statement as Partitioned DML. This allows all rows of a large table to be deleted without
+ * exceeding the mutation limit of a transaction.
+ */
+@DatabaseChange(
+    name = "delete",
+    description = "Deletes data from an existing table",
+    priority = ChangeMetaData.PRIORITY_DATABASE,
+    appliesTo = "table")
+public class DeleteDataChangeSpanner extends DeleteDataChange {
+  private Boolean partitioned;
+
+  @Override
+  public boolean supports(Database database) {
+    return (database instanceof ICloudSpanner);
+  }
+
+  @DatabaseChangeProperty(
+      description =
+          "Executes the statement as Partitioned DML. Partitioned DML is not atomic, and commits "
+              + "all earlier statements of the changeset. Defaults to the "
+              + "liquibase.spanner.partitionedDmlWithoutWhere option if there is no where clause.")
+  public Boolean getPartitioned() {
+    return partitioned;
+  }
+
+  public void setPartitioned(Boolean partitioned) {
+    this.partitioned = partitioned;
+  }
+
+  @Override
+  public SqlStatement[] generateStatements(Database database) {
+    SqlStatement[] statements = super.generateStatements(database);
+    if (!PartitionedDmlStatement.isPartitioned(partitioned, getWhere())) {
+      return statements;
+    }
+    for (int i = 0; i < statements.length; i++) {
+      if (statements[i] instanceof DeleteStatement) {
+        statements[i] = new PartitionedDmlStatement(statements[i]);
+      }
+    }
+    return statements;
+  }
+}
@@ -16,6 +16,7 @@ import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.DatabaseException;
 import liquibase.exception.UnexpectedLiquibaseException;
 import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.MetadataStaleness;
 import liquibase.statement.SqlStatement;
 
 @DatabaseChange(
@@ -30,13 +31,20 @@ public class DropAllForeignKeyConstraintsChangeSpanner extends DropAllForeignKey
     return (database instanceof ICloudSpanner);
   }
 
+  @Override
+  public boolean generateStatementsVolatile(Database database) {
+    // The statements depend on the foreign keys that currently exist.
+    return true;
+  }
+
   public SqlStatement[] generateStatements(Database database) {
     List<SqlStatement> sqlStatements = new ArrayList<>();
 
     JdbcConnection connection = (JdbcConnection) database.getConnection();
-    try (PreparedStatement ps =
-        connection.prepareStatement(
-            "SELECT CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=? AND CONSTRAINT_TYPE='FOREIGN KEY'")) {
+    try (MetadataStaleness ignored = MetadataStaleness.begin(connection.getUnderlyingConnection());
+        PreparedStatement ps =
+            connection.prepareStatement(
+                "SELECT CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=? AND CONSTRAINT_TYPE='FOREIGN KEY'")) {
       String catalogName =
           MoreObjects.firstNonNull(getBaseTableCatalogName(), database.getDefaultCatalogName());
       String schemaName =
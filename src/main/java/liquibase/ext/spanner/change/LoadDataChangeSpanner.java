@@ -0,0 +1,64 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import com.google.cloud.spanner.Mutation;
+import liquibase.change.ChangeMetaData;
+import liquibase.change.DatabaseChange;
+import liquibase.change.core.LoadDataChange;
+import liquibase.database.Database;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.statement.SqlStatement;
+
+/**
+ * Cloud Spanner-specific implementation of {@link LoadDataChange}. The rows are written as insert
+ * mutations instead of DML statements if {@link SpannerConfiguration#LOAD_DATA_WITH_MUTATIONS} is
+ * enabled. The CSV file is streamed instead of read into memory if {@link
+ * SpannerConfiguration#LOAD_DATA_STREAM_BATCH_SIZE} is set.
+ */
+@DatabaseChange(
+    name = "loadData",
+    description = "Loads data from a CSV file into an existing table.",
+    priority = ChangeMetaData.PRIORITY_DATABASE,
+    appliesTo = "table")
+public class LoadDataChangeSpanner extends LoadDataChange {
+
+  @Override
+  public boolean supports(Database database) {
+    return (database instanceof ICloudSpanner);
+  }
+
+  @Override
+  public boolean generateStatementsVolatile(Database database) {
+    // The mutations and streamed rows depend on the column types in the table.
+    return LoadDataMutations.isEnabled(database)
+        || LoadDataMutations.isStreamingEnabled(database)
+        || super.generateStatementsVolatile(database);
+  }
+
+  @Override
+  public SqlStatement[] generateStatements(Database database) {
+    if (StreamingLoadDataStatement.isSupported(database, this, Mutation.Op.INSERT)) {
+      return new SqlStatement[] {
+        new StreamingLoadDataStatement(database, this, Mutation.Op.INSERT)
+      };
+    }
+    SqlStatement[] statements = super.generateStatements(database);
+    if (!LoadDataMutations.isEnabled(database)) {
+      return LoadDataInsertSets.group(database, statements, this);
+    }
+    return LoadDataMutations.toMutations(database, statements, Mutation.Op.INSERT, this);
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import liquibase.change.core.LoadDataChange;
+import liquibase.database.Database;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.InsertSetStatement;
+import liquibase.statement.core.InsertStatement;
+
+/**
+ * Groups the insert statements that Liquibase generates for {@code loadData} and {@code
+ * loadUpdateData} into one {@link InsertSetStatement}. The statement is generated as multi-row
+ * insert statements by {@link liquibase.ext.spanner.sqlgenerator.InsertSetGeneratorSpanner}.
+ */
+final class LoadDataInsertSets {
+
+  private LoadDataInsertSets() {}
+
+  /**
+   * Returns one insert set with all rows of the given statements, or the given statements if
+   * these are not all insert statements or if {@link
+   * SpannerConfiguration#LOAD_DATA_ROWS_PER_STATEMENT} is not set.
+   */
+  static SqlStatement[] group(Database database, SqlStatement[] statements, LoadDataChange change) {
+    Integer rowsPerStatement = SpannerConfiguration.LOAD_DATA_ROWS_PER_STATEMENT.getCurrentValue();
+    if (!(database instanceof ICloudSpanner)
+        || rowsPerStatement == null
+        || rowsPerStatement <= 1
+        || statements.length == 0) {
+      return statements;
+    }
+    InsertSetStatement insertSet =
+        new InsertSetStatement(
+            change.getCatalogName(),
+            change.getSchemaName(),
+            change.getTableName(),
+            rowsPerStatement);
+    for (SqlStatement statement : statements) {
+      if (statement instanceof InsertStatement) {
+        insertSet.addInsertStatement((InsertStatement) statement);
+      } else if (statement instanceof InsertSetStatement) {
+        for (InsertStatement insert : ((InsertSetStatement) statement).getStatements()) {
+          insertSet.addInsertStatement(insert);
+        }
+      } else {
+        return statements;
+      }
+    }
+    return new SqlStatement[] {insertSet};
+  }
+}
@@ -0,0 +1,524 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Value;
+import com.google.common.base.MoreObjects;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import liquibase.Scope;
+import liquibase.change.ColumnConfig;
+import liquibase.change.core.LoadDataChange;
+import liquibase.changelog.ChangeSet;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.UnexpectedLiquibaseException;
+import liquibase.executor.ExecutorService;
+import liquibase.executor.LoggingExecutor;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.MetadataStaleness;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.resource.Resource;
+import liquibase.statement.BatchDmlExecutablePreparedStatement;
+import liquibase.statement.DatabaseFunction;
+import liquibase.statement.ExecutablePreparedStatementBase;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.InsertSetStatement;
+import liquibase.statement.core.InsertStatement;
+
+/**
+ * Converts the statements that Liquibase generates for {@code loadData} and {@code loadUpdateData}
+ * into Spanner mutations. Mutations are written without parsing or planning any SQL, and are the
+ * cheapest way to write data to Spanner.
+ *
+ * <p>Liquibase parses the CSV values based on the types of the columns in the changeset. The
+ * values are then converted to the types of the columns in the table, which are read from
+ * INFORMATION_SCHEMA. The original statements are used if the data contains values that cannot be
+ * written as a mutation, such as computed values.
+ */
+final class LoadDataMutations {
+  private static final String SELECT_COLUMN_TYPES =
+      "SELECT COLUMN_NAME, SPANNER_TYPE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=?";
+  private static final String COUNT_INDEX_COLUMNS =
+      "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEX_COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=? AND INDEX_TYPE='INDEX'";
+  private static final String SELECT_PRIMARY_KEY_COLUMNS =
+      "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=? AND INDEX_TYPE='PRIMARY_KEY' ORDER BY ORDINAL_POSITION";
+
+  private static final Pattern TIMESTAMP_WITH_OFFSET =
+      Pattern.compile(".*T.*(Z|z|[+-]\\d{2}:?\\d{2})$");
+
+  private LoadDataMutations() {}
+
+  /** Returns true if loadData should write mutations for the given database. */
+  static boolean isEnabled(Database database) {
+    return Boolean.TRUE.equals(SpannerConfiguration.LOAD_DATA_WITH_MUTATIONS.getCurrentValue())
+        && isExecutedOnSpanner(database);
+  }
+
+  /** Returns true if loadData should stream the rows of the CSV file for the given database. */
+  static boolean isStreamingEnabled(Database database) {
+    Integer batchSize = SpannerConfiguration.LOAD_DATA_STREAM_BATCH_SIZE.getCurrentValue();
+    return batchSize != null && batchSize > 0 && isExecutedOnSpanner(database);
+  }
+
+  static boolean isExecutedOnSpanner(Database database) {
+    if (!(database instanceof ICloudSpanner)) {
+      return false;
+    }
+    // Mutations and streamed rows cannot be printed as SQL, so updateSql uses the standard
+    // statements.
+    return !(Scope.getCurrentScope()
+            .getSingleton(ExecutorService.class)
+            .getExecutor("jdbc", database)
+        instanceof LoggingExecutor);
+  }
+
+  /**
+   * Converts the given statements into one statement that writes the rows as mutations. Returns the
+   * given statements if any of the rows cannot be written as a mutation.
+   */
+  static SqlStatement[] toMutations(
+      Database database, SqlStatement[] statements, Mutation.Op op, LoadDataChange change) {
+    String catalogName = change.getCatalogName();
+    String schemaName = change.getSchemaName();
+    String tableName = change.getTableName();
+    ChangeSet changeSet = change.getChangeSet();
+    String encoding = change.getEncoding();
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (SqlStatement statement : statements) {
+      if (!addRows(statement, rows, changeSet, encoding)) {
+        return statements;
+      }
+    }
+    if (rows.isEmpty()) {
+      return statements;
+    }
+    Map<String, Column> columns = getColumns(database, catalogName, schemaName, tableName);
+    if (columns.isEmpty()) {
+      return statements;
+    }
+    String table = getMutationTableName(database, schemaName, tableName);
+    List<Mutation> mutations = new ArrayList<>(rows.size());
+    for (Map<String, Object> row : rows) {
+      Mutation.WriteBuilder builder = newWriteBuilder(op, table);
+      for (Map.Entry<String, Object> value : row.entrySet()) {
+        Column column = columns.get(value.getKey());
+        if (column == null || column.type == null) {
+          return statements;
+        }
+        builder.set(column.name).to(toValue(column, value.getValue()));
+      }
+      mutations.add(builder.build());
+    }
+    WriteMutationsStatement writeStatement = new WriteMutationsStatement(database, mutations);
+    Integer parallelism = SpannerConfiguration.LOAD_DATA_PARALLELISM.getCurrentValue();
+    int partitionCount = parallelism == null || parallelism <= 1 ? 1 : parallelism;
+    if (partitionCount > 1) {
+      writeStatement.withParallelism(
+          partitionCount, getPrimaryKeyColumns(database, catalogName, schemaName, tableName));
+    }
+    Integer maxMutationsPerCommit =
+        SpannerConfiguration.LOAD_DATA_MAX_MUTATIONS_PER_COMMIT.getCurrentValue();
+    if (maxMutationsPerCommit != null && maxMutationsPerCommit > 0 && changeSet != null) {
+      writeStatement.withChunks(
+          maxMutationsPerCommit,
+          countIndexColumns(database, catalogName, schemaName, tableName),
+          new LoadDataProgress(database, change, partitionCount));
+    }
+    return new SqlStatement[] {writeStatement};
+  }
+
+  private static boolean addRows(
+      SqlStatement statement,
+      List<Map<String, Object>> rows,
+      @Nullable ChangeSet changeSet,
+      @Nullable String encoding) {
+    if (statement instanceof BatchDmlExecutablePreparedStatement) {
+      for (ExecutablePreparedStatementBase individualStatement :
+          ((BatchDmlExecutablePreparedStatement) statement).getIndividualStatements()) {
+        if (!addRows(individualStatement, rows, changeSet, encoding)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (statement instanceof ExecutablePreparedStatementBase) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      for (ColumnConfig column : ((ExecutablePreparedStatementBase) statement).getColumns()) {
+        if (column.getValueComputed() != null
+            || column.getValueSequenceNext() != null
+            || column.getValueSequenceCurrent() != null) {
+          return false;
+        }
+        Object value;
+        if (column.getValueBlobFile() != null) {
+          value = readFile(column.getValueBlobFile(), changeSet);
+        } else if (column.getValueClobFile() != null) {
+          value =
+              new String(
+                  readFile(column.getValueClobFile(), changeSet),
+                  encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding));
+        } else {
+          value = column.getValueObject();
+        }
+        row.put(column.getName(), value);
+      }
+      rows.add(row);
+      return true;
+    }
+    if (statement instanceof InsertSetStatement) {
+      for (InsertStatement insert : ((InsertSetStatement) statement).getStatements()) {
+        if (!addRows(insert, rows, changeSet, encoding)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (statement instanceof InsertStatement) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      for (Map.Entry<String, Object> value :
+          ((InsertStatement) statement).getColumnValues().entrySet()) {
+        if (value.getValue() instanceof DatabaseFunction) {
+          return false;
+        }
+        row.put(value.getKey(), value.getValue());
+      }
+      rows.add(row);
+      return true;
+    }
+    return false;
+  }
+
+  static byte[] readFile(String path, @Nullable ChangeSet changeSet) {
+    try {
+      Resource resource;
+      if (changeSet == null || changeSet.getChangeLog() == null) {
+        resource = Scope.getCurrentScope().getResourceAccessor().getExisting(path);
+      } else {
+        // LOB files are relative to the changelog file, in the same way as for loadData with
+        // prepared statements.
+        resource =
+            Scope.getCurrentScope()
+                .getResourceAccessor()
+                .getExisting(changeSet.getChangeLog().getPhysicalFilePath())
+                .resolveSibling(path);
+      }
+      try (InputStream in = resource.openInputStream()) {
+        return ByteStreams.toByteArray(in);
+      }
+    } catch (IOException e) {
+      throw new UnexpectedLiquibaseException("Could not read file " + path, e);
+    }
+  }
+
+  /** The name and type of a column in the table that is being loaded. */
+  static class Column {
+    final String name;
+    @Nullable final Type type;
+
+    private Column(String name, @Nullable Type type) {
+      this.name = name;
+      this.type = type;
+    }
+  }
+
+  /** Returns the columns of the given table by name. The lookup is case-insensitive. */
+  static Map<String, Column> getColumns(
+      Database database,
+      @Nullable String catalogName,
+      @Nullable String schemaName,
+      String tableName) {
+    Dialect dialect = ((ICloudSpanner) database).getDialect();
+    Map<String, Column> columns = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    JdbcConnection connection = (JdbcConnection) database.getConnection();
+    try (MetadataStaleness ignored = MetadataStaleness.begin(connection.getUnderlyingConnection());
+        PreparedStatement ps = connection.prepareStatement(SELECT_COLUMN_TYPES)) {
+      ps.setString(1, MoreObjects.firstNonNull(catalogName, database.getDefaultCatalogName()));
+      ps.setString(2, MoreObjects.firstNonNull(schemaName, database.getDefaultSchemaName()));
+      ps.setString(3, tableName);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          String name = rs.getString(1);
+          columns.put(name, new Column(name, parseType(dialect, rs.getString(2))));
+        }
+      }
+    } catch (SQLException | DatabaseException e) {
+      throw new UnexpectedLiquibaseException(
+          String.format("Could not retrieve the columns of table %s", tableName), e);
+    }
+    return columns;
+  }
+
+  /**
+   * Returns the number of columns in the secondary indexes of the given table. Each of these
+   * columns counts as a mutation when a row is inserted or updated.
+   */
+  static int countIndexColumns(
+      Database database,
+      @Nullable String catalogName,
+      @Nullable String schemaName,
+      String tableName) {
+    JdbcConnection connection = (JdbcConnection) database.getConnection();
+    try (MetadataStaleness ignored = MetadataStaleness.begin(connection.getUnderlyingConnection());
+        PreparedStatement ps = connection.prepareStatement(COUNT_INDEX_COLUMNS)) {
+      ps.setString(1, MoreObjects.firstNonNull(catalogName, database.getDefaultCatalogName()));
+      ps.setString(2, MoreObjects.firstNonNull(schemaName, database.getDefaultSchemaName()));
+      ps.setString(3, tableName);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next() ? rs.getInt(1) : 0;
+      }
+    } catch (SQLException | DatabaseException e) {
+      throw new UnexpectedLiquibaseException(
+          String.format("Could not retrieve the indexes of table %s", tableName), e);
+    }
+  }
+
+  /** Returns the primary key columns of the given table in key order. */
+  static List<String> getPrimaryKeyColumns(
+      Database database,
+      @Nullable String catalogName,
+      @Nullable String schemaName,
+      String tableName) {
+    JdbcConnection connection = (JdbcConnection) database.getConnection();
+    try (MetadataStaleness ignored = MetadataStaleness.begin(connection.getUnderlyingConnection());
+        PreparedStatement ps = connection.prepareStatement(SELECT_PRIMARY_KEY_COLUMNS)) {
+      ps.setString(1, MoreObjects.firstNonNull(catalogName, database.getDefaultCatalogName()));
+      ps.setString(2, MoreObjects.firstNonNull(schemaName, database.getDefaultSchemaName()));
+      ps.setString(3, tableName);
+      List<String> keyColumns = new ArrayList<>();
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          keyColumns.add(rs.getString(1));
+        }
+      }
+      return keyColumns;
+    } catch (SQLException | DatabaseException e) {
+      throw new UnexpectedLiquibaseException(
+          String.format("Could not retrieve the primary key of table %s", tableName), e);
+    }
+  }
+
+  /** Returns the type of a column, or null if values of the type are not supported. */
+  @Nullable
+  static Type parseType(Dialect dialect, @Nullable String spannerType) {
+    if (spannerType == null) {
+      return null;
+    }
+    // Remove the length of STRING(100), BYTES(MAX), character varying(100) etc.
+    String type = spannerType.replaceAll("\\(.*\\)", "").trim().toLowerCase(Locale.ROOT);
+    if (dialect == Dialect.POSTGRESQL) {
+      switch (type) {
+        case "bigint":
+          return Type.int64();
+        case "double precision":
+          return Type.float64();
+        case "real":
+          return Type.float32();
+        case "numeric":
+          return Type.pgNumeric();
+        case "boolean":
+          return Type.bool();
+        case "character varying":
+        case "text":
+          return Type.string();
+        case "bytea":
+          return Type.bytes();
+        case "date":
+          return Type.date();
+        case "timestamp with time zone":
+          return Type.timestamp();
+        case "jsonb":
+          return Type.pgJsonb();
+        default:
+          return null;
+      }
+    }
+    switch (type) {
+      case "int64":
+        return Type.int64();
+      case "float64":
+        return Type.float64();
+      case "float32":
+        return Type.float32();
+      case "numeric":
+        return Type.numeric();
+      case "bool":
+        return Type.bool();
+      case "string":
+        return Type.string();
+      case "bytes":
+        return Type.bytes();
+      case "date":
+        return Type.date();
+      case "timestamp":
+        return Type.timestamp();
+      case "json":
+        return Type.json();
+      default:
+        return null;
+    }
+  }
+
+  static Value toValue(Column column, @Nullable Object value) {
+    try {
+      return toValue(column.type, value);
+    } catch (RuntimeException e) {
+      throw new UnexpectedLiquibaseException(
+          String.format("Invalid value for column %s: %s", column.name, value), e);
+    }
+  }
+
+  static Value toValue(Type type, @Nullable Object value) {
+    switch (type.getCode()) {
+      case INT64:
+        return Value.int64(
+            value == null
+                ? null
+                : value instanceof Number
+                    ? toBigDecimal(value).longValueExact()
+                    : Long.valueOf(value.toString().trim()));
+      case FLOAT64:
+        return Value.float64(
+            value == null
+                ? null
+                : value instanceof Number
+                    ? ((Number) value).doubleValue()
+                    : Double.valueOf(value.toString().trim()));
+      case FLOAT32:
+        return Value.float32(
+            value == null
+                ? null
+                : value instanceof Number
+                    ? ((Number) value).floatValue()
+                    : Float.valueOf(value.toString().trim()));
+      case NUMERIC:
+        return Value.numeric(value == null ? null : toBigDecimal(value));
+      case PG_NUMERIC:
+        return Value.pgNumeric(value == null ? null : value.toString().trim());
+      case BOOL:
+        return Value.bool(
+            value == null
+                ? null
+                : value instanceof Boolean ? (Boolean) value : toBoolean(value.toString()));
+      case STRING:
+        return Value.string(value == null ? null : value.toString());
+      case BYTES:
+        return Value.bytes(value == null ? null : toByteArray(value));
+      case DATE:
+        return Value.date(value == null ? null : toDate(value));
+      case TIMESTAMP:
+        return Value.timestamp(value == null ? null : toTimestamp(value));
+      case JSON:
+        return Value.json(value == null ? null : value.toString());
+      case PG_JSONB:
+        return Value.pgJsonb(value == null ? null : value.toString());
+      default:
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+  }
+
+  private static BigDecimal toBigDecimal(Object value) {
+    return value instanceof BigDecimal
+        ? (BigDecimal) value
+        : new BigDecimal(value.toString().trim());
+  }
+
+  private static Boolean toBoolean(String value) {
+    String bool = value.trim();
+    return "1".equals(bool) || Boolean.parseBoolean(bool);
+  }
+
+  private static ByteArray toByteArray(Object value) {
+    if (value instanceof byte[]) {
+      return ByteArray.copyFrom((byte[]) value);
+    }
+    // loadData only uses the value of a BLOB column directly if it is base64-encoded.
+    try {
+      return ByteArray.fromBase64(value.toString());
+    } catch (IllegalArgumentException e) {
+      return ByteArray.copyFrom(value.toString());
+    }
+  }
+
+  private static Date toDate(Object value) {
+    if (value instanceof java.util.Date) {
+      return Date.fromJavaUtilDate((java.util.Date) value);
+    }
+    String date = value.toString().trim();
+    // Ignore the time part of values like 2020-01-01T10:00:00.
+    return Date.parseDate(date.length() > 10 ? date.substring(0, 10) : date);
+  }
+
+  private static Timestamp toTimestamp(Object value) {
+    if (value instanceof java.sql.Timestamp) {
+      return Timestamp.of((java.sql.Timestamp) value);
+    }
+    if (value instanceof java.util.Date) {
+      return Timestamp.of((java.util.Date) value);
+    }
+    String timestamp = value.toString().trim();
+    if (TIMESTAMP_WITH_OFFSET.matcher(timestamp).matches()) {
+      return Timestamp.parseTimestamp(timestamp);
+    }
+    // Liquibase interprets timestamps without an offset in the default time zone of the JVM.
+    return Timestamp.of(java.sql.Timestamp.valueOf(timestamp.replace('T', ' ')));
+  }
+
+  static String getMutationTableName(
+      Database database, @Nullable String schemaName, String tableName) {
+    if (schemaName == null
+        || schemaName.isEmpty()
+        || schemaName.equalsIgnoreCase(database.getDefaultSchemaName())) {
+      return tableName;
+    }
+    return schemaName + "." + tableName;
+  }
+
+  static Mutation.WriteBuilder newWriteBuilder(Mutation.Op op, String table) {
+    switch (op) {
+      case INSERT:
+        return Mutation.newInsertBuilder(table);
+      case INSERT_OR_UPDATE:
+        return Mutation.newInsertOrUpdateBuilder(table);
+      case UPDATE:
+        return Mutation.newUpdateBuilder(table);
+      case REPLACE:
+        return Mutation.newReplaceBuilder(table);
+      default:
+        throw new IllegalArgumentException("Unsupported mutation type: " + op);
+    }
+  }
+}
@@ -0,0 +1,318 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.annotation.Nullable;
+import liquibase.change.Change;
+import liquibase.changelog.ChangeSet;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.spanner.ICloudSpanner;
+
+/**
+ * Records how many rows of a chunked loadData change have been committed. The progress is written
+ * in the same transaction as each chunk, so a failed run can resume after the last committed chunk.
+ * Changes that are written in parallel record the progress of each partition separately. A backfill
+ * change also records the last primary key that it has processed as a checkpoint. The progress of a
+ * changeset is removed when the changeset has been recorded in DATABASECHANGELOG.
+ */
+class LoadDataProgress {
+  static final String TABLE_NAME = "DATABASECHANGELOGPROGRESS";
+
+  /** The changesets with progress rows that were written by this process, per database. */
+  private static final Map<Database, Set<String>> CHANGE_SETS_WITH_PROGRESS = new WeakHashMap<>();
+
+  private final Database database;
+  private final String changeSetId;
+  private final long changeIndex;
+  private final long partitionIndex;
+  private final String md5sum;
+
+  /**
+   * Creates the progress for the given change, which is written in the given number of
+   * partitions. The progress of a previous run is only used if the change and the number of
+   * partitions are the same.
+   */
+  LoadDataProgress(Database database, Change change, int partitionCount) {
+    this(
+        database,
+        getChangeSetId(change.getChangeSet()),
+        change.getChangeSet().getChanges().indexOf(change),
+        0L,
+        change.generateCheckSum().toString() + "/" + partitionCount);
+  }
+
+  /**
+   * Creates the progress for the given change. The progress of a previous run is only used if it
+   * was recorded with the same md5sum.
+   */
+  LoadDataProgress(Database database, Change change, String md5sum) {
+    this(
+        database,
+        getChangeSetId(change.getChangeSet()),
+        change.getChangeSet().getChanges().indexOf(change),
+        0L,
+        md5sum);
+  }
+
+  private LoadDataProgress(
+      Database database,
+      String changeSetId,
+      long changeIndex,
+      long partitionIndex,
+      String md5sum) {
+    this.database = database;
+    this.changeSetId = changeSetId;
+    this.changeIndex = changeIndex;
+    this.partitionIndex = partitionIndex;
+    this.md5sum = md5sum;
+  }
+
+  /** Returns the progress of the given partition of the same change. */
+  LoadDataProgress forPartition(int partitionIndex) {
+    return new LoadDataProgress(database, changeSetId, changeIndex, partitionIndex, md5sum);
+  }
+
+  private static String getChangeSetId(ChangeSet changeSet) {
+    return changeSet.getFilePath() + "::" + changeSet.getId() + "::" + changeSet.getAuthor();
+  }
+
+  /**
+   * Returns the number of rows that have already been committed by a previous run of the same
+   * change. Returns 0 if the change has not been started before, or if it has been modified since.
+   */
+  long getCommittedRows(Connection connection) throws DatabaseException {
+    try {
+      try (PreparedStatement ps =
+          connection.prepareStatement(
+              String.format(
+                  "SELECT %s, %s FROM %s WHERE %s=? AND %s=? AND %s=?",
+                  name("MD5SUM"),
+                  name("ROWS_COMMITTED"),
+                  getEscapedTableName(),
+                  name("ID"),
+                  name("CHANGE_INDEX"),
+                  name("PARTITION_INDEX")))) {
+        ps.setString(1, changeSetId);
+        ps.setLong(2, changeIndex);
+        ps.setLong(3, partitionIndex);
+        try (ResultSet rs = ps.executeQuery()) {
+          if (rs.next() && md5sum.equals(rs.getString(1))) {
+            return rs.getLong(2);
+          }
+        }
+      }
+      return 0L;
+    } catch (SQLException e) {
+      throw new DatabaseException("Could not read the progress of " + changeSetId, e);
+    }
+  }
+
+  /** The number of committed rows and the last key of a previous run of a backfill change. */
+  static final class Checkpoint {
+    final long committedRows;
+    final List<String> key;
+
+    private Checkpoint(long committedRows, List<String> key) {
+      this.committedRows = committedRows;
+      this.key = key;
+    }
+  }
+
+  /**
+   * Returns the checkpoint of a previous run of the same change, or null if the change has not
+   * recorded a checkpoint before, or if it has been modified since.
+   */
+  @Nullable
+  Checkpoint getCheckpoint(Connection connection) throws DatabaseException {
+    try {
+      try (PreparedStatement ps =
+          connection.prepareStatement(
+              String.format(
+                  "SELECT %s, %s, %s FROM %s WHERE %s=? AND %s=? AND %s=?",
+                  name("MD5SUM"),
+                  name("ROWS_COMMITTED"),
+                  name("CHECKPOINT"),
+                  getEscapedTableName(),
+                  name("ID"),
+                  name("CHANGE_INDEX"),
+                  name("PARTITION_INDEX")))) {
+        ps.setString(1, changeSetId);
+        ps.setLong(2, changeIndex);
+        ps.setLong(3, partitionIndex);
+        try (ResultSet rs = ps.executeQuery()) {
+          if (rs.next() && md5sum.equals(rs.getString(1)) && rs.getArray(3) != null) {
+            String[] key = (String[]) rs.getArray(3).getArray();
+            return new Checkpoint(rs.getLong(2), Arrays.asList(key));
+          }
+        }
+      }
+      return null;
+    } catch (SQLException e) {
+      throw new DatabaseException("Could not read the checkpoint of " + changeSetId, e);
+    }
+  }
+
+  /** Returns a mutation that records the given number of committed rows. */
+  Mutation toMutation(long committedRows) {
+    return newProgressBuilder(committedRows).build();
+  }
+
+  /**
+   * Returns a mutation that records the given number of committed rows and the last key that has
+   * been processed.
+   */
+  Mutation toMutation(long committedRows, List<String> checkpoint) {
+    return newProgressBuilder(committedRows)
+        .set(name("CHECKPOINT"))
+        .toStringArray(checkpoint)
+        .build();
+  }
+
+  private Mutation.WriteBuilder newProgressBuilder(long committedRows) {
+    synchronized (CHANGE_SETS_WITH_PROGRESS) {
+      CHANGE_SETS_WITH_PROGRESS.computeIfAbsent(database, d -> new HashSet<>()).add(changeSetId);
+    }
+    return Mutation.newInsertOrUpdateBuilder(getMutationTableName())
+        .set(name("ID"))
+        .to(changeSetId)
+        .set(name("CHANGE_INDEX"))
+        .to(changeIndex)
+        .set(name("PARTITION_INDEX"))
+        .to(partitionIndex)
+        .set(name("MD5SUM"))
+        .to(md5sum)
+        .set(name("ROWS_COMMITTED"))
+        .to(committedRows);
+  }
+
+  /**
+   * Removes the progress of the given changeset, if this process has written any. This is called
+   * after the changeset has been recorded in DATABASECHANGELOG.
+   */
+  static void clear(Database database, ChangeSet changeSet) throws DatabaseException {
+    String changeSetId = getChangeSetId(changeSet);
+    synchronized (CHANGE_SETS_WITH_PROGRESS) {
+      Set<String> changeSets =
+          CHANGE_SETS_WITH_PROGRESS.getOrDefault(database, Collections.emptySet());
+      if (!changeSets.remove(changeSetId)) {
+        return;
+      }
+    }
+    try {
+      CloudSpannerJdbcConnection connection =
+          getJdbcConnection(database).unwrap(CloudSpannerJdbcConnection.class);
+      Mutation delete =
+          Mutation.delete(
+              getMutationTableName(database), KeySet.prefixRange(Key.of(changeSetId)));
+      if (connection.getAutoCommit()) {
+        connection.write(delete);
+      } else {
+        connection.bufferedWrite(delete);
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Could not remove the progress of " + changeSetId, e);
+    }
+  }
+
+  /** Creates the progress table, unless it already exists. */
+  void createTableIfNotExists() throws DatabaseException {
+    try {
+      createTableIfNotExists(getJdbcConnection(database));
+    } catch (SQLException e) {
+      throw new DatabaseException("Could not create " + TABLE_NAME, e);
+    }
+  }
+
+  private void createTableIfNotExists(Connection connection) throws SQLException {
+    // Only execute the DDL statement if the table does not exist, as a schema change is slow.
+    try (PreparedStatement ps =
+        connection.prepareStatement(
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA=? AND TABLE_NAME=?")) {
+      String schemaName = database.getLiquibaseSchemaName();
+      ps.setString(1, schemaName == null ? database.getDefaultSchemaName() : schemaName);
+      ps.setString(2, name(TABLE_NAME));
+      try (ResultSet rs = ps.executeQuery()) {
+        if (rs.next() && rs.getLong(1) > 0L) {
+          return;
+        }
+      }
+    }
+    String sql;
+    if (isPostgreSQL()) {
+      sql =
+          String.format(
+              "CREATE TABLE IF NOT EXISTS %s (id varchar NOT NULL, change_index bigint NOT NULL, partition_index bigint NOT NULL, md5sum varchar, rows_committed bigint, checkpoint varchar[], PRIMARY KEY (id, change_index, partition_index))",
+              getEscapedTableName());
+    } else {
+      sql =
+          String.format(
+              "CREATE TABLE IF NOT EXISTS %s (ID STRING(MAX) NOT NULL, CHANGE_INDEX INT64 NOT NULL, PARTITION_INDEX INT64 NOT NULL, MD5SUM STRING(MAX), ROWS_COMMITTED INT64, CHECKPOINT ARRAY<STRING(MAX)>) PRIMARY KEY (ID, CHANGE_INDEX, PARTITION_INDEX)",
+              getEscapedTableName());
+    }
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  private boolean isPostgreSQL() {
+    return ((ICloudSpanner) database).getDialect() == Dialect.POSTGRESQL;
+  }
+
+  /** PostgreSQL folds unquoted identifiers to lower case. */
+  private String name(String name) {
+    return isPostgreSQL() ? name.toLowerCase(Locale.ROOT) : name;
+  }
+
+  private String getEscapedTableName() {
+    return database.escapeTableName(
+        database.getLiquibaseCatalogName(), database.getLiquibaseSchemaName(), name(TABLE_NAME));
+  }
+
+  private String getMutationTableName() {
+    return getMutationTableName(database);
+  }
+
+  private static String getMutationTableName(Database database) {
+    String tableName =
+        ((ICloudSpanner) database).getDialect() == Dialect.POSTGRESQL
+            ? TABLE_NAME.toLowerCase(Locale.ROOT)
+            : TABLE_NAME;
+    return LoadDataMutations.getMutationTableName(
+        database, database.getLiquibaseSchemaName(), tableName);
+  }
+
+  private static Connection getJdbcConnection(Database database) {
+    return ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+  }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import com.google.cloud.spanner.Mutation;
+import liquibase.change.ChangeMetaData;
+import liquibase.change.DatabaseChange;
+import liquibase.change.core.LoadUpdateDataChange;
+import liquibase.database.Database;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.statement.SqlStatement;
+
+/**
+ * Cloud Spanner-specific implementation of {@link LoadUpdateDataChange}. The rows are written as
+ * insert-or-update mutations, or as update mutations if {@code onlyUpdate} is set, instead of DML
+ * statements if {@link SpannerConfiguration#LOAD_DATA_WITH_MUTATIONS} is enabled. The CSV file is
+ * then streamed instead of read into memory if {@link
+ * SpannerConfiguration#LOAD_DATA_STREAM_BATCH_SIZE} is set.
+ */
+@DatabaseChange(
+    name = "loadUpdateData",
+    description =
+        "Loads or updates data from a CSV file into an existing table. Differs from loadData by issuing a SQL batch that checks for the existence of a record. If found, the record is UPDATEd, else the record is INSERTed.",
+    priority = ChangeMetaData.PRIORITY_DATABASE,
+    appliesTo = "table")
+public class LoadUpdateDataChangeSpanner extends LoadUpdateDataChange {
+
+  @Override
+  public boolean supports(Database database) {
+    return (database instanceof ICloudSpanner);
+  }
+
+  @Override
+  public boolean generateStatementsVolatile(Database database) {
+    // The mutations and streamed rows depend on the column types in the table.
+    return LoadDataMutations.isEnabled(database)
+        || LoadDataMutations.isStreamingEnabled(database)
+        || super.generateStatementsVolatile(database);
+  }
+
+  @Override
+  public SqlStatement[] generateStatements(Database database) {
+    Mutation.Op op =
+        Boolean.TRUE.equals(getOnlyUpdate()) ? Mutation.Op.UPDATE : Mutation.Op.INSERT_OR_UPDATE;
+    if (StreamingLoadDataStatement.isSupported(database, this, op)) {
+      return new SqlStatement[] {new StreamingLoadDataStatement(database, this, op)};
+    }
+    SqlStatement[] statements = super.generateStatements(database);
+    if (!LoadDataMutations.isEnabled(database)) {
+      return LoadDataInsertSets.group(database, statements, this);
+    }
+    return LoadDataMutations.toMutations(database, statements, op, this);
+  }
+}
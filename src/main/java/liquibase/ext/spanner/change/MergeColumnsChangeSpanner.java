@@ -13,18 +13,19 @@
  */
 package liquibase.ext.spanner.change;
 
-import com.google.cloud.spanner.Dialect;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import liquibase.change.AddColumnConfig;
 import liquibase.change.ChangeMetaData;
 import liquibase.change.DatabaseChange;
+import liquibase.change.DatabaseChangeProperty;
 import liquibase.change.core.AddColumnChange;
 import liquibase.change.core.DropColumnChange;
 import liquibase.change.core.MergeColumnChange;
 import liquibase.database.Database;
-import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.exception.ValidationErrors;
+import liquibase.ext.spanner.sqlgenerator.PartitionedDmlStatement;
 import liquibase.statement.SqlStatement;
 import liquibase.statement.core.RawSqlStatement;
 import liquibase.structure.core.Column;
@@ -35,7 +36,9 @@ import liquibase.structure.core.Column;
  * updated/deleted. This feature is a safety precaution against accidental updates/deletes.
  *
  * <p>{@link MergeColumnsChangeSpanner} will use a Partitioned DML statement to fill the data in the
- * new column.
+ * new column. If rangeSize or parallelism is set, the new column is instead filled in ranges of the
+ * primary key in the same way as a {@link BackfillChangeSpanner}. The progress is then logged
+ * periodically, and a failed run resumes after the last committed range.
  */
 @DatabaseChange(
     name = "mergeColumns",
@@ -43,10 +46,55 @@ import liquibase.structure.core.Column;
         "Concatenates the values in two columns, joins them by with string, and stores the resulting value in a new column.",
     priority = ChangeMetaData.PRIORITY_DATABASE)
 public class MergeColumnsChangeSpanner extends MergeColumnChange {
+  private Integer rangeSize;
+  private Integer parallelism;
+
+  @DatabaseChangeProperty(
+      description =
+          "Fills the new column in ranges of at most this number of rows per transaction, instead of with one Partitioned DML statement")
+  public Integer getRangeSize() {
+    return rangeSize;
+  }
+
+  public void setRangeSize(Integer rangeSize) {
+    this.rangeSize = rangeSize;
+  }
+
+  @DatabaseChangeProperty(
+      description =
+          "The number of ranges that are filled in parallel. Setting this also fills the new column in ranges")
+  public Integer getParallelism() {
+    return parallelism;
+  }
+
+  public void setParallelism(Integer parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  private boolean isBatched() {
+    return rangeSize != null || parallelism != null;
+  }
+
+  @Override
+  public ValidationErrors validate(Database database) {
+    ValidationErrors errors = super.validate(database);
+    if (rangeSize != null && rangeSize <= 0) {
+      errors.addError("rangeSize must be positive");
+    }
+    if (parallelism != null && parallelism <= 0) {
+      errors.addError("parallelism must be positive");
+    }
+    return errors;
+  }
+
+  @Override
+  public boolean generateStatementsVolatile(Database database) {
+    // The ranges are determined when the change is executed.
+    return isBatched() || super.generateStatementsVolatile(database);
+  }
 
   @Override
   public SqlStatement[] generateStatements(final Database database) {
-    Dialect dialect = ((ICloudSpanner) database).getDialect();
     List<SqlStatement> statements = new ArrayList<>();
 
     AddColumnChange addNewColumnChange = new AddColumnChange();
@@ -58,30 +106,30 @@ public class MergeColumnsChangeSpanner extends MergeColumnChange {
     columnConfig.setType(getFinalColumnType());
     addNewColumnChange.addColumn(columnConfig);
     statements.addAll(Arrays.asList(addNewColumnChange.generateStatements(database)));
-    if (dialect == Dialect.POSTGRESQL) {
-      statements.add(new RawSqlStatement("set autocommit=true"));
-      statements.add(
-          new RawSqlStatement("set spanner.autocommit_dml_mode='partitioned_non_atomic'"));
-    } else {
-      statements.add(new RawSqlStatement("SET AUTOCOMMIT=TRUE"));
-      statements.add(new RawSqlStatement("SET AUTOCOMMIT_DML_MODE='PARTITIONED_NON_ATOMIC'"));
-    }
-    String updateStatement =
-        "UPDATE "
-            + database.escapeTableName(getCatalogName(), getSchemaName(), getTableName())
-            + " SET "
-            + database.escapeObjectName(getFinalColumnName(), Column.class)
+    String setClause =
+        database.escapeObjectName(getFinalColumnName(), Column.class)
             + " = "
             + database.getConcatSql(
                 database.escapeObjectName(getColumn1Name(), Column.class),
                 "'" + getJoinString() + "'",
-                database.escapeObjectName(getColumn2Name(), Column.class))
-            + " WHERE TRUE";
-    statements.add(new RawSqlStatement(updateStatement));
-    if (dialect == Dialect.POSTGRESQL) {
-      statements.add(new RawSqlStatement("set spanner.autocommit_dml_mode='transactional'"));
+                database.escapeObjectName(getColumn2Name(), Column.class));
+    if (isBatched()) {
+      statements.add(
+          new BackfillStatement(
+                  database, this, getCatalogName(), getSchemaName(), getTableName(), setClause)
+              .withRanges(
+                  rangeSize == null ? BackfillChangeSpanner.DEFAULT_RANGE_SIZE : rangeSize,
+                  parallelism == null ? 1 : parallelism));
     } else {
-      statements.add(new RawSqlStatement("SET AUTOCOMMIT_DML_MODE='TRANSACTIONAL'"));
+      // The DML mode of the connection is restored after the update, also if it fails.
+      statements.add(
+          new PartitionedDmlStatement(
+              new RawSqlStatement(
+                  "UPDATE "
+                      + database.escapeTableName(getCatalogName(), getSchemaName(), getTableName())
+                      + " SET "
+                      + setClause
+                      + " WHERE TRUE")));
     }
     DropColumnChange dropColumn1Change = new DropColumnChange();
     dropColumn1Change.setCatalogName(getCatalogName());
@@ -13,11 +13,30 @@
  */
 package liquibase.ext.spanner.change;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Scope;
+import liquibase.change.Change;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
 import liquibase.changelog.StandardChangeLogHistoryService;
 import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.DatabaseHistoryException;
+import liquibase.exception.LiquibaseException;
 import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.executor.JdbcExecutorSpanner;
 
 public class StandardChangeLogHistoryServiceSpanner extends StandardChangeLogHistoryService {
+  /** Whether the ran changesets were partly read from the changelog cache. */
+  private boolean readFromCache;
+
+  /** The last ORDEREXECUTED that has been assigned by this service. */
+  @Nullable private Integer lastSequenceValue;
 
   public StandardChangeLogHistoryServiceSpanner() {}
 
@@ -35,4 +54,148 @@ public class StandardChangeLogHistoryServiceSpanner extends StandardChangeLogHis
   public boolean canCreateChangeLogTable() {
     return true;
   }
+
+  @Override
+  public ChangeSet.RunStatus getRunStatus(ChangeSet changeSet)
+      throws DatabaseException, DatabaseHistoryException {
+    // This is called before the preconditions and the changes of a changeset are evaluated.
+    // Execute any pending DDL batch first if the changeset could read the schema, so it sees the
+    // changes of the previous changesets.
+    JdbcExecutorSpanner executor = JdbcExecutorSpanner.getInstance(getDatabase());
+    if (executor != null && executor.isDdlBatchActive() && readsSchema(changeSet)) {
+      executor.runDdlBatch();
+    }
+    ChangeSet.RunStatus status = super.getRunStatus(changeSet);
+    if (readFromCache && status == ChangeSet.RunStatus.INVALID_MD5SUM) {
+      // The cached checksum may be outdated. Read all rows again on the next run.
+      Scope.getCurrentScope()
+          .getLog(getClass())
+          .warning("Removing the changelog cache, as the checksum of " + changeSet + " differs");
+      deleteCache();
+    }
+    return status;
+  }
+
+  @Override
+  public void upgradeChecksums(
+      DatabaseChangeLog databaseChangeLog, Contexts contexts, LabelExpression labels)
+      throws DatabaseException {
+    super.upgradeChecksums(databaseChangeLog, contexts, labels);
+    deleteCache();
+  }
+
+  @Override
+  public void clearAllCheckSums() throws LiquibaseException {
+    super.clearAllCheckSums();
+    deleteCache();
+  }
+
+  @Override
+  public void replaceChecksum(ChangeSet changeSet) throws DatabaseException {
+    super.replaceChecksum(changeSet);
+    deleteCache();
+  }
+
+  /**
+   * Removes the changelog cache after the checksums in the table have been changed, so the next run
+   * reads all rows again.
+   */
+  private void deleteCache() {
+    Path file = ChangeLogHistoryCache.getCacheFile(getDatabase());
+    if (file != null) {
+      ChangeLogHistoryCache.delete(file);
+    }
+    readFromCache = false;
+  }
+
+  @Override
+  public List<Map<String, ?>> queryDatabaseChangeLogTable(Database database)
+      throws DatabaseException {
+    readFromCache = false;
+    Path file = ChangeLogHistoryCache.getCacheFile(database);
+    if (file == null) {
+      return super.queryDatabaseChangeLogTable(database);
+    }
+    List<Map<String, ?>> cachedRows = ChangeLogHistoryCache.read(file);
+    List<Map<String, ?>> rows =
+        cachedRows == null ? null : ChangeLogHistoryCache.readNewerRows(database, cachedRows);
+    if (rows == null) {
+      rows = super.queryDatabaseChangeLogTable(database);
+    } else {
+      readFromCache = true;
+    }
+    if (!readFromCache || rows.size() != cachedRows.size()) {
+      ChangeLogHistoryCache.write(file, rows);
+    }
+    return rows;
+  }
+
+  @Override
+  public void setExecType(ChangeSet changeSet, ChangeSet.ExecType execType)
+      throws DatabaseException {
+    JdbcExecutorSpanner.PendingHistoryUpdate update =
+        new JdbcExecutorSpanner.PendingHistoryUpdate() {
+          @Override
+          public void prepare() throws DatabaseException {
+            // ORDEREXECUTED is assigned on the client, but the first value is read from the table.
+            initSequenceValue();
+          }
+
+          @Override
+          public void run() throws DatabaseException {
+            StandardChangeLogHistoryServiceSpanner.super.setExecType(changeSet, execType);
+            // The progress of chunked loadData changes is no longer needed.
+            LoadDataProgress.clear(getDatabase(), changeSet);
+          }
+        };
+    // Changesets that are part of a DDL batch are recorded once the batch has been applied.
+    JdbcExecutorSpanner executor = JdbcExecutorSpanner.getInstance(getDatabase());
+    if (executor == null) {
+      update.run();
+    } else {
+      executor.runAfterDdlBatch(update);
+    }
+  }
+
+  @Override
+  public int getNextSequenceValue() throws LiquibaseException {
+    if (lastSequenceValue == null) {
+      lastSequenceValue = super.getNextSequenceValue();
+      return lastSequenceValue;
+    }
+    return ++lastSequenceValue;
+  }
+
+  /** Reads the highest ORDEREXECUTED from the table, unless it has already been read. */
+  private void initSequenceValue() throws DatabaseException {
+    if (lastSequenceValue != null) {
+      return;
+    }
+    try {
+      lastSequenceValue = super.getNextSequenceValue() - 1;
+    } catch (DatabaseException e) {
+      throw e;
+    } catch (LiquibaseException e) {
+      throw new DatabaseException(e);
+    }
+  }
+
+  @Override
+  public void reset() {
+    super.reset();
+    lastSequenceValue = null;
+  }
+
+  private boolean readsSchema(ChangeSet changeSet) {
+    if (changeSet.getPreconditions() != null
+        && !changeSet.getPreconditions().getNestedPreconditions().isEmpty()) {
+      return true;
+    }
+    for (Change change : changeSet.getChanges()) {
+      if (change.generateStatementsVolatile(getDatabase())) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
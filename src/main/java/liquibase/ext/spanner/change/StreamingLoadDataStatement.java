@@ -0,0 +1,495 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import com.google.cloud.spanner.jdbc.JsonType;
+import com.google.cloud.spanner.jdbc.PgJsonbType;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import javax.annotation.Nullable;
+import liquibase.Scope;
+import liquibase.change.core.LoadDataChange;
+import liquibase.change.core.LoadDataColumnConfig;
+import liquibase.changelog.ChangeSet;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.resource.Resource;
+import liquibase.resource.ResourceAccessor;
+import liquibase.statement.AbstractSqlStatement;
+import liquibase.statement.ExecutablePreparedStatement;
+import liquibase.statement.PreparedStatementFactory;
+import liquibase.util.StreamUtil;
+import liquibase.util.csv.CSVReader;
+
+/**
+ * Reads the CSV file of a loadData change as a stream, and writes the rows in batches while the
+ * file is being read. Only one batch of rows is kept in memory. The rows are written as mutations
+ * if {@link SpannerConfiguration#LOAD_DATA_WITH_MUTATIONS} is enabled, and otherwise as batched
+ * insert statements. Gzip-compressed files are decompressed automatically.
+ *
+ * <p>Each batch is committed together with the progress of the change if the connection is in
+ * autocommit mode, so a failed run resumes after the last committed batch.
+ */
+class StreamingLoadDataStatement extends AbstractSqlStatement
+    implements ExecutablePreparedStatement {
+  /** The number of mutations that are needed to record the progress in each commit. */
+  private static final int PROGRESS_MUTATION_COUNT = 5;
+
+  private static final String NULL_VALUE = "NULL";
+
+  private final Database database;
+  private final LoadDataChange change;
+  private final Mutation.Op op;
+  private final boolean useMutations;
+
+  StreamingLoadDataStatement(Database database, LoadDataChange change, Mutation.Op op) {
+    this.database = database;
+    this.change = change;
+    this.op = op;
+    this.useMutations = LoadDataMutations.isEnabled(database);
+  }
+
+  /**
+   * Returns true if the given change should be streamed. Computed and sequence values are only
+   * supported by the standard statements, and upserts can only be streamed as mutations.
+   */
+  static boolean isSupported(Database database, LoadDataChange change, Mutation.Op op) {
+    if (!LoadDataMutations.isStreamingEnabled(database)) {
+      return false;
+    }
+    if (op != Mutation.Op.INSERT && !LoadDataMutations.isEnabled(database)) {
+      return false;
+    }
+    if (change.getColumns() != null) {
+      for (LoadDataColumnConfig column : change.getColumns()) {
+        String type = column.getType();
+        if ("COMPUTED".equalsIgnoreCase(type) || "SEQUENCE".equalsIgnoreCase(type)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void execute(PreparedStatementFactory factory) throws DatabaseException {
+    Map<String, LoadDataMutations.Column> tableColumns =
+        LoadDataMutations.getColumns(
+            database, change.getCatalogName(), change.getSchemaName(), change.getTableName());
+    if (tableColumns.isEmpty()) {
+      throw new DatabaseException("Table " + change.getTableName() + " not found");
+    }
+    try (CSVReader reader = openCsvReader()) {
+      String[] headers = reader.readNext();
+      if (headers == null) {
+        throw new DatabaseException("Data file " + change.getFile() + " was empty");
+      }
+      List<CsvColumn> columns = getCsvColumns(headers, tableColumns);
+      new BatchWriter(columns, headers.length).write(reader);
+    } catch (IOException e) {
+      throw new DatabaseException("Could not read data file " + change.getFile(), e);
+    } catch (SQLException e) {
+      throw new DatabaseException("Could not load data into " + change.getTableName(), e);
+    }
+  }
+
+  /** A column in the CSV file and the table column that it is written to. */
+  private static class CsvColumn {
+    private final int index;
+    private final LoadDataMutations.Column column;
+    private final boolean blobFile;
+    private final boolean clobFile;
+
+    private CsvColumn(int index, LoadDataMutations.Column column, @Nullable String configType) {
+      this.index = index;
+      this.column = column;
+      this.blobFile = "BLOB".equalsIgnoreCase(configType);
+      this.clobFile = "CLOB".equalsIgnoreCase(configType);
+    }
+  }
+
+  private List<CsvColumn> getCsvColumns(
+      String[] headers, Map<String, LoadDataMutations.Column> tableColumns)
+      throws DatabaseException {
+    List<CsvColumn> columns = new ArrayList<>(headers.length);
+    for (int i = 0; i < headers.length; i++) {
+      String header = headers[i].trim();
+      LoadDataColumnConfig config = getColumnConfig(i, header);
+      if (config != null && "SKIP".equalsIgnoreCase(config.getType())) {
+        continue;
+      }
+      String name = config == null || config.getName() == null ? header : config.getName();
+      LoadDataMutations.Column column = tableColumns.get(name);
+      if (column == null || column.type == null) {
+        throw new DatabaseException(
+            String.format(
+                "Column %s of data file %s cannot be loaded into table %s",
+                name, change.getFile(), change.getTableName()));
+      }
+      columns.add(new CsvColumn(i, column, config == null ? null : config.getType()));
+    }
+    return columns;
+  }
+
+  @Nullable
+  private LoadDataColumnConfig getColumnConfig(int index, String header) {
+    if (change.getColumns() == null) {
+      return null;
+    }
+    for (LoadDataColumnConfig config : change.getColumns()) {
+      if (config.getIndex() != null && config.getIndex() == index) {
+        return config;
+      }
+      if (config.getHeader() != null && config.getHeader().equalsIgnoreCase(header)) {
+        return config;
+      }
+    }
+    return null;
+  }
+
+  /** Collects the rows of the CSV file in batches and writes each batch when it is full. */
+  private class BatchWriter {
+    private final List<CsvColumn> columns;
+    private final int columnCount;
+    private final int batchSize;
+    private final int maxMutationsPerCommit;
+    private final int indexMutationsPerRow;
+    private final CloudSpannerJdbcConnection connection;
+    @Nullable private LoadDataProgress progress;
+    @Nullable private PreparedStatement insert;
+    private final List<Mutation> mutations = new ArrayList<>();
+    private int batchedRows;
+    private long batchedMutations = PROGRESS_MUTATION_COUNT;
+    private long rowsInFile;
+    private long rowsWritten;
+
+    private BatchWriter(List<CsvColumn> columns, int columnCount) throws SQLException {
+      this.columns = columns;
+      this.columnCount = columnCount;
+      this.batchSize = SpannerConfiguration.LOAD_DATA_STREAM_BATCH_SIZE.getCurrentValue();
+      Integer maxMutations =
+          SpannerConfiguration.LOAD_DATA_MAX_MUTATIONS_PER_COMMIT.getCurrentValue();
+      this.maxMutationsPerCommit =
+          maxMutations == null || maxMutations <= 0 ? Integer.MAX_VALUE : maxMutations;
+      this.indexMutationsPerRow =
+          maxMutations == null || maxMutations <= 0
+              ? 0
+              : LoadDataMutations.countIndexColumns(
+                  database, change.getCatalogName(), change.getSchemaName(), change.getTableName());
+      this.connection =
+          ((JdbcConnection) database.getConnection())
+              .getUnderlyingConnection()
+              .unwrap(CloudSpannerJdbcConnection.class);
+    }
+
+    private void write(CSVReader reader) throws IOException, SQLException, DatabaseException {
+      long committedRows = 0L;
+      if (connection.getAutoCommit() && change.getChangeSet() != null) {
+        progress = new LoadDataProgress(database, change, 1);
+        progress.createTableIfNotExists();
+        committedRows = progress.getCommittedRows(connection);
+        if (committedRows > 0L) {
+          Scope.getCurrentScope()
+              .getLog(getClass())
+              .info(
+                  String.format(
+                      "Skipping %d rows that were committed by a previous run", committedRows));
+        }
+      }
+      rowsWritten = committedRows;
+      try {
+        String[] line;
+        int lineNumber = 1;
+        while ((line = reader.readNext()) != null) {
+          lineNumber++;
+          if (isBlankOrComment(line)) {
+            continue;
+          }
+          if (line.length != columnCount) {
+            throw new DatabaseException(
+                String.format(
+                    "Line %d of data file %s has %d values, but the header has %d values",
+                    lineNumber, change.getFile(), line.length, columnCount));
+          }
+          rowsInFile++;
+          if (rowsInFile <= committedRows) {
+            continue;
+          }
+          addRow(line);
+        }
+        flush();
+      } finally {
+        if (insert != null) {
+          insert.close();
+        }
+      }
+    }
+
+    private boolean isBlankOrComment(String[] line) {
+      if (line.length == 0 || (line.length == 1 && line[0].trim().isEmpty())) {
+        return true;
+      }
+      String commentPrefix = change.getCommentLineStartsWith();
+      return commentPrefix != null
+          && !commentPrefix.isEmpty()
+          && line[0].startsWith(commentPrefix);
+    }
+
+    private void addRow(String[] line) throws SQLException, DatabaseException {
+      long rowMutations = columns.size() + indexMutationsPerRow;
+      if (batchedRows >= batchSize
+          || (batchedRows > 0 && batchedMutations + rowMutations > maxMutationsPerCommit)) {
+        flush();
+      }
+      List<Value> values = new ArrayList<>(columns.size());
+      for (CsvColumn column : columns) {
+        values.add(LoadDataMutations.toValue(column.column, getValue(column, line[column.index])));
+      }
+      if (useMutations) {
+        Mutation.WriteBuilder builder =
+            LoadDataMutations.newWriteBuilder(
+                op,
+                LoadDataMutations.getMutationTableName(
+                    database, change.getSchemaName(), change.getTableName()));
+        for (int i = 0; i < columns.size(); i++) {
+          builder.set(columns.get(i).column.name).to(values.get(i));
+        }
+        mutations.add(builder.build());
+      } else {
+        PreparedStatement statement = getInsertStatement();
+        for (int i = 0; i < values.size(); i++) {
+          setParameter(statement, i + 1, values.get(i));
+        }
+        statement.addBatch();
+      }
+      batchedRows++;
+      batchedMutations += rowMutations;
+    }
+
+    @Nullable
+    private Object getValue(CsvColumn column, String value) {
+      if (value == null || NULL_VALUE.equalsIgnoreCase(value)) {
+        return null;
+      }
+      Type.Code code = column.column.type.getCode();
+      if (value.isEmpty() && code != Type.Code.STRING) {
+        return null;
+      }
+      if (column.blobFile) {
+        return LoadDataMutations.readFile(value, change.getChangeSet());
+      }
+      if (column.clobFile) {
+        String encoding = change.getEncoding();
+        return new String(
+            LoadDataMutations.readFile(value, change.getChangeSet()),
+            encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding));
+      }
+      return value;
+    }
+
+    /** Writes the current batch, together with the number of rows that have been written. */
+    private void flush() throws SQLException {
+      if (batchedRows == 0) {
+        return;
+      }
+      rowsWritten += batchedRows;
+      boolean autoCommit = connection.getAutoCommit();
+      if (useMutations) {
+        if (progress != null) {
+          mutations.add(progress.toMutation(rowsWritten));
+        }
+        if (autoCommit) {
+          connection.write(mutations);
+        } else {
+          connection.bufferedWrite(mutations);
+        }
+        mutations.clear();
+      } else if (autoCommit) {
+        // Commit the batch and the progress atomically.
+        connection.setAutoCommit(false);
+        try {
+          insert.executeBatch();
+          if (progress != null) {
+            connection.bufferedWrite(progress.toMutation(rowsWritten));
+          }
+          connection.commit();
+        } catch (SQLException e) {
+          connection.rollback();
+          throw e;
+        } finally {
+          connection.setAutoCommit(true);
+        }
+      } else {
+        insert.executeBatch();
+      }
+      batchedRows = 0;
+      batchedMutations = PROGRESS_MUTATION_COUNT;
+    }
+
+    private PreparedStatement getInsertStatement() throws SQLException {
+      if (insert == null) {
+        StringBuilder sql =
+            new StringBuilder("INSERT INTO ")
+                .append(
+                    database.escapeTableName(
+                        change.getCatalogName(), change.getSchemaName(), change.getTableName()))
+                .append(" (");
+        StringBuilder parameters = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+          if (i > 0) {
+            sql.append(", ");
+            parameters.append(", ");
+          }
+          sql.append(
+              database.escapeColumnName(
+                  change.getCatalogName(),
+                  change.getSchemaName(),
+                  change.getTableName(),
+                  columns.get(i).column.name));
+          parameters.append('?');
+        }
+        sql.append(") VALUES (").append(parameters).append(')');
+        insert = connection.prepareStatement(sql.toString());
+      }
+      return insert;
+    }
+  }
+
+  private void setParameter(PreparedStatement statement, int index, Value value)
+      throws SQLException {
+    boolean isNull = value.isNull();
+    switch (value.getType().getCode()) {
+      case INT64:
+        if (isNull) {
+          statement.setNull(index, Types.BIGINT);
+        } else {
+          statement.setLong(index, value.getInt64());
+        }
+        break;
+      case FLOAT64:
+        if (isNull) {
+          statement.setNull(index, Types.DOUBLE);
+        } else {
+          statement.setDouble(index, value.getFloat64());
+        }
+        break;
+      case FLOAT32:
+        if (isNull) {
+          statement.setNull(index, Types.REAL);
+        } else {
+          statement.setFloat(index, value.getFloat32());
+        }
+        break;
+      case NUMERIC:
+        statement.setBigDecimal(index, isNull ? null : value.getNumeric());
+        break;
+      case PG_NUMERIC:
+        statement.setBigDecimal(index, isNull ? null : new BigDecimal(value.getString()));
+        break;
+      case BOOL:
+        if (isNull) {
+          statement.setNull(index, Types.BOOLEAN);
+        } else {
+          statement.setBoolean(index, value.getBool());
+        }
+        break;
+      case STRING:
+        statement.setString(index, isNull ? null : value.getString());
+        break;
+      case BYTES:
+        statement.setBytes(index, isNull ? null : value.getBytes().toByteArray());
+        break;
+      case DATE:
+        statement.setDate(
+            index,
+            isNull
+                ? null
+                : java.sql.Date.valueOf(
+                    LocalDate.of(
+                        value.getDate().getYear(),
+                        value.getDate().getMonth(),
+                        value.getDate().getDayOfMonth())));
+        break;
+      case TIMESTAMP:
+        statement.setTimestamp(index, isNull ? null : value.getTimestamp().toSqlTimestamp());
+        break;
+      case JSON:
+        statement.setObject(index, isNull ? null : value.getJson(), JsonType.VENDOR_TYPE_NUMBER);
+        break;
+      case PG_JSONB:
+        statement.setObject(
+            index, isNull ? null : value.getPgJsonb(), PgJsonbType.VENDOR_TYPE_NUMBER);
+        break;
+      default:
+        throw new SQLException("Unsupported type: " + value.getType());
+    }
+  }
+
+  private CSVReader openCsvReader() throws IOException {
+    String encoding = change.getEncoding() == null ? "UTF-8" : change.getEncoding();
+    InputStream in = decompressIfGzipped(getResource().openInputStream());
+    String separator = change.getSeparator() == null ? "," : change.getSeparator();
+    if ("\\t".equals(separator)) {
+      separator = "\t";
+    }
+    String quotchar = change.getQuotchar() == null ? "\"" : change.getQuotchar();
+    return new CSVReader(
+        StreamUtil.readStreamWithReader(in, encoding), separator.charAt(0), quotchar.charAt(0));
+  }
+
+  private Resource getResource() throws IOException {
+    ResourceAccessor resourceAccessor = Scope.getCurrentScope().getResourceAccessor();
+    ChangeSet changeSet = change.getChangeSet();
+    if (Boolean.TRUE.equals(change.isRelativeToChangelogFile())
+        && changeSet != null
+        && changeSet.getChangeLog() != null) {
+      return resourceAccessor
+          .getExisting(changeSet.getChangeLog().getPhysicalFilePath())
+          .resolveSibling(change.getFile());
+    }
+    return resourceAccessor.getExisting(change.getFile());
+  }
+
+  /** Returns a stream with the decompressed content if the given stream is gzip-compressed. */
+  private static InputStream decompressIfGzipped(InputStream in) throws IOException {
+    InputStream buffered = new BufferedInputStream(in);
+    buffered.mark(2);
+    int first = buffered.read();
+    int second = buffered.read();
+    buffered.reset();
+    if (first == (GZIPInputStream.GZIP_MAGIC & 0xff)
+        && second == ((GZIPInputStream.GZIP_MAGIC >> 8) & 0xff)) {
+      return new GZIPInputStream(buffered);
+    }
+    return buffered;
+  }
+}
@@ -0,0 +1,298 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+import liquibase.Scope;
+import liquibase.database.Database;
+import liquibase.database.DatabaseConnection;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.spanner.CloudSpannerConnection;
+import liquibase.statement.AbstractSqlStatement;
+import liquibase.statement.ExecutablePreparedStatement;
+import liquibase.statement.PreparedStatementFactory;
+
+/**
+ * Writes a list of mutations to Spanner. The mutations are applied directly if the connection is in
+ * autocommit mode, and are otherwise buffered in the current read/write transaction.
+ *
+ * <p>The following options commit the mutations separately. If the connection is not in autocommit
+ * mode, the current transaction is committed first, and autocommit is switched off again after
+ * the mutations have been written.
+ *
+ * <ul>
+ *   <li>If a maximum number of mutations per commit is set, the mutations are written in chunks
+ *       that stay below that number, and the progress is recorded with each chunk.
+ *   <li>If the parallelism is larger than one, the rows are split into partitions by a hash of
+ *       their primary key. Each partition is written on a separate connection.
+ * </ul>
+ */
+class WriteMutationsStatement extends AbstractSqlStatement implements ExecutablePreparedStatement {
+  /** The number of mutations that are needed to record the progress in each commit. */
+  private static final int PROGRESS_MUTATION_COUNT = 5;
+
+  private final Database database;
+  private final List<Mutation> mutations;
+  private int maxMutationsPerCommit;
+  private int indexMutationsPerRow;
+  @Nullable private LoadDataProgress progress;
+  private int parallelism = 1;
+  private List<String> keyColumns = Collections.emptyList();
+
+  WriteMutationsStatement(Database database, List<Mutation> mutations) {
+    this.database = database;
+    this.mutations = mutations;
+  }
+
+  /** Writes the mutations in chunks of at most the given number of mutations. */
+  WriteMutationsStatement withChunks(
+      int maxMutationsPerCommit, int indexMutationsPerRow, LoadDataProgress progress) {
+    this.maxMutationsPerCommit = maxMutationsPerCommit;
+    this.indexMutationsPerRow = indexMutationsPerRow;
+    this.progress = progress;
+    return this;
+  }
+
+  /**
+   * Writes the mutations in the given number of partitions in parallel. The rows are assigned to a
+   * partition based on the values of the given key columns.
+   */
+  WriteMutationsStatement withParallelism(int parallelism, List<String> keyColumns) {
+    this.parallelism = parallelism;
+    this.keyColumns = keyColumns;
+    return this;
+  }
+
+  @Override
+  public void execute(PreparedStatementFactory factory) throws DatabaseException {
+    try {
+      CloudSpannerJdbcConnection connection = unwrap(getJdbcConnection());
+      boolean autoCommit = connection.getAutoCommit();
+      if (!autoCommit && progress == null && parallelism <= 1) {
+        connection.bufferedWrite(mutations);
+        return;
+      }
+      if (!autoCommit) {
+        // Commit the earlier statements of the changeset, so the chunks and partitions can be
+        // committed separately.
+        Scope.getCurrentScope()
+            .getLog(getClass())
+            .info("Committing the current transaction before writing mutations in chunks");
+        connection.setAutoCommit(true);
+      }
+      try {
+        if (progress != null) {
+          progress.createTableIfNotExists();
+        }
+        if (parallelism <= 1 || mutations.size() <= 1) {
+          writePartition(
+              connection, mutations, progress == null ? null : progress.forPartition(0));
+        } else {
+          writeInParallel();
+        }
+      } finally {
+        if (!autoCommit) {
+          connection.setAutoCommit(false);
+        }
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Could not write " + mutations.size() + " mutations", e);
+    }
+  }
+
+  private void writeInParallel() throws DatabaseException {
+    List<List<Mutation>> partitions = partition();
+    DatabaseConnection databaseConnection = database.getConnection();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism,
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("liquibase-spanner-load-data-%d")
+                .build());
+    try {
+      List<Future<Void>> futures = new ArrayList<>(partitions.size());
+      for (int i = 0; i < partitions.size(); i++) {
+        List<Mutation> partition = partitions.get(i);
+        LoadDataProgress partitionProgress = progress == null ? null : progress.forPartition(i);
+        futures.add(
+            executor.submit(
+                () -> {
+                  try (Connection connection =
+                      CloudSpannerConnection.openAdditionalConnection(databaseConnection)) {
+                    writePartition(unwrap(connection), partition, partitionProgress);
+                  }
+                  return null;
+                }));
+      }
+      // Wait for all partitions, so the changeset only fails after all writes have finished.
+      DatabaseException exception = null;
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (exception == null) {
+            exception =
+                new DatabaseException(
+                    "Could not write all partitions of " + mutations.size() + " mutations",
+                    e.getCause());
+          } else {
+            exception.addSuppressed(e.getCause());
+          }
+        }
+      }
+      if (exception != null) {
+        throw exception;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DatabaseException("Interrupted while writing mutations", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private List<List<Mutation>> partition() {
+    return partition(mutations, parallelism, keyColumns);
+  }
+
+  /**
+   * Splits the given mutations into partitions based on a hash of the key columns. The hash only
+   * depends on the string values of the key, so the partitioning is the same in every run and a
+   * failed run can resume each partition from its own progress.
+   */
+  static List<List<Mutation>> partition(
+      List<Mutation> mutations, int parallelism, List<String> keyColumns) {
+    List<List<Mutation>> partitions = new ArrayList<>(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      partitions.add(new ArrayList<>());
+    }
+    for (int row = 0; row < mutations.size(); row++) {
+      Mutation mutation = mutations.get(row);
+      int hash;
+      if (keyColumns.isEmpty()) {
+        hash = row;
+      } else {
+        Map<String, Value> values = mutation.asMap();
+        StringBuilder key = new StringBuilder();
+        for (String column : keyColumns) {
+          Value value = values.get(column);
+          String encoded = value == null ? "" : value.toString();
+          // Prefix each value with its length, so different keys cannot give the same string.
+          key.append(encoded.length()).append(':').append(encoded);
+        }
+        hash = Hashing.murmur3_32_fixed().hashString(key, StandardCharsets.UTF_8).asInt();
+      }
+      partitions.get(Math.floorMod(hash, parallelism)).add(mutation);
+    }
+    return partitions;
+  }
+
+  private void writePartition(
+      CloudSpannerJdbcConnection connection,
+      List<Mutation> partition,
+      @Nullable LoadDataProgress partitionProgress)
+      throws SQLException, DatabaseException {
+    if (partition.isEmpty()) {
+      return;
+    }
+    if (partitionProgress == null) {
+      connection.write(partition);
+    } else {
+      writeInChunks(connection, partition, partitionProgress);
+    }
+  }
+
+  private void writeInChunks(
+      CloudSpannerJdbcConnection connection,
+      List<Mutation> partition,
+      LoadDataProgress partitionProgress)
+      throws SQLException, DatabaseException {
+    int committedRows =
+        (int) Math.min(partitionProgress.getCommittedRows(connection), partition.size());
+    if (committedRows > 0) {
+      Scope.getCurrentScope()
+          .getLog(getClass())
+          .info(
+              String.format(
+                  "Resuming after %d of %d rows that were committed by a previous run",
+                  committedRows, partition.size()));
+    }
+    List<Mutation> chunk = new ArrayList<>();
+    long chunkMutationCount = PROGRESS_MUTATION_COUNT;
+    for (int row = committedRows; row < partition.size(); row++) {
+      Mutation mutation = partition.get(row);
+      long rowMutationCount = estimateMutationCount(mutation);
+      if (!chunk.isEmpty() && chunkMutationCount + rowMutationCount > maxMutationsPerCommit) {
+        commitChunk(connection, partitionProgress, chunk, row);
+        chunk.clear();
+        chunkMutationCount = PROGRESS_MUTATION_COUNT;
+      }
+      chunk.add(mutation);
+      chunkMutationCount += rowMutationCount;
+    }
+    if (!chunk.isEmpty()) {
+      commitChunk(connection, partitionProgress, chunk, partition.size());
+    }
+  }
+
+  private static void commitChunk(
+      CloudSpannerJdbcConnection connection,
+      LoadDataProgress progress,
+      List<Mutation> chunk,
+      long committedRows)
+      throws SQLException {
+    List<Mutation> mutationsToCommit = new ArrayList<>(chunk.size() + 1);
+    mutationsToCommit.addAll(chunk);
+    mutationsToCommit.add(progress.toMutation(committedRows));
+    connection.write(mutationsToCommit);
+  }
+
+  /**
+   * Estimates the number of mutations that Spanner counts for a row. Each column counts as one
+   * mutation, and each column of a secondary index counts as one more.
+   */
+  private long estimateMutationCount(Mutation mutation) {
+    long columns = 0L;
+    for (String ignored : mutation.getColumns()) {
+      columns++;
+    }
+    return columns + indexMutationsPerRow;
+  }
+
+  private Connection getJdbcConnection() {
+    return ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+  }
+
+  private static CloudSpannerJdbcConnection unwrap(Connection connection) throws SQLException {
+    return connection.unwrap(CloudSpannerJdbcConnection.class);
+  }
+}
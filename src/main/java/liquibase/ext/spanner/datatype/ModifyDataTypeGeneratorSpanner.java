@@ -24,6 +24,7 @@ import liquibase.datatype.DataTypeFactory;
 import liquibase.exception.DatabaseException;
 import liquibase.exception.UnexpectedLiquibaseException;
 import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.MetadataStaleness;
 import liquibase.sql.Sql;
 import liquibase.sql.UnparsedSql;
 import liquibase.sqlgenerator.SqlGenerator;
@@ -43,6 +44,12 @@ public class ModifyDataTypeGeneratorSpanner extends ModifyDataTypeGenerator {
     return SqlGenerator.PRIORITY_DATABASE;
   }
 
+  @Override
+  public boolean generateStatementsIsVolatile(Database database) {
+    // The statement depends on the current nullability of the column.
+    return true;
+  }
+
   @Override
   public Sql[] generateSql(
       ModifyDataTypeStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
@@ -96,9 +103,10 @@ public class ModifyDataTypeGeneratorSpanner extends ModifyDataTypeGenerator {
 
   private boolean isColumnNullable(ModifyDataTypeStatement statement, Database database) {
     JdbcConnection connection = (JdbcConnection) database.getConnection();
-    try (PreparedStatement ps =
-        connection.prepareStatement(
-            "SELECT IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=? AND COLUMN_NAME=?")) {
+    try (MetadataStaleness ignored = MetadataStaleness.begin(connection.getUnderlyingConnection());
+        PreparedStatement ps =
+            connection.prepareStatement(
+                "SELECT IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=? AND COLUMN_NAME=?")) {
       ps.setString(
           1,
           MoreObjects.firstNonNull(statement.getCatalogName(), database.getDefaultCatalogName()));
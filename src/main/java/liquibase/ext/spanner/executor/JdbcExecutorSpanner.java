@@ -0,0 +1,537 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.executor;
+
+import com.google.cloud.spanner.connection.AbstractStatementParser;
+import com.google.cloud.spanner.connection.AutocommitDmlMode;
+import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import liquibase.Scope;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.executor.Executor;
+import liquibase.executor.ExecutorService;
+import liquibase.executor.jvm.JdbcExecutor;
+import liquibase.executor.jvm.ResultSetExtractor;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.ext.spanner.sqlgenerator.ParameterizedSql;
+import liquibase.ext.spanner.sqlgenerator.PartitionedDmlStatement;
+import liquibase.sql.Sql;
+import liquibase.sql.visitor.SqlVisitor;
+import liquibase.sqlgenerator.SqlGeneratorFactory;
+import liquibase.statement.ExecutablePreparedStatement;
+import liquibase.statement.SqlStatement;
+import liquibase.statement.core.RawParameterizedSqlStatement;
+
+/**
+ * JDBC executor for Spanner that collects consecutive DDL statements into one DDL batch if {@link
+ * SpannerConfiguration#AUTO_BATCH_DDL} is enabled. The batch is started by the first DDL statement
+ * and is executed as one schema change as soon as any other statement is executed. That includes
+ * the release of the Liquibase lock at the end of an update.
+ *
+ * <p>The history rows of changesets that only contained DDL statements are held back while the
+ * batch is active, and are written after the batch has been executed. The rows are written as one
+ * DML batch with a single commit. If the batch fails, only the changesets whose statements were all
+ * applied are recorded.
+ *
+ * <p>Statements that are generated as {@link ParameterizedSql} are executed as prepared statements
+ * with the values bound as query parameters. A {@link PartitionedDmlStatement} is executed as
+ * Partitioned DML, unless its table has no more rows than the row threshold of the statement.
+ */
+public class JdbcExecutorSpanner extends JdbcExecutor {
+
+  /** A DATABASECHANGELOG update that is waiting for the DDL batch to be executed. */
+  public interface PendingHistoryUpdate {
+    /**
+     * Executes any queries that the update needs, before the updates that are written together
+     * are collected in a DML batch. Queries cannot be executed while the batch is active.
+     */
+    default void prepare() throws DatabaseException {}
+
+    void run() throws DatabaseException;
+  }
+
+  /** The number of DDL strings that are part of the current batch. */
+  private int batchedStatementCount;
+
+  /**
+   * The history updates that are waiting for the current batch. Each update is stored with the
+   * number of batched statements at the moment that the update was requested.
+   */
+  private final List<Integer> pendingStatementCounts = new ArrayList<>();
+
+  private final List<PendingHistoryUpdate> pendingHistoryUpdates = new ArrayList<>();
+
+  private boolean batchActive;
+
+  /**
+   * The reason why statements may no longer be executed, because the changelog lock of this
+   * process has been taken over by another process. Set by the heartbeat thread of the lock.
+   */
+  @Nullable private volatile String lockLost;
+
+  /** The statement that is being executed with SQL that has already been generated for it. */
+  @Nullable private SqlStatement generatedStatement;
+
+  @Nullable private Sql[] generatedSql;
+
+  @Override
+  public int getPriority() {
+    return PRIORITY_SPECIALIZED;
+  }
+
+  @Override
+  public boolean supports(Database database) {
+    return database instanceof ICloudSpanner;
+  }
+
+  /** Returns the Spanner JDBC executor of the given database, or null if there is none. */
+  @Nullable
+  public static JdbcExecutorSpanner getInstance(Database database) {
+    Executor executor =
+        Scope.getCurrentScope().getSingleton(ExecutorService.class).getExecutor("jdbc", database);
+    return executor instanceof JdbcExecutorSpanner ? (JdbcExecutorSpanner) executor : null;
+  }
+
+  /** Returns true if DDL statements are currently being collected in a batch. */
+  public boolean isDdlBatchActive() {
+    return batchActive;
+  }
+
+  /**
+   * Executes the given history update after the current DDL batch, or directly if there is no
+   * active batch.
+   */
+  public void runAfterDdlBatch(PendingHistoryUpdate update) throws DatabaseException {
+    if (!batchActive) {
+      update.run();
+      return;
+    }
+    pendingStatementCounts.add(batchedStatementCount);
+    pendingHistoryUpdates.add(update);
+  }
+
+  /**
+   * Makes all following statements that change the database fail with the given message, as the
+   * changelog lock that protects them has been lost. This can be called from any thread.
+   */
+  public void setLockLost(String message) {
+    lockLost = message;
+  }
+
+  /** Returns true if the changelog lock of this process has been taken over by another process. */
+  public boolean isLockLost() {
+    return lockLost != null;
+  }
+
+  /** Allows statements to be executed again, once the lost lock has been released. */
+  public void clearLockLost() {
+    lockLost = null;
+  }
+
+  private void checkLock() throws DatabaseException {
+    String message = lockLost;
+    if (message != null) {
+      throw new DatabaseException(message);
+    }
+  }
+
+  @Override
+  public void execute(SqlStatement sql, List<SqlVisitor> sqlVisitors) throws DatabaseException {
+    checkLock();
+    if (sql instanceof PartitionedDmlStatement) {
+      runDdlBatch();
+      PartitionedDmlStatement partitioned = (PartitionedDmlStatement) sql;
+      if (exceedsRowThreshold(partitioned)) {
+        executePartitioned(partitioned, sqlVisitors);
+      } else {
+        execute(partitioned.getStatement(), sqlVisitors);
+      }
+    } else if (!needsGeneratedSql(sql)) {
+      runDdlBatch();
+      super.execute(sql, sqlVisitors);
+    } else {
+      // Generators that read the database cannot run while a DDL batch is active.
+      if (batchActive
+          && SqlGeneratorFactory.getInstance().generateStatementsVolatile(sql, database)) {
+        runDdlBatch();
+      }
+      // The SQL is generated once, as some generators have side effects, such as reading the
+      // schema or assigning the next ORDEREXECUTED.
+      Sql[] sqls = SqlGeneratorFactory.getInstance().generateSql(sql, database);
+      if (isAutoBatchDdl() && isDdl(sqls)) {
+        startDdlBatch();
+        executeGenerated(sql, sqls, sqlVisitors);
+        if (batchActive) {
+          // The batch returns one update count for each SQL string, and not for each statement.
+          batchedStatementCount += sqls.length;
+        }
+      } else {
+        runDdlBatch();
+        if (isParameterized(sqls, sqlVisitors)) {
+          executeParameterized(sqls);
+        } else {
+          executeGenerated(sql, sqls, sqlVisitors);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns true if the SQL of the given statement must be inspected before it is executed. That
+   * is only the case if DDL statements are batched automatically or inserts can be parameterized.
+   */
+  private boolean needsGeneratedSql(SqlStatement statement) {
+    return !(statement instanceof ExecutablePreparedStatement)
+        && !(statement instanceof RawParameterizedSqlStatement)
+        && (isAutoBatchDdl() || isParameterizedInserts());
+  }
+
+  /** Executes the given statement with the SQL that has already been generated for it. */
+  private void executeGenerated(SqlStatement statement, Sql[] sqls, List<SqlVisitor> sqlVisitors)
+      throws DatabaseException {
+    generatedStatement = statement;
+    generatedSql = sqls;
+    try {
+      super.execute(statement, sqlVisitors);
+    } finally {
+      generatedStatement = null;
+      generatedSql = null;
+    }
+  }
+
+  @Override
+  protected String[] applyVisitors(SqlStatement statement, List<SqlVisitor> sqlVisitors)
+      throws DatabaseException {
+    if (statement != generatedStatement || generatedSql == null) {
+      return super.applyVisitors(statement, sqlVisitors);
+    }
+    String[] result = new String[generatedSql.length];
+    for (int i = 0; i < generatedSql.length; i++) {
+      if (generatedSql[i] == null) {
+        continue;
+      }
+      result[i] = generatedSql[i].toSql();
+      if (sqlVisitors != null) {
+        for (SqlVisitor visitor : sqlVisitors) {
+          result[i] = visitor.modifySql(result[i], database);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns true if the table of the given statement has more rows than the row threshold of the
+   * statement, or if the statement has no row threshold. At most threshold + 1 rows are read, so
+   * the check is also cheap for very large tables.
+   */
+  private boolean exceedsRowThreshold(PartitionedDmlStatement statement) throws DatabaseException {
+    Long threshold = statement.getRowThreshold();
+    if (threshold == null) {
+      return true;
+    }
+    String sql =
+        String.format(
+            "SELECT COUNT(*) FROM (SELECT 1 FROM %s LIMIT %d) AS T",
+            statement.getEscapedTableName(), threshold + 1L);
+    try (Statement stmt = getSpannerConnection().createStatement();
+        ResultSet rs = stmt.executeQuery(sql)) {
+      long rows = rs.next() ? rs.getLong(1) : 0L;
+      Scope.getCurrentScope()
+          .getLog(getClass())
+          .fine(
+              String.format(
+                  "Counted %d of at most %d rows of %s",
+                  rows, threshold + 1L, statement.getEscapedTableName()));
+      return rows > threshold;
+    } catch (SQLException e) {
+      throw new DatabaseException(
+          "Could not count the rows of " + statement.getEscapedTableName(), e);
+    }
+  }
+
+  /**
+   * Executes the statement that is wrapped by the given {@link PartitionedDmlStatement} as
+   * Partitioned DML. The current transaction is committed first, as Partitioned DML can only be
+   * executed in autocommit mode. The autocommit and DML mode of the connection are restored
+   * afterwards, also if the statement fails.
+   */
+  private void executePartitioned(PartitionedDmlStatement statement, List<SqlVisitor> sqlVisitors)
+      throws DatabaseException {
+    Sql[] sqls = SqlGeneratorFactory.getInstance().generateSql(statement.getStatement(), database);
+    try {
+      CloudSpannerJdbcConnection connection = getSpannerConnection();
+      boolean autoCommit = connection.getAutoCommit();
+      if (!autoCommit) {
+        connection.setAutoCommit(true);
+      }
+      AutocommitDmlMode dmlMode = connection.getAutocommitDmlMode();
+      try {
+        connection.setAutocommitDmlMode(AutocommitDmlMode.PARTITIONED_NON_ATOMIC);
+        for (Sql sql : sqls) {
+          String text = sql.toSql();
+          if (sqlVisitors != null) {
+            for (SqlVisitor visitor : sqlVisitors) {
+              text = visitor.modifySql(text, database);
+            }
+          }
+          try (Statement stmt = connection.createStatement()) {
+            long rowCount = stmt.executeLargeUpdate(text);
+            Scope.getCurrentScope()
+                .getLog(getClass())
+                .info(String.format("%d row(s) affected by Partitioned DML: %s", rowCount, text));
+          } catch (SQLException e) {
+            throw new DatabaseException(e.getMessage() + " [Failed SQL: " + text + "]", e);
+          }
+        }
+      } finally {
+        connection.setAutocommitDmlMode(dmlMode);
+        if (!autoCommit) {
+          connection.setAutoCommit(false);
+        }
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Could not execute Partitioned DML", e);
+    }
+  }
+
+  /**
+   * Returns true if any of the given SQL statements is a {@link ParameterizedSql}. Statements with
+   * SQL visitors are always executed with inlined literals, as the visitors operate on the SQL
+   * string.
+   */
+  private boolean isParameterized(Sql[] sqls, List<SqlVisitor> sqlVisitors) {
+    return isParameterizedInserts()
+        && (sqlVisitors == null || sqlVisitors.isEmpty())
+        && sqls != null
+        && Arrays.stream(sqls).anyMatch(sql -> sql instanceof ParameterizedSql);
+  }
+
+  /** Executes the given SQL statements with the values bound as query parameters. */
+  private void executeParameterized(Sql[] sqls) throws DatabaseException {
+    Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+    for (Sql sql : sqls) {
+      Scope.getCurrentScope()
+          .getLog(getClass())
+          .fine("Executing with query parameters: " + sql.toSql());
+      try {
+        if (sql instanceof ParameterizedSql) {
+          ParameterizedSql parameterized = (ParameterizedSql) sql;
+          try (PreparedStatement ps =
+              connection.prepareStatement(parameterized.getParameterizedSql())) {
+            parameterized.bindParameters(ps);
+            ps.execute();
+          }
+        } else {
+          try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql.toSql());
+          }
+        }
+      } catch (SQLException e) {
+        throw new DatabaseException(e.getMessage() + " [Failed SQL: " + sql.toSql() + "]", e);
+      }
+    }
+  }
+
+  @Override
+  public Object query(SqlStatement sql, ResultSetExtractor rse, List<SqlVisitor> sqlVisitors)
+      throws DatabaseException {
+    runDdlBatch();
+    return super.query(sql, rse, sqlVisitors);
+  }
+
+  @Override
+  public int update(SqlStatement sql, List<SqlVisitor> sqlVisitors) throws DatabaseException {
+    checkLock();
+    runDdlBatch();
+    return super.update(sql, sqlVisitors);
+  }
+
+  /**
+   * Executes the active DDL batch, if any, and then writes the history rows that were waiting for
+   * it. This is a no-op if there is no active batch.
+   */
+  public void runDdlBatch() throws DatabaseException {
+    if (!batchActive) {
+      return;
+    }
+    // Reset the state before writing the history rows, as these are written with this executor.
+    batchActive = false;
+    String lockLostMessage = lockLost;
+    if (lockLostMessage != null) {
+      // The batched statements and their history rows are not applied without the lock.
+      batchedStatementCount = 0;
+      pendingStatementCounts.clear();
+      pendingHistoryUpdates.clear();
+      DatabaseException exception = new DatabaseException(lockLostMessage);
+      try {
+        getSpannerConnection().abortBatch();
+      } catch (SQLException e) {
+        exception.addSuppressed(e);
+      }
+      throw exception;
+    }
+    int appliedStatementCount = batchedStatementCount;
+    DatabaseException batchException = null;
+    try {
+      getSpannerConnection().runBatch();
+    } catch (BatchUpdateException e) {
+      appliedStatementCount = countAppliedStatements(e.getUpdateCounts());
+      batchException =
+          new DatabaseException(
+              String.format(
+                  "DDL batch failed after %d of %d statements",
+                  appliedStatementCount, batchedStatementCount),
+              e);
+    } catch (SQLException e) {
+      appliedStatementCount = 0;
+      batchException = new DatabaseException("DDL batch failed", e);
+    }
+    List<PendingHistoryUpdate> updates = new ArrayList<>();
+    for (int i = 0; i < pendingHistoryUpdates.size(); i++) {
+      if (pendingStatementCounts.get(i) > appliedStatementCount) {
+        break;
+      }
+      updates.add(pendingHistoryUpdates.get(i));
+    }
+    batchedStatementCount = 0;
+    pendingStatementCounts.clear();
+    pendingHistoryUpdates.clear();
+    runHistoryUpdates(updates);
+    if (batchException != null) {
+      throw batchException;
+    }
+  }
+
+  /**
+   * Writes the given history updates. Multiple updates are sent as one DML batch, which is applied
+   * in a single transaction, instead of one commit per changeset.
+   */
+  private void runHistoryUpdates(List<PendingHistoryUpdate> updates) throws DatabaseException {
+    if (updates.isEmpty()) {
+      return;
+    }
+    for (PendingHistoryUpdate update : updates) {
+      update.prepare();
+    }
+    CloudSpannerJdbcConnection connection = getSpannerConnection();
+    boolean batchDml;
+    try {
+      batchDml = updates.size() > 1 && connection.getAutoCommit();
+      if (batchDml) {
+        connection.startBatchDml();
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Could not start DML batch", e);
+    }
+    try {
+      for (PendingHistoryUpdate update : updates) {
+        update.run();
+      }
+    } catch (DatabaseException | RuntimeException e) {
+      if (batchDml) {
+        try {
+          connection.abortBatch();
+        } catch (SQLException abortException) {
+          e.addSuppressed(abortException);
+        }
+      }
+      throw e;
+    }
+    if (batchDml) {
+      try {
+        connection.runBatch();
+      } catch (SQLException e) {
+        throw new DatabaseException("Could not write the history of the DDL batch", e);
+      }
+      Scope.getCurrentScope()
+          .getLog(getClass())
+          .fine(String.format("Wrote %d history rows in one DML batch", updates.size()));
+    }
+  }
+
+  private void startDdlBatch() throws DatabaseException {
+    if (batchActive) {
+      return;
+    }
+    try {
+      CloudSpannerJdbcConnection connection = getSpannerConnection();
+      // Leave batches that were started manually with START BATCH DDL to the changelog.
+      if (!connection.isDdlBatchActive() && connection.getAutoCommit()) {
+        connection.startBatchDdl();
+        batchActive = true;
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Could not start DDL batch", e);
+    }
+  }
+
+  private boolean isAutoBatchDdl() {
+    return Boolean.TRUE.equals(SpannerConfiguration.AUTO_BATCH_DDL.getCurrentValue());
+  }
+
+  private boolean isParameterizedInserts() {
+    return Boolean.TRUE.equals(SpannerConfiguration.PARAMETERIZED_INSERTS.getCurrentValue());
+  }
+
+  private boolean isDdl(Sql[] sqls) {
+    if (sqls == null || sqls.length == 0) {
+      return false;
+    }
+    AbstractStatementParser parser =
+        AbstractStatementParser.getInstance(((ICloudSpanner) database).getDialect());
+    for (Sql sql : sqls) {
+      if (sql == null || !parser.isDdlStatement(sql.toSql())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private CloudSpannerJdbcConnection getSpannerConnection() throws SQLException {
+    return ((JdbcConnection) database.getConnection())
+        .getUnderlyingConnection()
+        .unwrap(CloudSpannerJdbcConnection.class);
+  }
+
+  /**
+   * Returns the number of statements at the start of a failed DDL batch that were applied. Spanner
+   * returns an update count of 1 for each applied DDL statement, and 0 for the statement that
+   * failed and all statements after it.
+   */
+  static int countAppliedStatements(@Nullable int[] updateCounts) {
+    int count = 0;
+    if (updateCounts != null) {
+      for (int updateCount : updateCounts) {
+        if (updateCount <= 0) {
+          break;
+        }
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,363 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.lockservice;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import liquibase.Scope;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LockException;
+import liquibase.ext.spanner.CloudSpannerConnection;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.ext.spanner.executor.JdbcExecutorSpanner;
+import liquibase.lock.DatabaseChangeLogLock;
+import liquibase.lockservice.StandardLockService;
+
+/**
+ * Lock service for Spanner that holds the changelog lock as a lease. It is used if {@link
+ * SpannerConfiguration#LOCK_LEASE_SECONDS} is set.
+ *
+ * <p>The lock is acquired with one conditional UPDATE statement in a single read/write
+ * transaction. The statement takes the lock if it is free, or if the lease of the current holder
+ * has expired. LOCKGRANTED is set to the time of the transaction, and is renewed by a heartbeat
+ * on a separate connection while the lock is held. A process that waits for the lock retries at
+ * least every second, and takes over a lease that has not been renewed in time at the next
+ * attempt. If the heartbeat finds that the lease has been taken over, the next statement of the
+ * update fails, and so does the release of the lock.
+ */
+public class LockServiceSpanner extends StandardLockService {
+  /** The maximum time between two attempts to acquire the lock. */
+  private static final long MAX_RECHECK_MILLIS = 1000L;
+
+  /** Identifies this process as the holder of the lock. */
+  private final String lockedBy = getHostName() + " #" + UUID.randomUUID();
+
+  @Nullable private Connection heartbeatConnection;
+  @Nullable private ScheduledExecutorService heartbeat;
+
+  /** The executor that must stop executing statements if the lease is taken over. */
+  @Nullable private JdbcExecutorSpanner leaseExecutor;
+
+  /** Set by the heartbeat if the lease has been taken over by another process. */
+  private volatile boolean leaseLost;
+
+  @Override
+  public int getPriority() {
+    return PRIORITY_DATABASE;
+  }
+
+  @Override
+  public boolean supports(Database database) {
+    return database instanceof ICloudSpanner && getLeaseSeconds() > 0;
+  }
+
+  @Override
+  public void waitForLock() throws LockException {
+    long timeToGiveUp =
+        System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(getChangeLogLockWaitTime());
+    long recheckMillis =
+        Math.min(TimeUnit.SECONDS.toMillis(getChangeLogLockRecheckTime()), MAX_RECHECK_MILLIS);
+    boolean waiting = false;
+    while (!acquireLock()) {
+      if (System.currentTimeMillis() >= timeToGiveUp) {
+        stopHeartbeat();
+        DatabaseChangeLogLock[] locks = listLocks();
+        throw new LockException(
+            "Could not acquire change log lock. Currently locked by "
+                + (locks.length > 0 ? locks[0].getLockedBy() : "another process"));
+      }
+      if (!waiting) {
+        Scope.getCurrentScope().getLog(getClass()).info("Waiting for changelog lock....");
+        waiting = true;
+      }
+      try {
+        Thread.sleep(recheckMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new LockException("Interrupted while waiting for the changelog lock", e);
+      }
+    }
+  }
+
+  @Override
+  public boolean acquireLock() throws LockException {
+    if (hasChangeLogLock) {
+      return true;
+    }
+    try {
+      init();
+    } catch (DatabaseException e) {
+      throw new LockException(e);
+    }
+    int updated =
+        executeUpdate(
+            String.format(
+                "UPDATE %s SET LOCKED = TRUE, LOCKEDBY = ?, LOCKGRANTED = %s "
+                    + "WHERE ID = 1 AND (LOCKED = FALSE OR LOCKGRANTED IS NULL "
+                    + "OR LOCKGRANTED < %s)",
+                getEscapedTableName(), getCurrentTimestamp(), getExpiredTimestamp()),
+            lockedBy);
+    if (updated > 1) {
+      throw new LockException("Did not update change log lock correctly");
+    }
+    if (updated == 0) {
+      return false;
+    }
+    // The heartbeat connection is only opened once the lock has been acquired, so a process that
+    // gives up waiting does not leave it open.
+    try {
+      heartbeatConnection =
+          CloudSpannerConnection.openAdditionalConnection(database.getConnection());
+    } catch (DatabaseException | SQLException e) {
+      LockException exception = new LockException(e);
+      try {
+        releaseLease();
+      } catch (LockException releaseException) {
+        exception.addSuppressed(releaseException);
+      }
+      throw exception;
+    }
+    hasChangeLogLock = true;
+    leaseLost = false;
+    database.setCanCacheLiquibaseTableInfo(true);
+    startHeartbeat();
+    Scope.getCurrentScope()
+        .getLog(getClass())
+        .info("Successfully acquired change log lock as " + lockedBy);
+    return true;
+  }
+
+  @Override
+  public void releaseLock() throws LockException {
+    // The release is the last statement of an update, and ends any pending DDL batch.
+    DatabaseException batchException = null;
+    JdbcExecutorSpanner executor = JdbcExecutorSpanner.getInstance(database);
+    if (executor != null) {
+      try {
+        executor.runDdlBatch();
+      } catch (DatabaseException e) {
+        batchException = e;
+      }
+    }
+    stopHeartbeat();
+    boolean released = false;
+    try {
+      if (hasChangeLogLock) {
+        if (releaseLease() != 1) {
+          leaseLost = true;
+        }
+        released = !leaseLost;
+      }
+    } finally {
+      hasChangeLogLock = false;
+      database.setCanCacheLiquibaseTableInfo(false);
+      if (executor != null) {
+        executor.clearLockLost();
+      }
+    }
+    if (released) {
+      Scope.getCurrentScope().getLog(getClass()).info("Successfully released change log lock");
+    }
+    if (leaseLost) {
+      leaseLost = false;
+      // The changes that were made while the lease was held by another process may conflict with
+      // the changes of that process, so the update must not be reported as successful.
+      LockException exception =
+          new LockException("The change log lock had been taken over by another process");
+      if (batchException != null) {
+        exception.addSuppressed(batchException);
+      }
+      throw exception;
+    }
+    if (batchException != null) {
+      throw new LockException(batchException);
+    }
+  }
+
+  /** Releases the lease of this process. Returns 0 if the lease is held by another process. */
+  private int releaseLease() throws LockException {
+    return executeUpdate(
+        String.format(
+            "UPDATE %s SET LOCKED = FALSE, LOCKEDBY = NULL, LOCKGRANTED = NULL "
+                + "WHERE ID = 1 AND LOCKEDBY = ?",
+            getEscapedTableName()),
+        lockedBy);
+  }
+
+  @Override
+  public void forceReleaseLock() throws LockException, DatabaseException {
+    init();
+    stopHeartbeat();
+    leaseLost = false;
+    JdbcExecutorSpanner executor = JdbcExecutorSpanner.getInstance(database);
+    if (executor != null) {
+      executor.clearLockLost();
+    }
+    executeUpdate(
+        String.format(
+            "UPDATE %s SET LOCKED = FALSE, LOCKEDBY = NULL, LOCKGRANTED = NULL WHERE ID = 1",
+            getEscapedTableName()));
+    hasChangeLogLock = false;
+    database.setCanCacheLiquibaseTableInfo(false);
+  }
+
+  @Override
+  public void reset() {
+    stopHeartbeat();
+    leaseLost = false;
+    super.reset();
+  }
+
+  private void startHeartbeat() {
+    leaseExecutor = JdbcExecutorSpanner.getInstance(database);
+    long intervalMillis = Math.max(1000L, TimeUnit.SECONDS.toMillis(getLeaseSeconds()) / 3L);
+    heartbeat =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("liquibase-spanner-lock-heartbeat-%d")
+                .build());
+    heartbeat.scheduleWithFixedDelay(
+        this::renewLease, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /** Renews the lease, unless it has been taken over by another process. */
+  private void renewLease() {
+    if (leaseLost) {
+      return;
+    }
+    try (PreparedStatement ps =
+        heartbeatConnection.prepareStatement(
+            String.format(
+                "UPDATE %s SET LOCKGRANTED = %s WHERE ID = 1 AND LOCKED = TRUE AND LOCKEDBY = ?",
+                getEscapedTableName(), getCurrentTimestamp()))) {
+      ps.setString(1, lockedBy);
+      if (ps.executeUpdate() == 0) {
+        String message = "The change log lock lease of " + lockedBy + " was taken over";
+        Scope.getCurrentScope().getLog(getClass()).severe(message);
+        // Stop the update: the next statement fails, and so does the release of the lock.
+        leaseLost = true;
+        if (leaseExecutor != null) {
+          leaseExecutor.setLockLost(message);
+        }
+      }
+    } catch (SQLException | RuntimeException e) {
+      // The next heartbeat retries, as long as the lease has not expired.
+      Scope.getCurrentScope()
+          .getLog(getClass())
+          .warning("Could not renew the change log lock lease: " + e.getMessage());
+    }
+  }
+
+  private void stopHeartbeat() {
+    if (heartbeat != null) {
+      heartbeat.shutdownNow();
+      try {
+        heartbeat.awaitTermination(10L, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      heartbeat = null;
+    }
+    leaseExecutor = null;
+    if (heartbeatConnection != null) {
+      try {
+        heartbeatConnection.close();
+      } catch (SQLException e) {
+        Scope.getCurrentScope()
+            .getLog(getClass())
+            .fine("Could not close the heartbeat connection: " + e.getMessage());
+      }
+      heartbeatConnection = null;
+    }
+  }
+
+  /** Executes the given statement in its own transaction on the connection of the database. */
+  private int executeUpdate(String sql, String... parameters) throws LockException {
+    Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+    try {
+      int updated;
+      try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        for (int i = 0; i < parameters.length; i++) {
+          ps.setString(i + 1, parameters[i]);
+        }
+        updated = ps.executeUpdate();
+      }
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+      return updated;
+    } catch (SQLException e) {
+      try {
+        if (!connection.getAutoCommit()) {
+          connection.rollback();
+        }
+      } catch (SQLException rollbackException) {
+        e.addSuppressed(rollbackException);
+      }
+      throw new LockException(e);
+    }
+  }
+
+  private boolean isPostgreSQL() {
+    return ((ICloudSpanner) database).getDialect() == Dialect.POSTGRESQL;
+  }
+
+  private String getCurrentTimestamp() {
+    return isPostgreSQL() ? "CURRENT_TIMESTAMP" : "CURRENT_TIMESTAMP()";
+  }
+
+  /** Returns an expression for the oldest LOCKGRANTED value of a lease that has not expired. */
+  private String getExpiredTimestamp() {
+    int leaseSeconds = getLeaseSeconds();
+    if (isPostgreSQL()) {
+      return String.format(
+          "spanner.timestamptz_subtract(CURRENT_TIMESTAMP, '%d seconds')", leaseSeconds);
+    }
+    return String.format("TIMESTAMP_SUB(CURRENT_TIMESTAMP(), INTERVAL %d SECOND)", leaseSeconds);
+  }
+
+  private String getEscapedTableName() {
+    return database.escapeTableName(
+        database.getLiquibaseCatalogName(),
+        database.getLiquibaseSchemaName(),
+        database.getDatabaseChangeLogLockTableName());
+  }
+
+  private static int getLeaseSeconds() {
+    Integer leaseSeconds = SpannerConfiguration.LOCK_LEASE_SECONDS.getCurrentValue();
+    return leaseSeconds == null ? 0 : leaseSeconds;
+  }
+
+  private static String getHostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return "unknown";
+    }
+  }
+}
@@ -14,14 +14,19 @@
 package liquibase.ext.spanner.snapshotgenerator;
 
 import com.google.cloud.spanner.Dialect;
+import java.sql.SQLException;
 import javax.annotation.Nullable;
 import liquibase.Scope;
 import liquibase.database.Database;
 import liquibase.exception.DatabaseException;
 import liquibase.executor.ExecutorService;
 import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.MetadataStaleness;
 import liquibase.snapshot.CachedRow;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.snapshot.InvalidExampleException;
 import liquibase.snapshot.SnapshotGenerator;
+import liquibase.snapshot.SnapshotGeneratorChain;
 import liquibase.snapshot.jvm.ColumnSnapshotGenerator;
 import liquibase.statement.DatabaseFunction;
 import liquibase.statement.core.RawParameterizedSqlStatement;
@@ -30,6 +35,14 @@ import liquibase.structure.core.Column;
 import liquibase.structure.core.DataType;
 
 public class ColumnSnapshotGeneratorSpanner extends ColumnSnapshotGenerator {
+  /**
+   * The snapshot that is being generated on this thread. {@link #readDefaultValue(CachedRow,
+   * Column, Database)} and {@link #readDataType(CachedRow, Column, Database)} are not given the
+   * snapshot, so it is registered here by {@link #snapshot(DatabaseObject, DatabaseSnapshot,
+   * SnapshotGeneratorChain)}.
+   */
+  private static final ThreadLocal<DatabaseSnapshot> CURRENT_SNAPSHOT = new ThreadLocal<>();
+
   @Override
   public int getPriority(Class<? extends DatabaseObject> objectType, Database database) {
     if (database instanceof ICloudSpanner) {
@@ -38,36 +51,39 @@ public class ColumnSnapshotGeneratorSpanner extends ColumnSnapshotGenerator {
     return PRIORITY_NONE;
   }
 
+  @Override
+  public DatabaseObject snapshot(
+      DatabaseObject example, DatabaseSnapshot snapshot, SnapshotGeneratorChain chain)
+      throws DatabaseException, InvalidExampleException {
+    DatabaseSnapshot previous = CURRENT_SNAPSHOT.get();
+    CURRENT_SNAPSHOT.set(snapshot);
+    try (MetadataStaleness ignored = SnapshotTimestamp.begin(snapshot)) {
+      return super.snapshot(example, snapshot, chain);
+    } catch (SQLException e) {
+      throw new DatabaseException(e);
+    } finally {
+      if (previous == null) {
+        CURRENT_SNAPSHOT.remove();
+      } else {
+        CURRENT_SNAPSHOT.set(previous);
+      }
+    }
+  }
+
   @Override
   protected Object readDefaultValue(
       CachedRow columnMetadataResultSet, Column columnInfo, Database database) {
     if (database instanceof ICloudSpanner) {
       try {
-        // TODO: Remove when COLUMN_DEF is included in the results for getColumns
-        String selectQuery =
-            "SELECT DISTINCT COLUMN_DEFAULT AS COLUMN_DEF FROM INFORMATION_SCHEMA.COLUMNS "
-                + "WHERE LOWER(TABLE_CATALOG) = ? "
-                + "AND LOWER(TABLE_SCHEMA) = ? "
-                + "AND LOWER(TABLE_NAME) = ? "
-                + "AND LOWER(COLUMN_NAME) = ?";
-        String schemaName =
-            columnInfo.getRelation().getSchema().getName() == null
-                ? database.getDefaultSchemaName()
-                : columnInfo.getRelation().getSchema().getName();
-        String defaultValue =
-            Scope.getCurrentScope()
-                .getSingleton(ExecutorService.class)
-                .getExecutor("jdbc", database)
-                .queryForObject(
-                    new RawParameterizedSqlStatement(
-                        selectQuery,
-                        new Object[] {
-                          lower(columnInfo.getRelation().getSchema().getCatalog().getName()),
-                          lower(schemaName),
-                          lower(columnInfo.getRelation().getName()),
-                          lower(columnInfo.getName())
-                        }),
-                    String.class);
+        InformationSchemaSnapshot informationSchema = getInformationSchema(columnInfo, database);
+        String tableName = columnInfo.getRelation().getName();
+        String columnName = columnInfo.getName();
+        String defaultValue;
+        if (informationSchema != null && informationSchema.hasColumn(tableName, columnName)) {
+          defaultValue = informationSchema.getColumnDefault(tableName, columnName);
+        } else {
+          defaultValue = readSingleColumnDefault(columnInfo, database);
+        }
         if (defaultValue != null) {
           if (database.isFunction(defaultValue)) {
             columnMetadataResultSet.set("COLUMN_DEF", new DatabaseFunction((defaultValue)));
@@ -84,10 +100,6 @@ public class ColumnSnapshotGeneratorSpanner extends ColumnSnapshotGenerator {
     return super.readDefaultValue(columnMetadataResultSet, columnInfo, database);
   }
 
-  private String lower(@Nullable String value) {
-    return value == null ? null : value.toLowerCase();
-  }
-
   @Override
   protected DataType readDataType(
       CachedRow columnMetadataResultSet, Column column, Database database)
@@ -96,29 +108,16 @@ public class ColumnSnapshotGeneratorSpanner extends ColumnSnapshotGenerator {
       Dialect dialect = ((ICloudSpanner) database).getDialect();
       if (dialect == Dialect.POSTGRESQL) {
         try {
-          String sql =
-              "SELECT SPANNER_TYPE FROM INFORMATION_SCHEMA.COLUMNS "
-                  + "WHERE LOWER(TABLE_SCHEMA) = ? "
-                  + "AND LOWER(TABLE_NAME) = ? "
-                  + "AND LOWER(COLUMN_NAME) = ?";
-
-          String dataType =
-              Scope.getCurrentScope()
-                  .getSingleton(ExecutorService.class)
-                  .getExecutor("jdbc", database)
-                  .queryForObject(
-                      new RawParameterizedSqlStatement(
-                          sql,
-                          lower(column.getSchema().getName()),
-                          lower(column.getRelation().getName()),
-                          lower(column.getName())),
-                      String.class);
-
-          dataType = dataType.replace("character varying", "varchar");
-          dataType = dataType.replace("timestamp with time zone", "timestamptz");
-          dataType = dataType.replace("double precision", "float8");
-          dataType = dataType.replace("double precision[]", "float8[]");
-          return new DataType(dataType);
+          InformationSchemaSnapshot informationSchema = getInformationSchema(column, database);
+          String spannerType = null;
+          if (informationSchema != null) {
+            spannerType =
+                informationSchema.getSpannerType(column.getRelation().getName(), column.getName());
+          }
+          if (spannerType == null) {
+            spannerType = readSingleSpannerType(column, database);
+          }
+          return toDataType(spannerType);
         } catch (DatabaseException databaseException) {
           Scope.getCurrentScope()
               .getLog(getClass())
@@ -130,6 +129,92 @@ public class ColumnSnapshotGeneratorSpanner extends ColumnSnapshotGenerator {
     return super.readDataType(columnMetadataResultSet, column, database);
   }
 
+  /**
+   * Returns the INFORMATION_SCHEMA metadata of the schema of the given column, or null if there is
+   * no snapshot being generated on this thread.
+   */
+  @Nullable
+  private InformationSchemaSnapshot getInformationSchema(Column column, Database database)
+      throws DatabaseException {
+    DatabaseSnapshot snapshot = CURRENT_SNAPSHOT.get();
+    if (snapshot == null) {
+      return null;
+    }
+    return InformationSchemaSnapshot.get(
+        snapshot, getCatalogName(column), getSchemaName(column, database));
+  }
+
+  /** Reads the default value of a single column. */
+  private String readSingleColumnDefault(Column column, Database database)
+      throws DatabaseException {
+    // TODO: Remove when COLUMN_DEF is included in the results for getColumns
+    String selectQuery =
+        "SELECT DISTINCT COLUMN_DEFAULT AS COLUMN_DEF FROM INFORMATION_SCHEMA.COLUMNS "
+            + "WHERE LOWER(TABLE_CATALOG) = ? "
+            + "AND LOWER(TABLE_SCHEMA) = ? "
+            + "AND LOWER(TABLE_NAME) = ? "
+            + "AND LOWER(COLUMN_NAME) = ?";
+    return Scope.getCurrentScope()
+        .getSingleton(ExecutorService.class)
+        .getExecutor("jdbc", database)
+        .queryForObject(
+            new RawParameterizedSqlStatement(
+                selectQuery,
+                new Object[] {
+                  lower(getCatalogName(column)),
+                  lower(getSchemaName(column, database)),
+                  lower(column.getRelation().getName()),
+                  lower(column.getName())
+                }),
+            String.class);
+  }
+
+  /** Reads the Spanner data type of a single column. */
+  private String readSingleSpannerType(Column column, Database database) throws DatabaseException {
+    String sql =
+        "SELECT SPANNER_TYPE FROM INFORMATION_SCHEMA.COLUMNS "
+            + "WHERE LOWER(TABLE_SCHEMA) = ? "
+            + "AND LOWER(TABLE_NAME) = ? "
+            + "AND LOWER(COLUMN_NAME) = ?";
+    return Scope.getCurrentScope()
+        .getSingleton(ExecutorService.class)
+        .getExecutor("jdbc", database)
+        .queryForObject(
+            new RawParameterizedSqlStatement(
+                sql,
+                lower(column.getSchema().getName()),
+                lower(column.getRelation().getName()),
+                lower(column.getName())),
+            String.class);
+  }
+
+  /**
+   * Converts a PostgreSQL-dialect SPANNER_TYPE to the type name that Liquibase uses. {@link
+   * InformationSchemaSnapshot} keeps the raw SPANNER_TYPE strings, so the conversion is done for
+   * each column that is read.
+   */
+  private static DataType toDataType(String dataType) {
+    dataType = dataType.replace("character varying", "varchar");
+    dataType = dataType.replace("timestamp with time zone", "timestamptz");
+    dataType = dataType.replace("double precision", "float8");
+    dataType = dataType.replace("double precision[]", "float8[]");
+    return new DataType(dataType);
+  }
+
+  private static String getCatalogName(Column column) {
+    return column.getRelation().getSchema().getCatalog().getName();
+  }
+
+  private static String getSchemaName(Column column, Database database) {
+    return column.getRelation().getSchema().getName() == null
+        ? database.getDefaultSchemaName()
+        : column.getRelation().getSchema().getName();
+  }
+
+  private static String lower(@Nullable String value) {
+    return value == null ? null : value.toLowerCase();
+  }
+
   @Override
   public Class<? extends SnapshotGenerator>[] replaces() {
     return new Class[] {ColumnSnapshotGenerator.class};
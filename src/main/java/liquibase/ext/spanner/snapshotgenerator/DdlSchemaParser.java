@@ -0,0 +1,555 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.snapshotgenerator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import liquibase.statement.DatabaseFunction;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.DataType;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.ForeignKeyConstraintType;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.PrimaryKey;
+import liquibase.structure.core.Schema;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+import liquibase.structure.core.View;
+
+/**
+ * Parses the DDL statements that are returned by the GetDatabaseDdl RPC of a GoogleSQL-dialect
+ * database into Liquibase structure objects. The DDL that is returned by Spanner is in a canonical
+ * format, which means that this parser only needs to support the syntax that Spanner itself
+ * generates. Statements for objects that Liquibase does not know, such as change streams and
+ * roles, are skipped.
+ */
+public class DdlSchemaParser {
+  /** The attribute that contains the unparsed default value expression of a column. */
+  static final String DEFAULT_EXPRESSION = "defaultExpression";
+
+  private static final Pattern CREATE_TABLE =
+      Pattern.compile(
+          "^CREATE\\s+TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?([^\\s(]+)\\s*\\(",
+          Pattern.CASE_INSENSITIVE);
+  private static final Pattern CREATE_INDEX =
+      Pattern.compile(
+          "^CREATE\\s+(UNIQUE\\s+)?(NULL_FILTERED\\s+)?INDEX\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?"
+              + "(\\S+)\\s+ON\\s+([^\\s(]+)\\s*\\(",
+          Pattern.CASE_INSENSITIVE);
+  private static final Pattern CREATE_SEQUENCE =
+      Pattern.compile(
+          "^CREATE\\s+SEQUENCE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?([^\\s(;]+)",
+          Pattern.CASE_INSENSITIVE);
+  private static final Pattern CREATE_VIEW =
+      Pattern.compile(
+          "^CREATE\\s+(?:OR\\s+REPLACE\\s+)?VIEW\\s+(\\S+)\\s+"
+              + "(?:SQL\\s+SECURITY\\s+\\w+\\s+)?AS\\s+",
+          Pattern.CASE_INSENSITIVE);
+  private static final Pattern INTERLEAVE_IN_PARENT =
+      Pattern.compile(
+          "INTERLEAVE\\s+IN\\s+PARENT\\s+(\\S+?)"
+              + "(?:\\s+ON\\s+DELETE\\s+(CASCADE|NO\\s+ACTION))?\\s*(?:,|$)",
+          Pattern.CASE_INSENSITIVE);
+  private static final Pattern ALTER_TABLE_ADD =
+      Pattern.compile("^ALTER\\s+TABLE\\s+(\\S+)\\s+ADD\\s+", Pattern.CASE_INSENSITIVE);
+  private static final Pattern FOREIGN_KEY =
+      Pattern.compile(
+          "^(?:CONSTRAINT\\s+(\\S+)\\s+)?FOREIGN\\s+KEY\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Matches a table element that is not a column. CHECK and PRIMARY KEY must be followed by
+   * whitespace or a parenthesis, so columns such as {@code CheckedAt} are not matched.
+   */
+  private static final Pattern CONSTRAINT =
+      Pattern.compile(
+          "^(?:CONSTRAINT\\s+\\S+\\s|CHECK[\\s(]|PRIMARY\\s+KEY[\\s(])", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern PRIMARY_KEY =
+      Pattern.compile("PRIMARY\\s+KEY\\s*\\(", Pattern.CASE_INSENSITIVE);
+  private static final Pattern ROW_DELETION_POLICY =
+      Pattern.compile("ROW\\s+DELETION\\s+POLICY\\s*\\(", Pattern.CASE_INSENSITIVE);
+  private static final Pattern NOT_NULL =
+      Pattern.compile("\\bNOT\\s+NULL\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern STORED = Pattern.compile("\\bSTORED\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern HIDDEN = Pattern.compile("\\bHIDDEN\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern INTERLEAVE_IN =
+      Pattern.compile("INTERLEAVE\\s+IN\\s+(\\S+)", Pattern.CASE_INSENSITIVE);
+  private static final Pattern REFERENCES =
+      Pattern.compile("^\\s*REFERENCES\\s+([^\\s(]+)\\s*\\(", Pattern.CASE_INSENSITIVE);
+  private static final Pattern ON_DELETE_CASCADE =
+      Pattern.compile("ON\\s+DELETE\\s+CASCADE", Pattern.CASE_INSENSITIVE);
+  private static final Pattern NOT_ENFORCED =
+      Pattern.compile("NOT\\s+ENFORCED", Pattern.CASE_INSENSITIVE);
+  private static final Pattern DEFAULT_CLAUSE = clause("DEFAULT");
+  private static final Pattern GENERATED_CLAUSE = clause("AS");
+  private static final Pattern OPTIONS_CLAUSE = clause("OPTIONS");
+  private static final Pattern STORING_CLAUSE = clause("STORING");
+
+  private final Schema schema;
+
+  /** The tables that have been parsed so far, keyed by their lower-case name. */
+  private final Map<String, Table> tables = new LinkedHashMap<>();
+
+  /** Foreign keys are added after all tables have been parsed, as they can reference any table. */
+  private final List<Runnable> deferred = new ArrayList<>();
+
+  public DdlSchemaParser(Schema schema) {
+    this.schema = schema;
+  }
+
+  /**
+   * Parses the given DDL statements and adds the objects that they define to the schema of this
+   * parser.
+   */
+  public Schema parse(Iterable<String> statements) {
+    for (String statement : statements) {
+      parseStatement(statement.trim());
+    }
+    for (Runnable runnable : deferred) {
+      runnable.run();
+    }
+    deferred.clear();
+    return schema;
+  }
+
+  private void parseStatement(String statement) {
+    if (statement.endsWith(";")) {
+      statement = statement.substring(0, statement.length() - 1).trim();
+    }
+    Matcher matcher;
+    if ((matcher = CREATE_TABLE.matcher(statement)).find()) {
+      parseCreateTable(statement, matcher);
+    } else if ((matcher = CREATE_INDEX.matcher(statement)).find()) {
+      parseCreateIndex(statement, matcher);
+    } else if ((matcher = CREATE_SEQUENCE.matcher(statement)).find()) {
+      parseCreateSequence(statement, matcher);
+    } else if ((matcher = CREATE_VIEW.matcher(statement)).find()) {
+      View view = new View();
+      view.setName(unquote(matcher.group(1)));
+      view.setSchema(schema);
+      view.setDefinition(statement.substring(matcher.end()).trim());
+      schema.addDatabaseObject(view);
+    } else if ((matcher = ALTER_TABLE_ADD.matcher(statement)).find()) {
+      String tableName = unquote(matcher.group(1));
+      String constraint = statement.substring(matcher.end()).trim();
+      deferred.add(() -> parseForeignKey(getTable(tableName), constraint));
+    }
+  }
+
+  private void parseCreateTable(String statement, Matcher matcher) {
+    Table table = new Table();
+    table.setName(unquote(matcher.group(1)));
+    table.setSchema(schema);
+    int open = matcher.end() - 1;
+    int close = findClosingParenthesis(statement, open);
+    for (String element : splitTopLevel(statement.substring(open + 1, close))) {
+      if (FOREIGN_KEY.matcher(element).find()) {
+        deferred.add(() -> parseForeignKey(table, element));
+      } else if (!isConstraint(element)) {
+        table.addColumn(parseColumn(table, element));
+      }
+    }
+    // The remainder contains the primary key and the optional interleave and row deletion clauses.
+    String remainder = statement.substring(close + 1);
+    String masked = mask(remainder);
+    Matcher primaryKey = PRIMARY_KEY.matcher(masked);
+    if (primaryKey.find()) {
+      int keyOpen = primaryKey.end() - 1;
+      String keyColumns =
+          remainder.substring(keyOpen + 1, findClosingParenthesis(remainder, keyOpen));
+      PrimaryKey pk = new PrimaryKey();
+      pk.setName("PK_" + table.getName());
+      pk.setTable(table);
+      int position = 0;
+      for (String keyColumn : splitTopLevel(keyColumns)) {
+        if (keyColumn.isEmpty()) {
+          continue;
+        }
+        String[] parts = keyColumn.split("\\s+");
+        Column column = new Column(unquote(parts[0]));
+        column.setRelation(table);
+        column.setDescending(parts.length > 1 && "DESC".equalsIgnoreCase(parts[1]));
+        pk.addPrimaryKeyColumn(position++, column);
+      }
+      table.setPrimaryKey(pk);
+    }
+    Matcher interleave = INTERLEAVE_IN_PARENT.matcher(masked);
+    if (interleave.find()) {
+      table.setAttribute("interleaveInParent", unquote(interleave.group(1)));
+      if (interleave.group(2) != null) {
+        table.setAttribute(
+            "interleaveOnDelete",
+            interleave.group(2).toUpperCase(Locale.ROOT).replaceAll("\\s+", " "));
+      }
+    }
+    Matcher rowDeletionPolicy = ROW_DELETION_POLICY.matcher(masked);
+    if (rowDeletionPolicy.find()) {
+      int policyOpen = rowDeletionPolicy.end() - 1;
+      int policyClose = findClosingParenthesis(remainder, policyOpen);
+      table.setAttribute(
+          "rowDeletionPolicy", remainder.substring(policyOpen + 1, policyClose).trim());
+    }
+    tables.put(table.getName().toLowerCase(Locale.ROOT), table);
+    schema.addDatabaseObject(table);
+  }
+
+  private static boolean isConstraint(String element) {
+    return CONSTRAINT.matcher(element).find();
+  }
+
+  private Column parseColumn(Table table, String definition) {
+    int nameEnd = findTokenEnd(definition, 0);
+    int typeStart = skipWhitespace(definition, nameEnd);
+    int typeEnd = findTokenEnd(definition, typeStart);
+    Column column = new Column(unquote(definition.substring(0, nameEnd)));
+    column.setRelation(table);
+    column.setType(new DataType(definition.substring(typeStart, typeEnd)));
+
+    String options = definition.substring(typeEnd);
+    String masked = mask(options);
+    column.setNullable(!NOT_NULL.matcher(masked).find());
+    String defaultValue = findParenthesizedClause(options, masked, DEFAULT_CLAUSE);
+    if (defaultValue != null) {
+      column.setDefaultValue(toDefaultValue(defaultValue));
+      // The expression as it is returned in the COLUMN_DEFAULT column of INFORMATION_SCHEMA.
+      column.setAttribute(DEFAULT_EXPRESSION, defaultValue.trim());
+    }
+    String generated = findParenthesizedClause(options, masked, GENERATED_CLAUSE);
+    if (generated != null) {
+      column.setComputed(true);
+      column.setAttribute("generationExpression", generated);
+      column.setAttribute("stored", STORED.matcher(masked).find());
+    }
+    String columnOptions = findParenthesizedClause(options, masked, OPTIONS_CLAUSE);
+    if (columnOptions != null) {
+      Map<String, String> parsedOptions = parseOptions(columnOptions);
+      column.setAttribute("options", parsedOptions);
+      if ("true".equalsIgnoreCase(parsedOptions.get("allow_commit_timestamp"))) {
+        column.setAttribute("allowCommitTimestamp", true);
+      }
+    }
+    if (HIDDEN.matcher(masked).find()) {
+      column.setAttribute("hidden", true);
+    }
+    return column;
+  }
+
+  private void parseCreateIndex(String statement, Matcher matcher) {
+    Table table = getTable(unquote(matcher.group(4)));
+    Index index = new Index();
+    index.setName(unquote(matcher.group(3)));
+    index.setRelation(table);
+    index.setUnique(matcher.group(1) != null);
+    if (matcher.group(2) != null) {
+      index.setAttribute("nullFiltered", true);
+    }
+    int open = matcher.end() - 1;
+    int close = findClosingParenthesis(statement, open);
+    for (String indexColumn : splitTopLevel(statement.substring(open + 1, close))) {
+      String[] parts = indexColumn.split("\\s+");
+      index
+          .getColumns()
+          .add(
+              new Column(unquote(parts[0]))
+                  .setDescending(parts.length > 1 && "DESC".equalsIgnoreCase(parts[1]))
+                  .setRelation(table));
+    }
+    String remainder = statement.substring(close + 1);
+    String masked = mask(remainder);
+    String storing = findParenthesizedClause(remainder, masked, STORING_CLAUSE);
+    if (storing != null) {
+      List<String> includedColumns = new ArrayList<>();
+      for (String column : splitTopLevel(storing)) {
+        includedColumns.add(unquote(column));
+      }
+      // Use the same attribute name as IndexSnapshotGeneratorSpanner.
+      index.setAttribute("includedColumns", includedColumns);
+    }
+    Matcher interleave = INTERLEAVE_IN.matcher(masked);
+    if (interleave.find()) {
+      index.setAttribute("interleaveIn", unquote(interleave.group(1)));
+    }
+    table.getIndexes().add(index);
+    schema.addDatabaseObject(index);
+  }
+
+  private void parseCreateSequence(String statement, Matcher matcher) {
+    Sequence sequence = new Sequence();
+    sequence.setName(unquote(matcher.group(1)));
+    sequence.setSchema(schema);
+    String remainder = statement.substring(matcher.end());
+    String options = findParenthesizedClause(remainder, mask(remainder), OPTIONS_CLAUSE);
+    if (options != null) {
+      Map<String, String> parsedOptions = parseOptions(options);
+      sequence.setAttribute("options", parsedOptions);
+      if (parsedOptions.containsKey("sequence_kind")) {
+        sequence.setAttribute("sequenceKind", parsedOptions.get("sequence_kind"));
+      }
+      if (parsedOptions.containsKey("start_with_counter")) {
+        sequence.setStartValue(new BigInteger(parsedOptions.get("start_with_counter")));
+      }
+      if (parsedOptions.containsKey("skip_range_min")) {
+        sequence.setAttribute("skipRangeMin", new BigInteger(parsedOptions.get("skip_range_min")));
+      }
+      if (parsedOptions.containsKey("skip_range_max")) {
+        sequence.setAttribute("skipRangeMax", new BigInteger(parsedOptions.get("skip_range_max")));
+      }
+    }
+    schema.addDatabaseObject(sequence);
+  }
+
+  private void parseForeignKey(Table table, String definition) {
+    Matcher matcher = FOREIGN_KEY.matcher(definition);
+    if (!matcher.find()) {
+      // Not a foreign key, for example a check constraint or a row deletion policy.
+      return;
+    }
+    ForeignKey foreignKey = new ForeignKey();
+    foreignKey.setName(matcher.group(1) == null ? null : unquote(matcher.group(1)));
+    foreignKey.setForeignKeyTable(table);
+    int open = matcher.end() - 1;
+    int close = findClosingParenthesis(definition, open);
+    for (String column : splitTopLevel(definition.substring(open + 1, close))) {
+      foreignKey.addForeignKeyColumn(new Column(unquote(column)).setRelation(table));
+    }
+    Matcher references = REFERENCES.matcher(definition.substring(close + 1));
+    if (!references.find()) {
+      return;
+    }
+    Table referencedTable = getTable(unquote(references.group(1)));
+    foreignKey.setPrimaryKeyTable(referencedTable);
+    int referencesOpen = close + 1 + references.end() - 1;
+    int referencesClose = findClosingParenthesis(definition, referencesOpen);
+    for (String column :
+        splitTopLevel(definition.substring(referencesOpen + 1, referencesClose))) {
+      foreignKey.addPrimaryKeyColumn(new Column(unquote(column)).setRelation(referencedTable));
+    }
+    String remainder = mask(definition.substring(referencesClose + 1));
+    if (ON_DELETE_CASCADE.matcher(remainder).find()) {
+      foreignKey.setDeleteRule(ForeignKeyConstraintType.importedKeyCascade);
+    } else {
+      foreignKey.setDeleteRule(ForeignKeyConstraintType.importedKeyNoAction);
+    }
+    if (NOT_ENFORCED.matcher(remainder).find()) {
+      foreignKey.setAttribute("enforced", false);
+    }
+    table.getOutgoingForeignKeys().add(foreignKey);
+    schema.addDatabaseObject(foreignKey);
+  }
+
+  private Table getTable(String name) {
+    Table table = tables.get(name.toLowerCase(Locale.ROOT));
+    if (table == null) {
+      // The table is not part of the DDL, for example because it is in a different schema.
+      table = new Table();
+      table.setName(name);
+      table.setSchema(schema);
+    }
+    return table;
+  }
+
+  /** Converts a DEFAULT expression to the value type that Liquibase uses for column defaults. */
+  static Object toDefaultValue(String expression) {
+    String trimmed = expression.trim();
+    if (trimmed.length() >= 2
+        && (trimmed.charAt(0) == '\'' || trimmed.charAt(0) == '"')
+        && trimmed.charAt(trimmed.length() - 1) == trimmed.charAt(0)) {
+      return trimmed.substring(1, trimmed.length() - 1);
+    }
+    if ("TRUE".equalsIgnoreCase(trimmed) || "FALSE".equalsIgnoreCase(trimmed)) {
+      return Boolean.valueOf(trimmed);
+    }
+    if (trimmed.matches("-?\\d+(\\.\\d+)?")) {
+      return new BigDecimal(trimmed);
+    }
+    return new DatabaseFunction(trimmed);
+  }
+
+  /** Parses an OPTIONS clause of the form {@code name = value, ...}. */
+  static Map<String, String> parseOptions(String options) {
+    Map<String, String> result = new LinkedHashMap<>();
+    for (String option : splitTopLevel(options)) {
+      int equals = option.indexOf('=');
+      if (equals > 0) {
+        result.put(
+            option.substring(0, equals).trim().toLowerCase(Locale.ROOT),
+            unquoteLiteral(option.substring(equals + 1).trim()));
+      }
+    }
+    return result;
+  }
+
+  /** Returns a pattern for the given keyword followed by an opening parenthesis. */
+  private static Pattern clause(String keyword) {
+    return Pattern.compile("\\b" + keyword + "\\s*\\(", Pattern.CASE_INSENSITIVE);
+  }
+
+  /**
+   * Returns the contents of the parentheses that follow the given clause on the top level of the
+   * given text, or null if the clause is not present.
+   */
+  @Nullable
+  private static String findParenthesizedClause(String text, String masked, Pattern clause) {
+    Matcher matcher = clause.matcher(masked);
+    if (!matcher.find()) {
+      return null;
+    }
+    int open = matcher.end() - 1;
+    return text.substring(open + 1, findClosingParenthesis(text, open)).trim();
+  }
+
+  /**
+   * Returns a copy of the given text where everything inside parentheses and literals is replaced
+   * by spaces. This makes it possible to search for keywords on the top level of the text with a
+   * regular expression, and to use the positions that are found in the original text.
+   */
+  static String mask(String text) {
+    StringBuilder result = new StringBuilder(text.length());
+    int depth = 0;
+    char quote = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (quote != 0) {
+        if (c == '\\' && i + 1 < text.length()) {
+          result.append("  ");
+          i++;
+          continue;
+        }
+        if (c == quote) {
+          quote = 0;
+        }
+        result.append(' ');
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+        result.append(' ');
+      } else if (c == '(') {
+        result.append(depth == 0 ? c : ' ');
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        result.append(depth == 0 ? c : ' ');
+      } else {
+        result.append(depth == 0 ? c : ' ');
+      }
+    }
+    return result.toString();
+  }
+
+  /** Returns the index of the parenthesis that closes the one at the given position. */
+  static int findClosingParenthesis(String text, int open) {
+    String masked = mask(text.substring(open));
+    int close = masked.indexOf(')', 1);
+    if (close < 0) {
+      throw new IllegalArgumentException("Missing closing parenthesis: " + text);
+    }
+    return open + close;
+  }
+
+  /** Splits the given text on the commas that are not inside parentheses, brackets or literals. */
+  static List<String> splitTopLevel(String text) {
+    List<String> result = new ArrayList<>();
+    int depth = 0;
+    char quote = 0;
+    int start = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (quote != 0) {
+        if (c == '\\') {
+          i++;
+        } else if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '(' || c == '[') {
+        depth++;
+      } else if (c == ')' || c == ']') {
+        depth--;
+      } else if (c == ',' && depth == 0) {
+        addIfNotEmpty(result, text.substring(start, i));
+        start = i + 1;
+      }
+    }
+    addIfNotEmpty(result, text.substring(start));
+    return result;
+  }
+
+  private static void addIfNotEmpty(List<String> list, String element) {
+    String trimmed = element.trim();
+    if (!trimmed.isEmpty()) {
+      list.add(trimmed);
+    }
+  }
+
+  /**
+   * Returns the end of the token that starts at the given position. Whitespace inside parentheses
+   * and angle brackets, such as in {@code ARRAY<FLOAT32>(vector_length=>128)}, is part of the
+   * token.
+   */
+  private static int findTokenEnd(String text, int start) {
+    int parentheses = 0;
+    int angleBrackets = 0;
+    int i = start;
+    for (; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '(') {
+        parentheses++;
+      } else if (c == ')') {
+        parentheses--;
+      } else if (c == '<' && parentheses == 0) {
+        angleBrackets++;
+      } else if (c == '>' && parentheses == 0) {
+        angleBrackets--;
+      } else if (Character.isWhitespace(c) && parentheses == 0 && angleBrackets == 0) {
+        break;
+      }
+    }
+    return i;
+  }
+
+  private static int skipWhitespace(String text, int start) {
+    int i = start;
+    while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static String unquote(String identifier) {
+    String trimmed = identifier.trim();
+    if (trimmed.length() >= 2
+        && (trimmed.charAt(0) == '`' || trimmed.charAt(0) == '"')
+        && trimmed.charAt(trimmed.length() - 1) == trimmed.charAt(0)) {
+      return trimmed.substring(1, trimmed.length() - 1);
+    }
+    return trimmed;
+  }
+
+  private static String unquoteLiteral(String literal) {
+    if (literal.length() >= 2
+        && (literal.charAt(0) == '\'' || literal.charAt(0) == '"')
+        && literal.charAt(literal.length() - 1) == literal.charAt(0)) {
+      return literal.substring(1, literal.length() - 1);
+    }
+    return literal;
+  }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.snapshotgenerator;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.Spanner;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.connection.ConnectionOptions;
+import java.util.List;
+import liquibase.database.Database;
+import liquibase.database.DatabaseConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.spanner.CloudSpannerConnection;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.structure.core.Schema;
+
+/**
+ * Reads the schema of a Spanner database with a single GetDatabaseDdl RPC, instead of with one or
+ * more INFORMATION_SCHEMA queries per object. The DDL is parsed into Liquibase structure objects
+ * by {@link DdlSchemaParser}.
+ */
+public class DdlSnapshotReader {
+
+  private DdlSnapshotReader() {}
+
+  /** Reads the schema of the database that the given Liquibase database is connected to. */
+  public static Schema readSchema(Database database) throws DatabaseException {
+    if (database instanceof ICloudSpanner
+        && ((ICloudSpanner) database).getDialect() == Dialect.POSTGRESQL) {
+      throw new DatabaseException(
+          "Reading the schema from the DDL is only supported for GoogleSQL-dialect databases");
+    }
+    Schema schema = new Schema(database.getDefaultCatalogName(), database.getDefaultSchemaName());
+    return new DdlSchemaParser(schema).parse(readDdl(database));
+  }
+
+  /**
+   * Returns the DDL statements of the database that the given Liquibase database is connected to.
+   * The RPC uses the URL, driver properties and emulator settings of the connection. The admin
+   * client of the connection is reused, so repeated snapshots do not create a new client. A
+   * connection that was passed in by the application does not have an admin client, and a client
+   * is then created for this call only.
+   */
+  public static List<String> readDdl(Database database) throws DatabaseException {
+    DatabaseConnection connection = database.getConnection();
+    ConnectionOptions options = CloudSpannerConnection.getConnectionOptions(connection);
+    try {
+      if (connection instanceof CloudSpannerConnection) {
+        return readDdl(((CloudSpannerConnection) connection).getAdminClient(), options);
+      }
+      try (Spanner spanner = CloudSpannerConnection.createAdminClient(options)) {
+        return readDdl(spanner, options);
+      }
+    } catch (SpannerException e) {
+      throw new DatabaseException("Could not read the DDL of " + options.getDatabaseName(), e);
+    }
+  }
+
+  private static List<String> readDdl(Spanner spanner, ConnectionOptions options) {
+    return spanner
+        .getDatabaseAdminClient()
+        .getDatabaseDdl(options.getInstanceId(), options.getDatabaseName());
+  }
+}
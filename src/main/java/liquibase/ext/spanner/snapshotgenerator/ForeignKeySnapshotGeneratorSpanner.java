@@ -13,9 +13,11 @@
  */
 package liquibase.ext.spanner.snapshotgenerator;
 
+import java.sql.SQLException;
 import liquibase.database.Database;
 import liquibase.exception.DatabaseException;
 import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.MetadataStaleness;
 import liquibase.snapshot.DatabaseSnapshot;
 import liquibase.snapshot.InvalidExampleException;
 import liquibase.snapshot.SnapshotGenerator;
@@ -46,7 +48,11 @@ public class ForeignKeySnapshotGeneratorSpanner extends ForeignKeySnapshotGenera
     if (example instanceof ForeignKey && example.getName() == null) {
       return null;
     }
-    return super.snapshot(example, snapshot, chain);
+    try (MetadataStaleness ignored = SnapshotTimestamp.begin(snapshot)) {
+      return super.snapshot(example, snapshot, chain);
+    } catch (SQLException e) {
+      throw new DatabaseException(e);
+    }
   }
 
   /**
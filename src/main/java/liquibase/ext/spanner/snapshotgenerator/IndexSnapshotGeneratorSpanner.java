@@ -14,6 +14,7 @@
 package liquibase.ext.spanner.snapshotgenerator;
 
 import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -24,11 +25,13 @@ import liquibase.database.core.*;
 import liquibase.diff.compare.DatabaseObjectComparatorFactory;
 import liquibase.exception.DatabaseException;
 import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.MetadataStaleness;
 import liquibase.snapshot.CachedRow;
 import liquibase.snapshot.DatabaseSnapshot;
 import liquibase.snapshot.InvalidExampleException;
 import liquibase.snapshot.JdbcDatabaseSnapshot;
 import liquibase.snapshot.SnapshotGenerator;
+import liquibase.snapshot.SnapshotGeneratorChain;
 import liquibase.snapshot.jvm.IndexSnapshotGenerator;
 import liquibase.structure.DatabaseObject;
 import liquibase.structure.core.*;
@@ -51,6 +54,18 @@ public class IndexSnapshotGeneratorSpanner extends IndexSnapshotGenerator {
     return PRIORITY_NONE;
   }
 
+  /** Reads the indexes at the read timestamp of the snapshot. */
+  @Override
+  public DatabaseObject snapshot(
+      DatabaseObject example, DatabaseSnapshot snapshot, SnapshotGeneratorChain chain)
+      throws DatabaseException, InvalidExampleException {
+    try (MetadataStaleness ignored = SnapshotTimestamp.begin(snapshot)) {
+      return super.snapshot(example, snapshot, chain);
+    } catch (SQLException e) {
+      throw new DatabaseException(e);
+    }
+  }
+
   @Override
   protected DatabaseObject snapshotObject(DatabaseObject example, DatabaseSnapshot snapshot)
       throws DatabaseException, InvalidExampleException {
@@ -77,20 +92,112 @@ public class IndexSnapshotGeneratorSpanner extends IndexSnapshotGenerator {
       exampleName = database.correctObjectName(exampleName, Index.class);
     }
 
-    Map<String, Index> foundIndexes = new HashMap<>();
-    JdbcDatabaseSnapshot.CachingDatabaseMetaData databaseMetaData = null;
-    List<CachedRow> rs = null;
-    try {
-      databaseMetaData = ((JdbcDatabaseSnapshot) snapshot).getMetaDataFromCache();
+    Map<String, Index> foundIndexes =
+        readIndexes(
+            getIndexInfo(snapshot, schema, tableName, exampleName), schema, exampleName, database);
+
+    if (exampleName != null) {
+      return foundIndexes.get(exampleName);
+    } else {
+      // prefer clustered version of the index
+      List<Index> nonClusteredIndexes = new ArrayList<>();
+      for (Index index : foundIndexes.values()) {
+        if (DatabaseObjectComparatorFactory.getInstance()
+            .isSameObject(
+                index.getRelation(), exampleIndex, snapshot.getSchemaComparisons(), database)) {
+          boolean actuallyMatches = false;
+          if (database.isCaseSensitive()) {
+            if (index.getColumnNames().equals(((Index) example).getColumnNames())) {
+              actuallyMatches = true;
+            }
+          } else {
+            if (index.getColumnNames().equalsIgnoreCase(((Index) example).getColumnNames())) {
+              actuallyMatches = true;
+            }
+          }
+          if (actuallyMatches) {
+            if ((index.getClustered() != null) && index.getClustered()) {
+              return finalizeIndex(schema, tableName, index, snapshot);
+            } else {
+              nonClusteredIndexes.add(index);
+            }
+          }
+        }
+      }
+      if (!nonClusteredIndexes.isEmpty()) {
+        return finalizeIndex(schema, tableName, nonClusteredIndexes.get(0), snapshot);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Adds the indexes of a table based on the index information of the entire schema, instead of
+   * querying the index information of each table separately.
+   */
+  @Override
+  protected void addTo(DatabaseObject foundObject, DatabaseSnapshot snapshot)
+      throws DatabaseException, InvalidExampleException {
+    if (!(foundObject instanceof Table)
+        || !snapshot.getSnapshotControl().shouldInclude(Index.class)) {
+      super.addTo(foundObject, snapshot);
+      return;
+    }
+    Table table = (Table) foundObject;
+    Schema schema = table.getSchema();
+    if (schema == null) {
+      Database database = snapshot.getDatabase();
+      schema = new Schema(database.getDefaultCatalogName(), database.getDefaultSchemaName());
+    }
+    List<CachedRow> rows = getIndexInfo(snapshot, schema, table.getName(), null);
+    for (Index index : readIndexes(rows, schema, null, snapshot.getDatabase()).values()) {
+      index.setRelation(table);
+      for (Column column : index.getColumns()) {
+        if (column != null) {
+          column.setRelation(table);
+        }
+      }
+      table.getIndexes().add(index);
+    }
+  }
 
-      rs =
-          databaseMetaData.getIndexInfo(
+  /**
+   * Returns the index information of the given table, or of all tables in the schema if tableName
+   * is null. The information is taken from the INFORMATION_SCHEMA metadata that is loaded once for
+   * the entire schema, and only falls back to {@link DatabaseMetaData#getIndexInfo} if that
+   * metadata is not available.
+   */
+  private static List<CachedRow> getIndexInfo(
+      DatabaseSnapshot snapshot, Schema schema, String tableName, String indexName)
+      throws DatabaseException {
+    Database database = snapshot.getDatabase();
+    String schemaName =
+        schema.getName() == null ? database.getDefaultSchemaName() : schema.getName();
+    InformationSchemaSnapshot informationSchema =
+        InformationSchemaSnapshot.get(snapshot, schema.getCatalogName(), schemaName);
+    if (informationSchema != null) {
+      return informationSchema.getIndexInfo(tableName);
+    }
+    try {
+      return ((JdbcDatabaseSnapshot) snapshot)
+          .getMetaDataFromCache()
+          .getIndexInfo(
               ((AbstractJdbcDatabase) database).getJdbcCatalogName(schema),
               ((AbstractJdbcDatabase) database).getJdbcSchemaName(schema),
               tableName,
-              exampleName);
+              indexName);
+    } catch (Exception e) {
+      throw new DatabaseException(e);
+    }
+  }
 
-      for (CachedRow row : rs) {
+  /** Creates the indexes that are described by the given index information rows. */
+  private Map<String, Index> readIndexes(
+      List<CachedRow> rows, Schema schema, String exampleName, Database database)
+      throws DatabaseException {
+    Map<String, Index> foundIndexes = new HashMap<>();
+    try {
+      for (CachedRow row : rows) {
         String rawIndexName = row.getString("INDEX_NAME");
         String indexName = cleanNameFromDatabase(rawIndexName, database);
         String correctedIndexName = database.correctObjectName(indexName, Index.class);
@@ -131,6 +238,9 @@ public class IndexSnapshotGeneratorSpanner extends IndexSnapshotGenerator {
           if (type == DatabaseMetaData.tableIndexClustered) {
             returnIndex.setClustered(true);
           }
+          if (Boolean.TRUE.equals(row.getBoolean("IS_NULL_FILTERED"))) {
+            returnIndex.setAttribute("nullFiltered", true);
+          }
           foundIndexes.put(correctedIndexName, returnIndex);
         }
 
@@ -183,40 +293,7 @@ public class IndexSnapshotGeneratorSpanner extends IndexSnapshotGenerator {
     } catch (Exception e) {
       throw new DatabaseException(e);
     }
-
-    if (exampleName != null) {
-      return foundIndexes.get(exampleName);
-    } else {
-      // prefer clustered version of the index
-      List<Index> nonClusteredIndexes = new ArrayList<>();
-      for (Index index : foundIndexes.values()) {
-        if (DatabaseObjectComparatorFactory.getInstance()
-            .isSameObject(
-                index.getRelation(), exampleIndex, snapshot.getSchemaComparisons(), database)) {
-          boolean actuallyMatches = false;
-          if (database.isCaseSensitive()) {
-            if (index.getColumnNames().equals(((Index) example).getColumnNames())) {
-              actuallyMatches = true;
-            }
-          } else {
-            if (index.getColumnNames().equalsIgnoreCase(((Index) example).getColumnNames())) {
-              actuallyMatches = true;
-            }
-          }
-          if (actuallyMatches) {
-            if ((index.getClustered() != null) && index.getClustered()) {
-              return finalizeIndex(schema, tableName, index, snapshot);
-            } else {
-              nonClusteredIndexes.add(index);
-            }
-          }
-        }
-      }
-      if (!nonClusteredIndexes.isEmpty()) {
-        return finalizeIndex(schema, tableName, nonClusteredIndexes.get(0), snapshot);
-      }
-      return null;
-    }
+    return foundIndexes;
   }
 
   @Override
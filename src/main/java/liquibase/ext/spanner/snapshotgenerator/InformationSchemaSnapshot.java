@@ -0,0 +1,416 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.snapshotgenerator;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.TimestampBound;
+import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import liquibase.Scope;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.MetadataStaleness;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.snapshot.CachedRow;
+import liquibase.snapshot.DatabaseSnapshot;
+import liquibase.structure.core.Column;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.PrimaryKey;
+import liquibase.structure.core.Schema;
+import liquibase.structure.core.Table;
+
+/**
+ * The INFORMATION_SCHEMA metadata of one schema that is not returned by the Spanner JDBC driver:
+ * the default values and SPANNER_TYPEs of all columns, and the columns of all indexes. These
+ * queries are executed in a single read-only transaction, so this metadata is read at one
+ * consistent timestamp, unless a bounded staleness has been configured with {@link
+ * MetadataStaleness}. The metadata is loaded once per schema and snapshot, and is kept in the
+ * scratch data of the snapshot. It can also be cached on disk by {@link SnapshotCache}, or be
+ * created from the DDL of the database by {@link DdlSnapshotReader} instead.
+ *
+ * <p>The transaction reads at the {@link SnapshotTimestamp} of the snapshot, which is also used
+ * for the tables, views, primary keys, foreign keys and sequences that are read through the {@link
+ * DatabaseMetaData} of the driver. The whole snapshot therefore shows the schema at one timestamp.
+ */
+public class InformationSchemaSnapshot implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private static final String SCRATCH_KEY = "spanner.informationSchema";
+
+  static final String SELECT_COLUMNS =
+      "SELECT TABLE_NAME, COLUMN_NAME, COLUMN_DEFAULT AS COLUMN_DEF, SPANNER_TYPE "
+          + "FROM INFORMATION_SCHEMA.COLUMNS "
+          + "WHERE LOWER(TABLE_CATALOG) = ? "
+          + "AND LOWER(TABLE_SCHEMA) = ?";
+
+  static final String SELECT_INDEX_COLUMNS =
+      "SELECT IDX.TABLE_NAME, IDX.INDEX_NAME, IDX.IS_UNIQUE, IDX.IS_NULL_FILTERED, "
+          + "COL.COLUMN_NAME, COL.ORDINAL_POSITION, COL.COLUMN_ORDERING "
+          + "FROM INFORMATION_SCHEMA.INDEXES IDX "
+          + "INNER JOIN INFORMATION_SCHEMA.INDEX_COLUMNS COL "
+          + "ON IDX.TABLE_CATALOG = COL.TABLE_CATALOG "
+          + "AND IDX.TABLE_SCHEMA = COL.TABLE_SCHEMA "
+          + "AND IDX.TABLE_NAME = COL.TABLE_NAME "
+          + "AND IDX.INDEX_NAME = COL.INDEX_NAME "
+          + "WHERE LOWER(IDX.TABLE_CATALOG) = ? "
+          + "AND LOWER(IDX.TABLE_SCHEMA) = ? "
+          + "AND IDX.INDEX_TYPE IN ('INDEX', 'PRIMARY_KEY') "
+          + "ORDER BY IDX.TABLE_NAME, IDX.INDEX_NAME, COL.ORDINAL_POSITION";
+
+  /** The default value of each column, keyed by the lower-case table and column name. */
+  private final Map<String, String> columnDefaults = new HashMap<>();
+
+  /** The SPANNER_TYPE of each column, keyed by the lower-case table and column name. */
+  private final Map<String, String> spannerTypes = new HashMap<>();
+
+  /**
+   * The columns of all indexes, keyed by the lower-case table name. Each row uses the same column
+   * names as {@link DatabaseMetaData#getIndexInfo}, so it can be handled in the same way
+   * as the result of that method.
+   */
+  private final Map<String, List<HashMap<String, Object>>> indexColumns = new HashMap<>();
+
+  private InformationSchemaSnapshot() {}
+
+  /**
+   * Returns the INFORMATION_SCHEMA metadata of the given schema. The metadata is read from the
+   * database, from the on-disk cache if that is enabled, or from the DDL of the database if {@link
+   * SpannerConfiguration#SNAPSHOT_FROM_DDL} is enabled, the first time this method is called for a
+   * schema and snapshot.
+   *
+   * <p>Returns null if the snapshot is not backed by a JDBC connection.
+   */
+  @Nullable
+  public static InformationSchemaSnapshot get(
+      DatabaseSnapshot snapshot, String catalogName, String schemaName) throws DatabaseException {
+    Database database = snapshot.getDatabase();
+    if (!(database.getConnection() instanceof JdbcConnection)) {
+      return null;
+    }
+    String scratchKey = SCRATCH_KEY + "." + lower(catalogName) + "." + lower(schemaName);
+    InformationSchemaSnapshot result =
+        (InformationSchemaSnapshot) snapshot.getScratchData(scratchKey);
+    if (result == null && isReadFromDdl(database, schemaName)) {
+      result = fromSchema(DdlSnapshotReader.readSchema(database));
+      snapshot.setScratchData(scratchKey, result);
+    }
+    if (result == null) {
+      Path cacheFile = SnapshotCache.getCacheFile(database, catalogName, schemaName);
+      if (cacheFile != null) {
+        result = SnapshotCache.read(cacheFile);
+      }
+      if (result == null) {
+        Connection connection =
+            ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        TimestampBound readTimestamp;
+        try {
+          readTimestamp = SnapshotTimestamp.get(snapshot, connection);
+        } catch (SQLException e) {
+          throw new DatabaseException(e);
+        }
+        result = load(connection, catalogName, schemaName, readTimestamp);
+        if (cacheFile != null) {
+          SnapshotCache.write(cacheFile, result);
+        }
+      }
+      snapshot.setScratchData(scratchKey, result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns true if the metadata should be read from the DDL of the database. The DDL only contains
+   * the objects of the default schema without a schema prefix, and is only parsed for
+   * GoogleSQL-dialect databases.
+   */
+  private static boolean isReadFromDdl(Database database, @Nullable String schemaName) {
+    return Boolean.TRUE.equals(SpannerConfiguration.SNAPSHOT_FROM_DDL.getCurrentValue())
+        && database instanceof ICloudSpanner
+        && ((ICloudSpanner) database).getDialect() == Dialect.GOOGLE_STANDARD_SQL
+        && (schemaName == null || schemaName.isEmpty());
+  }
+
+  /** Creates the metadata from a schema that has been parsed from the DDL of the database. */
+  static InformationSchemaSnapshot fromSchema(Schema schema) {
+    InformationSchemaSnapshot result = new InformationSchemaSnapshot();
+    for (Table table : schema.getDatabaseObjects(Table.class)) {
+      String tableName = table.getName();
+      for (Column column : table.getColumns()) {
+        String key = columnKey(tableName, column.getName());
+        result.columnDefaults.put(
+            key, column.getAttribute(DdlSchemaParser.DEFAULT_EXPRESSION, String.class));
+        result.spannerTypes.put(key, column.getType().getTypeName());
+      }
+      PrimaryKey primaryKey = table.getPrimaryKey();
+      if (primaryKey != null) {
+        // INFORMATION_SCHEMA returns the primary key as an index with the name PRIMARY_KEY.
+        result.addIndexColumns(tableName, "PRIMARY_KEY", true, false, primaryKey.getColumns());
+      }
+      for (Index index : table.getIndexes()) {
+        boolean unique = Boolean.TRUE.equals(index.isUnique());
+        boolean nullFiltered =
+            Boolean.TRUE.equals(index.getAttribute("nullFiltered", Boolean.class));
+        result.addIndexColumns(
+            tableName, index.getName(), unique, nullFiltered, index.getColumns());
+        List<?> includedColumns = index.getAttribute("includedColumns", List.class);
+        if (includedColumns != null) {
+          for (Object includedColumn : includedColumns) {
+            result.addIndexColumn(
+                tableName,
+                index.getName(),
+                unique,
+                nullFiltered,
+                (String) includedColumn,
+                null,
+                null);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private void addIndexColumns(
+      String tableName,
+      String indexName,
+      boolean unique,
+      boolean nullFiltered,
+      List<Column> columns) {
+    short position = 1;
+    for (Column column : columns) {
+      addIndexColumn(
+          tableName,
+          indexName,
+          unique,
+          nullFiltered,
+          column.getName(),
+          position++,
+          Boolean.TRUE.equals(column.getDescending()) ? "DESC" : "ASC");
+    }
+  }
+
+  private void addIndexColumn(
+      String tableName,
+      String indexName,
+      boolean unique,
+      boolean nullFiltered,
+      String columnName,
+      @Nullable Short position,
+      @Nullable String ordering) {
+    HashMap<String, Object> row = new HashMap<>();
+    row.put("TABLE_NAME", tableName);
+    row.put("INDEX_NAME", indexName);
+    row.put("NON_UNIQUE", !unique);
+    row.put("IS_NULL_FILTERED", nullFiltered);
+    row.put("TYPE", DatabaseMetaData.tableIndexHashed);
+    row.put("COLUMN_NAME", columnName);
+    row.put("ORDINAL_POSITION", position);
+    row.put("ASC_OR_DESC", ordering == null ? null : ordering.substring(0, 1));
+    indexColumns.computeIfAbsent(lower(tableName), table -> new ArrayList<>()).add(row);
+  }
+
+  static InformationSchemaSnapshot load(
+      Connection connection, String catalogName, String schemaName) throws DatabaseException {
+    return load(connection, catalogName, schemaName, null);
+  }
+
+  /**
+   * Loads the metadata in one read-only transaction. The transaction reads at the given read
+   * timestamp of the snapshot, or with the configured staleness if it is null.
+   */
+  private static InformationSchemaSnapshot load(
+      Connection connection,
+      String catalogName,
+      String schemaName,
+      @Nullable TimestampBound readTimestamp)
+      throws DatabaseException {
+    InformationSchemaSnapshot result = new InformationSchemaSnapshot();
+    try {
+      TimestampBound staleness =
+          readTimestamp == null ? MetadataStaleness.getConfiguredStaleness() : readTimestamp;
+      if (staleness != null
+          && !MetadataStaleness.isSupportedInTransactions(staleness)
+          && connection.getAutoCommit()) {
+        // Bounded staleness can only be used for single-use read-only transactions. Each query
+        // then reads at its own timestamp, which is acceptable for a schema that is not changing.
+        try (MetadataStaleness ignored = MetadataStaleness.begin(connection)) {
+          result.loadColumns(connection, catalogName, schemaName);
+          result.loadIndexColumns(connection, catalogName, schemaName);
+        }
+        return result;
+      }
+      if (staleness != null) {
+        // The queries are executed in a read-only transaction, which does not support bounded
+        // staleness. That is also the case if the connection is not in autocommit mode.
+        staleness = MetadataStaleness.forTransactions(staleness);
+      }
+      boolean autoCommit = connection.getAutoCommit();
+      boolean switchedToReadOnly = false;
+      if (autoCommit) {
+        connection.setAutoCommit(false);
+      }
+      if (!connection.isReadOnly()) {
+        try {
+          connection.setReadOnly(true);
+          switchedToReadOnly = true;
+        } catch (SQLException e) {
+          // The connection already has an active read/write transaction. The queries are then
+          // executed in that transaction, which also gives a consistent view of the schema.
+          Scope.getCurrentScope()
+              .getLog(InformationSchemaSnapshot.class)
+              .fine("Could not start a read-only transaction for the schema snapshot", e);
+        }
+      }
+      // Only end the transaction if it was started here, and not by the caller.
+      boolean ownTransaction = autoCommit || switchedToReadOnly;
+      CloudSpannerJdbcConnection spannerConnection = null;
+      TimestampBound previousStaleness = null;
+      if (staleness != null
+          && ownTransaction
+          && connection.isWrapperFor(CloudSpannerJdbcConnection.class)) {
+        spannerConnection = connection.unwrap(CloudSpannerJdbcConnection.class);
+        previousStaleness = spannerConnection.getReadOnlyStaleness();
+        spannerConnection.setReadOnlyStaleness(staleness);
+      }
+      try {
+        result.loadColumns(connection, catalogName, schemaName);
+        result.loadIndexColumns(connection, catalogName, schemaName);
+        if (ownTransaction) {
+          connection.commit();
+        }
+      } catch (SQLException e) {
+        if (ownTransaction) {
+          connection.rollback();
+        }
+        throw e;
+      } finally {
+        if (spannerConnection != null) {
+          spannerConnection.setReadOnlyStaleness(previousStaleness);
+        }
+        if (switchedToReadOnly) {
+          connection.setReadOnly(false);
+        }
+        if (autoCommit) {
+          connection.setAutoCommit(true);
+        }
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Could not read INFORMATION_SCHEMA for " + schemaName, e);
+    }
+    return result;
+  }
+
+  private void loadColumns(Connection connection, String catalogName, String schemaName)
+      throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(SELECT_COLUMNS)) {
+      statement.setString(1, lower(catalogName));
+      statement.setString(2, lower(schemaName));
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          String key = columnKey(resultSet.getString(1), resultSet.getString(2));
+          columnDefaults.put(key, resultSet.getString(3));
+          spannerTypes.put(key, resultSet.getString(4));
+        }
+      }
+    }
+  }
+
+  private void loadIndexColumns(Connection connection, String catalogName, String schemaName)
+      throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(SELECT_INDEX_COLUMNS)) {
+      statement.setString(1, lower(catalogName));
+      statement.setString(2, lower(schemaName));
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          long position = resultSet.getLong(6);
+          // STORING columns do not have a position.
+          Short ordinalPosition = resultSet.wasNull() ? null : (short) position;
+          addIndexColumn(
+              resultSet.getString(1),
+              resultSet.getString(2),
+              isTrue(resultSet.getString(3)),
+              isTrue(resultSet.getString(4)),
+              resultSet.getString(5),
+              ordinalPosition,
+              resultSet.getString(7));
+        }
+      }
+    }
+  }
+
+  /** BOOL columns are returned as true/false, and PostgreSQL YES/NO columns as YES/NO. */
+  private static boolean isTrue(@Nullable String value) {
+    return "true".equalsIgnoreCase(value) || "yes".equalsIgnoreCase(value);
+  }
+
+  /**
+   * Returns the index columns of the given table, or of all tables in the schema if tableName is
+   * null, in the same format as {@link DatabaseMetaData#getIndexInfo}. Columns in the
+   * STORING clause of an index have ORDINAL_POSITION null.
+   */
+  public List<CachedRow> getIndexInfo(@Nullable String tableName) {
+    List<CachedRow> result = new ArrayList<>();
+    if (tableName == null) {
+      for (List<HashMap<String, Object>> rows : indexColumns.values()) {
+        for (Map<String, Object> row : rows) {
+          result.add(new CachedRow(new HashMap<>(row)));
+        }
+      }
+    } else {
+      for (Map<String, Object> row :
+          indexColumns.getOrDefault(lower(tableName), new ArrayList<>())) {
+        result.add(new CachedRow(new HashMap<>(row)));
+      }
+    }
+    return result;
+  }
+
+  /** Returns true if the given column was found in INFORMATION_SCHEMA.COLUMNS. */
+  public boolean hasColumn(String tableName, String columnName) {
+    return columnDefaults.containsKey(columnKey(tableName, columnName));
+  }
+
+  /** Returns the COLUMN_DEFAULT of the given column, or null if it has no default value. */
+  @Nullable
+  public String getColumnDefault(String tableName, String columnName) {
+    return columnDefaults.get(columnKey(tableName, columnName));
+  }
+
+  /** Returns the SPANNER_TYPE of the given column, or null if the column was not found. */
+  @Nullable
+  public String getSpannerType(String tableName, String columnName) {
+    return spannerTypes.get(columnKey(tableName, columnName));
+  }
+
+  private static String columnKey(String tableName, String columnName) {
+    return lower(tableName) + "." + lower(columnName);
+  }
+
+  private static String lower(@Nullable String value) {
+    return value == null ? null : value.toLowerCase();
+  }
+}
@@ -17,7 +17,10 @@ import com.google.cloud.spanner.Dialect;
 import java.util.ArrayList;
 import java.util.List;
 import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
 import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.MetadataStaleness;
+import liquibase.snapshot.DatabaseSnapshot;
 import liquibase.snapshot.SnapshotGenerator;
 import liquibase.snapshot.jvm.SequenceSnapshotGenerator;
 import liquibase.statement.SqlStatement;
@@ -39,6 +42,32 @@ public class SequenceSnapshotGeneratorSpanner extends SequenceSnapshotGenerator
     return PRIORITY_NONE;
   }
 
+  /** Reads the sequences at the read timestamp of the snapshot. */
+  @Override
+  protected DatabaseObject snapshotObject(DatabaseObject example, DatabaseSnapshot snapshot)
+      throws DatabaseException {
+    try (MetadataStaleness ignored = SnapshotTimestamp.begin(snapshot)) {
+      return super.snapshotObject(example, snapshot);
+    } catch (DatabaseException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new DatabaseException(e);
+    }
+  }
+
+  /** Reads the sequences at the read timestamp of the snapshot. */
+  @Override
+  protected void addTo(DatabaseObject foundObject, DatabaseSnapshot snapshot)
+      throws DatabaseException {
+    try (MetadataStaleness ignored = SnapshotTimestamp.begin(snapshot)) {
+      super.addTo(foundObject, snapshot);
+    } catch (DatabaseException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new DatabaseException(e);
+    }
+  }
+
   @Override
   protected SqlStatement getSelectSequenceStatement(Schema schema, Database database) {
     if (database instanceof ICloudSpanner) {
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.snapshotgenerator;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
+import javax.annotation.Nullable;
+import liquibase.Scope;
+import liquibase.database.Database;
+import liquibase.exception.DatabaseException;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.logging.Logger;
+
+/**
+ * On-disk cache for {@link InformationSchemaSnapshot}. The cache file name contains a hash of the
+ * DDL of the database, which means that a cache entry automatically becomes unused as soon as the
+ * schema changes. The DDL is read with a single GetDatabaseDdl RPC, which replaces all
+ * INFORMATION_SCHEMA queries of the snapshot when the cache entry already exists.
+ *
+ * <p>The cache is disabled unless {@link SpannerConfiguration#SNAPSHOT_CACHE_DIRECTORY} is set.
+ */
+class SnapshotCache {
+  /** Increase this version when the serialized form of the cached metadata changes. */
+  private static final String FORMAT_VERSION = "2";
+
+  private static final String FILE_PREFIX = "spanner-snapshot-";
+  private static final String FILE_SUFFIX = ".ser";
+
+  private SnapshotCache() {}
+
+  /**
+   * Returns the cache file for the given schema of the given database, or null if caching is
+   * disabled.
+   */
+  @Nullable
+  static Path getCacheFile(Database database, String catalogName, String schemaName)
+      throws DatabaseException {
+    String directory = SpannerConfiguration.SNAPSHOT_CACHE_DIRECTORY.getCurrentValue();
+    if (directory == null || directory.trim().isEmpty()) {
+      return null;
+    }
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      update(digest, FORMAT_VERSION);
+      update(digest, catalogName);
+      update(digest, schemaName);
+      for (String statement : DdlSnapshotReader.readDdl(database)) {
+        update(digest, statement);
+      }
+      StringBuilder hash = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hash.append(String.format("%02x", b));
+      }
+      return Paths.get(directory, FILE_PREFIX + hash + FILE_SUFFIX);
+    } catch (NoSuchAlgorithmException e) {
+      // SHA-256 is required to be supported by every Java platform.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void update(MessageDigest digest, @Nullable String value) {
+    digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    // Separate the values, so different combinations of values cannot give the same hash.
+    digest.update((byte) 0);
+  }
+
+  /** Returns the cached metadata in the given file, or null if it is missing or unreadable. */
+  @Nullable
+  static InformationSchemaSnapshot read(Path file) {
+    try (InputStream in = Files.newInputStream(file);
+        ObjectInputStream objectIn = new CacheObjectInputStream(in)) {
+      return (InformationSchemaSnapshot) objectIn.readObject();
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      getLogger().info("Ignoring unreadable snapshot cache file " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the given metadata to the given file. Failing to write the cache does not fail the
+   * snapshot.
+   */
+  static void write(Path file, InformationSchemaSnapshot snapshot) {
+    try {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      // Write to a temporary file first, so concurrent processes never see a partial file.
+      Path tempFile =
+          Files.createTempFile(file.toAbsolutePath().getParent(), FILE_PREFIX, ".tmp");
+      try (OutputStream out = Files.newOutputStream(tempFile);
+          ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+        objectOut.writeObject(snapshot);
+      }
+      try {
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      getLogger().warning("Could not write snapshot cache file " + file, e);
+    }
+  }
+
+  private static Logger getLogger() {
+    return Scope.getCurrentScope().getLog(SnapshotCache.class);
+  }
+
+  /** Only allows the classes that are part of the cached metadata to be deserialized. */
+  private static class CacheObjectInputStream extends ObjectInputStream {
+    /**
+     * The classes of {@link InformationSchemaSnapshot} and its fields. Number is the superclass of
+     * the boxed numbers, and is therefore also part of the stream.
+     */
+    private static final Set<String> ALLOWED_CLASSES =
+        ImmutableSet.of(
+            InformationSchemaSnapshot.class.getName(),
+            HashMap.class.getName(),
+            ArrayList.class.getName(),
+            String.class.getName(),
+            Boolean.class.getName(),
+            Number.class.getName(),
+            Short.class.getName(),
+            Integer.class.getName(),
+            Long.class.getName());
+
+    CacheObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc)
+        throws IOException, ClassNotFoundException {
+      String name = desc.getName();
+      if (!ALLOWED_CLASSES.contains(name)) {
+        throw new InvalidClassException(name, "Unexpected class in snapshot cache");
+      }
+      return super.resolveClass(desc);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.snapshotgenerator;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.TimestampBound;
+import com.google.cloud.spanner.jdbc.CloudSpannerJdbcConnection;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.annotation.Nullable;
+import liquibase.Scope;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.ext.spanner.MetadataStaleness;
+import liquibase.snapshot.DatabaseSnapshot;
+
+/**
+ * The read timestamp of a snapshot. The Spanner snapshot generators execute all their metadata
+ * queries at this timestamp, including the {@link java.sql.DatabaseMetaData} queries of the
+ * standard Liquibase generators that they replace, so all tables, views, columns, constraints,
+ * indexes and sequences of a snapshot are read from the same version of the schema.
+ *
+ * <p>The timestamp is chosen with one query in a read-only transaction the first time that it is
+ * needed, using the configured {@link MetadataStaleness}, and is kept in the scratch data of the
+ * snapshot. The other queries are then executed as reads at that exact timestamp. The timestamp is
+ * only applied if the connection is in autocommit mode without an active batch, as the queries
+ * are otherwise part of the transaction or batch of the caller.
+ */
+final class SnapshotTimestamp {
+  private static final String SCRATCH_KEY = "spanner.readTimestamp";
+
+  /** Marks a snapshot for which no read timestamp could be chosen. */
+  private static final String NONE = "none";
+
+  private SnapshotTimestamp() {}
+
+  /**
+   * Executes the metadata queries of the given snapshot at its read timestamp until the returned
+   * object is closed.
+   */
+  static MetadataStaleness begin(DatabaseSnapshot snapshot) throws SQLException {
+    Database database = snapshot.getDatabase();
+    if (!(database.getConnection() instanceof JdbcConnection)) {
+      return MetadataStaleness.begin(database);
+    }
+    Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+    return MetadataStaleness.begin(connection, get(snapshot, connection));
+  }
+
+  /**
+   * Returns the read timestamp of the given snapshot, or null if the metadata is not read at a
+   * fixed timestamp.
+   */
+  @Nullable
+  static TimestampBound get(DatabaseSnapshot snapshot, Connection connection)
+      throws SQLException {
+    Object value = snapshot.getScratchData(SCRATCH_KEY);
+    if (value == null) {
+      if (!isUsable(connection)) {
+        return null;
+      }
+      Timestamp readTimestamp = readTimestamp(connection);
+      value = readTimestamp == null ? NONE : TimestampBound.ofReadTimestamp(readTimestamp);
+      snapshot.setScratchData(SCRATCH_KEY, value);
+    }
+    return value instanceof TimestampBound && isUsable(connection) ? (TimestampBound) value : null;
+  }
+
+  /** Returns true if the queries on the given connection can be executed at a read timestamp. */
+  private static boolean isUsable(Connection connection) throws SQLException {
+    if (!connection.getAutoCommit() || !connection.isWrapperFor(CloudSpannerJdbcConnection.class)) {
+      return false;
+    }
+    CloudSpannerJdbcConnection spannerConnection =
+        connection.unwrap(CloudSpannerJdbcConnection.class);
+    return !spannerConnection.isDdlBatchActive() && !spannerConnection.isDmlBatchActive();
+  }
+
+  /**
+   * Returns the timestamp of a read-only transaction with the configured staleness, or null if
+   * the timestamp could not be determined.
+   */
+  @Nullable
+  private static Timestamp readTimestamp(Connection connection) throws SQLException {
+    CloudSpannerJdbcConnection spannerConnection =
+        connection.unwrap(CloudSpannerJdbcConnection.class);
+    boolean switchedToReadOnly = !connection.isReadOnly();
+    TimestampBound previousStaleness = spannerConnection.getReadOnlyStaleness();
+    TimestampBound staleness = MetadataStaleness.getConfiguredStaleness();
+    connection.setAutoCommit(false);
+    try {
+      if (switchedToReadOnly) {
+        connection.setReadOnly(true);
+      }
+      spannerConnection.setReadOnlyStaleness(
+          staleness == null
+              ? TimestampBound.strong()
+              : MetadataStaleness.forTransactions(staleness));
+      try (Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery("SELECT 1")) {
+        while (resultSet.next()) {
+          // The read timestamp is assigned by the first query of the transaction.
+        }
+      }
+      Timestamp readTimestamp = spannerConnection.getReadTimestamp();
+      connection.commit();
+      return readTimestamp;
+    } catch (SQLException | RuntimeException e) {
+      connection.rollback();
+      // The snapshot is then read as before, with each query at its own timestamp.
+      Scope.getCurrentScope()
+          .getLog(SnapshotTimestamp.class)
+          .fine("Could not choose a read timestamp for the snapshot", e);
+      return null;
+    } finally {
+      spannerConnection.setReadOnlyStaleness(previousStaleness);
+      if (switchedToReadOnly) {
+        connection.setReadOnly(false);
+      }
+      connection.setAutoCommit(true);
+    }
+  }
+}
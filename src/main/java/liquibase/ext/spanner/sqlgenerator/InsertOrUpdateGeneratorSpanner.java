@@ -17,10 +17,13 @@ import com.google.cloud.spanner.Dialect;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import liquibase.database.Database;
 import liquibase.exception.LiquibaseException;
 import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.SpannerConfiguration;
 import liquibase.sql.Sql;
 import liquibase.sql.UnparsedSql;
 import liquibase.sqlgenerator.SqlGeneratorChain;
@@ -38,20 +41,32 @@ public class InsertOrUpdateGeneratorSpanner extends InsertOrUpdateGenerator {
       InsertOrUpdateStatement insertOrUpdateStatement,
       Database database,
       SqlGeneratorChain sqlGeneratorChain) {
-    // Cloud Spanner does not have an UPSERT / MERGE DML statement, so we will generate both an
-    // INSERT and an UPDATE statement. The INSERT statement will check whether the record already
-    // exists, and only insert it in that case. The record is always updated.
-    //
-    // The most efficient way to do this in Cloud Spanner would be to use an InsertOrUpdate
-    // mutation. That is however not supported through Liquibase, as it requires the update to use
-    // SQL.
+    InsertWithSelectGeneratorSpanner insertGenerator = new InsertWithSelectGeneratorSpanner();
+    if (canUseInsertOrUpdate(insertOrUpdateStatement, database)) {
+      return new Sql[] {
+        ParameterizedSql.transform(
+            insertGenerator.generateSql(insertOrUpdateStatement, database, sqlGeneratorChain)[0],
+            "",
+            insert -> "INSERT OR UPDATE" + insert.substring("INSERT".length()))
+      };
+    }
+    // Otherwise, we will generate both an INSERT and an UPDATE statement. The INSERT statement will
+    // check whether the record already exists, and only insert it in that case. The record is
+    // always updated.
     ArrayList<Sql> sqlList = new ArrayList<>(2);
     if (!insertOrUpdateStatement.getOnlyUpdate()) {
-      sqlList.add(
-          new UnparsedSql(
-              getInsertStatement(insertOrUpdateStatement, database, sqlGeneratorChain),
-              "",
-              getAffectedTable(insertOrUpdateStatement)));
+      if (((ICloudSpanner) database).getDialect() == Dialect.POSTGRESQL) {
+        Sql insert =
+            insertGenerator.generateSql(insertOrUpdateStatement, database, sqlGeneratorChain)[0];
+        String onConflict = getOnConflictClause(insertOrUpdateStatement, database);
+        sqlList.add(ParameterizedSql.transform(insert, "", sql -> sql + onConflict));
+      } else {
+        sqlList.add(
+            new UnparsedSql(
+                getInsertStatement(insertOrUpdateStatement, database, sqlGeneratorChain),
+                "",
+                getAffectedTable(insertOrUpdateStatement)));
+      }
     }
 
     String whereClause = getWhereClause(insertOrUpdateStatement, database);
@@ -70,6 +85,30 @@ public class InsertOrUpdateGeneratorSpanner extends InsertOrUpdateGenerator {
     return sqlList.toArray(new Sql[sqlList.size()]);
   }
 
+  /**
+   * Returns true if the statement can be executed as one GoogleSQL INSERT OR UPDATE statement. That
+   * statement updates all columns of an existing row, so it is only used if all columns may be
+   * updated.
+   */
+  static boolean canUseInsertOrUpdate(
+      InsertOrUpdateStatement insertOrUpdateStatement, Database database) {
+    if (((ICloudSpanner) database).getDialect() != Dialect.GOOGLE_STANDARD_SQL
+        || insertOrUpdateStatement.getOnlyUpdate()
+        || !Boolean.TRUE.equals(SpannerConfiguration.USE_INSERT_OR_UPDATE.getCurrentValue())) {
+      return false;
+    }
+    Set<String> primaryKey = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    for (String column : insertOrUpdateStatement.getPrimaryKey().split(",")) {
+      primaryKey.add(column.trim());
+    }
+    for (String column : insertOrUpdateStatement.getColumnValues().keySet()) {
+      if (!primaryKey.contains(column) && !insertOrUpdateStatement.getAllowColumnUpdate(column)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Override
   protected String getInsertStatement(
       InsertOrUpdateStatement insertOrUpdateStatement,
@@ -84,30 +123,10 @@ public class InsertOrUpdateGeneratorSpanner extends InsertOrUpdateGenerator {
     StringBuilder sql = new StringBuilder(baseInsertSql);
 
     if (dialect == Dialect.POSTGRESQL) {
-      // This ensures that if the row already exists, it will be updated with new values.
-      sql.append(" ON CONFLICT (")
-          .append(
-              Arrays.stream(insertOrUpdateStatement.getPrimaryKey().split(","))
-                  .map(String::trim)
-                  .collect(Collectors.joining(", ")))
-          .append(") DO ");
-      List<String> updateClauses = new ArrayList<>();
-      for (String columnKey : insertOrUpdateStatement.getColumnValues().keySet()) {
-        if (insertOrUpdateStatement.getAllowColumnUpdate(columnKey)) {
-          String escapedCol = database.escapeColumnName(null, null, null, columnKey);
-          updateClauses.add(escapedCol + " = excluded." + escapedCol);
-        }
-      }
-      if (updateClauses.isEmpty()) {
-        // If there's nothing to update, fall back to DO NOTHING
-        sql.append("NOTHING");
-      } else {
-        sql.append("UPDATE SET ").append(String.join(", ", updateClauses));
-      }
-
+      sql.append(getOnConflictClause(insertOrUpdateStatement, database));
     } else {
       // Cloud Spanner workaround: simulate "INSERT IF NOT EXISTS" using SELECT-FROM-UNNEST.
-      // This logic predates Spanner's native UPSERT support and is kept for backward compatibility.
+      // This is used for databases that do not support INSERT OR UPDATE.
       sql.append(" FROM UNNEST([1])") // Only SELECTs with FROM can have WHERE
           .append(" WHERE NOT EXISTS (")
           .append("SELECT ")
@@ -126,6 +145,32 @@ public class InsertOrUpdateGeneratorSpanner extends InsertOrUpdateGenerator {
     return sql.toString();
   }
 
+  private static String getOnConflictClause(
+      InsertOrUpdateStatement insertOrUpdateStatement, Database database) {
+    // This ensures that if the row already exists, it will be updated with new values.
+    StringBuilder sql = new StringBuilder();
+    sql.append(" ON CONFLICT (")
+        .append(
+            Arrays.stream(insertOrUpdateStatement.getPrimaryKey().split(","))
+                .map(String::trim)
+                .collect(Collectors.joining(", ")))
+        .append(") DO ");
+    List<String> updateClauses = new ArrayList<>();
+    for (String columnKey : insertOrUpdateStatement.getColumnValues().keySet()) {
+      if (insertOrUpdateStatement.getAllowColumnUpdate(columnKey)) {
+        String escapedCol = database.escapeColumnName(null, null, null, columnKey);
+        updateClauses.add(escapedCol + " = excluded." + escapedCol);
+      }
+    }
+    if (updateClauses.isEmpty()) {
+      // If there's nothing to update, fall back to DO NOTHING
+      sql.append("NOTHING");
+    } else {
+      sql.append("UPDATE SET ").append(String.join(", ", updateClauses));
+    }
+    return sql.toString();
+  }
+
   @Override
   protected String getRecordCheck(
       InsertOrUpdateStatement insertOrUpdateStatement, Database database, String whereClause) {
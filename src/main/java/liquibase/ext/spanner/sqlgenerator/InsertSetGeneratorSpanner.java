@@ -0,0 +1,198 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.sqlgenerator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import liquibase.database.Database;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.sql.Sql;
+import liquibase.sql.UnparsedSql;
+import liquibase.sqlgenerator.SqlGenerator;
+import liquibase.sqlgenerator.SqlGeneratorChain;
+import liquibase.sqlgenerator.SqlGeneratorFactory;
+import liquibase.sqlgenerator.core.InsertSetGenerator;
+import liquibase.statement.core.InsertOrUpdateStatement;
+import liquibase.statement.core.InsertSetStatement;
+import liquibase.statement.core.InsertStatement;
+import liquibase.structure.core.Relation;
+import liquibase.structure.core.Table;
+
+/**
+ * Generates multi-row 'INSERT [OR UPDATE] INTO FOO (..) VALUES (..), (..)' statements for a set of
+ * insert statements. Consecutive rows with the same column list are merged into one statement,
+ * until the statement reaches the batch threshold of the set, the maximum statement size or the
+ * maximum number of mutations. Values are sent as query parameters if {@link
+ * SpannerConfiguration#PARAMETERIZED_INSERTS} is enabled, which also limits the number of rows per
+ * statement.
+ *
+ * <p>Rows that cannot be written with one statement, such as upserts on PostgreSQL-dialect
+ * databases, are generated with the generator for the individual statement.
+ */
+public class InsertSetGeneratorSpanner extends InsertSetGenerator {
+  /** Spanner accepts SQL strings up to 1 MiB. Some room is left for the query parameters. */
+  static final int MAX_STATEMENT_BYTES = 1_000_000;
+
+  /** The maximum number of mutations in one commit. */
+  static final int MAX_MUTATIONS = 80_000;
+
+  /** The maximum number of query parameters in one statement. */
+  static final int MAX_PARAMETERS = 950;
+
+  @Override
+  public int getPriority() {
+    return SqlGenerator.PRIORITY_DATABASE;
+  }
+
+  @Override
+  public boolean supports(InsertSetStatement statement, Database database) {
+    return database instanceof ICloudSpanner;
+  }
+
+  @Override
+  public Sql[] generateSql(
+      InsertSetStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
+    InsertWithSelectGeneratorSpanner valueGenerator = new InsertWithSelectGeneratorSpanner();
+    Integer maxMutationsPerCommit =
+        SpannerConfiguration.LOAD_DATA_MAX_MUTATIONS_PER_COMMIT.getCurrentValue();
+    int maxMutations =
+        maxMutationsPerCommit == null || maxMutationsPerCommit <= 0
+            ? MAX_MUTATIONS
+            : maxMutationsPerCommit;
+    int maxRows = Math.max(1, statement.getBatchThreshold());
+
+    boolean parameterized = InsertWithSelectGeneratorSpanner.isParameterized();
+    Relation table = toAffectedTable(statement);
+    List<Sql> result = new ArrayList<>();
+    Batch batch = null;
+    for (InsertStatement row : statement.getStatements()) {
+      String rowHeader = getHeader(valueGenerator, row, database);
+      if (rowHeader == null) {
+        if (batch != null) {
+          result.add(batch.toSql(table));
+          batch = null;
+        }
+        result.addAll(Arrays.asList(SqlGeneratorFactory.getInstance().generateSql(row, database)));
+        continue;
+      }
+      StringBuilder values = new StringBuilder("(");
+      StringBuilder parameterizedValues = parameterized ? new StringBuilder("(") : null;
+      List<Object> parameters = new ArrayList<>();
+      valueGenerator.appendValues(values, parameterizedValues, parameters, row, database);
+      values.append(')');
+      if (parameterizedValues != null) {
+        parameterizedValues.append(')');
+      }
+      int valueBytes = utf8Length(values) + 2;
+      int columns = row.getColumnValues().size();
+      if (batch != null
+          && (!rowHeader.equals(batch.header)
+              || batch.rows >= maxRows
+              || batch.bytes + valueBytes > MAX_STATEMENT_BYTES
+              || (long) (batch.rows + 1) * columns > maxMutations
+              || batch.parameters.size() + parameters.size() > MAX_PARAMETERS)) {
+        result.add(batch.toSql(table));
+        batch = null;
+      }
+      if (batch == null) {
+        batch = new Batch(rowHeader, parameterized);
+      }
+      batch.add(values, parameterizedValues, parameters, valueBytes);
+    }
+    if (batch != null) {
+      result.add(batch.toSql(table));
+    }
+    return result.toArray(new Sql[0]);
+  }
+
+  /** The rows that are merged into one statement. */
+  private static class Batch {
+    private final String header;
+    private final StringBuilder sql;
+    @Nullable private final StringBuilder parameterizedSql;
+    private final List<Object> parameters = new ArrayList<>();
+    private int rows;
+    private int bytes;
+
+    private Batch(String header, boolean parameterized) {
+      this.header = header;
+      this.sql = new StringBuilder(header).append(" VALUES ");
+      this.parameterizedSql = parameterized ? new StringBuilder(sql) : null;
+      this.bytes = utf8Length(sql);
+    }
+
+    private void add(
+        CharSequence values,
+        @Nullable CharSequence parameterizedValues,
+        List<Object> rowParameters,
+        int valueBytes) {
+      if (rows > 0) {
+        sql.append(", ");
+        if (parameterizedSql != null) {
+          parameterizedSql.append(", ");
+        }
+      }
+      sql.append(values);
+      if (parameterizedSql != null) {
+        parameterizedSql.append(parameterizedValues);
+      }
+      parameters.addAll(rowParameters);
+      rows++;
+      bytes += valueBytes;
+    }
+
+    private Sql toSql(Relation table) {
+      if (parameterizedSql == null || parameters.isEmpty()) {
+        return new UnparsedSql(sql.toString(), table);
+      }
+      return new ParameterizedSql(
+          sql.toString(), parameterizedSql.toString(), parameters, ";", table);
+    }
+  }
+
+  /**
+   * Returns the 'INSERT [OR UPDATE] INTO FOO (..)' part of the statement for the given row, or null
+   * if the row cannot be merged with other rows.
+   */
+  @Nullable
+  private static String getHeader(
+      InsertWithSelectGeneratorSpanner valueGenerator, InsertStatement row, Database database) {
+    if (row.getColumnValues().isEmpty()) {
+      return null;
+    }
+    String header = valueGenerator.generateInsertHeader(row, database);
+    if (row instanceof InsertOrUpdateStatement) {
+      if (!InsertOrUpdateGeneratorSpanner.canUseInsertOrUpdate(
+          (InsertOrUpdateStatement) row, database)) {
+        return null;
+      }
+      return "INSERT OR UPDATE" + header.substring("INSERT".length());
+    }
+    return header;
+  }
+
+  private static int utf8Length(CharSequence sql) {
+    return sql.toString().getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  private static Relation toAffectedTable(InsertSetStatement statement) {
+    return new Table()
+        .setName(statement.getTableName())
+        .setSchema(statement.getCatalogName(), statement.getSchemaName());
+  }
+}
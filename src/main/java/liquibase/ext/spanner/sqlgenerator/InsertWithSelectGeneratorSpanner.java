@@ -14,10 +14,14 @@
 package liquibase.ext.spanner.sqlgenerator;
 
 import com.google.cloud.spanner.Dialect;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import javax.annotation.Nullable;
 import liquibase.database.Database;
 import liquibase.datatype.DataTypeFactory;
 import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.ext.spanner.SpannerConfiguration;
 import liquibase.sql.Sql;
 import liquibase.sql.UnparsedSql;
 import liquibase.sqlgenerator.SqlGeneratorChain;
@@ -43,7 +47,38 @@ public class InsertWithSelectGeneratorSpanner extends InsertGenerator {
   public Sql[] generateSql(
       InsertStatement statement, Database database, SqlGeneratorChain sqlGeneratorChain) {
     // Generate INSERT INTO (...) header.
-    Dialect dialect = ((ICloudSpanner) database).getDialect();
+    StringBuilder sql = new StringBuilder(generateInsertHeader(statement, database));
+
+    // Generate SELECT ... statement.
+    sql.append(" SELECT ");
+    if (isParameterized()) {
+      StringBuilder parameterizedSql = new StringBuilder(sql);
+      List<Object> parameters = new ArrayList<>();
+      appendValues(sql, parameterizedSql, parameters, statement, database);
+      if (!parameters.isEmpty()) {
+        return new Sql[] {
+          new ParameterizedSql(
+              sql.toString(),
+              parameterizedSql.toString(),
+              parameters,
+              ";",
+              getAffectedTable(statement))
+        };
+      }
+    } else {
+      appendValues(sql, statement, database);
+    }
+
+    return new Sql[] {new UnparsedSql(sql.toString(), getAffectedTable(statement))};
+  }
+
+  /** Returns true if values should be sent as query parameters instead of literals. */
+  static boolean isParameterized() {
+    return Boolean.TRUE.equals(SpannerConfiguration.PARAMETERIZED_INSERTS.getCurrentValue());
+  }
+
+  /** Returns the 'INSERT INTO FOO (..)' part of an insert statement. */
+  String generateInsertHeader(InsertStatement statement, Database database) {
     StringBuilder sql = new StringBuilder();
     sql.append("INSERT INTO ")
         .append(
@@ -65,43 +100,90 @@ public class InsertWithSelectGeneratorSpanner extends InsertGenerator {
               column));
     }
     sql.append(")");
+    return sql.toString();
+  }
 
-    // Generate SELECT ... statement.
-    sql.append(" SELECT ");
-    first = true;
+  /**
+   * Appends the comma-separated literal values of the given statement. The values can be used both
+   * in a SELECT list and in a VALUES clause.
+   */
+  void appendValues(StringBuilder sql, InsertStatement statement, Database database) {
+    appendValues(sql, null, null, statement, database);
+  }
+
+  /**
+   * Appends the comma-separated literal values of the given statement to {@code sql}. If {@code
+   * parameterizedSql} is not null, the same values are also appended to it, except that values
+   * that can be bound as query parameters are replaced by a '?' placeholder and added to {@code
+   * parameters}.
+   */
+  void appendValues(
+      StringBuilder sql,
+      @Nullable StringBuilder parameterizedSql,
+      @Nullable List<Object> parameters,
+      InsertStatement statement,
+      Database database) {
+    boolean first = true;
     for (String column : statement.getColumnValues().keySet()) {
       if (first) {
         first = false;
       } else {
         sql.append(", ");
+        if (parameterizedSql != null) {
+          parameterizedSql.append(", ");
+        }
       }
       Object newValue = statement.getColumnValues().get(column);
-      if ((newValue == null) || "NULL".equalsIgnoreCase(newValue.toString())) {
-        sql.append("NULL");
-      } else if ((newValue instanceof String)
-          && !looksLikeFunctionCall(((String) newValue), database)) {
-        sql.append(
-                DataTypeFactory.getInstance()
-                    .fromObject(newValue, database)
-                    .objectToSql(newValue, database))
-            .append(dialect == Dialect.POSTGRESQL ? "::varchar" : "");
-      } else if (newValue instanceof Date) {
-        sql.append(database.getDateLiteral(((Date) newValue)));
-      } else if (newValue instanceof Boolean) {
-        sql.append(
-            ((Boolean) newValue)
-                ? DataTypeFactory.getInstance().getTrueBooleanValue(database)
-                : DataTypeFactory.getInstance().getFalseBooleanValue(database));
-        if (dialect == Dialect.POSTGRESQL) {
-          sql.append("::boolean");
+      String literal = toLiteral(newValue, database);
+      sql.append(literal);
+      if (parameterizedSql != null && parameters != null) {
+        if (isBindable(newValue, database)) {
+          parameterizedSql.append('?');
+          parameters.add(newValue);
+        } else {
+          parameterizedSql.append(literal);
         }
-      } else if (newValue instanceof DatabaseFunction) {
-        sql.append(database.generateDatabaseFunctionValue((DatabaseFunction) newValue));
-      } else {
-        sql.append(newValue);
       }
     }
+  }
 
-    return new Sql[] {new UnparsedSql(sql.toString(), getAffectedTable(statement))};
+  private boolean isBindable(@Nullable Object value, Database database) {
+    if ((value == null) || "NULL".equalsIgnoreCase(value.toString())) {
+      return false;
+    }
+    if ((value instanceof String) && looksLikeFunctionCall(((String) value), database)) {
+      return false;
+    }
+    return ParameterizedSql.isBindable(value);
+  }
+
+  private String toLiteral(@Nullable Object newValue, Database database) {
+    Dialect dialect = ((ICloudSpanner) database).getDialect();
+    StringBuilder sql = new StringBuilder();
+    if ((newValue == null) || "NULL".equalsIgnoreCase(newValue.toString())) {
+      sql.append("NULL");
+    } else if ((newValue instanceof String)
+        && !looksLikeFunctionCall(((String) newValue), database)) {
+      sql.append(
+              DataTypeFactory.getInstance()
+                  .fromObject(newValue, database)
+                  .objectToSql(newValue, database))
+          .append(dialect == Dialect.POSTGRESQL ? "::varchar" : "");
+    } else if (newValue instanceof Date) {
+      sql.append(database.getDateLiteral(((Date) newValue)));
+    } else if (newValue instanceof Boolean) {
+      sql.append(
+          ((Boolean) newValue)
+              ? DataTypeFactory.getInstance().getTrueBooleanValue(database)
+              : DataTypeFactory.getInstance().getFalseBooleanValue(database));
+      if (dialect == Dialect.POSTGRESQL) {
+        sql.append("::boolean");
+      }
+    } else if (newValue instanceof DatabaseFunction) {
+      sql.append(database.generateDatabaseFunctionValue((DatabaseFunction) newValue));
+    } else {
+      sql.append(newValue);
+    }
+    return sql.toString();
   }
 }
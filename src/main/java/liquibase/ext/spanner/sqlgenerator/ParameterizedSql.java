@@ -0,0 +1,134 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.sqlgenerator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import liquibase.sql.Sql;
+import liquibase.sql.UnparsedSql;
+import liquibase.structure.DatabaseObject;
+
+/**
+ * SQL statement with query parameters. {@link #toSql()} returns the statement with all values
+ * inlined as literals, which is used for logging and for updateSql. The Spanner JDBC executor
+ * executes {@link #getParameterizedSql()} with the values bound as query parameters instead, so
+ * that rows with the same shape share one statement text and one query plan.
+ */
+public class ParameterizedSql extends UnparsedSql {
+  private final String parameterizedSql;
+  private final List<Object> parameters;
+
+  public ParameterizedSql(
+      String literalSql,
+      String parameterizedSql,
+      List<Object> parameters,
+      String endDelimiter,
+      DatabaseObject... affectedDatabaseObjects) {
+    super(literalSql, endDelimiter, affectedDatabaseObjects);
+    this.parameterizedSql = parameterizedSql;
+    this.parameters = Collections.unmodifiableList(new ArrayList<>(parameters));
+  }
+
+  /** Returns the SQL statement with a '?' placeholder for each parameter. */
+  public String getParameterizedSql() {
+    return parameterizedSql;
+  }
+
+  public List<Object> getParameters() {
+    return parameters;
+  }
+
+  /** Binds the parameters of this statement to the given JDBC statement. */
+  public void bindParameters(PreparedStatement statement) throws SQLException {
+    for (int i = 0; i < parameters.size(); i++) {
+      Object value = parameters.get(i);
+      int index = i + 1;
+      if (value instanceof Boolean) {
+        statement.setBoolean(index, (Boolean) value);
+      } else if (value instanceof Number) {
+        statement.setLong(index, toBigDecimal((Number) value).longValueExact());
+      } else if (value instanceof java.sql.Date) {
+        statement.setDate(index, (java.sql.Date) value);
+      } else if (value instanceof Timestamp) {
+        statement.setTimestamp(index, (Timestamp) value);
+      } else if (value instanceof java.util.Date) {
+        statement.setTimestamp(index, new Timestamp(((java.util.Date) value).getTime()));
+      } else {
+        statement.setString(index, value.toString());
+      }
+    }
+  }
+
+  /**
+   * Returns true if the given value can be bound as a query parameter without changing the type
+   * that Spanner infers for it. Other values, such as NULL, functions and numbers with a fraction,
+   * are kept as literals.
+   */
+  static boolean isBindable(Object value) {
+    if (value instanceof String || value instanceof Boolean) {
+      return true;
+    }
+    if (value instanceof Long
+        || value instanceof Integer
+        || value instanceof Short
+        || value instanceof Byte
+        || value instanceof BigInteger
+        || value instanceof BigDecimal) {
+      // Integer values are sent as INT64, which Spanner coerces to NUMERIC and FLOAT64 columns.
+      BigDecimal number = toBigDecimal((Number) value);
+      return number.signum() == 0
+          || (number.stripTrailingZeros().scale() <= 0
+              && number.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0
+              && number.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) >= 0);
+    }
+    return value instanceof java.sql.Date
+        || value instanceof Timestamp
+        || (value instanceof java.util.Date && !(value instanceof java.sql.Time));
+  }
+
+  private static BigDecimal toBigDecimal(Number value) {
+    if (value instanceof BigDecimal) {
+      return (BigDecimal) value;
+    }
+    if (value instanceof BigInteger) {
+      return new BigDecimal((BigInteger) value);
+    }
+    return BigDecimal.valueOf(value.longValue());
+  }
+
+  /**
+   * Applies the given function to the text of the given SQL statement. The parameters of a {@link
+   * ParameterizedSql} are retained.
+   */
+  static Sql transform(Sql sql, String endDelimiter, UnaryOperator<String> function) {
+    DatabaseObject[] affected = sql.getAffectedDatabaseObjects().toArray(new DatabaseObject[0]);
+    if (sql instanceof ParameterizedSql) {
+      ParameterizedSql parameterized = (ParameterizedSql) sql;
+      return new ParameterizedSql(
+          function.apply(parameterized.toSql()),
+          function.apply(parameterized.getParameterizedSql()),
+          parameterized.getParameters(),
+          endDelimiter,
+          affected);
+    }
+    return new UnparsedSql(function.apply(sql.toSql()), endDelimiter, affected);
+  }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.sqlgenerator;
+
+import com.google.cloud.spanner.Dialect;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import liquibase.database.Database;
+import liquibase.exception.ValidationErrors;
+import liquibase.ext.spanner.ICloudSpanner;
+import liquibase.sql.Sql;
+import liquibase.sql.UnparsedSql;
+import liquibase.sqlgenerator.SqlGeneratorChain;
+import liquibase.sqlgenerator.SqlGeneratorFactory;
+import liquibase.sqlgenerator.core.AbstractSqlGenerator;
+
+/**
+ * Generates the SQL of a {@link PartitionedDmlStatement}. The generated script switches the
+ * connection to Partitioned DML before the statement and back to transactional DML after it. The
+ * Spanner JDBC executor does not execute this script, but executes the wrapped statement directly
+ * with the same connection settings.
+ */
+public class PartitionedDmlGeneratorSpanner extends AbstractSqlGenerator<PartitionedDmlStatement> {
+
+  @Override
+  public int getPriority() {
+    return PRIORITY_DATABASE;
+  }
+
+  @Override
+  public boolean supports(PartitionedDmlStatement statement, Database database) {
+    return database instanceof ICloudSpanner;
+  }
+
+  @Override
+  public ValidationErrors validate(
+      PartitionedDmlStatement statement,
+      Database database,
+      SqlGeneratorChain<PartitionedDmlStatement> sqlGeneratorChain) {
+    return SqlGeneratorFactory.getInstance().validate(statement.getStatement(), database);
+  }
+
+  @Override
+  public Sql[] generateSql(
+      PartitionedDmlStatement statement,
+      Database database,
+      SqlGeneratorChain<PartitionedDmlStatement> sqlGeneratorChain) {
+    boolean postgreSQL = ((ICloudSpanner) database).getDialect() == Dialect.POSTGRESQL;
+    List<Sql> sql = new ArrayList<>();
+    if (postgreSQL) {
+      sql.add(new UnparsedSql("set autocommit=true"));
+      sql.add(new UnparsedSql("set spanner.autocommit_dml_mode='partitioned_non_atomic'"));
+    } else {
+      sql.add(new UnparsedSql("SET AUTOCOMMIT=TRUE"));
+      sql.add(new UnparsedSql("SET AUTOCOMMIT_DML_MODE='PARTITIONED_NON_ATOMIC'"));
+    }
+    sql.addAll(
+        Arrays.asList(
+            SqlGeneratorFactory.getInstance().generateSql(statement.getStatement(), database)));
+    if (postgreSQL) {
+      sql.add(new UnparsedSql("set spanner.autocommit_dml_mode='transactional'"));
+    } else {
+      sql.add(new UnparsedSql("SET AUTOCOMMIT_DML_MODE='TRANSACTIONAL'"));
+    }
+    return sql.toArray(new Sql[0]);
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.sqlgenerator;
+
+import javax.annotation.Nullable;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.statement.AbstractSqlStatement;
+import liquibase.statement.SqlStatement;
+
+/**
+ * Wraps an UPDATE or DELETE statement that should be executed as Partitioned DML. Partitioned DML
+ * is not bound by the mutation limit of a transaction, but is also not atomic. The statement is
+ * executed in autocommit mode, which means that any statements that were executed before it in the
+ * same changeset are committed first.
+ *
+ * <p>A statement with a row threshold is only executed as Partitioned DML if its table has more
+ * rows than the threshold. It is otherwise executed as a normal statement in the current
+ * transaction.
+ */
+public class PartitionedDmlStatement extends AbstractSqlStatement {
+  private final SqlStatement statement;
+  @Nullable private Long rowThreshold;
+  @Nullable private String escapedTableName;
+
+  public PartitionedDmlStatement(SqlStatement statement) {
+    this.statement = statement;
+  }
+
+  /**
+   * Only executes the statement as Partitioned DML if the given table has more than the given
+   * number of rows.
+   */
+  public PartitionedDmlStatement withRowThreshold(long rowThreshold, String escapedTableName) {
+    this.rowThreshold = rowThreshold;
+    this.escapedTableName = escapedTableName;
+    return this;
+  }
+
+  /** Returns the UPDATE or DELETE statement that should be executed as Partitioned DML. */
+  public SqlStatement getStatement() {
+    return statement;
+  }
+
+  /** Returns the row threshold, or null if the statement is always executed as Partitioned DML. */
+  @Nullable
+  public Long getRowThreshold() {
+    return rowThreshold;
+  }
+
+  /** Returns the escaped name of the table whose rows are compared with the row threshold. */
+  @Nullable
+  public String getEscapedTableName() {
+    return escapedTableName;
+  }
+
+  /**
+   * Returns true if a statement with the given WHERE clause should be executed as Partitioned DML.
+   * An explicit value for the change takes precedence over {@link
+   * SpannerConfiguration#PARTITIONED_DML_WITHOUT_WHERE}, which only applies to statements without a
+   * WHERE clause.
+   */
+  public static boolean isPartitioned(@Nullable Boolean partitioned, @Nullable String where) {
+    if (partitioned != null) {
+      return partitioned;
+    }
+    Boolean withoutWhere = SpannerConfiguration.PARTITIONED_DML_WITHOUT_WHERE.getCurrentValue();
+    return (where == null || where.trim().isEmpty()) && Boolean.TRUE.equals(withoutWhere);
+  }
+}
@@ -80,6 +80,9 @@ public abstract class AbstractMockServerTest {
   static final Statement RELEASE_LOCK =
       Statement.of(
           "UPDATE DATABASECHANGELOGLOCK SET LOCKED = FALSE, LOCKEDBY = NULL, LOCKGRANTED = NULL WHERE ID = 1");
+  static final Statement RELEASE_LEASE =
+      Statement.of(
+          "UPDATE DATABASECHANGELOGLOCK SET LOCKED = FALSE, LOCKEDBY = NULL, LOCKGRANTED = NULL WHERE ID = 1 AND LOCKEDBY = ");
   static final Statement SELECT_MD5SUM =
       Statement.of(
           "SELECT MD5SUM FROM DATABASECHANGELOG WHERE MD5SUM IS NOT NULL AND MD5SUM NOT LIKE '9:%'");
@@ -89,14 +92,25 @@ public abstract class AbstractMockServerTest {
       Statement.of(
           "INSERT INTO DATABASECHANGELOG (ID, AUTHOR, FILENAME, DATEEXECUTED, ORDEREXECUTED, MD5SUM, DESCRIPTION, COMMENTS, EXECTYPE, CONTEXTS, LABELS, LIQUIBASE, DEPLOYMENT_ID)");
 
-  static final String GET_COLUMN_DEFAULT_STATEMENT =
-      "SELECT DISTINCT COLUMN_DEFAULT AS COLUMN_DEF FROM INFORMATION_SCHEMA.COLUMNS WHERE LOWER(TABLE_CATALOG) = ? AND LOWER(TABLE_SCHEMA) = ? AND LOWER(TABLE_NAME) = ? AND LOWER(COLUMN_NAME) = ?";
-
-  static final String GET_SPANNER_TYPE_STATEMENT =
-      "SELECT SPANNER_TYPE FROM INFORMATION_SCHEMA.COLUMNS "
-          + "WHERE LOWER(TABLE_SCHEMA) = ? "
-          + "AND LOWER(TABLE_NAME) = ? "
-          + "AND LOWER(COLUMN_NAME) = ?";
+  static final String GET_SCHEMA_COLUMNS_STATEMENT =
+      "SELECT TABLE_NAME, COLUMN_NAME, COLUMN_DEFAULT AS COLUMN_DEF, SPANNER_TYPE "
+          + "FROM INFORMATION_SCHEMA.COLUMNS "
+          + "WHERE LOWER(TABLE_CATALOG) = ? "
+          + "AND LOWER(TABLE_SCHEMA) = ?";
+
+  static final String GET_SCHEMA_INDEX_COLUMNS_STATEMENT =
+      "SELECT IDX.TABLE_NAME, IDX.INDEX_NAME, IDX.IS_UNIQUE, IDX.IS_NULL_FILTERED, "
+          + "COL.COLUMN_NAME, COL.ORDINAL_POSITION, COL.COLUMN_ORDERING "
+          + "FROM INFORMATION_SCHEMA.INDEXES IDX "
+          + "INNER JOIN INFORMATION_SCHEMA.INDEX_COLUMNS COL "
+          + "ON IDX.TABLE_CATALOG = COL.TABLE_CATALOG "
+          + "AND IDX.TABLE_SCHEMA = COL.TABLE_SCHEMA "
+          + "AND IDX.TABLE_NAME = COL.TABLE_NAME "
+          + "AND IDX.INDEX_NAME = COL.INDEX_NAME "
+          + "WHERE LOWER(IDX.TABLE_CATALOG) = ? "
+          + "AND LOWER(IDX.TABLE_SCHEMA) = ? "
+          + "AND IDX.INDEX_TYPE IN ('INDEX', 'PRIMARY_KEY') "
+          + "ORDER BY IDX.TABLE_NAME, IDX.INDEX_NAME, COL.ORDINAL_POSITION";
 
   private static final ResultSetMetadata SINGLE_COL_INT64_METADATA =
       ResultSetMetadata.newBuilder()
@@ -120,6 +134,32 @@ public abstract class AbstractMockServerTest {
                           .build())
                   .build())
           .build();
+  private static final ResultSetMetadata SCHEMA_COLUMNS_METADATA =
+      ResultSetMetadata.newBuilder()
+          .setRowType(
+              StructType.newBuilder()
+                  .addFields(
+                      Field.newBuilder()
+                          .setName("TABLE_NAME")
+                          .setType(Type.newBuilder().setCode(TypeCode.STRING).build())
+                          .build())
+                  .addFields(
+                      Field.newBuilder()
+                          .setName("COLUMN_NAME")
+                          .setType(Type.newBuilder().setCode(TypeCode.STRING).build())
+                          .build())
+                  .addFields(
+                      Field.newBuilder()
+                          .setName("COLUMN_DEF")
+                          .setType(Type.newBuilder().setCode(TypeCode.STRING).build())
+                          .build())
+                  .addFields(
+                      Field.newBuilder()
+                          .setName("SPANNER_TYPE")
+                          .setType(Type.newBuilder().setCode(TypeCode.STRING).build())
+                          .build())
+                  .build())
+          .build();
   private static final ResultSetMetadata MD5SUM_METADATA =
       ResultSetMetadata.newBuilder()
           .setRowType(
@@ -149,6 +189,9 @@ public abstract class AbstractMockServerTest {
 
   static void startStaticServer(@Nullable String liquibaseSchema, @Nullable String defaultSchema)
       throws IOException {
+    // The tests create the JDBC connections themselves. Replace these with connections that
+    // include the Liquibase user-agent, so the server can verify that it is sent.
+    System.setProperty(SpannerConfiguration.REPLACE_USER_CONNECTION.getKey(), "true");
     mockSpanner = new MockSpannerServiceImpl();
     mockSpanner.setAbortProbability(0.0D);
     mockAdmin = new MockDatabaseAdminImpl();
@@ -252,6 +295,10 @@ public abstract class AbstractMockServerTest {
             .put("DEPLOYMENT_ID", "character varying")
             .build();
 
+    // Chooses the read timestamp of a snapshot.
+    mockSpanner.putStatementResult(
+        StatementResult.query(Statement.of("SELECT 1"), createInt64ResultSet(1L)));
+
     for (Dialect dialect : Dialect.values()) {
       String catalog = dialect == Dialect.POSTGRESQL ? "DB_PG" : "";
       String schema = defaultSchema;
@@ -469,84 +516,31 @@ public abstract class AbstractMockServerTest {
                             0,
                             DatabaseMetaData.columnNoNulls)))));
 
-        AbstractStatementParser.ParametersInfo paramsSpannerType =
-            parser.convertPositionalParametersToNamedParameters('?', GET_SPANNER_TYPE_STATEMENT);
-
-        AbstractStatementParser.ParametersInfo paramsSpannerDefault =
-            parser.convertPositionalParametersToNamedParameters('?', GET_COLUMN_DEFAULT_STATEMENT);
-
-        for (Map.Entry<String, String> entry : databaseChangeLogColumnTypes.entrySet()) {
-          String column = entry.getKey();
-          String type = entry.getValue();
-
-          if (dialect == Dialect.POSTGRESQL) {
-            mockSpanner.putStatementResult(
-                StatementResult.query(
-                    Statement.newBuilder(paramsSpannerType.sqlWithNamedParameters)
-                        .bind("p1")
-                        .to(schemaName.toLowerCase())
-                        .bind("p2")
-                        .to("databasechangelog")
-                        .bind("p3")
-                        .to(column.toLowerCase())
-                        .build(),
-                    ResultSet.newBuilder()
-                        .setMetadata(
-                            ResultSetMetadata.newBuilder()
-                                .setRowType(
-                                    StructType.newBuilder()
-                                        .addFields(
-                                            Field.newBuilder()
-                                                .setName("SPANNER_TYPE")
-                                                .setType(
-                                                    Type.newBuilder()
-                                                        .setCode(TypeCode.STRING)
-                                                        .build())
-                                                .build())
-                                        .build())
-                                .build())
-                        .addRows(
-                            ListValue.newBuilder()
-                                .addValues(Value.newBuilder().setStringValue(type).build())
-                                .build())
-                        .build()));
-          }
-
-          // TODO: Remove when the JDBC driver includes the column default in getColumns
-          mockSpanner.putStatementResult(
-              StatementResult.query(
-                  Statement.newBuilder(paramsSpannerDefault.sqlWithNamedParameters)
-                      .bind("p1")
-                      .to(catalog.toLowerCase())
-                      .bind("p2")
-                      .to(schemaName.toLowerCase())
-                      .bind("p3")
-                      .to("databasechangelog")
-                      .bind("p4")
-                      .to(column.toLowerCase())
-                      .build(),
-                  ResultSet.newBuilder()
-                      .setMetadata(
-                          ResultSetMetadata.newBuilder()
-                              .setRowType(
-                                  StructType.newBuilder()
-                                      .addFields(
-                                          Field.newBuilder()
-                                              .setName("COLUMN_DEF")
-                                              .setType(
-                                                  Type.newBuilder()
-                                                      .setCode(TypeCode.STRING)
-                                                      .build())
-                                              .build())
-                                      .build())
-                              .build())
-                      .addRows(
-                          ListValue.newBuilder()
-                              .addValues(
-                                  Value.newBuilder().setNullValue(NullValue.NULL_VALUE).build())
-                              .build())
-                      .build()));
-        }
+        AbstractStatementParser.ParametersInfo paramsSchemaColumns =
+            parser.convertPositionalParametersToNamedParameters('?', GET_SCHEMA_COLUMNS_STATEMENT);
+
+        // TODO: Remove when the JDBC driver includes the column default in getColumns
+        mockSpanner.putStatementResult(
+            StatementResult.query(
+                Statement.newBuilder(paramsSchemaColumns.sqlWithNamedParameters)
+                    .bind("p1")
+                    .to(catalog.toLowerCase())
+                    .bind("p2")
+                    .to(schemaName.toLowerCase())
+                    .build(),
+                createSchemaColumnsResultSet("DATABASECHANGELOG", databaseChangeLogColumnTypes)));
+        AbstractStatementParser.ParametersInfo paramsSchemaIndexColumns =
+            parser.convertPositionalParametersToNamedParameters(
+                '?', GET_SCHEMA_INDEX_COLUMNS_STATEMENT);
+        mockSpanner.putStatementResult(
+            StatementResult.query(
+                Statement.newBuilder(paramsSchemaIndexColumns.sqlWithNamedParameters)
+                    .bind("p1")
+                    .to(catalog.toLowerCase())
+                    .bind("p2")
+                    .to(schemaName.toLowerCase())
+                    .build(),
+                createSchemaIndexColumnsResultSet(dialect, false, ImmutableList.of())));
       }
 
       // Register results for an empty Liquibase database.
@@ -574,6 +568,8 @@ public abstract class AbstractMockServerTest {
           StatementResult.update(applySchema(ACQUIRE_LOCK, liquibaseSchema), 1L));
       mockSpanner.putStatementResult(
           StatementResult.update(applySchema(RELEASE_LOCK, liquibaseSchema), 1L));
+      mockSpanner.putPartialStatementResult(
+          StatementResult.update(applySchema(RELEASE_LEASE, liquibaseSchema), 1L));
       mockSpanner.putStatementResult(
           StatementResult.query(
               applySchema(SELECT_MD5SUM, liquibaseSchema),
@@ -588,6 +584,7 @@ public abstract class AbstractMockServerTest {
 
   @AfterAll
   static void stopServer() throws Exception {
+    System.clearProperty(SpannerConfiguration.REPLACE_USER_CONNECTION.getKey());
     // Make sure to close all connections before we stop the mock server.
     try {
       ConnectionOptions.closeSpanner();
@@ -627,6 +624,81 @@ public abstract class AbstractMockServerTest {
         .build();
   }
 
+  /**
+   * Creates a result for the schema columns query. The keys of the map are the column names and the
+   * values are the Spanner types. None of the columns has a default value.
+   */
+  static ResultSet createSchemaColumnsResultSet(String table, Map<String, String> columnTypes) {
+    ResultSet.Builder builder = ResultSet.newBuilder().setMetadata(SCHEMA_COLUMNS_METADATA);
+    for (Map.Entry<String, String> column : columnTypes.entrySet()) {
+      builder.addRows(
+          ListValue.newBuilder()
+              .addValues(Value.newBuilder().setStringValue(table).build())
+              .addValues(Value.newBuilder().setStringValue(column.getKey()).build())
+              .addValues(Value.newBuilder().setNullValue(NullValue.NULL_VALUE).build())
+              .addValues(Value.newBuilder().setStringValue(column.getValue()).build())
+              .build());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates a result for the schema index columns query. GoogleSQL returns the flags of an index as
+   * BOOL values, and PostgreSQL returns them as YES/NO strings.
+   */
+  static ResultSet createSchemaIndexColumnsResultSet(
+      Dialect dialect, boolean nullFiltered, Iterable<JdbcMetadataQueries.IndexMetaData> columns) {
+    TypeCode flagType = dialect == Dialect.POSTGRESQL ? TypeCode.STRING : TypeCode.BOOL;
+    ResultSet.Builder builder =
+        ResultSet.newBuilder()
+            .setMetadata(
+                ResultSetMetadata.newBuilder()
+                    .setRowType(
+                        StructType.newBuilder()
+                            .addFields(createField("TABLE_NAME", TypeCode.STRING))
+                            .addFields(createField("INDEX_NAME", TypeCode.STRING))
+                            .addFields(createField("IS_UNIQUE", flagType))
+                            .addFields(createField("IS_NULL_FILTERED", flagType))
+                            .addFields(createField("COLUMN_NAME", TypeCode.STRING))
+                            .addFields(createField("ORDINAL_POSITION", TypeCode.INT64))
+                            .addFields(createField("COLUMN_ORDERING", TypeCode.STRING))
+                            .build())
+                    .build());
+    for (JdbcMetadataQueries.IndexMetaData column : columns) {
+      builder.addRows(
+          ListValue.newBuilder()
+              .addValues(Value.newBuilder().setStringValue(column.table).build())
+              .addValues(Value.newBuilder().setStringValue(column.name).build())
+              .addValues(createFlagValue(dialect, column.unique))
+              .addValues(createFlagValue(dialect, nullFiltered))
+              .addValues(Value.newBuilder().setStringValue(column.column).build())
+              .addValues(
+                  column.ordinalPosition == null
+                      ? Value.newBuilder().setNullValue(NullValue.NULL_VALUE).build()
+                      : Value.newBuilder()
+                          .setStringValue(String.valueOf(column.ordinalPosition))
+                          .build())
+              .addValues(
+                  column.ascending == null
+                      ? Value.newBuilder().setNullValue(NullValue.NULL_VALUE).build()
+                      : Value.newBuilder()
+                          .setStringValue(column.ascending ? "ASC" : "DESC")
+                          .build())
+              .build());
+    }
+    return builder.build();
+  }
+
+  private static Field createField(String name, TypeCode type) {
+    return Field.newBuilder().setName(name).setType(Type.newBuilder().setCode(type)).build();
+  }
+
+  private static Value createFlagValue(Dialect dialect, boolean value) {
+    return dialect == Dialect.POSTGRESQL
+        ? Value.newBuilder().setStringValue(value ? "YES" : "NO").build()
+        : Value.newBuilder().setBoolValue(value).build();
+  }
+
   static ResultSet createMd5SumResultSet(Iterable<String> sums) {
     ResultSet.Builder builder = ResultSet.newBuilder().setMetadata(MD5SUM_METADATA);
     for (String sum : sums) {
@@ -16,10 +16,15 @@ package liquibase.ext.spanner;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
 import com.google.spanner.admin.database.v1.UpdateDatabaseDdlRequest;
+import com.google.spanner.v1.BeginTransactionRequest;
+import com.google.spanner.v1.ExecuteSqlRequest;
 import java.sql.Connection;
 import liquibase.Contexts;
 import liquibase.Liquibase;
+import liquibase.Scope;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
@@ -28,6 +33,7 @@ import org.junit.jupiter.params.provider.EnumSource;
 
 @Execution(ExecutionMode.SAME_THREAD)
 public class AddColumnTest extends AbstractMockServerTest {
+  private static final String UPDATE_COUNTRY = "UPDATE Singers SET Country = 'NL' WHERE TRUE";
 
   @BeforeEach
   void resetServer() {
@@ -126,4 +132,68 @@ public class AddColumnTest extends AbstractMockServerTest {
       assertThat(request.getStatementsList().get(0)).isEqualTo(expectedSql[i]);
     }
   }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testAddColumnWithValueToLargeTable(Dialect dialect) throws Exception {
+    // The table has more rows than the threshold.
+    Scope.child(
+        SpannerConfiguration.ADD_COLUMN_PARTITIONED_DML_THRESHOLD.getKey(),
+        2,
+        () -> addCountryWithValue(dialect, 3L));
+
+    // The new column is filled with Partitioned DML.
+    assertThat(
+            mockSpanner.getRequestsOfType(BeginTransactionRequest.class).stream()
+                .filter(request -> request.getOptions().hasPartitionedDml())
+                .count())
+        .isEqualTo(1L);
+    assertThat(getUpdateCount()).isEqualTo(1L);
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testAddColumnWithValueToSmallTable(Dialect dialect) throws Exception {
+    Scope.child(
+        SpannerConfiguration.ADD_COLUMN_PARTITIONED_DML_THRESHOLD.getKey(),
+        2,
+        () -> addCountryWithValue(dialect, 2L));
+
+    // The new column is filled with a transactional update.
+    assertThat(
+            mockSpanner.getRequestsOfType(BeginTransactionRequest.class).stream()
+                .anyMatch(request -> request.getOptions().hasPartitionedDml()))
+        .isFalse();
+    assertThat(getUpdateCount()).isEqualTo(1L);
+  }
+
+  private void addCountryWithValue(Dialect dialect, long countedRows) throws Exception {
+    String expectedSql =
+        dialect == Dialect.POSTGRESQL
+            ? "ALTER TABLE Singers ADD Country varchar(100)"
+            : "ALTER TABLE Singers ADD Country STRING(100)";
+    addUpdateDdlStatementsResponse(dialect, expectedSql);
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.of("SELECT COUNT(*) FROM (SELECT 1 FROM Singers LIMIT 3) AS T"),
+            createInt64ResultSet(countedRows)));
+    mockSpanner.putStatementResult(
+        StatementResult.update(Statement.of(UPDATE_COUNTRY), countedRows));
+
+    try (Connection con = createConnection(dialect);
+        Liquibase liquibase =
+            getLiquibase(con, "add-country-with-value-to-singers-table.spanner.yaml")) {
+      liquibase.update(new Contexts("test"));
+    }
+
+    assertThat(mockAdmin.getRequests()).hasSize(1);
+    UpdateDatabaseDdlRequest request = (UpdateDatabaseDdlRequest) mockAdmin.getRequests().get(0);
+    assertThat(request.getStatementsList()).containsExactly(expectedSql);
+  }
+
+  private static long getUpdateCount() {
+    return mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+        .filter(request -> request.getSql().equals(UPDATE_COUNTRY))
+        .count();
+  }
 }
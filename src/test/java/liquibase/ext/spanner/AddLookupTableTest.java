@@ -18,13 +18,26 @@ import static com.google.common.truth.Truth.assertThat;
 import com.google.cloud.spanner.Dialect;
 import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
 import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.connection.AbstractStatementParser;
 import com.google.common.base.Predicate;
 import com.google.protobuf.AbstractMessage;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Value;
 import com.google.spanner.admin.database.v1.UpdateDatabaseDdlRequest;
+import com.google.spanner.v1.CommitRequest;
 import com.google.spanner.v1.ExecuteSqlRequest;
+import com.google.spanner.v1.ResultSet;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.Type;
+import com.google.spanner.v1.TypeCode;
 import java.sql.Connection;
+import java.util.List;
+import java.util.stream.Collectors;
 import liquibase.Contexts;
 import liquibase.Liquibase;
+import liquibase.Scope;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
@@ -87,4 +100,103 @@ public class AddLookupTableTest extends AbstractMockServerTest {
       assertThat(request.getStatementsList().get(0)).isEqualTo(expectedSql[i]);
     }
   }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testAddLookupTableInBatches(Dialect dialect) throws Exception {
+    String[] expectedSql =
+        dialect == Dialect.POSTGRESQL
+            ? new String[] {
+              "CREATE TABLE Countries (Name varchar(100) NOT NULL, PRIMARY KEY (Name))",
+              "ALTER TABLE Singers ADD CONSTRAINT FK_Singers_Countries FOREIGN KEY (Country) REFERENCES Countries (Name)",
+            }
+            : new String[] {
+              "CREATE TABLE Countries (Name STRING(100) NOT NULL) PRIMARY KEY (Name)",
+              "ALTER TABLE Singers ADD CONSTRAINT FK_Singers_Countries FOREIGN KEY (Country) REFERENCES Countries (Name)",
+            };
+    for (String sql : expectedSql) {
+      addUpdateDdlStatementsResponse(dialect, sql);
+    }
+    AbstractStatementParser parser = dialect == Dialect.POSTGRESQL ? PARSER_PG : PARSER;
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.newBuilder(
+                    parser.convertPositionalParametersToNamedParameters(
+                            '?',
+                            "SELECT COLUMN_NAME, SPANNER_TYPE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=?")
+                        .sqlWithNamedParameters)
+                .bind("p1")
+                .to(dialect == Dialect.POSTGRESQL ? "db_pg" : "")
+                .bind("p2")
+                .to(dialect == Dialect.POSTGRESQL ? "public" : "")
+                .bind("p3")
+                .to("Countries")
+                .build(),
+            createStringResultSet(
+                new String[] {"COLUMN_NAME", "SPANNER_TYPE"},
+                new String[] {
+                  "Name", dialect == Dialect.POSTGRESQL ? "character varying(100)" : "STRING(100)"
+                })));
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.of("SELECT DISTINCT Country FROM Singers WHERE Country IS NOT NULL"),
+            createStringResultSet(
+                new String[] {"Country"},
+                new String[] {"DE"},
+                new String[] {"NL"},
+                new String[] {"US"})));
+
+    Scope.child(
+        SpannerConfiguration.ADD_LOOKUP_TABLE_BATCH_SIZE.getKey(),
+        2,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase =
+                  getLiquibase(con, "add-lookup-table-singers-countries.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    // The values are written as mutations in batches of 2 rows, before the foreign key is added.
+    List<CommitRequest> commits =
+        mockSpanner.getRequestsOfType(CommitRequest.class).stream()
+            .filter(
+                commit ->
+                    commit.getMutationsList().stream()
+                        .anyMatch(
+                            mutation ->
+                                mutation.getInsertOrUpdate().getTable().equals("Countries")))
+            .collect(Collectors.toList());
+    assertThat(commits).hasSize(2);
+    assertThat(commits.get(0).getMutations(0).getInsertOrUpdate().getValuesCount()).isEqualTo(2);
+    assertThat(commits.get(1).getMutations(0).getInsertOrUpdate().getValuesCount()).isEqualTo(1);
+    assertThat(
+            mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+                .anyMatch(request -> request.getSql().startsWith("INSERT INTO Countries")))
+        .isFalse();
+    assertThat(mockAdmin.getRequests()).hasSize(expectedSql.length);
+    for (int i = 0; i < expectedSql.length; i++) {
+      UpdateDatabaseDdlRequest request = (UpdateDatabaseDdlRequest) mockAdmin.getRequests().get(i);
+      assertThat(request.getStatementsList()).containsExactly(expectedSql[i]);
+    }
+  }
+
+  /** Creates a result set with the given STRING columns and rows. */
+  private static ResultSet createStringResultSet(String[] columns, String[]... rows) {
+    StructType.Builder rowType = StructType.newBuilder();
+    for (String column : columns) {
+      rowType.addFields(
+          Field.newBuilder().setName(column).setType(Type.newBuilder().setCode(TypeCode.STRING)));
+    }
+    ResultSet.Builder resultSet =
+        ResultSet.newBuilder().setMetadata(ResultSetMetadata.newBuilder().setRowType(rowType));
+    for (String[] row : rows) {
+      ListValue.Builder values = ListValue.newBuilder();
+      for (String value : row) {
+        values.addValues(Value.newBuilder().setStringValue(value));
+      }
+      resultSet.addRows(values);
+    }
+    return resultSet.build();
+  }
 }
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.Timestamp;
+import com.google.common.collect.ImmutableList;
+import com.google.longrunning.Operation;
+import com.google.protobuf.Any;
+import com.google.rpc.Code;
+import com.google.rpc.Status;
+import com.google.spanner.admin.database.v1.UpdateDatabaseDdlMetadata;
+import com.google.spanner.admin.database.v1.UpdateDatabaseDdlRequest;
+import com.google.spanner.v1.ExecuteBatchDmlRequest;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import java.sql.Connection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.Scope;
+import liquibase.exception.LiquibaseException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class AutoBatchDdlTest extends AbstractMockServerTest {
+
+  @BeforeEach
+  void resetServer() {
+    mockSpanner.reset();
+    mockAdmin.reset();
+  }
+
+  private static ImmutableList<String> getExpectedStatements(Dialect dialect) {
+    return ImmutableList.of(
+        dialect == Dialect.POSTGRESQL
+            ? "CREATE TABLE Singers (SingerId bigint, FirstName varchar(255), LastName varchar(255) NOT NULL, SingerInfo bytea, PRIMARY KEY (SingerId))"
+            : "CREATE TABLE Singers (SingerId INT64, FirstName STRING(255), LastName STRING(255) NOT NULL, SingerInfo BYTES(MAX)) PRIMARY KEY (SingerId)",
+        dialect == Dialect.POSTGRESQL
+            ? "CREATE TABLE Albums (AlbumId bigint, Title varchar(255), Singer bigint, PRIMARY KEY (AlbumId))"
+            : "CREATE TABLE Albums (AlbumId INT64, Title STRING(255), Singer INT64) PRIMARY KEY (AlbumId)",
+        "CREATE INDEX Idx_Singers_FirstName ON Singers(FirstName DESC)");
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testAutoBatchDdl(Dialect dialect) throws Exception {
+    ImmutableList<String> expectedStatements = getExpectedStatements(dialect);
+    addUpdateDdlStatementsResponse(dialect, expectedStatements);
+
+    Scope.child(
+        SpannerConfiguration.AUTO_BATCH_DDL.getKey(),
+        true,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase = getLiquibase(con, "auto-batch-ddl.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    // The three changesets are applied as one schema change.
+    assertThat(mockAdmin.getRequests()).hasSize(1);
+    assertThat(mockAdmin.getRequests().get(0)).isInstanceOf(UpdateDatabaseDdlRequest.class);
+    assertThat(getUpdateDdlStatementsList(0))
+        .containsExactlyElementsIn(expectedStatements)
+        .inOrder();
+    // All changesets are still recorded, in one DML batch.
+    assertThat(countChangeLogInserts()).isEqualTo(3);
+    List<ExecuteBatchDmlRequest> batches =
+        mockSpanner.getRequestsOfType(ExecuteBatchDmlRequest.class);
+    assertThat(batches).hasSize(1);
+    assertThat(batches.get(0).getStatementsCount()).isEqualTo(3);
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testAutoBatchDdlPartialFailure(Dialect dialect) throws Exception {
+    ImmutableList<String> expectedStatements = getExpectedStatements(dialect);
+    // Only the first statement of the batch is applied. Spanner returns a commit timestamp for
+    // each applied statement, which the JDBC driver returns as an update count of 1.
+    String dbId = dialect == Dialect.POSTGRESQL ? DB_ID_POSTGRESQL : DB_ID_GOOGLESQL;
+    mockAdmin.addResponse(
+        Operation.newBuilder()
+            .setDone(true)
+            .setMetadata(
+                Any.pack(
+                    UpdateDatabaseDdlMetadata.newBuilder()
+                        .addCommitTimestamps(Timestamp.now().toProto())
+                        .setDatabase(dbId)
+                        .addAllStatements(expectedStatements)
+                        .build()))
+            .setName(String.format("%s/operations/o", dbId))
+            .setError(
+                Status.newBuilder()
+                    .setCode(Code.FAILED_PRECONDITION_VALUE)
+                    .setMessage("Table Albums already exists")
+                    .build())
+            .build());
+
+    Scope.child(
+        SpannerConfiguration.AUTO_BATCH_DDL.getKey(),
+        true,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase = getLiquibase(con, "auto-batch-ddl.spanner.yaml")) {
+            assertThrows(LiquibaseException.class, () -> liquibase.update(new Contexts("test")));
+          }
+        });
+
+    assertThat(mockAdmin.getRequests()).hasSize(1);
+    // Only the changeset whose DDL was applied is recorded.
+    assertThat(countChangeLogInserts()).isEqualTo(1);
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testWithoutAutoBatchDdl(Dialect dialect) throws Exception {
+    ImmutableList<String> expectedStatements = getExpectedStatements(dialect);
+    for (String statement : expectedStatements) {
+      addUpdateDdlStatementsResponse(dialect, statement);
+    }
+
+    try (Connection con = createConnection(dialect);
+        Liquibase liquibase = getLiquibase(con, "auto-batch-ddl.spanner.yaml")) {
+      liquibase.update(new Contexts("test"));
+    }
+
+    // Each changeset is applied as a separate schema change.
+    assertThat(mockAdmin.getRequests()).hasSize(3);
+    for (int i = 0; i < expectedStatements.size(); i++) {
+      assertThat(getUpdateDdlStatementsList(i)).containsExactly(expectedStatements.get(i));
+    }
+    assertThat(countChangeLogInserts()).isEqualTo(3);
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testParameterizedInsertsKeepOrderExecuted(Dialect dialect) throws Exception {
+    ImmutableList<String> expectedStatements = getExpectedStatements(dialect);
+    for (String statement : expectedStatements) {
+      addUpdateDdlStatementsResponse(dialect, statement);
+    }
+
+    Scope.child(
+        SpannerConfiguration.PARAMETERIZED_INSERTS.getKey(),
+        true,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase = getLiquibase(con, "auto-batch-ddl.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    // The SQL of each history row is generated once, so ORDEREXECUTED has no gaps.
+    Pattern orderExecuted =
+        Pattern.compile("VALUES \\('[^']*', '[^']*', '[^']*', [^,]+, (\\d+),");
+    List<Long> values =
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .map(ExecuteSqlRequest::getSql)
+            .filter(sql -> sql.startsWith(INSERT_DATABASECHANGELOG.getSql()))
+            .map(orderExecuted::matcher)
+            .filter(Matcher::find)
+            .map(matcher -> Long.valueOf(matcher.group(1)))
+            .collect(Collectors.toList());
+    assertThat(values).containsExactly(1L, 2L, 3L).inOrder();
+  }
+
+  private static long countChangeLogInserts() {
+    return Stream.concat(
+            mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+                .map(ExecuteSqlRequest::getSql),
+            mockSpanner.getRequestsOfType(ExecuteBatchDmlRequest.class).stream()
+                .flatMap(request -> request.getStatementsList().stream())
+                .map(ExecuteBatchDmlRequest.Statement::getSql))
+        .filter(sql -> sql.startsWith(INSERT_DATABASECHANGELOG.getSql()))
+        .count();
+  }
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.connection.AbstractStatementParser;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Value;
+import com.google.spanner.admin.database.v1.UpdateDatabaseDdlRequest;
+import com.google.spanner.v1.BeginTransactionRequest;
+import com.google.spanner.v1.CommitRequest;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import com.google.spanner.v1.Mutation;
+import com.google.spanner.v1.Mutation.Write;
+import com.google.spanner.v1.ResultSet;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.Type;
+import com.google.spanner.v1.TypeCode;
+import java.sql.Connection;
+import java.util.List;
+import java.util.stream.Collectors;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class BackfillTest extends AbstractMockServerTest {
+  private static final String UPDATE =
+      "UPDATE Singers SET FullName = FirstName || ' ' || LastName WHERE ";
+
+  @BeforeEach
+  void resetServer() {
+    mockSpanner.reset();
+    mockAdmin.reset();
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testBackfillInRanges(Dialect dialect) throws Exception {
+    registerMetadata(dialect);
+    // The table contains the keys 1 to 5, which are updated in ranges of 2 rows.
+    registerKeys(dialect, null, 1L, 2L);
+    registerKeys(dialect, 2L, 3L, 4L);
+    registerKeys(dialect, 4L, 5L);
+    registerKeys(dialect, 5L);
+    mockSpanner.putPartialStatementResult(StatementResult.update(Statement.of(UPDATE), 2L));
+
+    try (Connection con = createConnection(dialect);
+        Liquibase liquibase = getLiquibase(con, "backfill-singers-fullname.spanner.yaml")) {
+      liquibase.update(new Contexts("test"));
+    }
+
+    String p1 = dialect == Dialect.POSTGRESQL ? "$1" : "@p1";
+    String p2 = dialect == Dialect.POSTGRESQL ? "$2" : "@p2";
+    List<String> updates =
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .map(ExecuteSqlRequest::getSql)
+            .filter(sql -> sql.startsWith(UPDATE))
+            .collect(Collectors.toList());
+    assertThat(updates)
+        .containsExactly(
+            UPDATE + "(SingerId <= " + p1 + ")",
+            UPDATE + "(SingerId > " + p1 + ") AND (SingerId <= " + p2 + ")",
+            UPDATE + "(SingerId > " + p1 + ") AND (SingerId <= " + p2 + ")")
+        .inOrder();
+
+    // Each range is committed together with the last key of the range as the checkpoint.
+    String progressTable =
+        dialect == Dialect.POSTGRESQL ? "databasechangelogprogress" : "DATABASECHANGELOGPROGRESS";
+    List<String> checkpoints =
+        mockSpanner.getRequestsOfType(CommitRequest.class).stream()
+            .flatMap(commit -> commit.getMutationsList().stream())
+            .filter(Mutation::hasInsertOrUpdate)
+            .map(Mutation::getInsertOrUpdate)
+            .filter(write -> write.getTable().equals(progressTable))
+            .map(BackfillTest::getCheckpoint)
+            .collect(Collectors.toList());
+    assertThat(checkpoints).containsExactly("2", "4", "5").inOrder();
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testMergeColumnsInRanges(Dialect dialect) throws Exception {
+    String[] expectedDdl =
+        new String[] {
+          dialect == Dialect.POSTGRESQL
+              ? "ALTER TABLE Singers ADD FullName varchar(500)"
+              : "ALTER TABLE Singers ADD FullName STRING(500)",
+          "ALTER TABLE Singers DROP COLUMN FirstName",
+          "ALTER TABLE Singers DROP COLUMN LastName",
+        };
+    for (String sql : expectedDdl) {
+      addUpdateDdlStatementsResponse(dialect, sql);
+    }
+    registerMetadata(dialect);
+    registerKeys(dialect, null, 1L, 2L);
+    registerKeys(dialect, 2L, 3L);
+    registerKeys(dialect, 3L);
+    mockSpanner.putPartialStatementResult(StatementResult.update(Statement.of(UPDATE), 2L));
+
+    try (Connection con = createConnection(dialect);
+        Liquibase liquibase =
+            getLiquibase(con, "merge-singers-firstname-and-lastname-in-ranges.spanner.yaml")) {
+      liquibase.update(new Contexts("test"));
+    }
+
+    // The new column is filled in ranges instead of with Partitioned DML.
+    assertThat(
+            mockSpanner.getRequestsOfType(BeginTransactionRequest.class).stream()
+                .anyMatch(request -> request.getOptions().hasPartitionedDml()))
+        .isFalse();
+    assertThat(
+            mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+                .map(ExecuteSqlRequest::getSql)
+                .filter(sql -> sql.startsWith(UPDATE))
+                .count())
+        .isEqualTo(2L);
+    // The columns are only dropped after the new column has been filled.
+    assertThat(mockAdmin.getRequests()).hasSize(expectedDdl.length);
+    for (int i = 0; i < expectedDdl.length; i++) {
+      UpdateDatabaseDdlRequest request = (UpdateDatabaseDdlRequest) mockAdmin.getRequests().get(i);
+      assertThat(request.getStatementsList()).containsExactly(expectedDdl[i]);
+    }
+  }
+
+  private static String getCheckpoint(Write progress) {
+    ListValue row = progress.getValues(0);
+    return row.getValues(row.getValuesCount() - 1).getListValue().getValues(0).getStringValue();
+  }
+
+  private static void registerMetadata(Dialect dialect) {
+    AbstractStatementParser parser = dialect == Dialect.POSTGRESQL ? PARSER_PG : PARSER;
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.newBuilder(
+                    parser.convertPositionalParametersToNamedParameters(
+                            '?',
+                            "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=? AND INDEX_TYPE='PRIMARY_KEY' ORDER BY ORDINAL_POSITION")
+                        .sqlWithNamedParameters)
+                .bind("p1")
+                .to(dialect == Dialect.POSTGRESQL ? "db_pg" : "")
+                .bind("p2")
+                .to(dialect == Dialect.POSTGRESQL ? "public" : "")
+                .bind("p3")
+                .to("Singers")
+                .build(),
+            ResultSet.newBuilder()
+                .setMetadata(createMetadata("COLUMN_NAME", TypeCode.STRING))
+                .addRows(
+                    ListValue.newBuilder()
+                        .addValues(Value.newBuilder().setStringValue("SingerId")))
+                .build()));
+    // The rows are counted for the progress reports.
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.of("SELECT COUNT(*) FROM Singers"), createInt64ResultSet(5L)));
+    // The progress table already exists.
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.newBuilder(
+                    parser.convertPositionalParametersToNamedParameters(
+                            '?',
+                            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA=? AND TABLE_NAME=?")
+                        .sqlWithNamedParameters)
+                .bind("p1")
+                .to(dialect == Dialect.POSTGRESQL ? "public" : "")
+                .bind("p2")
+                .to(
+                    dialect == Dialect.POSTGRESQL
+                        ? "databasechangelogprogress"
+                        : "DATABASECHANGELOGPROGRESS")
+                .build(),
+            createInt64ResultSet(1L)));
+    // There is no checkpoint from a previous run.
+    mockSpanner.putPartialStatementResult(
+        StatementResult.query(
+            Statement.of(
+                dialect == Dialect.POSTGRESQL
+                    ? "SELECT md5sum, rows_committed, checkpoint FROM databasechangelogprogress"
+                    : "SELECT MD5SUM, ROWS_COMMITTED, CHECKPOINT FROM DATABASECHANGELOGPROGRESS"),
+            ResultSet.newBuilder()
+                .setMetadata(
+                    ResultSetMetadata.newBuilder()
+                        .setRowType(
+                            StructType.newBuilder()
+                                .addFields(createField("MD5SUM", TypeCode.STRING))
+                                .addFields(createField("ROWS_COMMITTED", TypeCode.INT64))
+                                .addFields(
+                                    createField(
+                                        "CHECKPOINT",
+                                        Type.newBuilder()
+                                            .setCode(TypeCode.ARRAY)
+                                            .setArrayElementType(
+                                                Type.newBuilder().setCode(TypeCode.STRING))))))
+                .build()));
+  }
+
+  /** Registers the keys that are returned for the range after the given key. */
+  private static void registerKeys(Dialect dialect, Long after, long... keys) {
+    AbstractStatementParser parser = dialect == Dialect.POSTGRESQL ? PARSER_PG : PARSER;
+    String sql =
+        "SELECT SingerId FROM Singers"
+            + (after == null ? "" : " WHERE (SingerId > ?)")
+            + " ORDER BY SingerId"
+            + (dialect == Dialect.POSTGRESQL ? " NULLS FIRST" : "")
+            + " LIMIT 2";
+    Statement.Builder statement =
+        Statement.newBuilder(
+            parser.convertPositionalParametersToNamedParameters('?', sql).sqlWithNamedParameters);
+    if (after != null) {
+      statement.bind("p1").to(after);
+    }
+    ResultSet.Builder resultSet =
+        ResultSet.newBuilder().setMetadata(createMetadata("SingerId", TypeCode.INT64));
+    for (long key : keys) {
+      resultSet.addRows(
+          ListValue.newBuilder().addValues(Value.newBuilder().setStringValue(String.valueOf(key))));
+    }
+    mockSpanner.putStatementResult(StatementResult.query(statement.build(), resultSet.build()));
+  }
+
+  private static ResultSetMetadata createMetadata(String name, TypeCode type) {
+    return ResultSetMetadata.newBuilder()
+        .setRowType(StructType.newBuilder().addFields(createField(name, type)))
+        .build();
+  }
+
+  private static Field createField(String name, TypeCode type) {
+    return createField(name, Type.newBuilder().setCode(type));
+  }
+
+  private static Field createField(String name, Type.Builder type) {
+    return Field.newBuilder().setName(name).setType(type).build();
+  }
+}
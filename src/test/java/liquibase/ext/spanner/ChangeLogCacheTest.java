@@ -0,0 +1,190 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.NullValue;
+import com.google.protobuf.Value;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import com.google.spanner.v1.ResultSet;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.Type;
+import com.google.spanner.v1.TypeCode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import liquibase.Liquibase;
+import liquibase.Scope;
+import liquibase.changelog.RanChangeSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class ChangeLogCacheTest extends AbstractMockServerTest {
+  private static final String SELECT_COUNTS =
+      "SELECT COUNT(*) AS ROW_COUNT, COUNT(MD5SUM) AS CHECKSUM_COUNT, COUNT(TAG) AS TAG_COUNT, ";
+  private static final String SELECT_NEWER_ROWS =
+      "SELECT * FROM DATABASECHANGELOG WHERE ORDEREXECUTED > ";
+
+  @BeforeEach
+  void resetServer() {
+    mockSpanner.reset();
+    mockAdmin.reset();
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testReadNewerRows(Dialect dialect, @TempDir Path cacheDirectory) throws Exception {
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            SELECT_FROM_DATABASECHANGELOG,
+            DatabaseChangeLog.createChangeSetResultSet(ImmutableList.of(createRow("v0.1", 1L)))));
+
+    // The first run reads all rows and fills the cache.
+    assertThat(getRanChangeSets(dialect, cacheDirectory)).hasSize(1);
+    assertThat(countFullReads()).isEqualTo(1L);
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory)) {
+      assertThat(files).hasSize(1);
+    }
+
+    // The second run only reads the row that has been added since.
+    mockSpanner.putPartialStatementResult(
+        StatementResult.query(
+            Statement.of(SELECT_COUNTS),
+            createCountsResultSet(1L, 1L, 0L, digest(createRow("v0.1", 1L)))));
+    mockSpanner.putPartialStatementResult(
+        StatementResult.query(
+            Statement.of(SELECT_NEWER_ROWS),
+            DatabaseChangeLog.createChangeSetResultSet(ImmutableList.of(createRow("v0.2", 2L)))));
+    mockSpanner.clearRequests();
+    List<RanChangeSet> ranChangeSets = getRanChangeSets(dialect, cacheDirectory);
+    assertThat(ranChangeSets).hasSize(2);
+    assertThat(ranChangeSets.get(1).getId()).isEqualTo("v0.2");
+    assertThat(countFullReads()).isEqualTo(0L);
+
+    // The checksums have been cleared since, so all rows are read again.
+    mockSpanner.putPartialStatementResult(
+        StatementResult.query(
+            Statement.of(SELECT_COUNTS), createCountsResultSet(2L, 0L, 0L, null)));
+    mockSpanner.clearRequests();
+    assertThat(getRanChangeSets(dialect, cacheDirectory)).hasSize(1);
+    assertThat(countFullReads()).isEqualTo(1L);
+
+    // The checksum has been changed to another value since. The counts are the same, but the
+    // digest differs, so all rows are read again.
+    DatabaseChangeLog changed = createRow("v0.1", 1L);
+    changed.md5 = "9:changed";
+    mockSpanner.putPartialStatementResult(
+        StatementResult.query(
+            Statement.of(SELECT_COUNTS), createCountsResultSet(1L, 1L, 0L, digest(changed))));
+    mockSpanner.clearRequests();
+    assertThat(getRanChangeSets(dialect, cacheDirectory)).hasSize(1);
+    assertThat(countFullReads()).isEqualTo(1L);
+  }
+
+  /**
+   * Returns the digest of the given row, in the same way as the database computes it: the low 32
+   * bits of the FarmHash fingerprint of ID, AUTHOR, FILENAME, MD5SUM, TAG and EXECTYPE.
+   */
+  private static long digest(DatabaseChangeLog row) {
+    String value =
+        String.join(
+            "|",
+            row.id,
+            row.author,
+            row.filename,
+            row.md5 == null ? "" : row.md5,
+            row.tag == null ? "" : row.tag,
+            row.execType);
+    return Hashing.farmHashFingerprint64().hashString(value, StandardCharsets.UTF_8).asLong()
+        & 0xFFFFFFFFL;
+  }
+
+  private static List<RanChangeSet> getRanChangeSets(Dialect dialect, Path cacheDirectory)
+      throws Exception {
+    AtomicReference<List<RanChangeSet>> result = new AtomicReference<>();
+    Scope.child(
+        SpannerConfiguration.CHANGE_LOG_CACHE_DIRECTORY.getKey(),
+        cacheDirectory.toString(),
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase =
+                  getLiquibase(con, "add-singerinfo-to-singers-table.spanner.yaml")) {
+            result.set(liquibase.getDatabase().getRanChangeSetList());
+          }
+        });
+    return result.get();
+  }
+
+  private static long countFullReads() {
+    return mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+        .filter(request -> request.getSql().equals(SELECT_FROM_DATABASECHANGELOG.getSql()))
+        .count();
+  }
+
+  private static DatabaseChangeLog createRow(String id, long orderExecuted) {
+    DatabaseChangeLog row = new DatabaseChangeLog();
+    row.id = id;
+    row.author = "spanner-liquibase-tests";
+    row.filename = "add-singerinfo-to-singers-table.spanner.yaml";
+    row.dateExecuted = Timestamp.ofTimeSecondsAndNanos(orderExecuted, 0);
+    row.orderExecuted = orderExecuted;
+    row.execType = "EXECUTED";
+    row.md5 = "9:" + id;
+    row.liquibase = "4.33.0";
+    return row;
+  }
+
+  private static ResultSet createCountsResultSet(
+      long rows, long checkSums, long tags, @Nullable Long digest) {
+    StructType.Builder rowType = StructType.newBuilder();
+    ListValue.Builder values = ListValue.newBuilder();
+    String[] names = {"ROW_COUNT", "CHECKSUM_COUNT", "TAG_COUNT", "ROW_DIGEST"};
+    Long[] counts = {rows, checkSums, tags, digest};
+    for (int i = 0; i < names.length; i++) {
+      rowType.addFields(
+          Field.newBuilder()
+              .setName(names[i])
+              .setType(Type.newBuilder().setCode(TypeCode.INT64))
+              .build());
+      values.addValues(
+          counts[i] == null
+              ? Value.newBuilder().setNullValue(NullValue.NULL_VALUE)
+              : Value.newBuilder().setStringValue(String.valueOf(counts[i])));
+    }
+    return ResultSet.newBuilder()
+        .setMetadata(ResultSetMetadata.newBuilder().setRowType(rowType))
+        .addRows(values)
+        .build();
+  }
+}
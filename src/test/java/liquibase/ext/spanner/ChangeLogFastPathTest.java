@@ -0,0 +1,186 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Value;
+import com.google.spanner.admin.database.v1.UpdateDatabaseDdlRequest;
+import com.google.spanner.v1.CommitRequest;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import com.google.spanner.v1.Mutation;
+import com.google.spanner.v1.ResultSet;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.Type;
+import com.google.spanner.v1.TypeCode;
+import java.sql.Connection;
+import java.util.List;
+import java.util.stream.Collectors;
+import liquibase.ContextExpression;
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Labels;
+import liquibase.Liquibase;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class ChangeLogFastPathTest extends AbstractMockServerTest {
+  private static final String CHANGE_LOG_FILE = "add-singerinfo-to-singers-table.spanner.yaml";
+
+  @BeforeEach
+  void resetServer() {
+    mockSpanner.reset();
+    mockAdmin.reset();
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testSkipAppliedChangeLog(Dialect dialect) throws Exception {
+    String hash;
+    try (Connection con = createConnection(dialect);
+        Liquibase liquibase = getLiquibase(con, CHANGE_LOG_FILE)) {
+      hash =
+          ChangeLogFastPath.computeHash(
+              liquibase.getDatabaseChangeLog(), new Contexts("test"), new LabelExpression());
+    }
+    registerHash(dialect, hash, 1L);
+    mockSpanner.clearRequests();
+
+    try (Connection con = createConnection(dialect);
+        Liquibase liquibase = getLiquibase(con, CHANGE_LOG_FILE)) {
+      assertThat(
+              ChangeLogFastPath.update(liquibase, new Contexts("test"), new LabelExpression()))
+          .isFalse();
+    }
+
+    // The changelog lock and the history are not touched.
+    List<ExecuteSqlRequest> requests = mockSpanner.getRequestsOfType(ExecuteSqlRequest.class);
+    assertThat(
+            requests.stream()
+                .anyMatch(request -> request.getSql().contains("DATABASECHANGELOGLOCK")))
+        .isFalse();
+    List<ExecuteSqlRequest> hashQueries =
+        requests.stream()
+            .filter(request -> request.getSql().startsWith(getHashQuery(dialect)))
+            .collect(Collectors.toList());
+    assertThat(hashQueries).hasSize(1);
+    // The hash is read with a single stale read.
+    assertThat(hashQueries.get(0).getTransaction().getSingleUse().getReadOnly().hasMaxStaleness())
+        .isTrue();
+    assertThat(mockAdmin.getRequests()).isEmpty();
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testUpdateChangedChangeLog(Dialect dialect) throws Exception {
+    String expectedSql =
+        dialect == Dialect.POSTGRESQL
+            ? "ALTER TABLE Singers ADD SingerInfo bytea"
+            : "ALTER TABLE Singers ADD SingerInfo BYTES(MAX)";
+    addUpdateDdlStatementsResponse(dialect, expectedSql);
+    // The recorded hash belongs to a previous version of the changelog.
+    registerHash(dialect, "previous", 1L);
+
+    try (Connection con = createConnection(dialect);
+        Liquibase liquibase = getLiquibase(con, CHANGE_LOG_FILE)) {
+      assertThat(
+              ChangeLogFastPath.update(liquibase, new Contexts("test"), new LabelExpression()))
+          .isTrue();
+    }
+
+    assertThat(mockAdmin.getRequests()).hasSize(1);
+    assertThat(mockAdmin.getRequests().get(0)).isInstanceOf(UpdateDatabaseDdlRequest.class);
+    assertThat(
+            mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+                .anyMatch(request -> request.getSql().startsWith(ACQUIRE_LOCK.getSql())))
+        .isTrue();
+    // The hash is not recorded, as the mock DATABASECHANGELOG table does not contain the changeset.
+    String hashTable =
+        dialect == Dialect.POSTGRESQL ? "databasechangeloghash" : "DATABASECHANGELOGHASH";
+    assertThat(
+            mockSpanner.getRequestsOfType(CommitRequest.class).stream()
+                .flatMap(commit -> commit.getMutationsList().stream())
+                .filter(Mutation::hasInsertOrUpdate)
+                .map(mutation -> mutation.getInsertOrUpdate().getTable())
+                .collect(Collectors.toList()))
+        .doesNotContain(hashTable);
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testHashCoversChangeSetFilters(Dialect dialect) throws Exception {
+    try (Connection con = createConnection(dialect);
+        Liquibase liquibase = getLiquibase(con, CHANGE_LOG_FILE)) {
+      DatabaseChangeLog changeLog = liquibase.getDatabaseChangeLog();
+      String hash =
+          ChangeLogFastPath.computeHash(changeLog, new Contexts("test"), new LabelExpression());
+      ChangeSet changeSet = changeLog.getChangeSets().get(0);
+
+      // A changeset that is moved to another context may now have to run.
+      changeSet.setContextFilter(new ContextExpression("other"));
+      String contextHash =
+          ChangeLogFastPath.computeHash(changeLog, new Contexts("test"), new LabelExpression());
+      assertThat(contextHash).isNotEqualTo(hash);
+
+      changeSet.setLabels(new Labels("other"));
+      String labelHash =
+          ChangeLogFastPath.computeHash(changeLog, new Contexts("test"), new LabelExpression());
+      assertThat(labelHash).isNotEqualTo(contextHash);
+    }
+  }
+
+  private static String getHashQuery(Dialect dialect) {
+    return dialect == Dialect.POSTGRESQL
+        ? "SELECT md5sum, changelog_rows, (SELECT COUNT(*) FROM DATABASECHANGELOG) FROM databasechangeloghash"
+        : "SELECT MD5SUM, CHANGELOG_ROWS, (SELECT COUNT(*) FROM DATABASECHANGELOG) FROM DATABASECHANGELOGHASH";
+  }
+
+  /** Registers the recorded hash, and the same number of rows in DATABASECHANGELOG. */
+  private static void registerHash(Dialect dialect, String hash, long changeLogRows) {
+    mockSpanner.putPartialStatementResult(
+        StatementResult.query(
+            Statement.of(getHashQuery(dialect)),
+            ResultSet.newBuilder()
+                .setMetadata(
+                    ResultSetMetadata.newBuilder()
+                        .setRowType(
+                            StructType.newBuilder()
+                                .addFields(createField("MD5SUM", TypeCode.STRING))
+                                .addFields(createField("CHANGELOG_ROWS", TypeCode.INT64))
+                                .addFields(createField("", TypeCode.INT64))))
+                .addRows(
+                    ListValue.newBuilder()
+                        .addValues(Value.newBuilder().setStringValue(hash))
+                        .addValues(Value.newBuilder().setStringValue(String.valueOf(changeLogRows)))
+                        .addValues(
+                            Value.newBuilder().setStringValue(String.valueOf(changeLogRows))))
+                .build()));
+  }
+
+  private static Field createField(String name, TypeCode type) {
+    return Field.newBuilder().setName(name).setType(Type.newBuilder().setCode(type)).build();
+  }
+}
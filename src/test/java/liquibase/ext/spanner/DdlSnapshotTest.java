@@ -0,0 +1,171 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.common.collect.ImmutableList;
+import com.google.spanner.admin.database.v1.GetDatabaseDdlRequest;
+import com.google.spanner.admin.database.v1.GetDatabaseDdlResponse;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.util.List;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.ext.spanner.snapshotgenerator.DdlSnapshotReader;
+import liquibase.structure.core.ForeignKey;
+import liquibase.structure.core.ForeignKeyConstraintType;
+import liquibase.structure.core.Index;
+import liquibase.structure.core.Schema;
+import liquibase.structure.core.Sequence;
+import liquibase.structure.core.Table;
+import liquibase.structure.core.View;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class DdlSnapshotTest extends AbstractMockServerTest {
+  private static final ImmutableList<String> DDL =
+      ImmutableList.of(
+          "CREATE SEQUENCE SingerIdSequence OPTIONS (\n"
+              + "  sequence_kind = 'bit_reversed_positive',\n"
+              + "  start_with_counter = 1000\n"
+              + ")",
+          "CREATE TABLE Singers (\n"
+              + "  SingerId INT64 NOT NULL"
+              + " DEFAULT (GET_NEXT_SEQUENCE_VALUE(SEQUENCE SingerIdSequence)),\n"
+              + "  FirstName STRING(1024),\n"
+              + "  LastName STRING(1024) NOT NULL,\n"
+              + "  FullName STRING(2048)"
+              + " AS (ARRAY_TO_STRING([FirstName, LastName], \" \")) STORED,\n"
+              + "  Active BOOL DEFAULT (TRUE),\n"
+              + "  LastUpdated TIMESTAMP OPTIONS (\n"
+              + "    allow_commit_timestamp = true\n"
+              + "  ),\n"
+              + "  CheckedAt TIMESTAMP,\n"
+              + "  CONSTRAINT CK_LastName CHECK(LastName != ''),\n"
+              + ") PRIMARY KEY(SingerId)",
+          "CREATE TABLE Albums (\n"
+              + "  SingerId INT64 NOT NULL,\n"
+              + "  AlbumId INT64 NOT NULL,\n"
+              + "  AlbumTitle STRING(MAX),\n"
+              + "  Tags ARRAY<STRING(MAX)>,\n"
+              + ") PRIMARY KEY(SingerId, AlbumId DESC),\n"
+              + "  INTERLEAVE IN PARENT Singers ON DELETE CASCADE",
+          "CREATE TABLE Concerts (\n"
+              + "  ConcertId INT64 NOT NULL,\n"
+              + "  SingerId INT64 NOT NULL,\n"
+              + "  CONSTRAINT FK_Concerts_Singers FOREIGN KEY(SingerId)"
+              + " REFERENCES Singers(SingerId),\n"
+              + ") PRIMARY KEY(ConcertId)",
+          "CREATE UNIQUE NULL_FILTERED INDEX AlbumsByTitle ON Albums(SingerId, AlbumTitle DESC)"
+              + " STORING (Tags), INTERLEAVE IN Singers",
+          "ALTER TABLE Albums ADD CONSTRAINT FK_Albums_Concerts FOREIGN KEY(AlbumId)"
+              + " REFERENCES Concerts(ConcertId) ON DELETE CASCADE",
+          "CREATE VIEW SingerNames SQL SECURITY INVOKER AS SELECT Singers.FirstName FROM Singers",
+          "CREATE CHANGE STREAM EverythingStream FOR ALL");
+
+  @BeforeEach
+  void resetServer() {
+    mockSpanner.reset();
+    mockAdmin.reset();
+  }
+
+  @Test
+  void testReadSchemaFromDdl() throws Exception {
+    mockAdmin.addResponse(GetDatabaseDdlResponse.newBuilder().addAllStatements(DDL).build());
+
+    Schema schema;
+    try (Connection connection = createConnection(Dialect.GOOGLE_STANDARD_SQL)) {
+      Database database =
+          DatabaseFactory.getInstance()
+              .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+      schema = DdlSnapshotReader.readSchema(database);
+    }
+
+    // The entire schema is read with one RPC and without any queries.
+    assertThat(mockAdmin.getRequests()).hasSize(1);
+    assertThat(mockAdmin.getRequests().get(0)).isInstanceOf(GetDatabaseDdlRequest.class);
+    assertThat(((GetDatabaseDdlRequest) mockAdmin.getRequests().get(0)).getDatabase())
+        .isEqualTo(DB_ID_GOOGLESQL);
+    for (ExecuteSqlRequest request : mockSpanner.getRequestsOfType(ExecuteSqlRequest.class)) {
+      assertThat(request.getSql()).doesNotContain("INFORMATION_SCHEMA");
+    }
+
+    List<Table> tables = schema.getDatabaseObjects(Table.class);
+    assertThat(tables).hasSize(3);
+    Table singers = getByName(tables, "Singers");
+    assertThat(singers.getColumns()).hasSize(7);
+    assertThat(singers.getColumn("SingerId").isNullable()).isFalse();
+    assertThat(singers.getColumn("SingerId").getType().getTypeName()).isEqualTo("INT64");
+    assertThat(singers.getColumn("SingerId").getDefaultValue().toString())
+        .isEqualTo("GET_NEXT_SEQUENCE_VALUE(SEQUENCE SingerIdSequence)");
+    assertThat(singers.getColumn("FirstName").isNullable()).isTrue();
+    assertThat(singers.getColumn("FirstName").getType().getTypeName()).isEqualTo("STRING(1024)");
+    assertThat(singers.getColumn("LastName").isNullable()).isFalse();
+    assertThat(singers.getColumn("FullName").getComputed()).isTrue();
+    assertThat(singers.getColumn("Active").getDefaultValue()).isEqualTo(Boolean.TRUE);
+    assertThat(singers.getColumn("LastUpdated").getAttribute("allowCommitTimestamp", Boolean.class))
+        .isTrue();
+    // A column whose name starts with a constraint keyword is not a constraint.
+    assertThat(singers.getColumn("CheckedAt").getType().getTypeName()).isEqualTo("TIMESTAMP");
+    assertThat(singers.getColumn("CK_LastName")).isNull();
+    assertThat(singers.getPrimaryKey().getColumnNames()).isEqualTo("SingerId");
+
+    Table albums = getByName(tables, "Albums");
+    assertThat(albums.getColumn("Tags").getType().getTypeName()).isEqualTo("ARRAY<STRING(MAX)>");
+    assertThat(albums.getPrimaryKey().getColumns()).hasSize(2);
+    assertThat(albums.getPrimaryKey().getColumns().get(1).getDescending()).isTrue();
+    assertThat(albums.getAttribute("interleaveInParent", String.class)).isEqualTo("Singers");
+    assertThat(albums.getAttribute("interleaveOnDelete", String.class)).isEqualTo("CASCADE");
+
+    assertThat(albums.getIndexes()).hasSize(1);
+    Index index = albums.getIndexes().get(0);
+    assertThat(index.getName()).isEqualTo("AlbumsByTitle");
+    assertThat(index.isUnique()).isTrue();
+    assertThat(index.getColumns()).hasSize(2);
+    assertThat(index.getColumns().get(1).getDescending()).isTrue();
+    assertThat(index.getAttribute("includedColumns", List.class)).containsExactly("Tags");
+    assertThat(index.getAttribute("nullFiltered", Boolean.class)).isTrue();
+    assertThat(index.getAttribute("interleaveIn", String.class)).isEqualTo("Singers");
+
+    ForeignKey concertsFk = getByName(tables, "Concerts").getOutgoingForeignKeys().get(0);
+    assertThat(concertsFk.getName()).isEqualTo("FK_Concerts_Singers");
+    assertThat(concertsFk.getPrimaryKeyTable().getName()).isEqualTo("Singers");
+    assertThat(concertsFk.getDeleteRule()).isEqualTo(ForeignKeyConstraintType.importedKeyNoAction);
+    ForeignKey albumsFk = albums.getOutgoingForeignKeys().get(0);
+    assertThat(albumsFk.getName()).isEqualTo("FK_Albums_Concerts");
+    assertThat(albumsFk.getPrimaryKeyColumns().get(0).getName()).isEqualTo("ConcertId");
+    assertThat(albumsFk.getDeleteRule()).isEqualTo(ForeignKeyConstraintType.importedKeyCascade);
+
+    Sequence sequence = schema.getDatabaseObjects(Sequence.class).get(0);
+    assertThat(sequence.getName()).isEqualTo("SingerIdSequence");
+    assertThat(sequence.getStartValue()).isEqualTo(BigInteger.valueOf(1000L));
+    assertThat(sequence.getAttribute("sequenceKind", String.class))
+        .isEqualTo("bit_reversed_positive");
+
+    View view = schema.getDatabaseObjects(View.class).get(0);
+    assertThat(view.getName()).isEqualTo("SingerNames");
+    assertThat(view.getDefinition()).isEqualTo("SELECT Singers.FirstName FROM Singers");
+  }
+
+  private static Table getByName(List<Table> tables, String name) {
+    return tables.stream().filter(t -> t.getName().equals(name)).findFirst().get();
+  }
+}
@@ -17,20 +17,27 @@ import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
 import static liquibase.ext.spanner.JdbcMetadataQueries.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import com.google.cloud.spanner.Dialect;
 import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Spanner;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.connection.AbstractStatementParser;
 import com.google.common.collect.ImmutableList;
 import com.google.protobuf.ListValue;
 import com.google.protobuf.NullValue;
 import com.google.protobuf.Value;
+import com.google.spanner.admin.database.v1.GetDatabaseDdlResponse;
 import com.google.spanner.v1.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import liquibase.CatalogAndSchema;
 import liquibase.Liquibase;
+import liquibase.Scope;
 import liquibase.database.Database;
 import liquibase.ext.spanner.JdbcMetadataQueries.ColumnMetaData;
 import liquibase.ext.spanner.JdbcMetadataQueries.IndexMetaData;
@@ -45,6 +52,8 @@ import liquibase.structure.core.Sequence;
 import liquibase.structure.core.Table;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -133,15 +142,243 @@ public class GenerateSnapshotTest extends AbstractMockServerTest {
       assertThat(singers.getColumn("LastName").getType().toString())
           .isEqualTo(dialect == Dialect.POSTGRESQL ? "varchar" : "STRING(200)");
 
+      // The default values and types of all columns are fetched with a single query.
+      AbstractStatementParser parser = dialect == Dialect.POSTGRESQL ? PARSER_PG : PARSER;
+      String schemaColumnsSql =
+          parser.convertPositionalParametersToNamedParameters('?', GET_SCHEMA_COLUMNS_STATEMENT)
+              .sqlWithNamedParameters;
+      assertEquals(
+          1,
+          mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+              .filter(request -> request.getSql().equals(schemaColumnsSql))
+              .count());
+      // The INFORMATION_SCHEMA queries are executed in a read-only transaction.
+      assertTrue(
+          mockSpanner.getRequestsOfType(BeginTransactionRequest.class).stream()
+                  .anyMatch(request -> request.getOptions().hasReadOnly())
+              || mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+                  .filter(request -> request.getSql().equals(schemaColumnsSql))
+                  .allMatch(request -> request.getTransaction().getBegin().hasReadOnly()));
+
       Set<Index> indexes = snapshot.get(Index.class);
       assertEquals(1, indexes.size());
       Index index = indexes.iterator().next();
       assertEquals("Idx_Singers_FirstName", index.getName());
+      assertEquals(1, index.getColumns().size());
+      assertEquals("FirstName", index.getColumns().get(0).getName());
+      assertEquals(
+          ImmutableList.of("LastName"), index.getAttribute("includedColumns", List.class));
+      assertEquals(Boolean.TRUE, index.getAttribute("nullFiltered", Boolean.class));
+
+      // The indexes of all tables are fetched with a single query instead of one query per table.
+      String schemaIndexColumnsSql =
+          parser.convertPositionalParametersToNamedParameters(
+                  '?', GET_SCHEMA_INDEX_COLUMNS_STATEMENT)
+              .sqlWithNamedParameters;
+      assertEquals(
+          1,
+          mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+              .filter(request -> request.getSql().equals(schemaIndexColumnsSql))
+              .count());
+      String indexInfoSql =
+          parser.convertPositionalParametersToNamedParameters(
+                  '?',
+                  dialect == Dialect.POSTGRESQL
+                      ? readSqlFromFile(GET_INDEX_INFO, dialect)
+                      : parser.removeCommentsAndTrim(readSqlFromFile(GET_INDEX_INFO, dialect)))
+              .sqlWithNamedParameters;
+      assertEquals(
+          0,
+          mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+              .filter(request -> request.getSql().equals(indexInfoSql))
+              .count());
 
       Set<Sequence> sequences = snapshot.get(Sequence.class);
       assertEquals(1, sequences.size());
       Sequence sequence = sequences.iterator().next();
       assertEquals("testSequence", sequence.getName());
+
+      // The tables and primary keys are read through DatabaseMetaData at the same read timestamp
+      // as the INFORMATION_SCHEMA queries of the extension.
+      Set<com.google.protobuf.Timestamp> readTimestamps = new HashSet<>();
+      for (String file : new String[] {GET_TABLES, GET_PRIMARY_KEYS}) {
+        String metadataSql =
+            parser.convertPositionalParametersToNamedParameters(
+                    '?',
+                    dialect == Dialect.POSTGRESQL
+                        ? readSqlFromFile(file, dialect)
+                        : parser.removeCommentsAndTrim(readSqlFromFile(file, dialect)))
+                .sqlWithNamedParameters;
+        List<ExecuteSqlRequest> metadataRequests = new ArrayList<>();
+        for (ExecuteSqlRequest request : mockSpanner.getRequestsOfType(ExecuteSqlRequest.class)) {
+          if (request.getSql().equals(metadataSql)) {
+            metadataRequests.add(request);
+          }
+        }
+        assertThat(metadataRequests).isNotEmpty();
+        for (ExecuteSqlRequest request : metadataRequests) {
+          TransactionOptions.ReadOnly readOnly =
+              request.getTransaction().getSingleUse().getReadOnly();
+          assertTrue(readOnly.hasReadTimestamp());
+          readTimestamps.add(readOnly.getReadTimestamp());
+        }
+      }
+      assertThat(readTimestamps).hasSize(1);
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testGenerateSnapshotWithCache(Dialect dialect, @TempDir Path cacheDirectory)
+      throws Exception {
+    String schemaName = dialect == Dialect.POSTGRESQL ? "PUBLIC" : "";
+    String catalog = dialect == Dialect.POSTGRESQL ? "DB_PG" : "";
+    putMockResultsForSchemas(dialect);
+    AbstractStatementParser parser = dialect == Dialect.POSTGRESQL ? PARSER_PG : PARSER;
+    String schemaColumnsSql =
+        parser.convertPositionalParametersToNamedParameters('?', GET_SCHEMA_COLUMNS_STATEMENT)
+            .sqlWithNamedParameters;
+    GetDatabaseDdlResponse ddl =
+        GetDatabaseDdlResponse.newBuilder()
+            .addStatements(
+                "CREATE TABLE Singers (\n"
+                    + "  SingerId INT64 NOT NULL,\n"
+                    + "  FirstName STRING(100),\n"
+                    + "  LastName STRING(200) NOT NULL,\n"
+                    + ") PRIMARY KEY(SingerId)")
+            .build();
+
+    Scope.child(
+        SpannerConfiguration.SNAPSHOT_CACHE_DIRECTORY.getKey(),
+        cacheDirectory.toString(),
+        () -> {
+          // The first snapshot reads the metadata from INFORMATION_SCHEMA and fills the cache.
+          // The second snapshot reads the metadata from the cache.
+          for (int run = 0; run < 2; run++) {
+            mockSpanner.clearRequests();
+            mockAdmin.addResponse(ddl);
+            try (Liquibase liquibase =
+                getLiquibase(createConnection(dialect), "create-snapshot.spanner.yaml")) {
+              Database database = liquibase.getDatabase();
+              DatabaseSnapshot snapshot =
+                  SnapshotGeneratorFactory.getInstance()
+                      .createSnapshot(
+                          new CatalogAndSchema(catalog, schemaName),
+                          database,
+                          new SnapshotControl(database));
+              Table singers = snapshot.get(Table.class).iterator().next();
+              assertThat(singers.getColumns()).hasSize(3);
+            }
+            assertEquals(
+                run == 0 ? 1 : 0,
+                mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+                    .filter(request -> request.getSql().equals(schemaColumnsSql))
+                    .count());
+          }
+        });
+    assertEquals(2, mockAdmin.getRequests().size());
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory)) {
+      assertThat(files).hasSize(1);
+    }
+  }
+
+  @Test
+  void testSnapshotCacheReusesAdminClient(@TempDir Path cacheDirectory) throws Exception {
+    Dialect dialect = Dialect.GOOGLE_STANDARD_SQL;
+    putMockResultsForSchemas(dialect);
+    GetDatabaseDdlResponse ddl =
+        GetDatabaseDdlResponse.newBuilder()
+            .addStatements(
+                "CREATE TABLE Singers (\n"
+                    + "  SingerId INT64 NOT NULL,\n"
+                    + ") PRIMARY KEY(SingerId)")
+            .build();
+
+    Spanner[] adminClient = new Spanner[1];
+    Scope.child(
+        SpannerConfiguration.SNAPSHOT_CACHE_DIRECTORY.getKey(),
+        cacheDirectory.toString(),
+        () -> {
+          try (Liquibase liquibase =
+              getLiquibase(createConnection(dialect), "create-snapshot.spanner.yaml")) {
+            Database database = liquibase.getDatabase();
+            assertThat(database.getConnection()).isInstanceOf(CloudSpannerConnection.class);
+            for (int run = 0; run < 2; run++) {
+              mockAdmin.addResponse(ddl);
+              SnapshotGeneratorFactory.getInstance()
+                  .createSnapshot(
+                      new CatalogAndSchema("", ""), database, new SnapshotControl(database));
+              // All snapshots on the same connection use the same admin client.
+              Spanner client = ((CloudSpannerConnection) database.getConnection()).getAdminClient();
+              if (run == 0) {
+                adminClient[0] = client;
+              } else {
+                assertThat(client).isSameInstanceAs(adminClient[0]);
+              }
+            }
+          }
+        });
+    assertEquals(2, mockAdmin.getRequests().size());
+    // The admin client is closed together with the connection.
+    assertTrue(adminClient[0].isClosed());
+  }
+
+  @Test
+  void testGenerateSnapshotFromDdl() throws Exception {
+    Dialect dialect = Dialect.GOOGLE_STANDARD_SQL;
+    putMockResultsForSchemas(dialect);
+    mockAdmin.addResponse(
+        GetDatabaseDdlResponse.newBuilder()
+            .addStatements(
+                "CREATE TABLE Singers (\n"
+                    + "  SingerId INT64 NOT NULL,\n"
+                    + "  FirstName STRING(100),\n"
+                    + "  LastName STRING(200) NOT NULL DEFAULT ('unknown'),\n"
+                    + ") PRIMARY KEY(SingerId)")
+            .addStatements(
+                "CREATE NULL_FILTERED INDEX Idx_Singers_FirstName ON Singers(FirstName)"
+                    + " STORING (LastName)")
+            .build());
+
+    Scope.child(
+        SpannerConfiguration.SNAPSHOT_FROM_DDL.getKey(),
+        true,
+        () -> {
+          try (Liquibase liquibase =
+              getLiquibase(createConnection(dialect), "create-snapshot.spanner.yaml")) {
+            Database database = liquibase.getDatabase();
+            DatabaseSnapshot snapshot =
+                SnapshotGeneratorFactory.getInstance()
+                    .createSnapshot(
+                        new CatalogAndSchema("", ""), database, new SnapshotControl(database));
+            Table singers = snapshot.get(Table.class).iterator().next();
+            assertThat(singers.getColumns()).hasSize(3);
+            assertThat(String.valueOf(singers.getColumn("LastName").getDefaultValue()))
+                .contains("unknown");
+            Index index =
+                snapshot.get(Index.class).stream()
+                    .filter(i -> i.getName().equals("Idx_Singers_FirstName"))
+                    .findFirst()
+                    .get();
+            assertEquals(1, index.getColumns().size());
+            assertEquals("FirstName", index.getColumns().get(0).getName());
+            assertEquals(
+                ImmutableList.of("LastName"), index.getAttribute("includedColumns", List.class));
+            assertEquals(Boolean.TRUE, index.getAttribute("nullFiltered", Boolean.class));
+          }
+        });
+
+    // The metadata is read with one GetDatabaseDdl RPC instead of INFORMATION_SCHEMA queries.
+    assertEquals(1, mockAdmin.getRequests().size());
+    for (String sql :
+        ImmutableList.of(GET_SCHEMA_COLUMNS_STATEMENT, GET_SCHEMA_INDEX_COLUMNS_STATEMENT)) {
+      String namedSql =
+          PARSER.convertPositionalParametersToNamedParameters('?', sql).sqlWithNamedParameters;
+      assertEquals(
+          0,
+          mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+              .filter(request -> request.getSql().equals(namedSql))
+              .count());
     }
   }
 
@@ -206,7 +443,6 @@ public class GenerateSnapshotTest extends AbstractMockServerTest {
   }
 
   void putMockResultsForSchemas(Dialect dialect) {
-    String[] columns = new String[] {"SingerId", "FirstName", "LastName"};
     String schema = dialect == Dialect.POSTGRESQL ? "PUBLIC" : "";
     String catalog = dialect == Dialect.POSTGRESQL ? "DB_PG" : "";
     AbstractStatementParser.ParametersInfo params;
@@ -282,31 +518,31 @@ public class GenerateSnapshotTest extends AbstractMockServerTest {
                 .to("SINGERS") // Table
                 .build(),
             JdbcMetadataQueries.createGetImportedKeysResultSet(ImmutableList.of())));
-    sql =
-        dialect == Dialect.POSTGRESQL
-            ? readSqlFromFile(GET_INDEX_INFO, dialect)
-            : parser.removeCommentsAndTrim(readSqlFromFile(GET_INDEX_INFO, dialect));
-    params = parser.convertPositionalParametersToNamedParameters('?', sql);
+    params =
+        parser.convertPositionalParametersToNamedParameters(
+            '?', GET_SCHEMA_INDEX_COLUMNS_STATEMENT);
     mockSpanner.putStatementResult(
         StatementResult.query(
             Statement.newBuilder(params.sqlWithNamedParameters)
                 .bind("p1")
-                .to(catalog) // Catalog
+                .to(catalog.toLowerCase()) // Catalog
                 .bind("p2")
-                .to(schema) // Schema
-                .bind("p3")
-                .to("SINGERS") // Table
-                .bind("p4")
-                .to("%") // Index
-                .bind("p5")
-                .to("%") // Unique
+                .to(schema.toLowerCase()) // Schema
                 .build(),
-            JdbcMetadataQueries.createGetIndexInfoResultSet(
+            createSchemaIndexColumnsResultSet(
+                dialect,
+                true,
                 ImmutableList.of(
                     new IndexMetaData(
                         "Singers", false, "Idx_Singers_FirstName", false, 1, "FirstName", true),
                     new IndexMetaData(
-                        "Singers", false, "Idx_Singers_FirstName", false, 2, "LastName", true)))));
+                        "Singers",
+                        false,
+                        "Idx_Singers_FirstName",
+                        false,
+                        null,
+                        "LastName",
+                        null)))));
     sql =
         dialect == Dialect.POSTGRESQL
             ? readSqlFromFile(GET_COLUMNS, dialect)
@@ -394,170 +630,21 @@ public class GenerateSnapshotTest extends AbstractMockServerTest {
                       new SequenceMetadata(
                           "testSequence", "bit_reversed_positive", 100, 5000000, 1)))));
     }
-    for (String column : columns) {
-
-      params =
-          parser.convertPositionalParametersToNamedParameters('?', GET_COLUMN_DEFAULT_STATEMENT);
-      mockSpanner.putStatementResult(
-          StatementResult.query(
-              Statement.newBuilder(params.sqlWithNamedParameters)
-                  .bind("p1")
-                  .to(catalog.toLowerCase())
-                  .bind("p2")
-                  .to(schema.toLowerCase())
-                  .bind("p3")
-                  .to("Singers".toLowerCase())
-                  .bind("p4")
-                  .to(column.toLowerCase())
-                  .build(),
-              ResultSet.newBuilder()
-                  .setMetadata(
-                      ResultSetMetadata.newBuilder()
-                          .setRowType(
-                              StructType.newBuilder()
-                                  .addFields(
-                                      StructType.Field.newBuilder()
-                                          .setName("COLUMN_DEF")
-                                          .setType(
-                                              Type.newBuilder().setCode(TypeCode.STRING).build())
-                                          .build())
-                                  .build())
-                          .build())
-                  .addRows(
-                      ListValue.newBuilder()
-                          .addValues(Value.newBuilder().setNullValue(NullValue.NULL_VALUE).build())
-                          .build())
-                  .build()));
-
-      mockSpanner.putStatementResult(
-          StatementResult.query(
-              Statement.newBuilder(params.sqlWithNamedParameters)
-                  .bind("p1")
-                  .to(catalog.toLowerCase())
-                  .bind("p2")
-                  .to(schema)
-                  .bind("p3")
-                  .to("Singers".toLowerCase())
-                  .bind("p4")
-                  .to(column.toLowerCase())
-                  .build(),
-              ResultSet.newBuilder()
-                  .setMetadata(
-                      ResultSetMetadata.newBuilder()
-                          .setRowType(
-                              StructType.newBuilder()
-                                  .addFields(
-                                      StructType.Field.newBuilder()
-                                          .setName("COLUMN_DEF")
-                                          .setType(
-                                              Type.newBuilder().setCode(TypeCode.STRING).build())
-                                          .build())
-                                  .build())
-                          .build())
-                  .addRows(
-                      ListValue.newBuilder()
-                          .addValues(Value.newBuilder().setNullValue(NullValue.NULL_VALUE).build())
-                          .build())
-                  .build()));
-
-      params = parser.convertPositionalParametersToNamedParameters('?', GET_SPANNER_TYPE_STATEMENT);
-      mockSpanner.putStatementResult(
-          StatementResult.query(
-              Statement.newBuilder(params.sqlWithNamedParameters)
-                  .bind("p1")
-                  .to(schema.toLowerCase())
-                  .bind("p2")
-                  .to("Singers".toLowerCase())
-                  .bind("p3")
-                  .to(column.toLowerCase())
-                  .build(),
-              ResultSet.newBuilder()
-                  .setMetadata(
-                      ResultSetMetadata.newBuilder()
-                          .setRowType(
-                              StructType.newBuilder()
-                                  .addFields(
-                                      StructType.Field.newBuilder()
-                                          .setName("SPANNER_TYPE")
-                                          .setType(
-                                              Type.newBuilder().setCode(TypeCode.STRING).build())
-                                          .build())
-                                  .build())
-                          .build())
-                  .addRows(
-                      ListValue.newBuilder()
-                          .addValues(Value.newBuilder().setStringValue("varchar").build())
-                          .build())
-                  .build()));
-      mockSpanner.putStatementResult(
-          StatementResult.query(
-              Statement.newBuilder(params.sqlWithNamedParameters)
-                  .bind("p1")
-                  .to(schema)
-                  .bind("p2")
-                  .to("Singers".toLowerCase())
-                  .bind("p3")
-                  .to(column.toLowerCase())
-                  .build(),
-              ResultSet.newBuilder()
-                  .setMetadata(
-                      ResultSetMetadata.newBuilder()
-                          .setRowType(
-                              StructType.newBuilder()
-                                  .addFields(
-                                      StructType.Field.newBuilder()
-                                          .setName("SPANNER_TYPE")
-                                          .setType(
-                                              Type.newBuilder().setCode(TypeCode.STRING).build())
-                                          .build())
-                                  .build())
-                          .build())
-                  .addRows(
-                      ListValue.newBuilder()
-                          .addValues(Value.newBuilder().setStringValue("varchar").build())
-                          .build())
-                  .build()));
-    }
     Map<String, String> columnTypes = new HashMap<>();
     columnTypes.put("SingerId", "bigint");
     columnTypes.put("FirstName", "varchar");
     columnTypes.put("LastName", "varchar");
 
-    for (Map.Entry<String, String> entry : columnTypes.entrySet()) {
-      String column = entry.getKey();
-      String type = entry.getValue();
-
-      params = parser.convertPositionalParametersToNamedParameters('?', GET_SPANNER_TYPE_STATEMENT);
-
-      mockSpanner.putStatementResult(
-          StatementResult.query(
-              Statement.newBuilder(params.sqlWithNamedParameters)
-                  .bind("p1")
-                  .to(schema.toLowerCase())
-                  .bind("p2")
-                  .to("Singers".toLowerCase())
-                  .bind("p3")
-                  .to(column.toLowerCase())
-                  .build(),
-              ResultSet.newBuilder()
-                  .setMetadata(
-                      ResultSetMetadata.newBuilder()
-                          .setRowType(
-                              StructType.newBuilder()
-                                  .addFields(
-                                      StructType.Field.newBuilder()
-                                          .setName("SPANNER_TYPE")
-                                          .setType(
-                                              Type.newBuilder().setCode(TypeCode.STRING).build())
-                                          .build())
-                                  .build())
-                          .build())
-                  .addRows(
-                      ListValue.newBuilder()
-                          .addValues(Value.newBuilder().setStringValue(type).build())
-                          .build())
-                  .build()));
-    }
+    params = parser.convertPositionalParametersToNamedParameters('?', GET_SCHEMA_COLUMNS_STATEMENT);
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.newBuilder(params.sqlWithNamedParameters)
+                .bind("p1")
+                .to(catalog.toLowerCase())
+                .bind("p2")
+                .to(schema.toLowerCase())
+                .build(),
+            createSchemaColumnsResultSet("Singers", columnTypes)));
     sql =
         "select view_definition from information_schema.views where table_name='Singers' and table_schema=? and table_catalog=?";
     params = parser.convertPositionalParametersToNamedParameters('?', sql);
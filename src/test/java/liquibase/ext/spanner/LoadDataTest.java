@@ -22,14 +22,31 @@ import com.google.cloud.spanner.Dialect;
 import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.connection.AbstractStatementParser;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.ListValue;
 import com.google.protobuf.Value;
+import com.google.spanner.v1.CommitRequest;
 import com.google.spanner.v1.ExecuteBatchDmlRequest;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import com.google.spanner.v1.Mutation;
+import com.google.spanner.v1.Mutation.Write;
+import com.google.spanner.v1.ResultSet;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.Type;
+import com.google.spanner.v1.TypeCode;
 import java.sql.Connection;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import liquibase.Contexts;
 import liquibase.Liquibase;
+import liquibase.Scope;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
@@ -42,6 +59,8 @@ public class LoadDataTest extends AbstractMockServerTest {
   private static final String INSERT =
       "INSERT INTO Singers(SingerId, Name, Description, SingerInfo, AnyGood, Birthdate, LastConcertTimestamp, ExternalID) "
           + "VALUES(?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final String SELECT_COLUMN_TYPES =
+      "SELECT COLUMN_NAME, SPANNER_TYPE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=?";
 
   @BeforeEach
   void resetServer() {
@@ -74,6 +93,433 @@ public class LoadDataTest extends AbstractMockServerTest {
     }
   }
 
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testLoadDataWithMutations(Dialect dialect) throws Exception {
+    registerColumnTypes(dialect);
+    Scope.child(
+        SpannerConfiguration.LOAD_DATA_WITH_MUTATIONS.getKey(),
+        true,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase = getLiquibase(con, "load-data-singers.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    assertThat(mockSpanner.getRequestsOfType(ExecuteBatchDmlRequest.class)).isEmpty();
+    List<Write> writes = new ArrayList<>();
+    for (CommitRequest commit : mockSpanner.getRequestsOfType(CommitRequest.class)) {
+      for (Mutation mutation : commit.getMutationsList()) {
+        if (mutation.hasInsert()) {
+          writes.add(mutation.getInsert());
+        }
+      }
+    }
+    List<ListValue> rows = new ArrayList<>();
+    for (Write write : writes) {
+      assertThat(write.getTable()).isEqualTo("Singers");
+      assertThat(write.getColumnsList())
+          .containsExactly(
+              "SingerId",
+              "Name",
+              "Description",
+              "SingerInfo",
+              "AnyGood",
+              "Birthdate",
+              "LastConcertTimestamp",
+              "ExternalID")
+          .inOrder();
+      rows.addAll(write.getValuesList());
+    }
+    assertThat(rows).hasSize(3);
+    for (int id : new int[] {1, 2, 3}) {
+      ListValue row = rows.get(id - 1);
+      // INT64 values are encoded as strings.
+      assertThat(row.getValues(0).getStringValue()).isEqualTo(String.valueOf(id));
+      assertThat(row.getValues(1).getStringValue()).isEqualTo("Name " + id);
+      assertThat(row.getValues(2).getStringValue())
+          .isEqualTo("This is a CLOB description " + id);
+      assertThat(row.getValues(4).getBoolValue()).isEqualTo(id % 2 == 0);
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testLoadDataInChunks(Dialect dialect) throws Exception {
+    registerColumnTypes(dialect);
+    registerChunkMetadata(dialect);
+    String progressTable =
+        dialect == Dialect.POSTGRESQL ? "databasechangelogprogress" : "DATABASECHANGELOGPROGRESS";
+    Map<String, Object> config =
+        ImmutableMap.of(
+            SpannerConfiguration.LOAD_DATA_WITH_MUTATIONS.getKey(),
+            true,
+            // Each row has 8 columns and the progress has 5 columns, so 2 rows fit in one commit.
+            SpannerConfiguration.LOAD_DATA_MAX_MUTATIONS_PER_COMMIT.getKey(),
+            21);
+    Scope.child(
+        config,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase = getLiquibase(con, "load-data-singers.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    List<CommitRequest> commits = getCommitsWithInserts();
+    assertThat(commits).hasSize(2);
+    assertThat(countInsertedRows(commits.get(0))).isEqualTo(2);
+    assertThat(countInsertedRows(commits.get(1))).isEqualTo(1);
+    // Each chunk records the progress in the same commit.
+    Write progress = getProgress(commits.get(1), progressTable);
+    assertThat(progress.getValues(0).getValues(4).getStringValue()).isEqualTo("3");
+    // The progress is removed after the changeset has been recorded.
+    assertThat(
+            mockSpanner.getRequestsOfType(CommitRequest.class).stream()
+                .flatMap(commit -> commit.getMutationsList().stream())
+                .filter(Mutation::hasDelete)
+                .map(mutation -> mutation.getDelete().getTable())
+                .collect(Collectors.toList()))
+        .containsExactly(progressTable);
+
+    // Simulate a failed run that committed the first chunk, and run the changeset again.
+    String md5sum = progress.getValues(0).getValues(3).getStringValue();
+    mockSpanner.putPartialStatementResult(
+        StatementResult.query(
+            Statement.of(
+                dialect == Dialect.POSTGRESQL
+                    ? "SELECT md5sum, rows_committed FROM databasechangelogprogress"
+                    : "SELECT MD5SUM, ROWS_COMMITTED FROM DATABASECHANGELOGPROGRESS"),
+            createProgressResultSet(md5sum, 2L)));
+    mockSpanner.clearRequests();
+    Scope.child(
+        config,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase = getLiquibase(con, "load-data-singers.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    commits = getCommitsWithInserts();
+    assertThat(commits).hasSize(1);
+    assertThat(countInsertedRows(commits.get(0))).isEqualTo(1);
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testLoadDataInParallel(Dialect dialect) throws Exception {
+    registerColumnTypes(dialect);
+    AbstractStatementParser parser = dialect == Dialect.POSTGRESQL ? PARSER_PG : PARSER;
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.newBuilder(
+                    parser.convertPositionalParametersToNamedParameters(
+                            '?',
+                            "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=? AND INDEX_TYPE='PRIMARY_KEY' ORDER BY ORDINAL_POSITION")
+                        .sqlWithNamedParameters)
+                .bind("p1")
+                .to(dialect == Dialect.POSTGRESQL ? "db_pg" : "")
+                .bind("p2")
+                .to(dialect == Dialect.POSTGRESQL ? "public" : "")
+                .bind("p3")
+                .to("Singers")
+                .build(),
+            ResultSet.newBuilder()
+                .setMetadata(
+                    ResultSetMetadata.newBuilder()
+                        .setRowType(
+                            StructType.newBuilder()
+                                .addFields(
+                                    Field.newBuilder()
+                                        .setName("COLUMN_NAME")
+                                        .setType(Type.newBuilder().setCode(TypeCode.STRING)))))
+                .addRows(
+                    ListValue.newBuilder()
+                        .addValues(Value.newBuilder().setStringValue("SingerId")))
+                .build()));
+
+    Map<String, Object> config =
+        ImmutableMap.of(
+            SpannerConfiguration.LOAD_DATA_WITH_MUTATIONS.getKey(),
+            true,
+            SpannerConfiguration.LOAD_DATA_PARALLELISM.getKey(),
+            3);
+    Scope.child(
+        config,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase = getLiquibase(con, "load-data-singers.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    // All rows are written as mutations, and each partition is written in its own commit.
+    List<CommitRequest> commits = getCommitsWithInserts();
+    assertThat(commits).isNotEmpty();
+    assertThat(commits.size()).isAtMost(3);
+    assertThat(commits.stream().mapToInt(LoadDataTest::countInsertedRows).sum()).isEqualTo(3);
+    assertThat(mockSpanner.getRequestsOfType(ExecuteBatchDmlRequest.class)).isEmpty();
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testStreamGzipWithMutations(Dialect dialect) throws Exception {
+    registerColumnTypes(dialect);
+    registerChunkMetadata(dialect);
+    String progressTable =
+        dialect == Dialect.POSTGRESQL ? "databasechangelogprogress" : "DATABASECHANGELOGPROGRESS";
+    Map<String, Object> config =
+        ImmutableMap.of(
+            SpannerConfiguration.LOAD_DATA_WITH_MUTATIONS.getKey(),
+            true,
+            SpannerConfiguration.LOAD_DATA_STREAM_BATCH_SIZE.getKey(),
+            2);
+    Scope.child(
+        config,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase = getLiquibase(con, "load-data-singers-gzip.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    assertThat(mockSpanner.getRequestsOfType(ExecuteBatchDmlRequest.class)).isEmpty();
+    // The rows are written in batches of 2 rows while the file is read.
+    List<CommitRequest> commits = getCommitsWithInserts();
+    assertThat(commits).hasSize(2);
+    assertThat(countInsertedRows(commits.get(0))).isEqualTo(2);
+    assertThat(countInsertedRows(commits.get(1))).isEqualTo(1);
+    Write firstRows =
+        commits.get(0).getMutationsList().stream()
+            .filter(Mutation::hasInsert)
+            .map(Mutation::getInsert)
+            .findFirst()
+            .get();
+    assertThat(firstRows.getTable()).isEqualTo("Singers");
+    assertThat(firstRows.getValues(0).getValues(0).getStringValue()).isEqualTo("1");
+    assertThat(firstRows.getValues(0).getValues(2).getStringValue())
+        .isEqualTo("This is a CLOB description 1");
+    assertThat(firstRows.getValues(1).getValues(4).getBoolValue()).isTrue();
+    // Each batch records the progress in the same commit.
+    assertThat(getProgress(commits.get(0), progressTable).getValues(0).getValues(4))
+        .isEqualTo(Value.newBuilder().setStringValue("2").build());
+    assertThat(getProgress(commits.get(1), progressTable).getValues(0).getValues(4))
+        .isEqualTo(Value.newBuilder().setStringValue("3").build());
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testStreamWithDml(Dialect dialect) throws Exception {
+    registerColumnTypes(dialect);
+    registerChunkMetadata(dialect);
+    mockSpanner.putPartialStatementResult(
+        StatementResult.update(Statement.of("INSERT INTO Singers (SingerId, Name"), 1L));
+    Scope.child(
+        SpannerConfiguration.LOAD_DATA_STREAM_BATCH_SIZE.getKey(),
+        2,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase = getLiquibase(con, "load-data-singers.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    List<ExecuteBatchDmlRequest> requests =
+        mockSpanner.getRequestsOfType(ExecuteBatchDmlRequest.class);
+    assertThat(requests).hasSize(2);
+    assertThat(requests.get(0).getStatementsList()).hasSize(2);
+    assertThat(requests.get(1).getStatementsList()).hasSize(1);
+    assertThat(requests.get(1).getStatements(0).getParams().getFieldsMap().get("p1"))
+        .isEqualTo(Value.newBuilder().setStringValue("3").build());
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testLoadDataWithMultiRowInserts(Dialect dialect) throws Exception {
+    String insertPrefix = "INSERT INTO TableWithEscapedStringData (Id, ColString) VALUES ";
+    mockSpanner.putPartialStatementResult(StatementResult.update(Statement.of(insertPrefix), 2L));
+    Scope.child(
+        SpannerConfiguration.LOAD_DATA_ROWS_PER_STATEMENT.getKey(),
+        2,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase =
+                  getLiquibase(con, "load-data-with-single-quotes.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    // The three rows are inserted with two multi-row statements.
+    List<String> inserts =
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .map(ExecuteSqlRequest::getSql)
+            .filter(sql -> sql.startsWith(insertPrefix))
+            .collect(Collectors.toList());
+    assertThat(inserts).hasSize(2);
+    assertThat(inserts.get(0)).startsWith(insertPrefix + "(1, ");
+    assertThat(inserts.get(0)).contains("), (2, ");
+    assertThat(inserts.get(1)).startsWith(insertPrefix + "(3, ");
+  }
+
+  private static List<CommitRequest> getCommitsWithInserts() {
+    List<CommitRequest> commits = new ArrayList<>();
+    for (CommitRequest commit : mockSpanner.getRequestsOfType(CommitRequest.class)) {
+      if (commit.getMutationsList().stream().anyMatch(Mutation::hasInsert)) {
+        commits.add(commit);
+      }
+    }
+    return commits;
+  }
+
+  private static int countInsertedRows(CommitRequest commit) {
+    int rows = 0;
+    for (Mutation mutation : commit.getMutationsList()) {
+      if (mutation.hasInsert()) {
+        rows += mutation.getInsert().getValuesCount();
+      }
+    }
+    return rows;
+  }
+
+  private static Write getProgress(CommitRequest commit, String progressTable) {
+    return commit.getMutationsList().stream()
+        .filter(Mutation::hasInsertOrUpdate)
+        .map(Mutation::getInsertOrUpdate)
+        .filter(write -> write.getTable().equals(progressTable))
+        .findFirst()
+        .get();
+  }
+
+  private static void registerChunkMetadata(Dialect dialect) {
+    AbstractStatementParser parser = dialect == Dialect.POSTGRESQL ? PARSER_PG : PARSER;
+    // There are no secondary indexes on the table.
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.newBuilder(
+                    parser.convertPositionalParametersToNamedParameters(
+                            '?',
+                            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEX_COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=? AND INDEX_TYPE='INDEX'")
+                        .sqlWithNamedParameters)
+                .bind("p1")
+                .to(dialect == Dialect.POSTGRESQL ? "db_pg" : "")
+                .bind("p2")
+                .to(dialect == Dialect.POSTGRESQL ? "public" : "")
+                .bind("p3")
+                .to("Singers")
+                .build(),
+            createInt64ResultSet(0L)));
+    // The progress table already exists.
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.newBuilder(
+                    parser.convertPositionalParametersToNamedParameters(
+                            '?',
+                            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA=? AND TABLE_NAME=?")
+                        .sqlWithNamedParameters)
+                .bind("p1")
+                .to(dialect == Dialect.POSTGRESQL ? "public" : "")
+                .bind("p2")
+                .to(
+                    dialect == Dialect.POSTGRESQL
+                        ? "databasechangelogprogress"
+                        : "DATABASECHANGELOGPROGRESS")
+                .build(),
+            createInt64ResultSet(1L)));
+    // There is no progress from a previous run.
+    mockSpanner.putPartialStatementResult(
+        StatementResult.query(
+            Statement.of(
+                dialect == Dialect.POSTGRESQL
+                    ? "SELECT md5sum, rows_committed FROM databasechangelogprogress"
+                    : "SELECT MD5SUM, ROWS_COMMITTED FROM DATABASECHANGELOGPROGRESS"),
+            createProgressResultSet(null, 0L)));
+  }
+
+  private static ResultSet createProgressResultSet(String md5sum, long committedRows) {
+    ResultSet.Builder resultSet =
+        ResultSet.newBuilder()
+            .setMetadata(
+                ResultSetMetadata.newBuilder()
+                    .setRowType(
+                        StructType.newBuilder()
+                            .addFields(
+                                Field.newBuilder()
+                                    .setName("MD5SUM")
+                                    .setType(Type.newBuilder().setCode(TypeCode.STRING)))
+                            .addFields(
+                                Field.newBuilder()
+                                    .setName("ROWS_COMMITTED")
+                                    .setType(Type.newBuilder().setCode(TypeCode.INT64)))));
+    if (md5sum != null) {
+      resultSet.addRows(
+          ListValue.newBuilder()
+              .addValues(Value.newBuilder().setStringValue(md5sum))
+              .addValues(Value.newBuilder().setStringValue(String.valueOf(committedRows))));
+    }
+    return resultSet.build();
+  }
+
+  private static void registerColumnTypes(Dialect dialect) {
+    Map<String, String> columnTypes =
+        dialect == Dialect.POSTGRESQL
+            ? ImmutableMap.<String, String>builder()
+                .put("SingerId", "bigint")
+                .put("Name", "character varying")
+                .put("Description", "character varying")
+                .put("SingerInfo", "bytea")
+                .put("AnyGood", "boolean")
+                .put("Birthdate", "date")
+                .put("LastConcertTimestamp", "timestamp with time zone")
+                .put("ExternalID", "character varying(36)")
+                .build()
+            : ImmutableMap.<String, String>builder()
+                .put("SingerId", "INT64")
+                .put("Name", "STRING(MAX)")
+                .put("Description", "STRING(MAX)")
+                .put("SingerInfo", "BYTES(MAX)")
+                .put("AnyGood", "BOOL")
+                .put("Birthdate", "DATE")
+                .put("LastConcertTimestamp", "TIMESTAMP")
+                .put("ExternalID", "STRING(36)")
+                .build();
+    ResultSet.Builder resultSet =
+        ResultSet.newBuilder()
+            .setMetadata(
+                ResultSetMetadata.newBuilder()
+                    .setRowType(
+                        StructType.newBuilder()
+                            .addFields(
+                                Field.newBuilder()
+                                    .setName("COLUMN_NAME")
+                                    .setType(Type.newBuilder().setCode(TypeCode.STRING)))
+                            .addFields(
+                                Field.newBuilder()
+                                    .setName("SPANNER_TYPE")
+                                    .setType(Type.newBuilder().setCode(TypeCode.STRING)))));
+    for (Map.Entry<String, String> column : columnTypes.entrySet()) {
+      resultSet.addRows(
+          ListValue.newBuilder()
+              .addValues(Value.newBuilder().setStringValue(column.getKey()))
+              .addValues(Value.newBuilder().setStringValue(column.getValue())));
+    }
+    AbstractStatementParser parser = dialect == Dialect.POSTGRESQL ? PARSER_PG : PARSER;
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.newBuilder(
+                    parser.convertPositionalParametersToNamedParameters('?', SELECT_COLUMN_TYPES)
+                        .sqlWithNamedParameters)
+                .bind("p1")
+                .to(dialect == Dialect.POSTGRESQL ? "db_pg" : "")
+                .bind("p2")
+                .to(dialect == Dialect.POSTGRESQL ? "public" : "")
+                .bind("p3")
+                .to("Singers")
+                .build(),
+            resultSet.build()));
+  }
+
   static void setupResults(Dialect dialect) throws ParseException {
     Date[] birthdates =
         new Date[] {
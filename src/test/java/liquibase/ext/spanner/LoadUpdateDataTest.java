@@ -26,9 +26,12 @@ import com.google.spanner.v1.ExecuteSqlRequest;
 import java.sql.Connection;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import liquibase.Contexts;
 import liquibase.Liquibase;
+import liquibase.Scope;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
@@ -42,6 +45,10 @@ public class LoadUpdateDataTest extends AbstractMockServerTest {
           + "SELECT @id, @name, @description, @singerinfo, @anygood, @birthdate, @lastconcert, @externalid FROM UNNEST([1]) "
           + "WHERE NOT EXISTS (SELECT SingerId FROM Singers WHERE SingerId = @id)";
 
+  private static final String INSERT_OR_UPDATE =
+      "INSERT OR UPDATE INTO Singers (SingerId, Name, Description, SingerInfo, AnyGood, Birthdate, LastConcertTimestamp, ExternalID) "
+          + "SELECT @id, @name, @description, @singerinfo, @anygood, @birthdate, @lastconcert, @externalid";
+
   private static final String UPDATE =
       "UPDATE Singers SET "
           + "AnyGood = @anygood, Birthdate = @birthdate, Description = @description, "
@@ -77,38 +84,42 @@ public class LoadUpdateDataTest extends AbstractMockServerTest {
   @ParameterizedTest
   @EnumSource(Dialect.class)
   void testLoadUpdateDataFromYaml(Dialect dialect) throws Exception {
-    CloudSpanner db;
-    for (String file :
-        new String[] {
-          dialect == Dialect.POSTGRESQL
-              ? "load-update-data-singers.spanner-pg.yaml"
-              : "load-update-data-singers.spanner.yaml"
-        }) {
-      try (Connection con = createConnection(dialect);
-          Liquibase liquibase = getLiquibase(con, file)) {
-        db = (CloudSpanner) liquibase.getDatabase();
-        registerInsertUpdateStatements(db, dialect);
-        liquibase.update(new Contexts("test"));
+    runLoadUpdateData(dialect);
+
+    Iterator<ExecuteSqlRequest> requests = getInsertAndUpdateRequests();
+    for (int id : new int[] {1, 2, 3}) {
+      assertThat(requests.hasNext()).isTrue();
+      ExecuteSqlRequest request = requests.next();
+      if (dialect == Dialect.POSTGRESQL) {
+        assertThat(request.getSql()).startsWith("INSERT");
+        assertThat(request.getSql()).contains("SELECT " + id);
+        assertThat(requests.hasNext()).isTrue();
+        request = requests.next();
+        assertThat(request.getSql()).startsWith("UPDATE");
+        assertThat(request.getSql()).endsWith("WHERE SingerId = " + id);
+      } else {
+        // GoogleSQL uses one INSERT OR UPDATE statement per row.
+        assertThat(request.getSql()).startsWith("INSERT OR UPDATE INTO Singers");
+        assertThat(request.getSql()).contains("SELECT " + id + ", 'Name " + id + "'");
+        assertThat(request.getSql()).doesNotContain("NOT EXISTS");
       }
     }
+    assertThat(requests.hasNext()).isFalse();
+  }
 
-    Iterable<ExecuteSqlRequest> sqlRequests =
-        Iterables.filter(mockSpanner.getRequests(), ExecuteSqlRequest.class);
-    Iterator<ExecuteSqlRequest> requests =
-        Iterables.filter(
-                sqlRequests,
-                new Predicate<ExecuteSqlRequest>() {
-                  @Override
-                  public boolean apply(ExecuteSqlRequest request) {
-                    return request.getSql().startsWith("INSERT INTO Singers")
-                        || request.getSql().startsWith("UPDATE Singers");
-                  }
-                })
-            .iterator();
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testLoadUpdateDataWithoutInsertOrUpdate(Dialect dialect) throws Exception {
+    Scope.child(
+        SpannerConfiguration.USE_INSERT_OR_UPDATE.getKey(),
+        false,
+        () -> runLoadUpdateData(dialect));
+
+    Iterator<ExecuteSqlRequest> requests = getInsertAndUpdateRequests();
     for (int id : new int[] {1, 2, 3}) {
       assertThat(requests.hasNext()).isTrue();
       ExecuteSqlRequest request = requests.next();
-      assertThat(request.getSql()).startsWith("INSERT");
+      assertThat(request.getSql()).startsWith("INSERT INTO");
       if (dialect == Dialect.POSTGRESQL) {
         assertThat(request.getSql()).contains("SELECT " + id);
       } else {
@@ -124,6 +135,67 @@ public class LoadUpdateDataTest extends AbstractMockServerTest {
     assertThat(requests.hasNext()).isFalse();
   }
 
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testLoadUpdateDataWithParameterizedInserts(Dialect dialect) throws Exception {
+    String insertPrefix =
+        dialect == Dialect.POSTGRESQL ? "INSERT INTO Singers" : "INSERT OR UPDATE INTO Singers";
+    mockSpanner.putPartialStatementResult(StatementResult.update(Statement.of(insertPrefix), 1L));
+    Scope.child(
+        SpannerConfiguration.PARAMETERIZED_INSERTS.getKey(),
+        true,
+        () -> runLoadUpdateData(dialect));
+
+    List<ExecuteSqlRequest> inserts = new ArrayList<>();
+    getInsertAndUpdateRequests()
+        .forEachRemaining(
+            request -> {
+              if (request.getSql().startsWith(insertPrefix)) {
+                inserts.add(request);
+              }
+            });
+    assertThat(inserts).hasSize(3);
+    String placeholder = dialect == Dialect.POSTGRESQL ? "$1" : "@p1";
+    for (int i = 0; i < inserts.size(); i++) {
+      ExecuteSqlRequest request = inserts.get(i);
+      // All rows share the same statement text, and the values are sent as parameters.
+      assertThat(request.getSql()).isEqualTo(inserts.get(0).getSql());
+      assertThat(request.getSql()).contains(placeholder);
+      assertThat(request.getSql()).doesNotContain("Name " + (i + 1));
+      assertThat(request.getParams().getFieldsMap()).containsKey("p1");
+      assertThat(request.getParams().getFieldsMap().get("p1").getStringValue())
+          .isEqualTo(String.valueOf(i + 1));
+    }
+  }
+
+  private void runLoadUpdateData(Dialect dialect) throws Exception {
+    String file =
+        dialect == Dialect.POSTGRESQL
+            ? "load-update-data-singers.spanner-pg.yaml"
+            : "load-update-data-singers.spanner.yaml";
+    try (Connection con = createConnection(dialect);
+        Liquibase liquibase = getLiquibase(con, file)) {
+      registerInsertUpdateStatements((CloudSpanner) liquibase.getDatabase(), dialect);
+      liquibase.update(new Contexts("test"));
+    }
+  }
+
+  private static Iterator<ExecuteSqlRequest> getInsertAndUpdateRequests() {
+    Iterable<ExecuteSqlRequest> sqlRequests =
+        Iterables.filter(mockSpanner.getRequests(), ExecuteSqlRequest.class);
+    return Iterables.filter(
+            sqlRequests,
+            new Predicate<ExecuteSqlRequest>() {
+              @Override
+              public boolean apply(ExecuteSqlRequest request) {
+                return request.getSql().startsWith("INSERT INTO Singers")
+                    || request.getSql().startsWith("INSERT OR UPDATE INTO Singers")
+                    || request.getSql().startsWith("UPDATE Singers");
+              }
+            })
+        .iterator();
+  }
+
   private void registerInsertUpdateStatements(CloudSpanner db, Dialect dialect)
       throws ParseException {
     Date[] birthdates =
@@ -156,23 +228,28 @@ public class LoadUpdateDataTest extends AbstractMockServerTest {
           "'f1f4c7d2-9ae8-4fdb-94f6-7931736c9cd1'",
         };
 
-    String insertTemplate = dialect == Dialect.POSTGRESQL ? INSERT_PG : INSERT;
     String updateTemplate = dialect == Dialect.POSTGRESQL ? UPDATE_PG : UPDATE;
     for (int id : new int[] {1, 2, 3}) {
-      String insert =
-          insertTemplate
-              .replaceAll("@id", String.valueOf(id))
-              .replaceAll("@name", "'Name " + id + "'")
-              .replaceAll("@description", "'Description " + id + "'")
-              .replaceAll("@singerinfo", dialect == Dialect.POSTGRESQL ? "'test'" : "NULL")
-              .replaceAll("@anygood", String.valueOf(id % 2 == 0).toUpperCase())
-              .replaceAll(
-                  "@birthdate",
-                  db.getDateLiteral(
-                      new java.sql.Date(Date.toJavaUtilDate(birthdates[id - 1]).getTime())))
-              .replaceAll("@lastconcert", db.getDateLiteral(concertDates[id - 1].toSqlTimestamp()))
-              .replaceAll("@externalid", uuids[id - 1]);
-      mockSpanner.putStatementResult(StatementResult.update(Statement.of(insert), 1L));
+      for (String insertTemplate :
+          dialect == Dialect.POSTGRESQL
+              ? new String[] {INSERT_PG}
+              : new String[] {INSERT, INSERT_OR_UPDATE}) {
+        String insert =
+            insertTemplate
+                .replaceAll("@id", String.valueOf(id))
+                .replaceAll("@name", "'Name " + id + "'")
+                .replaceAll("@description", "'Description " + id + "'")
+                .replaceAll("@singerinfo", dialect == Dialect.POSTGRESQL ? "'test'" : "NULL")
+                .replaceAll("@anygood", String.valueOf(id % 2 == 0).toUpperCase())
+                .replaceAll(
+                    "@birthdate",
+                    db.getDateLiteral(
+                        new java.sql.Date(Date.toJavaUtilDate(birthdates[id - 1]).getTime())))
+                .replaceAll(
+                    "@lastconcert", db.getDateLiteral(concertDates[id - 1].toSqlTimestamp()))
+                .replaceAll("@externalid", uuids[id - 1]);
+        mockSpanner.putStatementResult(StatementResult.update(Statement.of(insert), 1L));
+      }
       String update =
           updateTemplate
               .replaceAll("@id", String.valueOf(id))
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import java.sql.Connection;
+import java.util.List;
+import java.util.stream.Collectors;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.Scope;
+import liquibase.exception.DatabaseException;
+import liquibase.exception.LockException;
+import liquibase.ext.spanner.executor.JdbcExecutorSpanner;
+import liquibase.ext.spanner.lockservice.LockServiceSpanner;
+import liquibase.lockservice.LockService;
+import liquibase.lockservice.LockServiceFactory;
+import liquibase.statement.core.RawSqlStatement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class LockServiceTest extends AbstractMockServerTest {
+
+  @BeforeEach
+  void resetServer() {
+    mockSpanner.reset();
+    mockAdmin.reset();
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testAcquireAndReleaseLease(Dialect dialect) throws Exception {
+    String expectedSql =
+        dialect == Dialect.POSTGRESQL
+            ? "ALTER TABLE Singers ADD SingerInfo bytea"
+            : "ALTER TABLE Singers ADD SingerInfo BYTES(MAX)";
+    addUpdateDdlStatementsResponse(dialect, expectedSql);
+
+    Scope.child(
+        SpannerConfiguration.LOCK_LEASE_SECONDS.getKey(),
+        60,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase =
+                  getLiquibase(con, "add-singerinfo-to-singers-table.spanner.yaml")) {
+            assertThat(LockServiceFactory.getInstance().getLockService(liquibase.getDatabase()))
+                .isInstanceOf(LockServiceSpanner.class);
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    List<ExecuteSqlRequest> requests = mockSpanner.getRequestsOfType(ExecuteSqlRequest.class);
+    // The lock is acquired without first reading the LOCKED column.
+    assertThat(
+            requests.stream()
+                .anyMatch(request -> request.getSql().equals(SELECT_LOCKED.getSql())))
+        .isFalse();
+    List<ExecuteSqlRequest> acquire =
+        requests.stream()
+            .filter(request -> request.getSql().startsWith(ACQUIRE_LOCK.getSql()))
+            .collect(Collectors.toList());
+    assertThat(acquire).hasSize(1);
+    assertThat(acquire.get(0).getSql())
+        .contains(
+            dialect == Dialect.POSTGRESQL
+                ? "LOCKGRANTED < spanner.timestamptz_subtract(CURRENT_TIMESTAMP, '60 seconds')"
+                : "LOCKGRANTED < TIMESTAMP_SUB(CURRENT_TIMESTAMP(), INTERVAL 60 SECOND)");
+    List<ExecuteSqlRequest> release =
+        requests.stream()
+            .filter(request -> request.getSql().startsWith(RELEASE_LEASE.getSql()))
+            .collect(Collectors.toList());
+    assertThat(release).hasSize(1);
+    // The lease is only released by the process that holds it.
+    assertThat(release.get(0).getParams().getFieldsMap().get("p1"))
+        .isEqualTo(acquire.get(0).getParams().getFieldsMap().get("p1"));
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testLeaseTakenOver(Dialect dialect) throws Exception {
+    // The heartbeat does not find the lease of this process, as another process has taken it over.
+    mockSpanner.putPartialStatementResult(
+        StatementResult.update(
+            Statement.of("UPDATE DATABASECHANGELOGLOCK SET LOCKGRANTED = "), 0L));
+
+    Scope.child(
+        SpannerConfiguration.LOCK_LEASE_SECONDS.getKey(),
+        3,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase =
+                  getLiquibase(con, "add-singerinfo-to-singers-table.spanner.yaml")) {
+            LockService lockService =
+                LockServiceFactory.getInstance().getLockService(liquibase.getDatabase());
+            lockService.waitForLock();
+            JdbcExecutorSpanner executor = JdbcExecutorSpanner.getInstance(liquibase.getDatabase());
+            long deadline = System.currentTimeMillis() + 10_000L;
+            while (!executor.isLockLost() && System.currentTimeMillis() < deadline) {
+              Thread.sleep(50L);
+            }
+            assertThat(executor.isLockLost()).isTrue();
+
+            // The update stops at the next statement, and is not reported as successful.
+            DatabaseException exception =
+                assertThrows(
+                    DatabaseException.class,
+                    () -> executor.execute(new RawSqlStatement("DELETE FROM Singers WHERE TRUE")));
+            assertThat(exception.getMessage()).contains("was taken over");
+            assertThrows(LockException.class, lockService::releaseLock);
+            assertThat(executor.isLockLost()).isFalse();
+          }
+        });
+
+    // The statement was never sent to Spanner.
+    assertThat(
+            mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+                .anyMatch(request -> request.getSql().startsWith("DELETE FROM Singers")))
+        .isFalse();
+  }
+}
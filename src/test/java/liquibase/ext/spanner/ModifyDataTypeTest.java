@@ -22,15 +22,20 @@ import com.google.cloud.spanner.connection.AbstractStatementParser;
 import com.google.protobuf.ListValue;
 import com.google.protobuf.Value;
 import com.google.spanner.admin.database.v1.UpdateDatabaseDdlRequest;
+import com.google.spanner.v1.ExecuteSqlRequest;
 import com.google.spanner.v1.ResultSet;
 import com.google.spanner.v1.ResultSetMetadata;
 import com.google.spanner.v1.StructType;
 import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.TransactionSelector;
 import com.google.spanner.v1.Type;
 import com.google.spanner.v1.TypeCode;
 import java.sql.Connection;
+import java.util.List;
+import java.util.stream.Collectors;
 import liquibase.Contexts;
 import liquibase.Liquibase;
+import liquibase.Scope;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
@@ -39,6 +44,8 @@ import org.junit.jupiter.params.provider.EnumSource;
 
 @Execution(ExecutionMode.SAME_THREAD)
 public class ModifyDataTypeTest extends AbstractMockServerTest {
+  private static final String FIND_COLUMN =
+      "SELECT IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=? AND COLUMN_NAME=?";
 
   @BeforeEach
   void resetServer() {
@@ -93,12 +100,82 @@ public class ModifyDataTypeTest extends AbstractMockServerTest {
     assertThat(request.getStatementsList().get(0)).isEqualTo(expectedSql);
   }
 
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testModifyDataTypeReadsColumnWithStaleness(Dialect dialect) throws Exception {
+    registerStatement(dialect);
+    String expectedSql =
+        dialect == Dialect.POSTGRESQL
+            ? "ALTER TABLE Singers ALTER COLUMN SingerInfo TYPE varchar, ALTER COLUMN SingerInfo DROP NOT NULL"
+            : "ALTER TABLE Singers ALTER COLUMN SingerInfo STRING(MAX)";
+    addUpdateDdlStatementsResponse(dialect, expectedSql);
+
+    Scope.child(
+        SpannerConfiguration.METADATA_STALENESS.getKey(),
+        "MAX_STALENESS 10s",
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase =
+                  getLiquibase(con, "modify-data-type-singers-singerinfo.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    AbstractStatementParser parser = dialect == Dialect.POSTGRESQL ? PARSER_PG : PARSER;
+    String findColumnSql =
+        parser.convertPositionalParametersToNamedParameters('?', FIND_COLUMN)
+            .sqlWithNamedParameters;
+    List<ExecuteSqlRequest> requests =
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .filter(request -> request.getSql().equals(findColumnSql))
+            .collect(Collectors.toList());
+    assertThat(requests).hasSize(1);
+    TransactionSelector transaction = requests.get(0).getTransaction();
+    assertThat(transaction.getSingleUse().getReadOnly().getMaxStaleness().getSeconds())
+        .isEqualTo(10L);
+    assertThat(mockAdmin.getRequests()).hasSize(1);
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testModifyDataTypeWithAutoBatchDdlReadsColumnOnce(Dialect dialect) throws Exception {
+    registerStatement(dialect);
+    String expectedSql =
+        dialect == Dialect.POSTGRESQL
+            ? "ALTER TABLE Singers ALTER COLUMN SingerInfo TYPE varchar, ALTER COLUMN SingerInfo DROP NOT NULL"
+            : "ALTER TABLE Singers ALTER COLUMN SingerInfo STRING(MAX)";
+    addUpdateDdlStatementsResponse(dialect, expectedSql);
+
+    Scope.child(
+        SpannerConfiguration.AUTO_BATCH_DDL.getKey(),
+        true,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase =
+                  getLiquibase(con, "modify-data-type-singers-singerinfo.spanner.yaml")) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    // The SQL of the statement is generated once, both to classify and to execute it.
+    AbstractStatementParser parser = dialect == Dialect.POSTGRESQL ? PARSER_PG : PARSER;
+    String findColumnSql =
+        parser.convertPositionalParametersToNamedParameters('?', FIND_COLUMN)
+            .sqlWithNamedParameters;
+    assertThat(
+            mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+                .filter(request -> request.getSql().equals(findColumnSql))
+                .count())
+        .isEqualTo(1L);
+    assertThat(mockAdmin.getRequests()).hasSize(1);
+    assertThat(((UpdateDatabaseDdlRequest) mockAdmin.getRequests().get(0)).getStatementsList())
+        .containsExactly(expectedSql);
+  }
+
   private static void registerStatement(Dialect dialect) {
     String catalog = dialect == Dialect.POSTGRESQL ? "db_pg" : "";
     String schema = dialect == Dialect.POSTGRESQL ? "public" : "";
     AbstractStatementParser parser = dialect == Dialect.POSTGRESQL ? PARSER_PG : PARSER;
-    final String FIND_COLUMN =
-        "SELECT IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=? AND TABLE_NAME=? AND COLUMN_NAME=?";
     AbstractStatementParser.ParametersInfo findColumnParams =
         parser.convertPositionalParametersToNamedParameters('?', FIND_COLUMN);
 
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
+import com.google.spanner.v1.BeginTransactionRequest;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import java.sql.Connection;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.Scope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class PartitionedDmlTest extends AbstractMockServerTest {
+  private static final String FILE = "update-delete-singers-partitioned.spanner.yaml";
+
+  @BeforeEach
+  void resetServer() {
+    mockSpanner.reset();
+    mockAdmin.reset();
+    mockSpanner.putPartialStatementResult(
+        StatementResult.update(Statement.of("UPDATE Singers SET LastName = 'Unknown'"), 10L));
+    mockSpanner.putPartialStatementResult(
+        StatementResult.update(Statement.of("DELETE FROM Concerts"), 100L));
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testPartitionedUpdate(Dialect dialect) throws Exception {
+    try (Connection con = createConnection(dialect);
+        Liquibase liquibase = getLiquibase(con, FILE)) {
+      liquibase.update(new Contexts("test"));
+    }
+
+    // Only the update has the 'partitioned' attribute. The delete uses transactional DML.
+    assertThat(countPartitionedDmlTransactions()).isEqualTo(1L);
+    assertThat(getSql("UPDATE Singers")).endsWith("WHERE LastName IS NULL");
+    assertThat(getSql("DELETE FROM Concerts")).endsWith("WHERE true");
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testPartitionedDmlWithoutWhere(Dialect dialect) throws Exception {
+    Scope.child(
+        SpannerConfiguration.PARTITIONED_DML_WITHOUT_WHERE.getKey(),
+        true,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase = getLiquibase(con, FILE)) {
+            liquibase.update(new Contexts("test"));
+          }
+        });
+
+    assertThat(countPartitionedDmlTransactions()).isEqualTo(2L);
+    assertThat(getSql("DELETE FROM Concerts")).endsWith("WHERE true");
+  }
+
+  private static long countPartitionedDmlTransactions() {
+    return mockSpanner.getRequestsOfType(BeginTransactionRequest.class).stream()
+        .filter(request -> request.hasOptions() && request.getOptions().hasPartitionedDml())
+        .count();
+  }
+
+  private static String getSql(String prefix) {
+    return getRequest(prefix).getSql();
+  }
+
+  private static ExecuteSqlRequest getRequest(String prefix) {
+    return mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+        .filter(request -> request.getSql().startsWith(prefix))
+        .findFirst()
+        .orElseThrow(() -> new AssertionError("No request found for " + prefix));
+  }
+}
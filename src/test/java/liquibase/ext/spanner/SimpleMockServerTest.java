@@ -9,7 +9,10 @@ import com.google.spanner.admin.database.v1.UpdateDatabaseDdlRequest;
 import java.sql.Connection;
 import java.sql.SQLException;
 import liquibase.Liquibase;
+import liquibase.Scope;
+import liquibase.database.jvm.JdbcConnection;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -65,4 +68,46 @@ public class SimpleMockServerTest extends AbstractMockServerTest {
       liquibase.validate();
     }
   }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testReplacementConnection(Dialect dialect) throws Exception {
+    try (Connection con = createConnection(dialect);
+        Liquibase liquibase = getLiquibase(con, "changelog.spanner.sql")) {
+      String url = liquibase.getDatabase().getConnection().getURL();
+      assertThat(url).contains(";userAgent=sp-liq");
+      assertThat(url).contains(";numChannels=1");
+      // The test URL already sets minSessions, which is not repeated.
+      assertThat(url.indexOf("minSessions")).isEqualTo(url.lastIndexOf("minSessions"));
+    }
+  }
+
+  @Test
+  void testReplacementUrl() {
+    String url = "jdbc:cloudspanner://localhost:9010/projects/p/instances/i/databases/d";
+    assertThat(CloudSpanner.getReplacementUrl(url))
+        .isEqualTo(url + ";userAgent=sp-liq;minSessions=0;numChannels=1");
+    assertThat(CloudSpanner.getReplacementUrl(url + ";MinSessions=10;numChannels=4"))
+        .isEqualTo(url + ";MinSessions=10;numChannels=4;userAgent=sp-liq");
+  }
+
+  @ParameterizedTest
+  @EnumSource(Dialect.class)
+  void testReuseUserConnection(Dialect dialect) throws Exception {
+    Scope.child(
+        SpannerConfiguration.REPLACE_USER_CONNECTION.getKey(),
+        false,
+        () -> {
+          try (Connection con = createConnection(dialect);
+              Liquibase liquibase = getLiquibase(con, "changelog.spanner.sql")) {
+            // Liquibase uses the connection of the application, and does not open another one.
+            assertThat(
+                    ((JdbcConnection) liquibase.getDatabase().getConnection())
+                        .getUnderlyingConnection())
+                .isSameInstanceAs(con);
+          }
+        });
+    // The connection of the application does not send the Liquibase client lib token.
+    receivedRequestWithNonLiquibaseToken.set(false);
+  }
 }
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.change;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.spanner.Mutation;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class WriteMutationsStatementTest {
+
+  @Test
+  public void testPartitionIsStable() {
+    List<Mutation> mutations = new ArrayList<>();
+    for (long id = 1L; id <= 8L; id++) {
+      mutations.add(
+          Mutation.newInsertBuilder("Singers")
+              .set("SingerId")
+              .to(id)
+              .set("Name")
+              .to("Name " + id)
+              .build());
+    }
+
+    List<List<Mutation>> partitions =
+        WriteMutationsStatement.partition(mutations, 3, ImmutableList.of("SingerId"));
+
+    // The partition of a row only depends on its key, also across JVMs.
+    assertThat(getIds(partitions.get(0))).containsExactly(2L, 7L).inOrder();
+    assertThat(getIds(partitions.get(1))).containsExactly(1L, 3L, 4L, 8L).inOrder();
+    assertThat(getIds(partitions.get(2))).containsExactly(5L, 6L).inOrder();
+  }
+
+  private static List<Long> getIds(List<Mutation> partition) {
+    return partition.stream()
+        .map(mutation -> mutation.asMap().get("SingerId").getInt64())
+        .collect(Collectors.toList());
+  }
+}
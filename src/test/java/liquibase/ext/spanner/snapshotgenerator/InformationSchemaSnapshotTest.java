@@ -0,0 +1,147 @@
+/**
+ * Copyright 2025 Google LLC
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package liquibase.ext.spanner.snapshotgenerator;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
+import com.google.spanner.v1.BeginTransactionRequest;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import com.google.spanner.v1.ResultSet;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.TransactionOptions;
+import com.google.spanner.v1.TransactionSelector;
+import com.google.spanner.v1.Type;
+import com.google.spanner.v1.TypeCode;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import liquibase.Scope;
+import liquibase.ext.spanner.AbstractMockServerTest;
+import liquibase.ext.spanner.SpannerConfiguration;
+import liquibase.structure.core.Schema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class InformationSchemaSnapshotTest extends AbstractMockServerTest {
+
+  @BeforeEach
+  void resetServer() {
+    mockSpanner.reset();
+    mockAdmin.reset();
+  }
+
+  @Test
+  void testMaxStalenessWithoutAutoCommit() throws Exception {
+    putEmptyResult(
+        InformationSchemaSnapshot.SELECT_COLUMNS,
+        "TABLE_NAME",
+        "COLUMN_NAME",
+        "COLUMN_DEF",
+        "SPANNER_TYPE");
+    putEmptyResult(
+        InformationSchemaSnapshot.SELECT_INDEX_COLUMNS,
+        "TABLE_NAME",
+        "INDEX_NAME",
+        "IS_UNIQUE",
+        "IS_NULL_FILTERED",
+        "COLUMN_NAME",
+        "ORDINAL_POSITION",
+        "COLUMN_ORDERING");
+
+    Scope.child(
+        SpannerConfiguration.METADATA_STALENESS.getKey(),
+        "MAX_STALENESS 10s",
+        () -> {
+          try (Connection connection = createConnection(Dialect.GOOGLE_STANDARD_SQL)) {
+            connection.setAutoCommit(false);
+            InformationSchemaSnapshot.load(connection, "", "");
+            // The connection is returned in the state that it was in.
+            assertThat(connection.getAutoCommit()).isFalse();
+            assertThat(connection.isReadOnly()).isFalse();
+          }
+        });
+
+    // A read-only transaction does not support MAX_STALENESS, so the queries are executed in a
+    // read-only transaction with an exact staleness of the same duration.
+    String columnsSql =
+        PARSER.convertPositionalParametersToNamedParameters(
+                '?', InformationSchemaSnapshot.SELECT_COLUMNS)
+            .sqlWithNamedParameters;
+    List<ExecuteSqlRequest> requests =
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .filter(request -> request.getSql().equals(columnsSql))
+            .collect(Collectors.toList());
+    assertThat(requests).hasSize(1);
+    TransactionSelector transaction = requests.get(0).getTransaction();
+    assertThat(transaction.hasSingleUse()).isFalse();
+    TransactionOptions options =
+        transaction.hasBegin()
+            ? transaction.getBegin()
+            : mockSpanner.getRequestsOfType(BeginTransactionRequest.class).get(0).getOptions();
+    TransactionOptions.ReadOnly readOnly = options.getReadOnly();
+    assertThat(readOnly.hasMaxStaleness()).isFalse();
+    assertThat(readOnly.getExactStaleness().getSeconds()).isEqualTo(10L);
+  }
+
+  @Test
+  void testSnapshotCacheOnlyReadsSnapshotClasses(@TempDir Path cacheDirectory) throws Exception {
+    Path snapshotFile = cacheDirectory.resolve("snapshot.ser");
+    SnapshotCache.write(snapshotFile, InformationSchemaSnapshot.fromSchema(new Schema()));
+    assertThat(SnapshotCache.read(snapshotFile)).isNotNull();
+
+    // Any other class in the file is rejected, including classes of the JDK.
+    Path otherFile = cacheDirectory.resolve("other.ser");
+    try (OutputStream out = Files.newOutputStream(otherFile);
+        ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+      objectOut.writeObject(new Date());
+    }
+    assertThat(SnapshotCache.read(otherFile)).isNull();
+  }
+
+  private static void putEmptyResult(String sql, String... columns) {
+    StructType.Builder rowType = StructType.newBuilder();
+    for (String column : columns) {
+      rowType.addFields(
+          StructType.Field.newBuilder()
+              .setName(column)
+              .setType(Type.newBuilder().setCode(TypeCode.STRING)));
+    }
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.newBuilder(
+                    PARSER.convertPositionalParametersToNamedParameters('?', sql)
+                        .sqlWithNamedParameters)
+                .bind("p1")
+                .to("")
+                .bind("p2")
+                .to("")
+                .build(),
+            ResultSet.newBuilder()
+                .setMetadata(ResultSetMetadata.newBuilder().setRowType(rowType))
+                .build()));
+  }
+}